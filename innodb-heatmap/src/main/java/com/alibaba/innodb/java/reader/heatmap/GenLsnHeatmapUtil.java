@@ -7,7 +7,7 @@ import com.google.common.collect.Maps;
 
 import com.alibaba.innodb.java.reader.TableReader;
 import com.alibaba.innodb.java.reader.TableReaderImpl;
-import com.alibaba.innodb.java.reader.page.FilHeader;
+import com.alibaba.innodb.java.reader.page.PageHeaderColumns;
 import com.alibaba.innodb.java.reader.page.PageType;
 import com.alibaba.innodb.java.reader.schema.TableDef;
 import com.alibaba.innodb.java.reader.schema.TableDefUtil;
@@ -23,15 +23,13 @@ import java.io.IOException;
 import java.io.Writer;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.concurrent.atomic.AtomicInteger;
 
 import lombok.extern.slf4j.Slf4j;
 
-import static java.util.stream.Collectors.toList;
+import static com.google.common.base.Preconditions.checkState;
 
 /**
  * Generate LSN heatmap based on the lsn of every page in innodb file.
@@ -107,35 +105,36 @@ public class GenLsnHeatmapUtil {
     long start = System.currentTimeMillis();
     try (TableReader reader = new TableReaderImpl(sourceIbdFilePath, tableDef)) {
       reader.open();
-      List<FilHeader> pageHeaders = reader.readAllPageHeaders();
-      List<FilHeader> printablePageHeaders = pageHeaders.stream()
-          .filter(p -> p.getPageType() != PageType.ALLOCATED && p.getPageType() != PageType.INDEX).collect(toList());
-      for (FilHeader printablePageHeader : printablePageHeaders) {
-        System.out.println(printablePageHeader);
+      // columnar headers scanned in parallel, no object is created per page
+      PageHeaderColumns pageHeaders = reader.readPageHeaderColumns();
+      long minLsn = Long.MAX_VALUE;
+      long maxLsn = Long.MIN_VALUE;
+      for (int i = 0; i < pageHeaders.size(); i++) {
+        PageType pageType = pageHeaders.getPageType(i);
+        if (pageType == PageType.ALLOCATED) {
+          continue;
+        }
+        if (pageType != PageType.INDEX) {
+          log.debug("Page {} type {} lsn {}", i, pageType, pageHeaders.getLastModifiedLsn(i));
+        }
+        minLsn = Math.min(minLsn, pageHeaders.getLastModifiedLsn(i));
+        maxLsn = Math.max(maxLsn, pageHeaders.getLastModifiedLsn(i));
       }
-      List<FilHeader> validPageHeaders = pageHeaders.stream()
-          .filter(p -> p.getPageType() != PageType.ALLOCATED).collect(toList());
-      FilHeader minLsnPageHeader = validPageHeaders.stream()
-          .min(Comparator.comparingLong(FilHeader::getLastModifiedLsn)).get();
-      FilHeader maxLsnPageHeader = validPageHeaders.stream()
-          .max(Comparator.comparingLong(FilHeader::getLastModifiedLsn)).get();
-      long minLsn = minLsnPageHeader.getLastModifiedLsn();
-      long maxLsn = maxLsnPageHeader.getLastModifiedLsn();
+      checkState(minLsn <= maxLsn, "No valid page found");
       long range = maxLsn - minLsn;
       List<Line<Long>> lsnList = new ArrayList<>((pageHeaders.size() / pageWrapNum + 1));
       List<String> yList = new ArrayList<>((pageHeaders.size() / pageWrapNum + 1));
-      AtomicInteger counter = new AtomicInteger(0);
-      pageHeaders.forEach(p -> {
-        if (counter.getAndIncrement() % pageWrapNum == 0) {
+      for (int i = 0; i < pageHeaders.size(); i++) {
+        if (i % pageWrapNum == 0) {
           lsnList.add(new Line<>());
-          yList.add(String.format("page%4d", counter.get() - 1));
+          yList.add(String.format("page%4d", i));
         }
         long val = 0L;
-        if (!PageType.ALLOCATED.equals(p.getPageType())) {
-          val = (p.getLastModifiedLsn() - minLsn) * 100L / range;
+        if (pageHeaders.getPageType(i) != PageType.ALLOCATED) {
+          val = (pageHeaders.getLastModifiedLsn(i) - minLsn) * 100L / range;
         }
         lsnList.get(lsnList.size() - 1).getList().add(val);
-      });
+      }
       Collections.reverse(lsnList);
       Collections.reverse(yList);
       dataModel.put("lsnlist", lsnList);
@@ -23,7 +23,8 @@ public enum CommandType {
   RANGE_QUERY_BY_PK("range-query-by-pk", "range query records"),
   GEN_LSN_HEATMAP("gen-lsn-heatmap", "generate lsn heatmap"),
   GEN_FILLING_RATE_HEATMAP("gen-filling-rate-heatmap", "generate filling rate heatmap"),
-  GET_ALL_INDEX_PAGE_FILLING_RATE("get-all-index-page-filling-rate", "get all index page filling rate");
+  GET_ALL_INDEX_PAGE_FILLING_RATE("get-all-index-page-filling-rate", "get all index page filling rate"),
+  VERIFY_CHECKSUMS("verify-checksums", "verify checksum of all pages");
 
   CommandType(final String type, final String desc) {
     this.type = type;
@@ -25,6 +25,7 @@ import com.alibaba.innodb.java.reader.schema.Column;
 import com.alibaba.innodb.java.reader.schema.TableDef;
 import com.alibaba.innodb.java.reader.schema.provider.TableDefProvider;
 import com.alibaba.innodb.java.reader.schema.provider.impl.SqlFileTableDefProvider;
+import com.alibaba.innodb.java.reader.service.ChecksumVerifyResult;
 import com.alibaba.innodb.java.reader.util.Pair;
 import com.alibaba.innodb.java.reader.util.ThreadContext;
 import com.alibaba.innodb.java.reader.util.Utils;
@@ -383,6 +384,11 @@ public class InnodbReaderBootstrap {
         case GET_ALL_INDEX_PAGE_FILLING_RATE:
           getAllIndexPageFillingRate(ibdFilePath, writer, tableDefProvider, tableName);
           break;
+        case VERIFY_CHECKSUMS:
+          if (!verifyChecksums(ibdFilePath, writer, tableDefProvider, tableName)) {
+            return false;
+          }
+          break;
         default:
           log.error("invalid command type, cmd=" + ALL_COMMANDS);
           showHelp(options, 1);
@@ -644,6 +650,19 @@ public class InnodbReaderBootstrap {
     }
   }
 
+  private static boolean verifyChecksums(String ibdFilePath, Writer writer,
+                                         TableDefProvider tableDefProvider, String tableName) {
+    try (TableReader reader = createTableReader(ibdFilePath, tableDefProvider, tableName)) {
+      reader.open();
+      ChecksumVerifyResult result = reader.verifyChecksums();
+      for (Long pageNumber : result.getCorruptedPageNumbers()) {
+        writer.write("Page " + pageNumber + " is corrupted");
+      }
+      writer.write("Verify checksums " + (result.isCorrupted() ? "failed" : "succeeded") + ", " + result);
+      return !result.isCorrupted();
+    }
+  }
+
   private static void showHeaderIfSet(TableReader reader, Writer writer) {
     if (SHOW_HEADER) {
       TableDef tableDef = reader.getTableDef();
@@ -54,6 +54,17 @@ public interface Constants {
    */
   int ROOT_PAGE_NUMBER = 3;
 
+  /**
+   * An extent is 1MB which is 64 pages when page size is 16KB.
+   */
+  int PAGES_PER_EXTENT = 64;
+
+  /**
+   * Every FSP_HDR or XDES page describes 256 extents, so that XDES pages are located
+   * at page 0, 16384, 32768 and so on.
+   */
+  int PAGES_PER_XDES = 256 * PAGES_PER_EXTENT;
+
   List<String> CONST_UNSIGNED = ImmutableList.of("UNSIGNED", "unsigned");
 
   int PRECISION_LIMIT = 5;
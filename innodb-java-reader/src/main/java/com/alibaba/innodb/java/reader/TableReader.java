@@ -3,16 +3,29 @@
  */
 package com.alibaba.innodb.java.reader;
 
+import com.alibaba.innodb.java.reader.aggregate.AggregateRow;
+import com.alibaba.innodb.java.reader.aggregate.Aggregation;
 import com.alibaba.innodb.java.reader.comparator.ComparisonOperator;
+import com.alibaba.innodb.java.reader.filter.Filter;
 import com.alibaba.innodb.java.reader.page.AbstractPage;
 import com.alibaba.innodb.java.reader.page.FilHeader;
+import com.alibaba.innodb.java.reader.page.PageHeaderColumns;
+import com.alibaba.innodb.java.reader.page.PageHeaderVisitor;
+import com.alibaba.innodb.java.reader.page.index.ColumnBatch;
 import com.alibaba.innodb.java.reader.page.index.GenericRecord;
+import com.alibaba.innodb.java.reader.page.index.Row;
+import com.alibaba.innodb.java.reader.page.index.RowVisitor;
 import com.alibaba.innodb.java.reader.schema.TableDef;
+import com.alibaba.innodb.java.reader.service.ChecksumVerifyResult;
 
 import java.io.Closeable;
+import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 import java.util.function.Predicate;
+import java.util.stream.Stream;
 
 /**
  * Reader to query upon an Innodb file with suffix of <tt>*.ibd</tt>.
@@ -51,13 +64,51 @@ public interface TableReader extends Closeable {
 
   /**
    * Read all page headers into memory.
+   * <p>
+   * One object per page is created, for large tablespace use
+   * {@link #readPageHeaderColumns()} or {@link #scanPageHeaders(PageHeaderVisitor)} instead.
    *
    * @return list of FilHeader
    */
   List<FilHeader> readAllPageHeaders();
 
   /**
-   * Read one page as {@link AbstractPage}.
+   * Read all page headers into columnar primitive arrays indexed by page number,
+   * headers are scanned in parallel.
+   *
+   * @return page header columns
+   */
+  PageHeaderColumns readPageHeaderColumns();
+
+  /**
+   * Scan all page headers in parallel without creating objects per page.
+   *
+   * @param visitor visitor called concurrently by multiple threads, should be thread-safe
+   * @return number of pages visited
+   */
+  long scanPageHeaders(PageHeaderVisitor visitor);
+
+  /**
+   * Verify checksum of all pages in parallel regardless of page type.
+   *
+   * @return result including corrupted page numbers and throughput
+   */
+  ChecksumVerifyResult verifyChecksums();
+
+  /**
+   * Pin all non-leaf levels of clustered index in memory for faster primary key lookup,
+   * see {@link com.alibaba.innodb.java.reader.config.ReaderSystemProperty#PIN_NON_LEAF_LEVELS_MAX_SIZE_MB}
+   * to pin when table reader is opened.
+   *
+   * @param maxBytes budget of memory in bytes
+   * @return true if pinned, false if the tree is too large for the budget
+   */
+  boolean pinNonLeafLevels(long maxBytes);
+
+  /**
+   * Read one page as {@link AbstractPage}. If the page is served from a pooled buffer, for
+   * example by buffer pool, it is copied and released, so the page returned does not hold
+   * any pooled buffer and needs no release.
    *
    * @param pageNumber page number
    * @return AbstractPage
@@ -118,6 +169,48 @@ public interface TableReader extends Closeable {
    */
   GenericRecord queryByPrimaryKey(List<Object> key, List<String> projection);
 
+  /**
+   * Query record by primary key asynchronously.
+   * <p>
+   * Pages are loaded without blocking the calling thread only if storage service type is
+   * <code>ASYNC_FILE_CHANNEL</code>, so that one thread can issue many concurrent lookups,
+   * otherwise the lookup is done in the calling thread and a completed future is returned.
+   *
+   * @param key primary key, single key or a composite key
+   * @return future of record, the record is null if not found
+   */
+  CompletableFuture<GenericRecord> queryByPrimaryKeyAsync(List<Object> key);
+
+  /**
+   * Query record by primary key asynchronously with projection,
+   * see {@link #queryByPrimaryKeyAsync(List)}.
+   *
+   * @param key        key list of primary key, single key or a composite key
+   * @param projection projection of selected column names
+   * @return future of record, the record is null if not found
+   */
+  CompletableFuture<GenericRecord> queryByPrimaryKeyAsync(List<Object> key, List<String> projection);
+
+  /**
+   * Query records by a batch of primary keys.
+   * <p>
+   * Keys are sorted and searched together, B+ tree is walked once for the whole batch and
+   * every page needed is loaded only once.
+   *
+   * @param keys keys, every key is a single key or a composite key
+   * @return records in the same order as keys, null for key not found
+   */
+  List<GenericRecord> queryByPrimaryKeys(Collection<List<Object>> keys);
+
+  /**
+   * Query records by a batch of primary keys with projection, see {@link #queryByPrimaryKeys(Collection)}.
+   *
+   * @param keys       keys, every key is a single key or a composite key
+   * @param projection projection of selected column names
+   * @return records in the same order as keys, null for key not found
+   */
+  List<GenericRecord> queryByPrimaryKeys(Collection<List<Object>> keys, List<String> projection);
+
   /**
    * Query all records in a tablespace.
    * <p>
@@ -161,6 +254,212 @@ public interface TableReader extends Closeable {
    */
   List<GenericRecord> queryAll(Predicate<GenericRecord> recordPredicate, List<String> projection);
 
+  /**
+   * Query all records in a tablespace with a declarative filter, which is evaluated on
+   * encoded bytes before records are decoded, see {@link Filter}.
+   * <p>
+   * Note this will cause out-of-memory if the table size is too big.
+   *
+   * @param filter filter
+   * @return all records
+   */
+  List<GenericRecord> queryAll(Filter filter);
+
+  /**
+   * Query all records in a tablespace with a declarative filter and projection, columns used
+   * by filter are included in projection.
+   * <p>
+   * Note this will cause out-of-memory if the table size is too big.
+   *
+   * @param filter     filter
+   * @param projection projection of selected column names
+   * @return all records
+   */
+  List<GenericRecord> queryAll(Filter filter, List<String> projection);
+
+  /**
+   * Scan all records in a tablespace in parallel, B+ tree is split into subtrees which are
+   * decoded by multiple threads.
+   *
+   * @param ordered        if true, records are passed to consumer in primary key order by
+   *                       the calling thread, otherwise records are passed to consumer
+   *                       concurrently by worker threads without order for max throughput
+   * @param recordConsumer consumer of records, should be thread-safe if not ordered
+   * @return number of records
+   */
+  long parallelScan(boolean ordered, Consumer<GenericRecord> recordConsumer);
+
+  /**
+   * Scan all records in a tablespace in parallel with projection, see
+   * {@link #parallelScan(boolean, Consumer)}.
+   *
+   * @param projection     projection of selected column names
+   * @param ordered        if true, records are passed to consumer in primary key order
+   * @param recordConsumer consumer of records, should be thread-safe if not ordered
+   * @return number of records
+   */
+  long parallelScan(List<String> projection, boolean ordered, Consumer<GenericRecord> recordConsumer);
+
+  /**
+   * Scan all records in a tablespace in physical order, the tablespace is read sequentially
+   * extent by extent and leaf pages of clustered index are decoded wherever they are, so
+   * this is faster than other scans for fragmented table if order does not matter, for
+   * example, exporting or counting.
+   *
+   * @param recordConsumer consumer of records, there is no order across pages
+   * @return number of records
+   */
+  long unorderedScan(Consumer<GenericRecord> recordConsumer);
+
+  /**
+   * Scan all records in a tablespace in physical order with projection, see
+   * {@link #unorderedScan(Consumer)}.
+   *
+   * @param projection     projection of selected column names
+   * @param recordConsumer consumer of records, there is no order across pages
+   * @return number of records
+   */
+  long unorderedScan(List<String> projection, Consumer<GenericRecord> recordConsumer);
+
+  /**
+   * Group all records by columns and aggregate them in parallel, like
+   * <code>SELECT g1, COUNT(*), SUM(c) FROM t GROUP BY g1</code>, records are not decoded into
+   * {@link GenericRecord}, aggregated columns are read by primitive accessors of {@link Row}.
+   * Groups beyond memory budget
+   * {@link com.alibaba.innodb.java.reader.config.ReaderSystemProperty#AGGREGATE_MEMORY_BUDGET_MB}
+   * are spilled to temporary files.
+   * <p>
+   * Group-by columns are compared in bytes as stored, not by collation. SUM, MIN and MAX only
+   * support integer, FLOAT and DOUBLE columns.
+   *
+   * @param groupBy        group-by column names, empty means one group of all records
+   * @param aggregations   aggregations, see {@link Aggregation}
+   * @param resultConsumer consumer of results of groups, there is no order of groups
+   * @return number of groups
+   */
+  long aggregate(List<String> groupBy, List<Aggregation> aggregations, Consumer<AggregateRow> resultConsumer);
+
+  /**
+   * Group records qualified by filter and aggregate them, see
+   * {@link #aggregate(List, List, Consumer)}.
+   *
+   * @param groupBy        group-by column names, empty means one group of all records
+   * @param aggregations   aggregations, see {@link Aggregation}
+   * @param rowPredicate   filtering on row, should be thread-safe
+   * @param projection     column names accessed by predicate, group-by columns and aggregated
+   *                       columns are always included
+   * @param resultConsumer consumer of results of groups, there is no order of groups
+   * @return number of groups
+   */
+  long aggregate(List<String> groupBy, List<Aggregation> aggregations,
+                 Predicate<Row> rowPredicate, List<String> projection,
+                 Consumer<AggregateRow> resultConsumer);
+
+  /**
+   * Count records in a tablespace without decoding records, number of records in index header
+   * of leaf pages are summed up, leaf pages are found by reading the tablespace sequentially
+   * like {@link #unorderedScan(Consumer)}.
+   *
+   * @return number of records
+   */
+  long count();
+
+  /**
+   * Count records by primary key range, leaf pages between the first and the last page in
+   * range are counted by index header, only keys of records in the two pages are decoded.
+   * <p>
+   * For single key the lower or upper list size should be one, for composite key the size
+   * will be more than one.
+   *
+   * @param lower         lower bound, empty means no lower bound
+   * @param lowerOperator comparison operator for lower
+   * @param upper         upper bound, empty means no upper bound
+   * @param upperOperator comparison operator for upper
+   * @return number of records
+   */
+  long count(List<Object> lower, ComparisonOperator lowerOperator,
+             List<Object> upper, ComparisonOperator upperOperator);
+
+  /**
+   * Scan all records in a tablespace in primary key order, column values are decoded
+   * only when they are accessed.
+   * <p>
+   * Records are valid only while they are passed to consumer, call
+   * {@link com.alibaba.innodb.java.reader.page.index.LazyGenericRecord#materialize()} to keep one.
+   *
+   * @param recordConsumer consumer of records
+   * @return number of records
+   */
+  long lazyScan(Consumer<GenericRecord> recordConsumer);
+
+  /**
+   * Scan all records in a tablespace with a filter, see {@link #lazyScan(Consumer)}, filtering
+   * by a few columns only decodes these columns.
+   *
+   * @param recordPredicate filtering, if predicate returns true upon record, then it will be
+   *                        passed to consumer
+   * @param recordConsumer  consumer of records
+   * @return number of records passed to consumer
+   */
+  long lazyScan(Predicate<GenericRecord> recordPredicate, Consumer<GenericRecord> recordConsumer);
+
+  /**
+   * Scan all records in a tablespace in primary key order with cursor, one mutable
+   * {@link com.alibaba.innodb.java.reader.page.index.Row} is reused for all records, values
+   * can be read by primitive accessors like
+   * {@link com.alibaba.innodb.java.reader.page.index.Row#getLong(int)} without allocation.
+   *
+   * @param rowVisitor visitor of rows
+   * @return number of rows
+   */
+  long scan(RowVisitor rowVisitor);
+
+  /**
+   * Scan all records in a tablespace with cursor, see {@link #scan(RowVisitor)}.
+   *
+   * @param projection selected column names, columns not selected cannot be accessed
+   * @param rowVisitor visitor of rows
+   * @return number of rows
+   */
+  long scan(List<String> projection, RowVisitor rowVisitor);
+
+  /**
+   * Range query records by primary key with cursor, see {@link #scan(RowVisitor)}.
+   * <p>
+   * For single key the lower or upper list size should be one, for composite key the size
+   * will be more than one.
+   *
+   * @param lower         if rangeQuery is true, then this is the lower bound, empty means no lower bound
+   * @param lowerOperator if rangeQuery is true, then this is the comparison operator for lower
+   * @param upper         if rangeQuery is true, then this is the upper bound, empty means no upper bound
+   * @param upperOperator if rangeQuery is true, then this is the comparison operator for upper
+   * @param projection    selected column names, columns not selected cannot be accessed
+   * @param rowVisitor    visitor of rows
+   * @return number of rows
+   */
+  long scan(List<Object> lower, ComparisonOperator lowerOperator, List<Object> upper,
+            ComparisonOperator upperOperator, List<String> projection, RowVisitor rowVisitor);
+
+  /**
+   * Scan all records in a tablespace in primary key order, records are decoded page by page into
+   * column vectors, see {@link com.alibaba.innodb.java.reader.page.index.ColumnVector}.
+   * <p>
+   * The batch is reused for the next page, so it should not be kept after being consumed.
+   *
+   * @param batchConsumer consumer of batches
+   * @return number of records
+   */
+  long scanBatch(Consumer<ColumnBatch> batchConsumer);
+
+  /**
+   * Scan all records in a tablespace in column batches, see {@link #scanBatch(Consumer)}.
+   *
+   * @param projection    selected column names
+   * @param batchConsumer consumer of batches
+   * @return number of records
+   */
+  long scanBatch(List<String> projection, Consumer<ColumnBatch> batchConsumer);
+
   /**
    * Range query records by primary key in a tablespace.
    * For single key the list size should be one, for composite key the size
@@ -342,6 +641,41 @@ public interface TableReader extends Closeable {
                                                 List<Object> upper, ComparisonOperator upperOperator,
                                                 List<String> projection, boolean ascOrder);
 
+  /**
+   * Return a stream of all records in ascending order, see
+   * {@link #stream(List, ComparisonOperator, List, ComparisonOperator, List)}.
+   *
+   * @return sequential stream, call {@link Stream#parallel()} to consume in parallel
+   */
+  Stream<GenericRecord> stream();
+
+  /**
+   * Return a stream of all records in ascending order with projection, see
+   * {@link #stream(List, ComparisonOperator, List, ComparisonOperator, List)}.
+   *
+   * @param projection projection of selected column names
+   * @return sequential stream, call {@link Stream#parallel()} to consume in parallel
+   */
+  Stream<GenericRecord> stream(List<String> projection);
+
+  /**
+   * Return a stream to do range query records by primary key in ascending order.
+   * <p>
+   * The stream is backed by a spliterator which splits the remaining key range by separator
+   * keys of non-leaf pages, so that parallel stream reads different subtrees in parallel.
+   * Pages are loaded lazily when the stream is consumed.
+   *
+   * @param lower         lower bound
+   * @param lowerOperator comparison operator for lower
+   * @param upper         upper bound
+   * @param upperOperator comparison operator for upper
+   * @param projection    projection of selected column names
+   * @return sequential stream, call {@link Stream#parallel()} to consume in parallel
+   */
+  Stream<GenericRecord> stream(List<Object> lower, ComparisonOperator lowerOperator,
+                               List<Object> upper, ComparisonOperator upperOperator,
+                               List<String> projection);
+
   /**
    * Return record iterator by secondary key (SK) in a tablespace. This is first go through all
    * secondary keys and look up record back to clustered index.
@@ -3,42 +3,71 @@
  */
 package com.alibaba.innodb.java.reader;
 
+import com.google.common.collect.ImmutableList;
+
+import com.alibaba.innodb.java.reader.aggregate.AggregateRow;
+import com.alibaba.innodb.java.reader.aggregate.Aggregation;
 import com.alibaba.innodb.java.reader.comparator.ComparisonOperator;
 import com.alibaba.innodb.java.reader.comparator.DefaultKeyComparator;
 import com.alibaba.innodb.java.reader.comparator.KeyComparator;
+import com.alibaba.innodb.java.reader.config.ReaderSystemProperty;
 import com.alibaba.innodb.java.reader.exception.ReaderException;
+import com.alibaba.innodb.java.reader.filter.Filter;
 import com.alibaba.innodb.java.reader.page.AbstractPage;
 import com.alibaba.innodb.java.reader.page.AllocatedPage;
 import com.alibaba.innodb.java.reader.page.FilHeader;
 import com.alibaba.innodb.java.reader.page.InnerPage;
+import com.alibaba.innodb.java.reader.page.PageHeaderColumns;
+import com.alibaba.innodb.java.reader.page.PageHeaderVisitor;
+import com.alibaba.innodb.java.reader.page.PageType;
 import com.alibaba.innodb.java.reader.page.SdiPage;
 import com.alibaba.innodb.java.reader.page.blob.Blob;
 import com.alibaba.innodb.java.reader.page.fsphdr.FspHdrXes;
 import com.alibaba.innodb.java.reader.page.ibuf.IbufBitmap;
+import com.alibaba.innodb.java.reader.page.index.ColumnBatch;
 import com.alibaba.innodb.java.reader.page.index.GenericRecord;
 import com.alibaba.innodb.java.reader.page.index.Index;
+import com.alibaba.innodb.java.reader.page.index.Row;
+import com.alibaba.innodb.java.reader.page.index.RowVisitor;
 import com.alibaba.innodb.java.reader.page.inode.Inode;
 import com.alibaba.innodb.java.reader.schema.TableDef;
 import com.alibaba.innodb.java.reader.schema.TableDefUtil;
+import com.alibaba.innodb.java.reader.service.ChecksumVerifyResult;
 import com.alibaba.innodb.java.reader.service.IndexService;
 import com.alibaba.innodb.java.reader.service.StorageService;
+import com.alibaba.innodb.java.reader.service.impl.AsyncFileChannelStorageServiceImpl;
+import com.alibaba.innodb.java.reader.service.impl.BufferPoolStorageServiceImpl;
+import com.alibaba.innodb.java.reader.service.impl.ChecksumVerifier;
+import com.alibaba.innodb.java.reader.service.impl.DirectIoStorageServiceImpl;
+import com.alibaba.innodb.java.reader.service.impl.ExtentReader;
 import com.alibaba.innodb.java.reader.service.impl.FileChannelStorageServiceImpl;
 import com.alibaba.innodb.java.reader.service.impl.IndexServiceImpl;
+import com.alibaba.innodb.java.reader.service.impl.MmapStorageServiceImpl;
+import com.alibaba.innodb.java.reader.service.impl.PageHeaderScanner;
+import com.alibaba.innodb.java.reader.util.Slices;
 import com.alibaba.innodb.java.reader.util.Utils;
 
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import lombok.extern.slf4j.Slf4j;
 
+import static com.alibaba.innodb.java.reader.Constants.PAGES_PER_EXTENT;
 import static com.alibaba.innodb.java.reader.SizeOf.SIZE_OF_PAGE;
+import static com.alibaba.innodb.java.reader.comparator.ComparisonOperator.NOP;
 import static com.alibaba.innodb.java.reader.page.PageType.INDEX;
 import static com.alibaba.innodb.java.reader.util.Utils.makeNotNull;
 import static com.google.common.base.Preconditions.checkArgument;
@@ -91,15 +120,44 @@ public class TableReaderImpl implements TableReader {
       if (storageService != null) {
         throw new ReaderException("TableReader can only be opened once");
       }
-      storageService = new FileChannelStorageServiceImpl();
+      storageService = createStorageService();
       storageService.open(ibdFilePath);
       indexService = new IndexServiceImpl(storageService, tableDef, keyComparator);
+      int pinNonLeafLevelsMaxSizeInMb = ReaderSystemProperty.PIN_NON_LEAF_LEVELS_MAX_SIZE_MB.value();
+      if (pinNonLeafLevelsMaxSizeInMb > 0) {
+        indexService.pinNonLeafLevels(pinNonLeafLevelsMaxSizeInMb * 1024L * 1024L);
+      }
       log.debug("Open ibd file:{}, tableDef:{}", ibdFilePath, tableDef);
     } catch (IOException e) {
       throw new ReaderException("Open " + ibdFilePath + " failed " + e.getMessage(), e);
     }
   }
 
+  private StorageService createStorageService() {
+    String type = ReaderSystemProperty.STORAGE_SERVICE_TYPE.value();
+    log.debug("Use {} storage service", type);
+    StorageService storageService;
+    switch (type) {
+      case "MMAP":
+        storageService = new MmapStorageServiceImpl();
+        break;
+      case "DIRECT_IO":
+        storageService = new DirectIoStorageServiceImpl();
+        break;
+      case "ASYNC_FILE_CHANNEL":
+        storageService = new AsyncFileChannelStorageServiceImpl();
+        break;
+      default:
+        storageService = new FileChannelStorageServiceImpl();
+        break;
+    }
+    int bufferPoolSizeInMb = ReaderSystemProperty.BUFFER_POOL_SIZE_MB.value();
+    if (bufferPoolSizeInMb > 0) {
+      storageService = new BufferPoolStorageServiceImpl(storageService, bufferPoolSizeInMb * 1024L * 1024L);
+    }
+    return storageService;
+  }
+
   @Override
   public long getNumOfPages() {
     checkNotNull(storageService, "storageService should not null, please make sure TableReader is opened");
@@ -110,47 +168,113 @@ public class TableReaderImpl implements TableReader {
   public List<AbstractPage> readAllPages() {
     checkNotNull(storageService, "storageService should not null, please make sure TableReader is opened");
     List<AbstractPage> result = new ArrayList<>((int) storageService.numOfPages());
-    for (int i = 0; i < storageService.numOfPages(); i++) {
-      result.add(readPage(i));
+    Iterator<AbstractPage> iterator = getPageIterator();
+    while (iterator.hasNext()) {
+      result.add(iterator.next());
     }
     return result;
   }
 
+  /**
+   * Pages are loaded extent by extent, one extent is read in one I/O.
+   */
   @Override
   public Iterator<AbstractPage> getPageIterator() {
     checkNotNull(storageService, "storageService should not null, please make sure TableReader is opened");
-    final int numOfPages = (int) storageService.numOfPages();
+    final Iterator<InnerPage> iterator = new ExtentReader(storageService).pageIterator(false);
     return new Iterator<AbstractPage>() {
 
-      private int index = 0;
-
       @Override
       public boolean hasNext() {
-        return index < numOfPages;
+        return iterator.hasNext();
       }
 
       @Override
       public AbstractPage next() {
-        return readPage(index++);
+        return toPage(iterator.next());
       }
     };
   }
 
+  /**
+   * Pages are read extent by extent, one extent is read in one I/O and only FIL headers
+   * are parsed, see {@link ExtentReader#readExtentHeaders(long, ByteBuffer)}. Extents in
+   * {@link com.alibaba.innodb.java.reader.page.fsphdr.XdesState#FREE} state are not read,
+   * headers of pages in free extents are returned as {@link PageType#ALLOCATED}.
+   */
   @Override
   public List<FilHeader> readAllPageHeaders() {
     checkNotNull(storageService, "storageService should not null, please make sure TableReader is opened");
-    List<FilHeader> result = new ArrayList<>((int) storageService.numOfPages());
-    for (long i = 0L; i < storageService.numOfPages(); i++) {
-      result.add(storageService.loadPageHeader(i));
+    ExtentReader extentReader = new ExtentReader(storageService);
+    List<FilHeader> result = new ArrayList<>((int) extentReader.getNumOfPages());
+    ByteBuffer buffer = ByteBuffer.allocate(PAGES_PER_EXTENT * SIZE_OF_PAGE);
+    for (long extentNumber = 0L; extentNumber < extentReader.getNumOfExtents(); extentNumber++) {
+      if (extentReader.isFreeExtent(extentNumber)) {
+        long startPageNumber = extentReader.getStartPageNumber(extentNumber);
+        for (int i = 0; i < extentReader.getNumOfPagesInExtent(extentNumber); i++) {
+          FilHeader filHeader = new FilHeader();
+          filHeader.setPageNumber(startPageNumber + i);
+          filHeader.setPageType(PageType.ALLOCATED);
+          result.add(filHeader);
+        }
+        continue;
+      }
+      result.addAll(extentReader.readExtentHeaders(extentNumber, buffer));
     }
     return result;
   }
 
+  @Override
+  public PageHeaderColumns readPageHeaderColumns() {
+    checkNotNull(storageService, "storageService should not null, please make sure TableReader is opened");
+    return new PageHeaderScanner(storageService).readColumns();
+  }
+
+  @Override
+  public long scanPageHeaders(PageHeaderVisitor visitor) {
+    checkNotNull(storageService, "storageService should not null, please make sure TableReader is opened");
+    return new PageHeaderScanner(storageService).scan(visitor);
+  }
+
+  @Override
+  public ChecksumVerifyResult verifyChecksums() {
+    checkNotNull(storageService, "storageService should not null, please make sure TableReader is opened");
+    return new ChecksumVerifier(storageService).verify();
+  }
+
+  @Override
+  public boolean pinNonLeafLevels(long maxBytes) {
+    checkNotNull(indexService, "indexService should not null, please make sure TableReader is opened");
+    return indexService.pinNonLeafLevels(maxBytes);
+  }
+
   @Override
   public AbstractPage readPage(long pageNumber) {
     checkNotNull(storageService, "storageService should not null, please make sure TableReader is opened");
     InnerPage page = storageService.loadPage(pageNumber);
     checkNotNull(page, "page cannot be null which should not happen");
+    return toPage(detach(page));
+  }
+
+  /**
+   * Copy pooled page into a heap buffer and release it, so that page kept by caller does
+   * not pin pooled buffer.
+   */
+  private InnerPage detach(InnerPage page) {
+    if (!page.isReleasable()) {
+      return page;
+    }
+    try {
+      page.getSliceInput().setPosition(0);
+      byte[] bytes = page.getSliceInput().readByteArray(SIZE_OF_PAGE);
+      // checksum has been validated when the page is loaded
+      return new InnerPage(page.getPageNumber(), Slices.fromByteBuffer(ByteBuffer.wrap(bytes)), false);
+    } finally {
+      page.release();
+    }
+  }
+
+  private AbstractPage toPage(InnerPage page) {
     if (page.pageType() == null) {
       throw new ReaderException("page type not supported, " + page.getFilHeader());
     }
@@ -176,15 +300,19 @@ public class TableReaderImpl implements TableReader {
     }
   }
 
+  /**
+   * Free extents are skipped since they contain no index page in use.
+   */
   @Override
   public double getAllIndexPageFillingRate() {
-    Iterator<AbstractPage> iterator = getPageIterator();
+    checkNotNull(storageService, "storageService should not null, please make sure TableReader is opened");
+    Iterator<InnerPage> iterator = new ExtentReader(storageService).pageIterator(true);
     long totalUsedBytes = 0L;
     long indexPageNum = 0;
     while (iterator.hasNext()) {
-      AbstractPage page = iterator.next();
+      InnerPage page = iterator.next();
       if (INDEX.equals(page.pageType())) {
-        totalUsedBytes += ((Index) page).usedBytesInIndexPage();
+        totalUsedBytes += new Index(page, tableDef).usedBytesInIndexPage();
         indexPageNum++;
       }
     }
@@ -193,11 +321,16 @@ public class TableReaderImpl implements TableReader {
 
   @Override
   public double getIndexPageFillingRate(int pageNumber) {
-    AbstractPage page = readPage(pageNumber);
-    if (!INDEX.equals(page.pageType())) {
-      throw new ReaderException("page type is not index, " + page.getFilHeader());
+    checkNotNull(storageService, "storageService should not null, please make sure TableReader is opened");
+    InnerPage page = storageService.loadPage(pageNumber);
+    try {
+      if (!INDEX.equals(page.pageType())) {
+        throw new ReaderException("page type is not index, " + page.getFilHeader());
+      }
+      return new Index(page, tableDef).usedBytesInIndexPage() * 1.0D / SIZE_OF_PAGE;
+    } finally {
+      page.release();
     }
-    return ((Index) page).usedBytesInIndexPage() * 1.0D / SIZE_OF_PAGE;
   }
 
   @Override
@@ -220,6 +353,26 @@ public class TableReaderImpl implements TableReader {
     return indexService.queryByPrimaryKey(key, sanitize(projection));
   }
 
+  @Override
+  public List<GenericRecord> queryByPrimaryKeys(Collection<List<Object>> keys) {
+    return indexService.queryByPrimaryKeys(keys, Optional.empty());
+  }
+
+  @Override
+  public List<GenericRecord> queryByPrimaryKeys(Collection<List<Object>> keys, List<String> projection) {
+    return indexService.queryByPrimaryKeys(keys, sanitize(projection));
+  }
+
+  @Override
+  public CompletableFuture<GenericRecord> queryByPrimaryKeyAsync(List<Object> key) {
+    return indexService.queryByPrimaryKeyAsync(key, Optional.empty());
+  }
+
+  @Override
+  public CompletableFuture<GenericRecord> queryByPrimaryKeyAsync(List<Object> key, List<String> projection) {
+    return indexService.queryByPrimaryKeyAsync(key, sanitize(projection));
+  }
+
   @Override
   public List<GenericRecord> queryAll() {
     return indexService.queryAll(Optional.empty(), Optional.empty());
@@ -240,6 +393,96 @@ public class TableReaderImpl implements TableReader {
     return indexService.queryAll(Optional.of(recordPredicate), sanitize(projection));
   }
 
+  @Override
+  public List<GenericRecord> queryAll(Filter filter) {
+    return indexService.queryAll(filter, Optional.empty());
+  }
+
+  @Override
+  public List<GenericRecord> queryAll(Filter filter, List<String> projection) {
+    return indexService.queryAll(filter, sanitize(projection));
+  }
+
+  @Override
+  public long parallelScan(boolean ordered, Consumer<GenericRecord> recordConsumer) {
+    return indexService.parallelScan(Optional.empty(), Optional.empty(), ordered, recordConsumer);
+  }
+
+  @Override
+  public long parallelScan(List<String> projection, boolean ordered, Consumer<GenericRecord> recordConsumer) {
+    return indexService.parallelScan(Optional.empty(), sanitize(projection), ordered, recordConsumer);
+  }
+
+  @Override
+  public long unorderedScan(Consumer<GenericRecord> recordConsumer) {
+    return indexService.unorderedScan(Optional.empty(), Optional.empty(), recordConsumer);
+  }
+
+  @Override
+  public long unorderedScan(List<String> projection, Consumer<GenericRecord> recordConsumer) {
+    return indexService.unorderedScan(Optional.empty(), sanitize(projection), recordConsumer);
+  }
+
+  @Override
+  public long aggregate(List<String> groupBy, List<Aggregation> aggregations,
+                        Consumer<AggregateRow> resultConsumer) {
+    return indexService.aggregate(groupBy, aggregations, Optional.empty(), Optional.empty(), resultConsumer);
+  }
+
+  @Override
+  public long aggregate(List<String> groupBy, List<Aggregation> aggregations, Predicate<Row> rowPredicate,
+                        List<String> projection, Consumer<AggregateRow> resultConsumer) {
+    return indexService.aggregate(groupBy, aggregations, Optional.ofNullable(rowPredicate), sanitize(projection),
+        resultConsumer);
+  }
+
+  @Override
+  public long count() {
+    return indexService.count();
+  }
+
+  @Override
+  public long count(List<Object> lower, ComparisonOperator lowerOperator,
+                    List<Object> upper, ComparisonOperator upperOperator) {
+    return indexService.count(lower, lowerOperator, upper, upperOperator);
+  }
+
+  @Override
+  public long lazyScan(Consumer<GenericRecord> recordConsumer) {
+    return indexService.lazyScan(Optional.empty(), Optional.empty(), recordConsumer);
+  }
+
+  @Override
+  public long lazyScan(Predicate<GenericRecord> recordPredicate, Consumer<GenericRecord> recordConsumer) {
+    return indexService.lazyScan(Optional.of(recordPredicate), Optional.empty(), recordConsumer);
+  }
+
+  @Override
+  public long scan(RowVisitor rowVisitor) {
+    return indexService.scan(ImmutableList.of(), NOP, ImmutableList.of(), NOP, Optional.empty(), rowVisitor);
+  }
+
+  @Override
+  public long scan(List<String> projection, RowVisitor rowVisitor) {
+    return indexService.scan(ImmutableList.of(), NOP, ImmutableList.of(), NOP, sanitize(projection), rowVisitor);
+  }
+
+  @Override
+  public long scan(List<Object> lower, ComparisonOperator lowerOperator, List<Object> upper,
+                   ComparisonOperator upperOperator, List<String> projection, RowVisitor rowVisitor) {
+    return indexService.scan(lower, lowerOperator, upper, upperOperator, sanitize(projection), rowVisitor);
+  }
+
+  @Override
+  public long scanBatch(Consumer<ColumnBatch> batchConsumer) {
+    return indexService.scanBatch(Optional.empty(), batchConsumer);
+  }
+
+  @Override
+  public long scanBatch(List<String> projection, Consumer<ColumnBatch> batchConsumer) {
+    return indexService.scanBatch(sanitize(projection), batchConsumer);
+  }
+
   @Override
   public List<GenericRecord> rangeQueryByPrimaryKey(List<Object> lower, ComparisonOperator lowerOperator,
                                                     List<Object> upper, ComparisonOperator upperOperator) {
@@ -328,6 +571,25 @@ public class TableReaderImpl implements TableReader {
         sanitize(projection), ascOrder);
   }
 
+  @Override
+  public Stream<GenericRecord> stream() {
+    return stream(ImmutableList.of(), NOP, ImmutableList.of(), NOP, null);
+  }
+
+  @Override
+  public Stream<GenericRecord> stream(List<String> projection) {
+    return stream(ImmutableList.of(), NOP, ImmutableList.of(), NOP, projection);
+  }
+
+  @Override
+  public Stream<GenericRecord> stream(List<Object> lower, ComparisonOperator lowerOperator,
+                                      List<Object> upper, ComparisonOperator upperOperator,
+                                      List<String> projection) {
+    checkNotNull(indexService, "indexService should not null, please make sure TableReader is opened");
+    return StreamSupport.stream(indexService.getRangeQuerySpliterator(makeNotNull(lower), lowerOperator,
+        makeNotNull(upper), upperOperator, sanitize(projection)), false);
+  }
+
   @Override
   public Iterator<GenericRecord> getRecordIteratorBySk(String skName,
                                                        List<Object> lower, ComparisonOperator lowerOperator,
@@ -0,0 +1,35 @@
+/*
+ * Copyright (C) 1999-2019 Alibaba Group Holding Limited
+ */
+package com.alibaba.innodb.java.reader.aggregate;
+
+/**
+ * Aggregate function, null values are ignored like SQL.
+ *
+ * @author xu.zx
+ */
+public enum AggregateFunction {
+
+  /**
+   * Number of rows, or number of non-null values if column is specified, result is Long.
+   */
+  COUNT,
+
+  /**
+   * Sum of integer, FLOAT or DOUBLE column, result is BigInteger for BIGINT and BIGINT UNSIGNED
+   * column, Long for other integer column, otherwise Double, null if there is no value.
+   */
+  SUM,
+
+  /**
+   * Minimum of integer, FLOAT or DOUBLE column, result is Long for integer column except
+   * BIGINT UNSIGNED which is BigInteger, otherwise Double, null if there is no value.
+   */
+  MIN,
+
+  /**
+   * Maximum, see {@link #MIN}.
+   */
+  MAX
+
+}
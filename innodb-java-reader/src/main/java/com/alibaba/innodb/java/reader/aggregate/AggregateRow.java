@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 1999-2019 Alibaba Group Holding Limited
+ */
+package com.alibaba.innodb.java.reader.aggregate;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Result of one group, values of group-by columns followed by results of aggregations.
+ *
+ * @author xu.zx
+ */
+public class AggregateRow {
+
+  private final Object[] groupValues;
+
+  private final Object[] values;
+
+  /**
+   * Constructor.
+   *
+   * @param groupValues values of group-by columns in the same order as group-by column names
+   * @param values      results in the same order as aggregations
+   */
+  public AggregateRow(Object[] groupValues, Object[] values) {
+    this.groupValues = checkNotNull(groupValues);
+    this.values = checkNotNull(values);
+  }
+
+  /**
+   * Value of group-by column.
+   *
+   * @param index index in group-by column names
+   * @return value
+   */
+  public Object getGroupValue(int index) {
+    return groupValues[index];
+  }
+
+  /**
+   * Result of aggregation.
+   *
+   * @param index index in aggregations
+   * @return result
+   */
+  public Object get(int index) {
+    return values[index];
+  }
+
+  public List<Object> getGroupValues() {
+    return Arrays.asList(groupValues);
+  }
+
+  public List<Object> getValues() {
+    return Arrays.asList(values);
+  }
+
+  @Override
+  public String toString() {
+    return "AggregateRow(group=" + Arrays.toString(groupValues) + ", values=" + Arrays.toString(values) + ")";
+  }
+
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 1999-2019 Alibaba Group Holding Limited
+ */
+package com.alibaba.innodb.java.reader.aggregate;
+
+import java.util.Objects;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Aggregate function on a column, for example,
+ * <pre>
+ *   Arrays.asList(Aggregation.count(), Aggregation.sum("amount"), Aggregation.max("created"))
+ * </pre>
+ *
+ * @author xu.zx
+ */
+public final class Aggregation {
+
+  private final AggregateFunction function;
+
+  /**
+   * Column name, null for <code>COUNT(*)</code>.
+   */
+  private final String columnName;
+
+  private Aggregation(AggregateFunction function, String columnName) {
+    this.function = function;
+    this.columnName = columnName;
+  }
+
+  /**
+   * Number of rows, that is <code>COUNT(*)</code>.
+   *
+   * @return aggregation
+   */
+  public static Aggregation count() {
+    return new Aggregation(AggregateFunction.COUNT, null);
+  }
+
+  /**
+   * Number of non-null values of column.
+   *
+   * @param columnName column name
+   * @return aggregation
+   */
+  public static Aggregation count(String columnName) {
+    return of(AggregateFunction.COUNT, columnName);
+  }
+
+  /**
+   * Sum of column.
+   *
+   * @param columnName column name
+   * @return aggregation
+   */
+  public static Aggregation sum(String columnName) {
+    return of(AggregateFunction.SUM, columnName);
+  }
+
+  /**
+   * Minimum of column.
+   *
+   * @param columnName column name
+   * @return aggregation
+   */
+  public static Aggregation min(String columnName) {
+    return of(AggregateFunction.MIN, columnName);
+  }
+
+  /**
+   * Maximum of column.
+   *
+   * @param columnName column name
+   * @return aggregation
+   */
+  public static Aggregation max(String columnName) {
+    return of(AggregateFunction.MAX, columnName);
+  }
+
+  /**
+   * Aggregate function on column.
+   *
+   * @param function   function
+   * @param columnName column name
+   * @return aggregation
+   */
+  public static Aggregation of(AggregateFunction function, String columnName) {
+    return new Aggregation(checkNotNull(function, "function should not be null"),
+        checkNotNull(columnName, "columnName should not be null"));
+  }
+
+  public AggregateFunction getFunction() {
+    return function;
+  }
+
+  public String getColumnName() {
+    return columnName;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    Aggregation that = (Aggregation) o;
+    return function == that.function && Objects.equals(columnName, that.columnName);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(function, columnName);
+  }
+
+  @Override
+  public String toString() {
+    return function + "(" + (columnName == null ? "*" : columnName) + ")";
+  }
+
+}
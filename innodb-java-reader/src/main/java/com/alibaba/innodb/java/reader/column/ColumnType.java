@@ -3,8 +3,10 @@
  */
 package com.alibaba.innodb.java.reader.column;
 
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -88,4 +90,13 @@ public final class ColumnType {
   public static final Set<String> JAVA_LONG_TYPES =
       ImmutableSet.<String>builder().add(UNSIGNED_BIGINT, BIGINT).build();
 
+  /**
+   * Number of bytes of integer types stored in page.
+   */
+  public static final Map<String, Integer> INTEGER_TYPE_SIZES = ImmutableMap.<String, Integer>builder()
+      .put(TINYINT, 1).put(SMALLINT, 2).put(MEDIUMINT, 3).put(INT, 4).put(BIGINT, 8)
+      .put(UNSIGNED_TINYINT, 1).put(UNSIGNED_SMALLINT, 2).put(UNSIGNED_MEDIUMINT, 3)
+      .put(UNSIGNED_INT, 4).put(UNSIGNED_BIGINT, 8)
+      .build();
+
 }
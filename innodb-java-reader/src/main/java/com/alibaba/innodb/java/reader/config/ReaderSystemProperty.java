@@ -17,6 +17,7 @@
 package com.alibaba.innodb.java.reader.config;
 
 import com.google.common.base.MoreObjects;
+import com.google.common.collect.ImmutableSet;
 
 import com.alibaba.innodb.java.reader.exception.ReaderException;
 
@@ -88,6 +89,114 @@ public final class ReaderSystemProperty<T> {
       booleanProperty("innodb.java.reader.enable.trim.char",
           true);
 
+  /**
+   * Storage service implementation used by table reader to load pages, can be one of
+   * <code>FILE_CHANNEL</code>, <code>MMAP</code>, <code>DIRECT_IO</code>, <code>ASYNC_FILE_CHANNEL</code>.
+   * Unknown value falls back to the default.
+   */
+  public static final ReaderSystemProperty<String> STORAGE_SERVICE_TYPE =
+      stringProperty("innodb.java.reader.storage.service.type", "FILE_CHANNEL",
+          ImmutableSet.of("FILE_CHANNEL", "MMAP", "DIRECT_IO", "ASYNC_FILE_CHANNEL"));
+
+  /**
+   * Max number of outstanding reads issued by asynchronous storage service, reads beyond
+   * the limit are queued. This is the queue depth presented to the device.
+   */
+  public static final ReaderSystemProperty<Integer> ASYNC_IO_MAX_OUTSTANDING_READS =
+      intProperty("innodb.java.reader.async.io.max.outstanding.reads", 64, v -> v > 0 && v <= 65536);
+
+  /**
+   * For <code>DIRECT_IO</code> storage service, max number of pages to read at once when pages
+   * are accessed sequentially, default is 64 pages which is one extent.
+   */
+  public static final ReaderSystemProperty<Integer> DIRECT_IO_READ_AHEAD_PAGES =
+      intProperty("innodb.java.reader.direct.io.read.ahead.pages", 64, v -> v > 0 && v <= 4096);
+
+  /**
+   * Size in MB of the off-heap buffer pool caching pages in front of storage service,
+   * 0 means buffer pool is disabled.
+   */
+  public static final ReaderSystemProperty<Integer> BUFFER_POOL_SIZE_MB =
+      intProperty("innodb.java.reader.buffer.pool.size.mb", 0, v -> v >= 0);
+
+  /**
+   * Whether to recycle page buffers for {@link com.alibaba.innodb.java.reader.service.impl
+   * .FileChannelStorageServiceImpl}, this reduces GC pressure when scanning large table.
+   */
+  public static final ReaderSystemProperty<Boolean> ENABLE_PAGE_BUFFER_POOL =
+      booleanProperty("innodb.java.reader.enable.page.buffer.pool", false);
+
+  /**
+   * This takes effect only when {@link #ENABLE_PAGE_BUFFER_POOL} is set to true. Max number
+   * of free page buffers kept in pool.
+   */
+  public static final ReaderSystemProperty<Integer> PAGE_BUFFER_POOL_MAX_FREE_BUFFERS =
+      intProperty("innodb.java.reader.page.buffer.pool.max.free.buffers", 64, v -> v > 0);
+
+  /**
+   * This takes effect only when {@link #ENABLE_PAGE_BUFFER_POOL} is set to true. Whether to
+   * report page buffers not released before GC, this is for debugging only.
+   */
+  public static final ReaderSystemProperty<Boolean> ENABLE_PAGE_BUFFER_LEAK_DETECTION =
+      booleanProperty("innodb.java.reader.enable.page.buffer.leak.detection", false);
+
+  /**
+   * Number of leaf pages loaded ahead by background thread when iterating records by range
+   * query or query all iterator, 0 means read-ahead is disabled and pages are loaded in the
+   * calling thread.
+   */
+  public static final ReaderSystemProperty<Integer> RANGE_QUERY_READ_AHEAD_PAGES =
+      intProperty("innodb.java.reader.range.query.read.ahead.pages", 0, v -> v >= 0 && v <= 1024);
+
+  /**
+   * Whether to decode records by decoder compiled once per table definition and projection,
+   * otherwise records are decoded column by column generically.
+   */
+  public static final ReaderSystemProperty<Boolean> ENABLE_COMPILED_RECORD_DECODER =
+      booleanProperty("innodb.java.reader.enable.compiled.record.decoder", true);
+
+  /**
+   * Whether to compare search key with records in bytes when searching B+ tree, it works
+   * for primary key of integer columns, otherwise records are decoded to compare.
+   */
+  public static final ReaderSystemProperty<Boolean> ENABLE_BINARY_KEY_SEARCH =
+      booleanProperty("innodb.java.reader.enable.binary.key.search", true);
+
+  /**
+   * Number of threads to scan the whole tablespace extent by extent, like scanning page headers
+   * and verifying checksums, 0 means the number of available processors.
+   */
+  public static final ReaderSystemProperty<Integer> TABLESPACE_SCAN_PARALLELISM =
+      intProperty("innodb.java.reader.tablespace.scan.parallelism", 0, v -> v >= 0 && v <= 1024);
+
+  /**
+   * Number of threads of the default pool to scan clustered index in parallel,
+   * 0 means {@link java.util.concurrent.ForkJoinPool#commonPool()} is used.
+   */
+  public static final ReaderSystemProperty<Integer> PARALLEL_SCAN_PARALLELISM =
+      intProperty("innodb.java.reader.parallel.scan.parallelism", 0, v -> v >= 0 && v <= 1024);
+
+  /**
+   * Memory budget in MB to pin all non-leaf levels of clustered index when table reader is opened,
+   * primary key lookup then loads only the leaf page. If the tree needs more memory than the
+   * budget, nothing is pinned. 0 means disabled.
+   */
+  public static final ReaderSystemProperty<Integer> PIN_NON_LEAF_LEVELS_MAX_SIZE_MB =
+      intProperty("innodb.java.reader.pin.non.leaf.levels.max.size.mb", 0, v -> v >= 0);
+
+  /**
+   * Memory budget in MB of groups kept in memory by aggregation, shared by all scanning threads,
+   * groups beyond the budget are spilled to temporary files.
+   */
+  public static final ReaderSystemProperty<Integer> AGGREGATE_MEMORY_BUDGET_MB =
+      intProperty("innodb.java.reader.aggregate.memory.budget.mb", 256, v -> v > 0);
+
+  /**
+   * Directory of temporary files spilled by aggregation.
+   */
+  public static final ReaderSystemProperty<String> AGGREGATE_SPILL_DIR =
+      stringProperty("innodb.java.reader.aggregate.spill.dir", System.getProperty("java.io.tmpdir"));
+
   /**
    * For cli, when parsing string to list of objects to build key, use the delimiter.
    */
@@ -0,0 +1,185 @@
+/*
+ * Copyright (C) 1999-2019 Alibaba Group Holding Limited
+ */
+package com.alibaba.innodb.java.reader.filter;
+
+import com.google.common.primitives.UnsignedBytes;
+
+import com.alibaba.innodb.java.reader.column.ColumnFactory;
+import com.alibaba.innodb.java.reader.exception.ReaderException;
+import com.alibaba.innodb.java.reader.page.index.GenericRecord;
+import com.alibaba.innodb.java.reader.page.index.LazyGenericRecord;
+import com.alibaba.innodb.java.reader.page.index.LazyGenericRecord.RawValueComparator;
+import com.alibaba.innodb.java.reader.schema.Column;
+import com.alibaba.innodb.java.reader.schema.TableDef;
+import com.alibaba.innodb.java.reader.util.Utils;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Filter on one column.
+ *
+ * @author xu.zx
+ */
+class ColumnFilter implements Filter {
+
+  private final String columnName;
+
+  private final FilterOperator operator;
+
+  private final List<Object> literals;
+
+  ColumnFilter(String columnName, FilterOperator operator, List<Object> literals) {
+    this.columnName = checkNotNull(columnName, "Column name should not be null");
+    this.operator = operator;
+    this.literals = literals;
+  }
+
+  @Override
+  public Predicate<GenericRecord> compile(TableDef tableDef) {
+    TableDef.Field field = tableDef.getField(columnName);
+    if (field == null) {
+      throw new ReaderException("Column " + columnName + " not found in TableDef");
+    }
+    int ordinal = field.getOrdinal();
+    if (operator == FilterOperator.IS_NULL) {
+      return record -> isNull(record, ordinal);
+    } else if (operator == FilterOperator.IS_NOT_NULL) {
+      return record -> !isNull(record, ordinal);
+    }
+    Column column = field.getColumn();
+    Class<?> javaType = ColumnFactory.getColumnJavaType(column.getType());
+    Object[] values = new Object[literals.size()];
+    for (int i = 0; i < literals.size(); i++) {
+      Object literal = checkNotNull(literals.get(i), "Literal should not be null");
+      if (Number.class.isAssignableFrom(javaType)) {
+        checkArgument(literal instanceof Number, "Literal %s should be a number for column %s", literal, columnName);
+        values[i] = toBigDecimal((Number) literal);
+      } else {
+        checkArgument(javaType.isInstance(literal), "Literal %s should be %s for column %s", literal,
+            javaType.getSimpleName(), columnName);
+        values[i] = literal;
+      }
+    }
+    return new ColumnPredicate(ordinal, column, operator, values, RawComparators.create(column, operator, literals));
+  }
+
+  @Override
+  public void collectColumnNames(Set<String> columnNames) {
+    columnNames.add(columnName);
+  }
+
+  @Override
+  public String toString() {
+    if (!operator.isComparison()) {
+      return columnName + " " + operator.value();
+    } else if (operator == FilterOperator.IN) {
+      return columnName + " " + operator.value()
+          + literals.stream().map(String::valueOf).collect(Collectors.joining(", ", " (", ")"));
+    }
+    return columnName + " " + operator.value() + " " + literals.get(0);
+  }
+
+  private static boolean isNull(GenericRecord record, int ordinal) {
+    if (record instanceof LazyGenericRecord && ((LazyGenericRecord) record).hasRawValue(ordinal)) {
+      return false;
+    }
+    return record.get(ordinal) == null;
+  }
+
+  private static BigDecimal toBigDecimal(Number number) {
+    if (number instanceof BigDecimal) {
+      return (BigDecimal) number;
+    } else if (number instanceof BigInteger) {
+      return new BigDecimal((BigInteger) number);
+    } else if (number instanceof Double || number instanceof Float) {
+      return BigDecimal.valueOf(number.doubleValue());
+    }
+    return BigDecimal.valueOf(number.longValue());
+  }
+
+  /**
+   * Compiled column filter.
+   */
+  private static class ColumnPredicate implements Predicate<GenericRecord> {
+
+    private final int ordinal;
+
+    private final Column column;
+
+    private final FilterOperator operator;
+
+    /**
+     * Literals, numbers are converted to {@link BigDecimal}.
+     */
+    private final Object[] values;
+
+    /**
+     * Null if raw bytes cannot be compared.
+     */
+    private final RawValueComparator[] rawComparators;
+
+    ColumnPredicate(int ordinal, Column column, FilterOperator operator, Object[] values,
+                    RawValueComparator[] rawComparators) {
+      this.ordinal = ordinal;
+      this.column = column;
+      this.operator = operator;
+      this.values = values;
+      this.rawComparators = rawComparators;
+    }
+
+    @Override
+    public boolean test(GenericRecord record) {
+      if (rawComparators != null && record instanceof LazyGenericRecord
+          && ((LazyGenericRecord) record).hasRawValue(ordinal)) {
+        LazyGenericRecord lazyRecord = (LazyGenericRecord) record;
+        for (RawValueComparator rawComparator : rawComparators) {
+          int cmp = lazyRecord.compareRawValue(ordinal, rawComparator);
+          if (cmp == RawValueComparator.UNKNOWN) {
+            return testValue(record.get(ordinal));
+          }
+          if (operator != FilterOperator.IN) {
+            return operator.test(cmp);
+          } else if (cmp == 0) {
+            return true;
+          }
+        }
+        return false;
+      }
+      return testValue(record.get(ordinal));
+    }
+
+    private boolean testValue(Object value) {
+      if (value == null) {
+        return false;
+      }
+      for (Object literal : values) {
+        int cmp = compare(value, literal);
+        if (operator != FilterOperator.IN) {
+          return operator.test(cmp);
+        } else if (cmp == 0) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    private int compare(Object value, Object literal) {
+      if (literal instanceof BigDecimal) {
+        return toBigDecimal((Number) value).compareTo((BigDecimal) literal);
+      } else if (literal instanceof byte[]) {
+        return UnsignedBytes.lexicographicalComparator().compare((byte[]) value, (byte[]) literal);
+      }
+      return Utils.castCompare(value, literal, column);
+    }
+  }
+
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright (C) 1999-2019 Alibaba Group Holding Limited
+ */
+package com.alibaba.innodb.java.reader.filter;
+
+import com.google.common.collect.ImmutableList;
+
+import com.alibaba.innodb.java.reader.page.index.GenericRecord;
+import com.alibaba.innodb.java.reader.schema.TableDef;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Declarative filter on columns, for example,
+ * <pre>
+ *   Filter.and(Filter.gte("id", 100), Filter.in("name", "Eric", "Jack"), Filter.isNotNull("age"))
+ * </pre>
+ * Filter is compiled against {@link TableDef} into a predicate, see {@link #compile(TableDef)}.
+ * When records are {@link com.alibaba.innodb.java.reader.page.index.LazyGenericRecord}, the
+ * predicate is evaluated on encoded bytes in page for integer columns and equality of
+ * string or binary columns, other columns are decoded one by one on demand, so only
+ * qualifying records are fully decoded.
+ * <p>
+ * Comparing with null is always false, use {@link #isNull(String)} instead.
+ *
+ * @author xu.zx
+ */
+public interface Filter {
+
+  /**
+   * Column value equals literal.
+   *
+   * @param columnName column name
+   * @param literal    literal
+   * @return filter
+   */
+  static Filter eq(String columnName, Object literal) {
+    return new ColumnFilter(columnName, FilterOperator.EQ, ImmutableList.of(checkNotNull(literal)));
+  }
+
+  /**
+   * Column value does not equal literal.
+   *
+   * @param columnName column name
+   * @param literal    literal
+   * @return filter
+   */
+  static Filter ne(String columnName, Object literal) {
+    return new ColumnFilter(columnName, FilterOperator.NE, ImmutableList.of(checkNotNull(literal)));
+  }
+
+  /**
+   * Column value is greater than literal.
+   *
+   * @param columnName column name
+   * @param literal    literal
+   * @return filter
+   */
+  static Filter gt(String columnName, Object literal) {
+    return new ColumnFilter(columnName, FilterOperator.GT, ImmutableList.of(checkNotNull(literal)));
+  }
+
+  /**
+   * Column value is greater than or equal to literal.
+   *
+   * @param columnName column name
+   * @param literal    literal
+   * @return filter
+   */
+  static Filter gte(String columnName, Object literal) {
+    return new ColumnFilter(columnName, FilterOperator.GTE, ImmutableList.of(checkNotNull(literal)));
+  }
+
+  /**
+   * Column value is less than literal.
+   *
+   * @param columnName column name
+   * @param literal    literal
+   * @return filter
+   */
+  static Filter lt(String columnName, Object literal) {
+    return new ColumnFilter(columnName, FilterOperator.LT, ImmutableList.of(checkNotNull(literal)));
+  }
+
+  /**
+   * Column value is less than or equal to literal.
+   *
+   * @param columnName column name
+   * @param literal    literal
+   * @return filter
+   */
+  static Filter lte(String columnName, Object literal) {
+    return new ColumnFilter(columnName, FilterOperator.LTE, ImmutableList.of(checkNotNull(literal)));
+  }
+
+  /**
+   * Column value equals any of the literals.
+   *
+   * @param columnName column name
+   * @param literals   literals
+   * @return filter
+   */
+  static Filter in(String columnName, Object... literals) {
+    return in(columnName, Arrays.asList(literals));
+  }
+
+  /**
+   * Column value equals any of the literals.
+   *
+   * @param columnName column name
+   * @param literals   literals
+   * @return filter
+   */
+  static Filter in(String columnName, Collection<?> literals) {
+    checkArgument(literals != null && !literals.isEmpty(), "Literals of IN should not be empty");
+    return new ColumnFilter(columnName, FilterOperator.IN, ImmutableList.copyOf(literals));
+  }
+
+  /**
+   * Column value is null.
+   *
+   * @param columnName column name
+   * @return filter
+   */
+  static Filter isNull(String columnName) {
+    return new ColumnFilter(columnName, FilterOperator.IS_NULL, ImmutableList.of());
+  }
+
+  /**
+   * Column value is not null.
+   *
+   * @param columnName column name
+   * @return filter
+   */
+  static Filter isNotNull(String columnName) {
+    return new ColumnFilter(columnName, FilterOperator.IS_NOT_NULL, ImmutableList.of());
+  }
+
+  /**
+   * All filters are satisfied.
+   *
+   * @param filters filters
+   * @return filter
+   */
+  static Filter and(Filter... filters) {
+    return new LogicalFilter(true, ImmutableList.copyOf(filters));
+  }
+
+  /**
+   * Any of the filters is satisfied.
+   *
+   * @param filters filters
+   * @return filter
+   */
+  static Filter or(Filter... filters) {
+    return new LogicalFilter(false, ImmutableList.copyOf(filters));
+  }
+
+  /**
+   * Compile filter against table definition, column names and literal types are validated.
+   *
+   * @param tableDef table definition
+   * @return predicate on records of the table, not thread-safe
+   */
+  Predicate<GenericRecord> compile(TableDef tableDef);
+
+  /**
+   * Names of columns used by the filter, they should be included in projection.
+   *
+   * @param columnNames where column names are added to
+   */
+  void collectColumnNames(Set<String> columnNames);
+
+}
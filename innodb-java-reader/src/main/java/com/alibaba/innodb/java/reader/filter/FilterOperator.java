@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 1999-2019 Alibaba Group Holding Limited
+ */
+package com.alibaba.innodb.java.reader.filter;
+
+/**
+ * Operator of column filter.
+ *
+ * @author xu.zx
+ */
+public enum FilterOperator {
+
+  /* equal */
+  EQ("="),
+  /* not equal */
+  NE("!="),
+  /* greater than */
+  GT(">"),
+  /* greater than or equal */
+  GTE(">="),
+  /* less than */
+  LT("<"),
+  /* less than or equal */
+  LTE("<="),
+  /* equal to any of the literals */
+  IN("in"),
+  /* is null */
+  IS_NULL("is null"),
+  /* is not null */
+  IS_NOT_NULL("is not null");
+
+  String value;
+
+  FilterOperator(String value) {
+    this.value = value;
+  }
+
+  public String value() {
+    return value;
+  }
+
+  /**
+   * If the result is decided by comparing with literal.
+   *
+   * @return true for comparison operators
+   */
+  public boolean isComparison() {
+    return this != IS_NULL && this != IS_NOT_NULL;
+  }
+
+  /**
+   * If the result is decided by equality only.
+   *
+   * @return true for EQ, NE and IN
+   */
+  public boolean isEquality() {
+    return this == EQ || this == NE || this == IN;
+  }
+
+  /**
+   * Test comparing result of column value and literal.
+   *
+   * @param cmp comparing result
+   * @return if the operator is satisfied
+   */
+  boolean test(int cmp) {
+    switch (this) {
+      case EQ:
+      case IN:
+        return cmp == 0;
+      case NE:
+        return cmp != 0;
+      case GT:
+        return cmp > 0;
+      case GTE:
+        return cmp >= 0;
+      case LT:
+        return cmp < 0;
+      case LTE:
+        return cmp <= 0;
+      default:
+        throw new IllegalStateException("Not a comparison operator " + this);
+    }
+  }
+
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 1999-2019 Alibaba Group Holding Limited
+ */
+package com.alibaba.innodb.java.reader.filter;
+
+import com.alibaba.innodb.java.reader.page.index.GenericRecord;
+import com.alibaba.innodb.java.reader.schema.TableDef;
+
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * AND or OR of filters, evaluated from left to right with short-circuit, so cheap and
+ * selective filters should be put first.
+ *
+ * @author xu.zx
+ */
+class LogicalFilter implements Filter {
+
+  private final boolean and;
+
+  private final List<Filter> filters;
+
+  LogicalFilter(boolean and, List<Filter> filters) {
+    checkArgument(!filters.isEmpty(), "Filters should not be empty");
+    this.and = and;
+    this.filters = filters;
+  }
+
+  @Override
+  public Predicate<GenericRecord> compile(TableDef tableDef) {
+    @SuppressWarnings("unchecked")
+    Predicate<GenericRecord>[] predicates = filters.stream().map(f -> f.compile(tableDef)).toArray(Predicate[]::new);
+    if (predicates.length == 1) {
+      return predicates[0];
+    }
+    if (and) {
+      return record -> {
+        for (Predicate<GenericRecord> predicate : predicates) {
+          if (!predicate.test(record)) {
+            return false;
+          }
+        }
+        return true;
+      };
+    }
+    return record -> {
+      for (Predicate<GenericRecord> predicate : predicates) {
+        if (predicate.test(record)) {
+          return true;
+        }
+      }
+      return false;
+    };
+  }
+
+  @Override
+  public void collectColumnNames(Set<String> columnNames) {
+    for (Filter filter : filters) {
+      filter.collectColumnNames(columnNames);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return filters.stream().map(Filter::toString)
+        .collect(Collectors.joining(and ? " AND " : " OR ", "(", ")"));
+  }
+
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright (C) 1999-2019 Alibaba Group Holding Limited
+ */
+package com.alibaba.innodb.java.reader.filter;
+
+import com.google.common.collect.ImmutableSet;
+
+import com.alibaba.innodb.java.reader.column.ColumnType;
+import com.alibaba.innodb.java.reader.page.index.LazyGenericRecord.RawValueComparator;
+import com.alibaba.innodb.java.reader.schema.Column;
+import com.alibaba.innodb.java.reader.util.Utils;
+
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.Set;
+
+import static com.alibaba.innodb.java.reader.page.index.LazyGenericRecord.RawValueComparator.UNKNOWN;
+
+/**
+ * Create {@link RawValueComparator} which compares encoded column value in page with literal.
+ * <ul>
+ * <li>integer, stored in big-endian with sign bit flipped for signed integer, so literal is
+ * encoded in the same way and compared byte by byte as unsigned.</li>
+ * <li>variable-length string and binary, only for equality, literal is encoded in column
+ * charset, for case-insensitive collation, it works only for ASCII literal and values,
+ * otherwise {@link RawValueComparator#UNKNOWN} is returned to decode the value.</li>
+ * </ul>
+ * Other types are not supported, for example, CHAR is padded by spaces in page.
+ *
+ * @author xu.zx
+ */
+final class RawComparators {
+
+  private static final Set<String> ASCII_COMPATIBLE_CHARSETS = ImmutableSet.of(
+      "UTF-8", "US-ASCII", "ISO-8859-1", "windows-1252");
+
+  /**
+   * Prevent instantiation.
+   */
+  private RawComparators() {
+  }
+
+  /**
+   * Create comparators for literals.
+   *
+   * @param column   column
+   * @param operator comparison operator
+   * @param literals literals
+   * @return comparators of literals in the same order, null if comparing raw bytes is not supported
+   */
+  static RawValueComparator[] create(Column column, FilterOperator operator, List<Object> literals) {
+    RawValueComparator[] result = new RawValueComparator[literals.size()];
+    for (int i = 0; i < literals.size(); i++) {
+      result[i] = create(column, operator, literals.get(i));
+      if (result[i] == null) {
+        return null;
+      }
+    }
+    return result;
+  }
+
+  private static RawValueComparator create(Column column, FilterOperator operator, Object literal) {
+    String type = column.getType();
+    Integer size = ColumnType.INTEGER_TYPE_SIZES.get(type);
+    if (size != null) {
+      byte[] encoded = Utils.encodeInteger(literal, size, !type.endsWith("UNSIGNED"));
+      return encoded == null ? null : fixedLength(encoded);
+    }
+    if (!operator.isEquality() || !column.isVariableLength() || ColumnType.CHAR.equals(type)) {
+      return null;
+    }
+    boolean binary = ColumnType.VARBINARY.equals(type) || ColumnType.BLOB_TYPES.contains(type);
+    if (binary && literal instanceof byte[]) {
+      return equality((byte[]) literal, false);
+    }
+    boolean character = ColumnType.VARCHAR.equals(type) || ColumnType.TEXT_TYPES.contains(type);
+    if (character && literal instanceof String) {
+      byte[] encoded;
+      try {
+        encoded = ((String) literal).getBytes(column.getJavaCharset());
+      } catch (UnsupportedEncodingException e) {
+        return null;
+      }
+      if (column.isCollationCaseSensitive()) {
+        return equality(encoded, false);
+      }
+      if (isAsciiCompatible(column.getJavaCharset()) && isAscii(encoded)) {
+        return equality(encoded, true);
+      }
+    }
+    return null;
+  }
+
+  private static RawValueComparator fixedLength(byte[] encoded) {
+    return (input, length) -> {
+      if (length != encoded.length) {
+        return UNKNOWN;
+      }
+      for (byte b : encoded) {
+        int cmp = input.readUnsignedByte() - (b & 0xff);
+        if (cmp != 0) {
+          return cmp;
+        }
+      }
+      return 0;
+    };
+  }
+
+  /**
+   * Compare equality, 0 if equal, 1 if not equal.
+   */
+  private static RawValueComparator equality(byte[] encoded, boolean asciiCaseInsensitive) {
+    if (!asciiCaseInsensitive) {
+      return (input, length) -> {
+        if (length != encoded.length) {
+          return 1;
+        }
+        for (byte b : encoded) {
+          if (input.readByte() != b) {
+            return 1;
+          }
+        }
+        return 0;
+      };
+    }
+    return (input, length) -> {
+      // non-ASCII character may be equal to ASCII ignoring case, so scan the whole value
+      boolean equal = length == encoded.length;
+      for (int i = 0; i < length; i++) {
+        byte b = input.readByte();
+        if (b < 0) {
+          return UNKNOWN;
+        }
+        if (equal && toLowerCase(b) != toLowerCase(encoded[i])) {
+          equal = false;
+        }
+      }
+      return equal ? 0 : 1;
+    };
+  }
+
+  private static int toLowerCase(byte b) {
+    return b >= 'A' && b <= 'Z' ? b + ('a' - 'A') : b;
+  }
+
+  private static boolean isAscii(byte[] bytes) {
+    for (byte b : bytes) {
+      if (b < 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean isAsciiCompatible(String javaCharset) {
+    try {
+      return javaCharset != null && ASCII_COMPATIBLE_CHARSETS.contains(Charset.forName(javaCharset).name());
+    } catch (IllegalArgumentException e) {
+      return false;
+    }
+  }
+
+}
@@ -61,4 +61,12 @@ public abstract class AbstractPage {
     return sliceInput;
   }
 
+  /**
+   * Release page buffer, see {@link InnerPage#release()}.
+   */
+  public void release() {
+    checkNotNull(innerPage);
+    innerPage.release();
+  }
+
 }
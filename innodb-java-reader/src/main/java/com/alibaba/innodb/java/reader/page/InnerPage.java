@@ -4,10 +4,8 @@
 package com.alibaba.innodb.java.reader.page;
 
 import com.alibaba.innodb.java.reader.config.ReaderSystemProperty;
-import com.alibaba.innodb.java.reader.util.Checksum;
 import com.alibaba.innodb.java.reader.util.Slice;
 import com.alibaba.innodb.java.reader.util.SliceInput;
-import com.alibaba.innodb.java.reader.util.Ut0Crc32;
 
 import org.codehaus.jackson.annotate.JsonIgnore;
 
@@ -44,7 +42,25 @@ public class InnerPage {
   @Getter
   protected SliceInput sliceInput;
 
+  /**
+   * Callback to recycle page buffer, null if the buffer is not pooled.
+   */
+  @JsonIgnore
+  private Runnable releaseHook;
+
   public InnerPage(long pageNumber, Slice slice) {
+    this(pageNumber, slice, true);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param pageNumber       page number
+   * @param slice            16k page
+   * @param validateChecksum false to skip checksum validation, for example, the page
+   *                         has already been validated when it was cached
+   */
+  public InnerPage(long pageNumber, Slice slice, boolean validateChecksum) {
     this.pageNumber = pageNumber;
     this.sliceInput = slice.input();
     this.filHeader = FilHeader.fromSlice(sliceInput);
@@ -52,7 +68,7 @@ public class InnerPage {
     this.filTrailer = FilTrailer.fromSlice(sliceInput);
     checkState(this.filHeader.getLow32Lsn() == this.filTrailer.getLow32lsn(), "low32 lsn not match");
 
-    if (ReaderSystemProperty.ENABLE_PAGE_CHECKSUM_CHECK.value()
+    if (validateChecksum && ReaderSystemProperty.ENABLE_PAGE_CHECKSUM_CHECK.value()
         && this.filHeader.getPageType() == PageType.INDEX) {
       validateChecksum(slice, filHeader);
     }
@@ -73,22 +89,42 @@ public class InnerPage {
    */
   private void validateChecksum(Slice slice, FilHeader filHeader) {
     boolean checksumEquals;
-    // buf_calc_page_crc32
-    long v1 = Ut0Crc32.crc32(slice.getBytes(), 4, 22);
-    long v2 = Ut0Crc32.crc32(slice.getBytes(), 38, SIZE_OF_PAGE - 8 - 38);
-    long checksum = (v1 ^ v2) & 0xFFFFFFFFL;
+    byte[] bytes = slice.getBytes();
+    long checksum = PageChecksum.crc32Checksum(bytes, 0);
     checksumEquals = checksum == this.filHeader.getChecksum();
     if (!checksumEquals && ReaderSystemProperty.ENABLE_INNODB_PAGE_CHECKSUM_ALGORITHM.value()) {
-      // buf_calc_page_new_checksum
-      v1 = Checksum.getValue(slice.getBytes(), 4, 26);
-      v2 = Checksum.getValue(slice.getBytes(), 38, SIZE_OF_PAGE - 8);
-      checksum = (v1 + v2) & 0xFFFFFFFFL;
+      checksum = PageChecksum.innodbChecksum(bytes, 0);
       checksumEquals = checksum == this.filHeader.getChecksum();
     }
     checkState(checksumEquals, "page checksum " + checksum
         + " not match expected " + this.filHeader.getChecksum() + " " + filHeader);
   }
 
+  public void setReleaseHook(Runnable releaseHook) {
+    this.releaseHook = releaseHook;
+  }
+
+  /**
+   * Release page buffer back to pool if it is pooled, this page must not be accessed
+   * afterwards. Releasing more than once is a no-op.
+   */
+  public void release() {
+    Runnable hook = releaseHook;
+    if (hook != null) {
+      releaseHook = null;
+      hook.run();
+    }
+  }
+
+  /**
+   * If the page buffer is pooled and should be released, see {@link #release()}.
+   *
+   * @return true if not released yet
+   */
+  public boolean isReleasable() {
+    return releaseHook != null;
+  }
+
   public PageType pageType() {
     return filHeader.getPageType();
   }
@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 1999-2019 Alibaba Group Holding Limited
+ */
+package com.alibaba.innodb.java.reader.page;
+
+import com.alibaba.innodb.java.reader.util.Checksum;
+import com.alibaba.innodb.java.reader.util.Ut0Crc32;
+
+import static com.alibaba.innodb.java.reader.SizeOf.SIZE_OF_FIL_HEADER;
+import static com.alibaba.innodb.java.reader.SizeOf.SIZE_OF_FIL_TRAILER;
+import static com.alibaba.innodb.java.reader.SizeOf.SIZE_OF_PAGE;
+
+/**
+ * Page checksum algorithms working on raw page bytes, see <code>buf0checksum.cc</code>
+ * and <code>buf_page_is_corrupted</code> in <code>buf0buf.cc</code>.
+ *
+ * @author xu.zx
+ */
+public final class PageChecksum {
+
+  /**
+   * Checksum written when <code>innodb_checksum_algorithm=none</code>.
+   */
+  public static final long BUF_NO_CHECKSUM_MAGIC = 0xDEADBEEFL;
+
+  private static final int FIL_PAGE_OFFSET = 4;
+
+  private static final int FIL_PAGE_LSN = 16;
+
+  private static final int FIL_PAGE_FILE_FLUSH_LSN = 26;
+
+  private PageChecksum() {
+  }
+
+  /**
+   * Checksum of <code>crc32</code> algorithm, MySQL 5.7 or later default.
+   * <p>
+   * buf_calc_page_crc32
+   *
+   * @param bytes  bytes containing the page
+   * @param offset offset of the page in bytes
+   * @return checksum
+   */
+  public static long crc32Checksum(byte[] bytes, int offset) {
+    long v1 = Ut0Crc32.crc32c(bytes, offset + FIL_PAGE_OFFSET, FIL_PAGE_FILE_FLUSH_LSN - FIL_PAGE_OFFSET);
+    long v2 = Ut0Crc32.crc32c(bytes, offset + SIZE_OF_FIL_HEADER,
+        SIZE_OF_PAGE - SIZE_OF_FIL_TRAILER - SIZE_OF_FIL_HEADER);
+    return (v1 ^ v2) & 0xFFFFFFFFL;
+  }
+
+  /**
+   * Checksum of <code>innodb</code> algorithm, MySQL 5.6 default.
+   * <p>
+   * buf_calc_page_new_checksum
+   *
+   * @param bytes  bytes containing the page
+   * @param offset offset of the page in bytes
+   * @return checksum
+   */
+  public static long innodbChecksum(byte[] bytes, int offset) {
+    long v1 = Checksum.getValue(bytes, offset + FIL_PAGE_OFFSET, offset + FIL_PAGE_FILE_FLUSH_LSN);
+    long v2 = Checksum.getValue(bytes, offset + SIZE_OF_FIL_HEADER, offset + SIZE_OF_PAGE - SIZE_OF_FIL_TRAILER);
+    return (v1 + v2) & 0xFFFFFFFFL;
+  }
+
+  /**
+   * Page never written is filled with zeros and is not corrupted.
+   *
+   * @param bytes  bytes containing the page
+   * @param offset offset of the page in bytes
+   * @return true if all bytes are zero
+   */
+  public static boolean isEmpty(byte[] bytes, int offset) {
+    for (int i = offset; i < offset + SIZE_OF_PAGE; i++) {
+      if (bytes[i] != 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Check if the page is corrupted, that is, neither empty nor matching the stored checksum
+   * by any algorithm, or the low 32 bits of LSN in header and trailer do not match.
+   *
+   * @param bytes               bytes containing the page
+   * @param offset              offset of the page in bytes
+   * @param tryInnodbAlgorithm  whether to try <code>innodb</code> algorithm if <code>crc32</code>
+   *                            does not match
+   * @return true if corrupted
+   */
+  public static boolean isCorrupted(byte[] bytes, int offset, boolean tryInnodbAlgorithm) {
+    long storedChecksum = readUnsignedInt(bytes, offset);
+    long low32Lsn = readUnsignedInt(bytes, offset + FIL_PAGE_LSN + 4);
+    long trailerLow32Lsn = readUnsignedInt(bytes, offset + SIZE_OF_PAGE - 4);
+    if (low32Lsn != trailerLow32Lsn) {
+      return !isEmpty(bytes, offset);
+    }
+    if (storedChecksum == BUF_NO_CHECKSUM_MAGIC || storedChecksum == crc32Checksum(bytes, offset)) {
+      return false;
+    }
+    if (tryInnodbAlgorithm && storedChecksum == innodbChecksum(bytes, offset)) {
+      return false;
+    }
+    return !isEmpty(bytes, offset);
+  }
+
+  private static long readUnsignedInt(byte[] bytes, int offset) {
+    return (bytes[offset] & 0xFFL) << 24
+        | (bytes[offset + 1] & 0xFFL) << 16
+        | (bytes[offset + 2] & 0xFFL) << 8
+        | (bytes[offset + 3] & 0xFFL);
+  }
+
+}
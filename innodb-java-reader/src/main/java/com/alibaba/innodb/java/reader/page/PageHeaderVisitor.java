@@ -0,0 +1,26 @@
+/*
+ * Copyright (C) 1999-2019 Alibaba Group Holding Limited
+ */
+package com.alibaba.innodb.java.reader.page;
+
+/**
+ * Callback to receive page header fields in primitive types, no {@link FilHeader}
+ * is created per page.
+ *
+ * @author xu.zx
+ */
+@FunctionalInterface
+public interface PageHeaderVisitor {
+
+  /**
+   * Visit one page header.
+   *
+   * @param pageNumber      physical page number, note page number in header of unused page is 0
+   * @param pageType        page type id, see {@link PageType#parse(int)}
+   * @param prevPage        previous page number, {@link PageHeaderColumns#FIL_NULL} if undefined
+   * @param nextPage        next page number, {@link PageHeaderColumns#FIL_NULL} if undefined
+   * @param lastModifiedLsn LSN of the last modification
+   */
+  void visit(long pageNumber, int pageType, long prevPage, long nextPage, long lastModifiedLsn);
+
+}
@@ -51,4 +51,16 @@ public class Xdes {
     return xdes;
   }
 
+  /**
+   * Check the free bit of page in page state bitmap.
+   *
+   * @param pageIndex index of page in the extent, from 0 to 63
+   * @return true if page is free
+   */
+  public boolean isPageFree(int pageIndex) {
+    // 2 bits per page, the first one is free bit, bits are from the lowest of each byte
+    int bit = pageIndex * 2;
+    return ((pageStateBitmap[bit / 8] >> (bit % 8)) & 1) != 0;
+  }
+
 }
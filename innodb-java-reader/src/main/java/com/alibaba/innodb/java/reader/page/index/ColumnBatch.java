@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 1999-2019 Alibaba Group Holding Limited
+ */
+package com.alibaba.innodb.java.reader.page.index;
+
+import com.alibaba.innodb.java.reader.exception.ReaderException;
+import com.alibaba.innodb.java.reader.schema.TableDef;
+
+import java.util.BitSet;
+
+import static com.google.common.base.Preconditions.checkElementIndex;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Records of one leaf page decoded column by column into {@link ColumnVector}s.
+ * <p>
+ * Batch is reused from page to page when scanning, so it should not be kept after being
+ * consumed. Batch is not thread-safe.
+ *
+ * @author xu.zx
+ */
+public class ColumnBatch {
+
+  private final TableDef tableDef;
+
+  /**
+   * Vectors indexed by column ordinal, null if column is not in projection.
+   */
+  private final ColumnVector[] vectors;
+
+  private long pageNumber;
+
+  private int size;
+
+  /**
+   * Constructor.
+   *
+   * @param tableDef   table definition
+   * @param projection ordinals of columns to decode
+   */
+  public ColumnBatch(TableDef tableDef, BitSet projection) {
+    this.tableDef = checkNotNull(tableDef);
+    this.vectors = new ColumnVector[tableDef.getColumnNum()];
+    for (int i = projection.nextSetBit(0); i >= 0 && i < vectors.length; i = projection.nextSetBit(i + 1)) {
+      vectors[i] = new ColumnVector(tableDef.getColumnList().get(i));
+    }
+  }
+
+  /**
+   * Clear all vectors before decoding a page.
+   *
+   * @param pageNumber page number
+   */
+  public void reset(long pageNumber) {
+    this.pageNumber = pageNumber;
+    this.size = 0;
+    for (ColumnVector vector : vectors) {
+      if (vector != null) {
+        vector.reset();
+      }
+    }
+  }
+
+  /**
+   * Append projected columns of row to vectors.
+   *
+   * @param row row located at a record
+   */
+  public void append(Row row) {
+    for (ColumnVector vector : vectors) {
+      if (vector != null) {
+        vector.append(row);
+      }
+    }
+    size++;
+  }
+
+  public TableDef getTableDef() {
+    return tableDef;
+  }
+
+  public long getPageNumber() {
+    return pageNumber;
+  }
+
+  /**
+   * Number of records in batch.
+   *
+   * @return size
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * If the column is in projection.
+   *
+   * @param ordinal column ordinal
+   * @return true if vector of the column exists
+   */
+  public boolean isPresent(int ordinal) {
+    checkElementIndex(ordinal, vectors.length);
+    return vectors[ordinal] != null;
+  }
+
+  public ColumnVector getVector(int ordinal) {
+    checkElementIndex(ordinal, vectors.length);
+    ColumnVector vector = vectors[ordinal];
+    checkState(vector != null, "Column %s is not in projection", tableDef.getColumnList().get(ordinal).getName());
+    return vector;
+  }
+
+  public ColumnVector getVector(String columnName) {
+    TableDef.Field field = tableDef.getField(columnName);
+    if (field == null) {
+      throw new ReaderException("Not valid for column: " + columnName);
+    }
+    return getVector(field.getOrdinal());
+  }
+
+}
@@ -0,0 +1,341 @@
+/*
+ * Copyright (C) 1999-2019 Alibaba Group Holding Limited
+ */
+package com.alibaba.innodb.java.reader.page.index;
+
+import com.alibaba.innodb.java.reader.column.ColumnType;
+import com.alibaba.innodb.java.reader.schema.Column;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+import static com.google.common.base.Preconditions.checkElementIndex;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Values of one column in a {@link ColumnBatch}, stored in primitive arrays which are reused
+ * and grown from batch to batch.
+ * <ul>
+ * <li>{@link Kind#INT}: integer types whose value fits in int, see {@link Row#getInt(int)}.</li>
+ * <li>{@link Kind#LONG}: INT UNSIGNED, BIGINT and BIGINT UNSIGNED, see {@link Row#getLong(int)}.</li>
+ * <li>{@link Kind#DOUBLE}: FLOAT, REAL and DOUBLE.</li>
+ * <li>{@link Kind#BYTES}: string and binary types, value <code>i</code> is in {@link #getData()}
+ * from {@link #getOffset(int)} with {@link #getLength(int)} bytes, see
+ * {@link Row#getBytes(int, byte[], int)}.</li>
+ * <li>{@link Kind#OBJECT}: other types like DECIMAL and DATETIME, decoded as
+ * {@link GenericRecord#get(int)}.</li>
+ * </ul>
+ * Null values are marked in null bitset, and primitive value is 0 or empty.
+ *
+ * @author xu.zx
+ */
+public class ColumnVector {
+
+  private static final int INITIAL_CAPACITY = 64;
+
+  /**
+   * Physical layout of values.
+   */
+  public enum Kind {
+    /**
+     * int[].
+     */
+    INT,
+    /**
+     * long[].
+     */
+    LONG,
+    /**
+     * double[].
+     */
+    DOUBLE,
+    /**
+     * Offsets and bytes.
+     */
+    BYTES,
+    /**
+     * Object[].
+     */
+    OBJECT
+  }
+
+  private final Column column;
+
+  private final Kind kind;
+
+  private final BitSet nulls = new BitSet();
+
+  private int size;
+
+  private int[] ints;
+
+  private long[] longs;
+
+  private double[] doubles;
+
+  /**
+   * Offsets of values in data, offsets[i + 1] is the end of value i.
+   */
+  private int[] offsets;
+
+  private byte[] data;
+
+  private Object[] objects;
+
+  public ColumnVector(Column column) {
+    this.column = checkNotNull(column);
+    this.kind = kindOf(column.getType());
+    switch (kind) {
+      case INT:
+        ints = new int[INITIAL_CAPACITY];
+        break;
+      case LONG:
+        longs = new long[INITIAL_CAPACITY];
+        break;
+      case DOUBLE:
+        doubles = new double[INITIAL_CAPACITY];
+        break;
+      case BYTES:
+        offsets = new int[INITIAL_CAPACITY + 1];
+        data = new byte[INITIAL_CAPACITY * 16];
+        break;
+      default:
+        objects = new Object[INITIAL_CAPACITY];
+        break;
+    }
+  }
+
+  /**
+   * Kind of vector for column type.
+   *
+   * @param type column type
+   * @return kind
+   */
+  public static Kind kindOf(String type) {
+    Integer integerSize = ColumnType.INTEGER_TYPE_SIZES.get(type);
+    if (integerSize != null) {
+      boolean fitInt = integerSize < 4 || (integerSize == 4 && !type.endsWith("UNSIGNED"));
+      return fitInt ? Kind.INT : Kind.LONG;
+    }
+    switch (type) {
+      case ColumnType.FLOAT:
+      case ColumnType.UNSIGNED_FLOAT:
+      case ColumnType.REAL:
+      case ColumnType.UNSIGNED_REAL:
+      case ColumnType.DOUBLE:
+      case ColumnType.UNSIGNED_DOUBLE:
+        return Kind.DOUBLE;
+      case ColumnType.BINARY:
+      case ColumnType.VARBINARY:
+        return Kind.BYTES;
+      default:
+        boolean bytes = ColumnType.CHAR_TYPES.contains(type) || ColumnType.BLOB_TEXT_TYPES.contains(type);
+        return bytes ? Kind.BYTES : Kind.OBJECT;
+    }
+  }
+
+  /**
+   * Clear values, arrays are kept for reuse.
+   */
+  public void reset() {
+    size = 0;
+    nulls.clear();
+  }
+
+  /**
+   * Append value of the column in row.
+   *
+   * @param row row located at a record
+   */
+  public void append(Row row) {
+    int ordinal = column.getOrdinal();
+    ensureCapacity(size + 1);
+    if (row.isNull(ordinal)) {
+      nulls.set(size);
+      if (kind == Kind.BYTES) {
+        offsets[size + 1] = offsets[size];
+      } else if (kind == Kind.OBJECT) {
+        objects[size] = null;
+      }
+      size++;
+      return;
+    }
+    switch (kind) {
+      case INT:
+        ints[size] = row.getInt(ordinal);
+        break;
+      case LONG:
+        longs[size] = row.getLong(ordinal);
+        break;
+      case DOUBLE:
+        doubles[size] = row.getDouble(ordinal);
+        break;
+      case BYTES:
+        int offset = offsets[size];
+        int length = row.getLength(ordinal);
+        if (offset + length > data.length) {
+          data = Arrays.copyOf(data, Math.max(data.length * 2, offset + length));
+        }
+        offsets[size + 1] = offset + row.getBytes(ordinal, data, offset);
+        break;
+      default:
+        objects[size] = row.get(ordinal);
+        break;
+    }
+    size++;
+  }
+
+  public Column getColumn() {
+    return column;
+  }
+
+  public Kind getKind() {
+    return kind;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Null bitset, bit i is set if value i is null. The bitset is reused.
+   *
+   * @return null bitset
+   */
+  public BitSet getNulls() {
+    return nulls;
+  }
+
+  public boolean isNull(int i) {
+    checkElementIndex(i, size);
+    return nulls.get(i);
+  }
+
+  /**
+   * Values of {@link Kind#INT} vector, only the first {@link #size()} elements are valid.
+   *
+   * @return values
+   */
+  public int[] getInts() {
+    checkKind(Kind.INT);
+    return ints;
+  }
+
+  /**
+   * @see #getInts()
+   */
+  public long[] getLongs() {
+    checkKind(Kind.LONG);
+    return longs;
+  }
+
+  /**
+   * @see #getInts()
+   */
+  public double[] getDoubles() {
+    checkKind(Kind.DOUBLE);
+    return doubles;
+  }
+
+  /**
+   * Offsets of {@link Kind#BYTES} vector, the first {@link #size()} + 1 elements are valid.
+   *
+   * @return offsets
+   */
+  public int[] getOffsets() {
+    checkKind(Kind.BYTES);
+    return offsets;
+  }
+
+  /**
+   * Bytes of {@link Kind#BYTES} vector, values are concatenated.
+   *
+   * @return data
+   */
+  public byte[] getData() {
+    checkKind(Kind.BYTES);
+    return data;
+  }
+
+  /**
+   * @see #getInts()
+   */
+  public Object[] getObjects() {
+    checkKind(Kind.OBJECT);
+    return objects;
+  }
+
+  public int getInt(int i) {
+    checkElementIndex(i, size);
+    return getInts()[i];
+  }
+
+  public long getLong(int i) {
+    checkElementIndex(i, size);
+    return getLongs()[i];
+  }
+
+  public double getDouble(int i) {
+    checkElementIndex(i, size);
+    return getDoubles()[i];
+  }
+
+  public int getOffset(int i) {
+    checkElementIndex(i, size);
+    return getOffsets()[i];
+  }
+
+  public int getLength(int i) {
+    checkElementIndex(i, size);
+    return getOffsets()[i + 1] - offsets[i];
+  }
+
+  public Object getObject(int i) {
+    checkElementIndex(i, size);
+    return getObjects()[i];
+  }
+
+  private void ensureCapacity(int capacity) {
+    int current = kind == Kind.BYTES ? offsets.length - 1 : length();
+    if (capacity <= current) {
+      return;
+    }
+    int newCapacity = Math.max(current * 2, capacity);
+    switch (kind) {
+      case INT:
+        ints = Arrays.copyOf(ints, newCapacity);
+        break;
+      case LONG:
+        longs = Arrays.copyOf(longs, newCapacity);
+        break;
+      case DOUBLE:
+        doubles = Arrays.copyOf(doubles, newCapacity);
+        break;
+      case BYTES:
+        offsets = Arrays.copyOf(offsets, newCapacity + 1);
+        break;
+      default:
+        objects = Arrays.copyOf(objects, newCapacity);
+        break;
+    }
+  }
+
+  private int length() {
+    switch (kind) {
+      case INT:
+        return ints.length;
+      case LONG:
+        return longs.length;
+      case DOUBLE:
+        return doubles.length;
+      default:
+        return objects.length;
+    }
+  }
+
+  private void checkKind(Kind expected) {
+    checkState(kind == expected, "Column %s is %s vector, not %s", column.getName(), kind, expected);
+  }
+
+}
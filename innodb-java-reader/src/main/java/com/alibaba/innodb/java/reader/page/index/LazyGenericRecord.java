@@ -0,0 +1,300 @@
+/*
+ * Copyright (C) 1999-2019 Alibaba Group Holding Limited
+ */
+package com.alibaba.innodb.java.reader.page.index;
+
+import com.alibaba.innodb.java.reader.exception.ReaderException;
+import com.alibaba.innodb.java.reader.schema.Column;
+import com.alibaba.innodb.java.reader.schema.TableDef;
+import com.alibaba.innodb.java.reader.util.SliceInput;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Record whose column values are decoded on first access.
+ * <p>
+ * Primary key is decoded eagerly, other columns are located by the null bitmap and the
+ * variable-length array when the record is read, only the position of every column within
+ * the page is kept, values are decoded from the page when {@link #get(int)} or
+ * {@link #get(String)} is called for the first time.
+ * <p>
+ * Lifetime: the record refers to the page buffer, it is valid only within the
+ * {@link PageScope} of the page, that is, while the record is being passed to predicate
+ * or consumer. After the scope is closed the page buffer may be recycled, accessing columns
+ * not decoded yet throws {@link IllegalStateException}. Call {@link #materialize()} within
+ * the scope to decode all columns and detach the record from the page if it should be kept.
+ * <p>
+ * Not thread-safe.
+ *
+ * @author xu.zx
+ */
+public class LazyGenericRecord extends GenericRecord {
+
+  private static final int NOT_PRESENT = -1;
+
+  /**
+   * Null if the record is materialized.
+   */
+  private PageScope scope;
+
+  /**
+   * Position of column in page by column ordinal, -1 if the value is null, excluded by
+   * projection or already decoded.
+   */
+  private final int[] positions;
+
+  /**
+   * Number of bytes in page by column ordinal.
+   */
+  private final int[] lengths;
+
+  /**
+   * Length stored in variable-length array by column ordinal, -1 for fixed-length column.
+   */
+  private final int[] varLens;
+
+  /**
+   * Column ordinals of which value is stored in overflow pages.
+   */
+  private final BitSet overflow;
+
+  private int numOfPending;
+
+  /**
+   * Decode one column value.
+   */
+  @FunctionalInterface
+  public interface ColumnDecoder {
+
+    /**
+     * Decode column value starting at current position of input.
+     *
+     * @param input    page input positioned at the column
+     * @param column   column
+     * @param varLen   length in variable-length array, -1 for fixed-length column
+     * @param overflow if the value is stored in overflow pages
+     * @return column value
+     */
+    Object decode(SliceInput input, Column column, int varLen, boolean overflow);
+  }
+
+  /**
+   * Compare raw bytes of a column in page.
+   */
+  @FunctionalInterface
+  public interface RawValueComparator {
+
+    /**
+     * Returned if raw bytes cannot be compared and the value should be decoded.
+     */
+    int UNKNOWN = Integer.MIN_VALUE;
+
+    /**
+     * Compare raw bytes of column value with some target.
+     *
+     * @param input  page input positioned at the column
+     * @param length number of bytes of the column value
+     * @return comparing result or {@link #UNKNOWN}
+     */
+    int compare(SliceInput input, int length);
+  }
+
+  /**
+   * Lifetime of the page which lazy records are read from, closed before the page is released.
+   * Records of one page share the input of the scope to decode values.
+   */
+  public static class PageScope {
+
+    private final SliceInput pageInput;
+
+    private final ColumnDecoder decoder;
+
+    private boolean closed;
+
+    /**
+     * Constructor.
+     *
+     * @param pageInput input of the page, should not be shared with record reading
+     * @param decoder   column decoder
+     */
+    public PageScope(SliceInput pageInput, ColumnDecoder decoder) {
+      this.pageInput = checkNotNull(pageInput);
+      this.decoder = checkNotNull(decoder);
+    }
+
+    public boolean isClosed() {
+      return closed;
+    }
+
+    public void close() {
+      closed = true;
+    }
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param header     record header
+   * @param tableDef   table definition
+   * @param pageNumber page number
+   * @param scope      lifetime of the page
+   */
+  public LazyGenericRecord(RecordHeader header, TableDef tableDef, long pageNumber, PageScope scope) {
+    super(header, tableDef, pageNumber);
+    this.scope = checkNotNull(scope);
+    this.positions = new int[tableDef.getColumnNum()];
+    this.lengths = new int[tableDef.getColumnNum()];
+    this.varLens = new int[tableDef.getColumnNum()];
+    this.overflow = new BitSet(tableDef.getColumnNum());
+    Arrays.fill(positions, NOT_PRESENT);
+  }
+
+  /**
+   * Record where the column value is located, the value will be decoded on access.
+   *
+   * @param ordinal  column ordinal
+   * @param position position in page
+   * @param length   number of bytes in page
+   * @param varLen   length in variable-length array, -1 for fixed-length column
+   * @param overflow if the value is stored in overflow pages
+   */
+  public void locate(int ordinal, int position, int length, int varLen, boolean overflow) {
+    if (positions[ordinal] == NOT_PRESENT) {
+      numOfPending++;
+    }
+    positions[ordinal] = position;
+    lengths[ordinal] = length;
+    varLens[ordinal] = varLen;
+    if (overflow) {
+      this.overflow.set(ordinal);
+    }
+  }
+
+  @Override
+  public Object get(String columnName) {
+    TableDef.Field field = getTableDef().getField(columnName);
+    if (field == null) {
+      return null;
+    }
+    return get(field.getOrdinal());
+  }
+
+  @Override
+  public Object get(int i) {
+    if (positions[i] != NOT_PRESENT) {
+      decode(i);
+    }
+    return super.get(i);
+  }
+
+  @Override
+  public void put(int i, Object v) {
+    discard(i);
+    super.put(i, v);
+  }
+
+  @Override
+  public void put(String columnName, Object value) {
+    TableDef.Field field = getTableDef().getField(columnName);
+    if (field == null) {
+      throw new ReaderException("Not valid for column: " + columnName);
+    }
+    put(field.getOrdinal(), value);
+  }
+
+  /**
+   * If the column value is not decoded yet and all its bytes are within the page, which means
+   * it is not null, in projection and not stored in overflow pages.
+   *
+   * @param ordinal column ordinal
+   * @return true if raw bytes can be compared
+   */
+  public boolean hasRawValue(int ordinal) {
+    return positions[ordinal] != NOT_PRESENT && !overflow.get(ordinal);
+  }
+
+  /**
+   * Compare raw bytes of the column without decoding, should be called only if
+   * {@link #hasRawValue(int)} is true.
+   *
+   * @param ordinal    column ordinal
+   * @param comparator comparator of raw bytes
+   * @return comparing result of comparator
+   */
+  public int compareRawValue(int ordinal, RawValueComparator comparator) {
+    checkState(hasRawValue(ordinal), "Column %s has no raw value", ordinal);
+    checkScope();
+    scope.pageInput.setPosition(positions[ordinal]);
+    return comparator.compare(scope.pageInput, lengths[ordinal]);
+  }
+
+  /**
+   * All values with columns not decoded yet decoded first. Unlike {@link #materialize()}
+   * the record still refers to the page, so that columns can be located after this.
+   */
+  @Override
+  public Object[] getValues() {
+    decodePending();
+    return super.getValues();
+  }
+
+  /**
+   * Decode all columns not decoded yet, then the record no longer refers to the page and
+   * can be kept after the page scope is closed.
+   *
+   * @return this record
+   */
+  public LazyGenericRecord materialize() {
+    decodePending();
+    // do not hold the page any more
+    scope = null;
+    return this;
+  }
+
+  /**
+   * If all columns are decoded.
+   *
+   * @return true if no column refers to the page
+   */
+  public boolean isMaterialized() {
+    return numOfPending == 0;
+  }
+
+  private void checkScope() {
+    checkState(scope != null, "Page %s of lazy record is detached by materialize()", getPageNumber());
+    checkState(!scope.isClosed(), "Page %s of lazy record is released, materialize() it within the page scope",
+        getPageNumber());
+  }
+
+  private void decodePending() {
+    for (int i = 0; numOfPending > 0 && i < positions.length; i++) {
+      if (positions[i] != NOT_PRESENT) {
+        decode(i);
+      }
+    }
+  }
+
+  private void decode(int ordinal) {
+    checkScope();
+    List<Column> columnList = getTableDef().getColumnList();
+    scope.pageInput.setPosition(positions[ordinal]);
+    Object value = scope.decoder.decode(scope.pageInput, columnList.get(ordinal), varLens[ordinal],
+        overflow.get(ordinal));
+    discard(ordinal);
+    super.put(ordinal, value);
+  }
+
+  private void discard(int ordinal) {
+    // positions is not initialized yet when infimum or supremum puts values in super constructor
+    if (positions != null && positions[ordinal] != NOT_PRESENT) {
+      positions[ordinal] = NOT_PRESENT;
+      numOfPending--;
+    }
+  }
+
+}
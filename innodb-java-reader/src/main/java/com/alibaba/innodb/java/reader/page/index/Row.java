@@ -0,0 +1,394 @@
+/*
+ * Copyright (C) 1999-2019 Alibaba Group Holding Limited
+ */
+package com.alibaba.innodb.java.reader.page.index;
+
+import com.alibaba.innodb.java.reader.column.ColumnType;
+import com.alibaba.innodb.java.reader.exception.ReaderException;
+import com.alibaba.innodb.java.reader.page.index.LazyGenericRecord.ColumnDecoder;
+import com.alibaba.innodb.java.reader.schema.Column;
+import com.alibaba.innodb.java.reader.schema.TableDef;
+import com.alibaba.innodb.java.reader.util.SliceInput;
+
+import java.io.UnsupportedEncodingException;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.alibaba.innodb.java.reader.SizeOf.SIZE_OF_REC_HEADER;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkElementIndex;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Mutable row over a record in page, reused from record to record when scanning with cursor,
+ * see {@link RowVisitor}.
+ * <p>
+ * Columns are located but not decoded, primitive accessors like {@link #getInt(int)},
+ * {@link #getLong(int)} and {@link #getBytes(int, byte[], int)} read bytes in page directly
+ * without boxing or allocating, {@link #get(int)} decodes the same value as
+ * {@link GenericRecord#get(int)}.
+ * <p>
+ * Columns not in projection cannot be accessed. Row is not thread-safe.
+ *
+ * @author xu.zx
+ */
+public class Row {
+
+  private static final int NOT_PRESENT = -1;
+
+  private static final int NULL = -2;
+
+  private final TableDef tableDef;
+
+  private final List<Column> columns;
+
+  private final ColumnDecoder decoder;
+
+  /**
+   * Size of integer column, 0 if column is not integer.
+   */
+  private final int[] integerSizes;
+
+  private final boolean[] signed;
+
+  private final int[] positions;
+
+  private final int[] lengths;
+
+  private final int[] varLens;
+
+  private final boolean[] overflow;
+
+  /**
+   * Buffers used to read record header, see {@link #nullBitmapBuffer()}.
+   */
+  private final byte[] nullBitmapBuffer;
+
+  private final int[] varLenBuffer;
+
+  private final boolean[] overflowBuffer;
+
+  private SliceInput input;
+
+  private long pageNumber;
+
+  private int primaryKeyPosition;
+
+  /**
+   * Constructor.
+   *
+   * @param tableDef table definition
+   * @param decoder  column decoder for {@link #get(int)} and values stored in overflow pages
+   */
+  public Row(TableDef tableDef, ColumnDecoder decoder) {
+    this.tableDef = checkNotNull(tableDef);
+    this.columns = tableDef.getColumnList();
+    this.decoder = checkNotNull(decoder);
+    int columnNum = tableDef.getColumnNum();
+    this.integerSizes = new int[columnNum];
+    this.signed = new boolean[columnNum];
+    for (Column column : columns) {
+      Integer size = ColumnType.INTEGER_TYPE_SIZES.get(column.getType());
+      if (size != null) {
+        integerSizes[column.getOrdinal()] = size;
+        signed[column.getOrdinal()] = !column.getType().endsWith("UNSIGNED");
+      }
+    }
+    this.positions = new int[columnNum];
+    this.lengths = new int[columnNum];
+    this.varLens = new int[columnNum];
+    this.overflow = new boolean[columnNum];
+    this.nullBitmapBuffer = new byte[(tableDef.getNullableColumnNum() + 7) / 8];
+    this.varLenBuffer = new int[tableDef.getVariableLengthColumnNum()];
+    this.overflowBuffer = new boolean[tableDef.getVariableLengthColumnNum()];
+    Arrays.fill(positions, NOT_PRESENT);
+  }
+
+  /**
+   * Move to a record, all columns are reset to not present.
+   *
+   * @param input              input of the page
+   * @param pageNumber         page number
+   * @param primaryKeyPosition position of the record, right after record header
+   */
+  public void reset(SliceInput input, long pageNumber, int primaryKeyPosition) {
+    this.input = input;
+    this.pageNumber = pageNumber;
+    this.primaryKeyPosition = primaryKeyPosition;
+    Arrays.fill(positions, NOT_PRESENT);
+  }
+
+  /**
+   * Locate column in page.
+   *
+   * @param ordinal  column ordinal
+   * @param position start position of the column value in page
+   * @param length   number of bytes of the value in page
+   * @param varLen   length in variable-length array, -1 for fixed-length column
+   * @param overflow if the value is stored in overflow pages
+   */
+  public void locate(int ordinal, int position, int length, int varLen, boolean overflow) {
+    positions[ordinal] = position;
+    lengths[ordinal] = length;
+    varLens[ordinal] = varLen;
+    this.overflow[ordinal] = overflow;
+  }
+
+  /**
+   * Set column value to null.
+   *
+   * @param ordinal column ordinal
+   */
+  public void setNull(int ordinal) {
+    positions[ordinal] = NULL;
+  }
+
+  /**
+   * Buffers to read record header into, reused to avoid allocation, not part of the row.
+   *
+   * @return buffer of null bitmap
+   */
+  public byte[] nullBitmapBuffer() {
+    return nullBitmapBuffer;
+  }
+
+  /**
+   * @see #nullBitmapBuffer()
+   */
+  public int[] varLenBuffer() {
+    return varLenBuffer;
+  }
+
+  /**
+   * @see #nullBitmapBuffer()
+   */
+  public boolean[] overflowBuffer() {
+    return overflowBuffer;
+  }
+
+  public TableDef getTableDef() {
+    return tableDef;
+  }
+
+  public long getPageNumber() {
+    return pageNumber;
+  }
+
+  /**
+   * If the column is in projection.
+   *
+   * @param ordinal column ordinal
+   * @return true if column can be accessed
+   */
+  public boolean isPresent(int ordinal) {
+    checkElementIndex(ordinal, positions.length);
+    return positions[ordinal] != NOT_PRESENT;
+  }
+
+  public boolean isNull(int ordinal) {
+    return position(ordinal) == NULL;
+  }
+
+  /**
+   * If the column value is stored in overflow pages, only part of it or a pointer is in page.
+   *
+   * @param ordinal column ordinal
+   * @return true if value is stored in overflow pages
+   */
+  public boolean isOverflow(int ordinal) {
+    return position(ordinal) != NULL && overflow[ordinal];
+  }
+
+  /**
+   * Read integer column whose value fits in int, that is all signed and unsigned integer
+   * types except INT UNSIGNED, BIGINT and BIGINT UNSIGNED.
+   *
+   * @param ordinal column ordinal
+   * @return value, 0 if null
+   */
+  public int getInt(int ordinal) {
+    int size = integerSizes[ordinal];
+    boolean fit = size > 0 && (size < 4 || (size == 4 && signed[ordinal]));
+    checkArgument(fit, "Column %s of type %s cannot be read as int", columnName(ordinal), columnType(ordinal));
+    return (int) readInteger(ordinal, size);
+  }
+
+  /**
+   * Read integer column, for BIGINT UNSIGNED values greater than {@link Long#MAX_VALUE}
+   * are returned as negative numbers like {@link Long#toUnsignedString(long)} expects.
+   *
+   * @param ordinal column ordinal
+   * @return value, 0 if null
+   */
+  public long getLong(int ordinal) {
+    int size = integerSizes[ordinal];
+    checkArgument(size > 0, "Column %s of type %s cannot be read as long", columnName(ordinal),
+        columnType(ordinal));
+    return readInteger(ordinal, size);
+  }
+
+  /**
+   * Read FLOAT, REAL, DOUBLE or integer column.
+   *
+   * @param ordinal column ordinal
+   * @return value, 0 if null
+   */
+  public double getDouble(int ordinal) {
+    String type = columnType(ordinal);
+    boolean floatType = ColumnType.FLOAT.equals(type) || ColumnType.UNSIGNED_FLOAT.equals(type)
+        || ColumnType.REAL.equals(type) || ColumnType.UNSIGNED_REAL.equals(type);
+    boolean doubleType = ColumnType.DOUBLE.equals(type) || ColumnType.UNSIGNED_DOUBLE.equals(type);
+    if (floatType || doubleType) {
+      int position = position(ordinal);
+      if (position == NULL) {
+        return 0;
+      }
+      input.setPosition(position);
+      return floatType ? input.readFloat() : input.readDouble();
+    }
+    int size = integerSizes[ordinal];
+    checkArgument(size > 0, "Column %s of type %s cannot be read as double", columnName(ordinal), type);
+    long value = readInteger(ordinal, size);
+    if (size == 8 && !signed[ordinal] && value < 0) {
+      return (double) (value >>> 1) * 2 + (value & 1);
+    }
+    return value;
+  }
+
+  /**
+   * Number of bytes of column value, see {@link #getBytes(int, byte[], int)}.
+   *
+   * @param ordinal column ordinal
+   * @return length, 0 if null
+   */
+  public int getLength(int ordinal) {
+    int position = position(ordinal);
+    if (position == NULL) {
+      return 0;
+    } else if (overflow[ordinal]) {
+      return toBytes(ordinal, decodeValue(ordinal)).length;
+    }
+    return lengths[ordinal];
+  }
+
+  /**
+   * Copy bytes of column value to buffer. For string and binary columns, it is the value
+   * encoded in column charset, note that CHAR column may be padded by spaces. For other
+   * columns, it is the value as stored in page.
+   * <p>
+   * Value stored in overflow pages is read and copied, which allocates.
+   *
+   * @param ordinal column ordinal
+   * @param buffer  destination buffer
+   * @param offset  offset in buffer
+   * @return number of bytes copied, 0 if null
+   */
+  public int getBytes(int ordinal, byte[] buffer, int offset) {
+    int position = position(ordinal);
+    if (position == NULL) {
+      return 0;
+    } else if (overflow[ordinal]) {
+      byte[] bytes = toBytes(ordinal, decodeValue(ordinal));
+      checkArgument(buffer.length - offset >= bytes.length, "Buffer is too small, %s bytes needed", bytes.length);
+      System.arraycopy(bytes, 0, buffer, offset, bytes.length);
+      return bytes.length;
+    }
+    int length = lengths[ordinal];
+    checkArgument(buffer.length - offset >= length, "Buffer is too small, %s bytes needed", length);
+    input.setPosition(position);
+    input.readBytes(buffer, offset, length);
+    return length;
+  }
+
+  /**
+   * Decode column value.
+   *
+   * @param ordinal column ordinal
+   * @return value, the same as {@link GenericRecord#get(int)}
+   */
+  public Object get(int ordinal) {
+    return position(ordinal) == NULL ? null : decodeValue(ordinal);
+  }
+
+  /**
+   * Decode column value by name, see {@link #get(int)}.
+   *
+   * @param columnName column name
+   * @return value
+   */
+  public Object get(String columnName) {
+    TableDef.Field field = tableDef.getField(columnName);
+    if (field == null) {
+      throw new ReaderException("Not valid for column: " + columnName);
+    }
+    return get(field.getOrdinal());
+  }
+
+  /**
+   * Decode present columns into a new record which can be kept.
+   *
+   * @return record
+   */
+  public GenericRecord toRecord() {
+    input.setPosition(primaryKeyPosition - SIZE_OF_REC_HEADER);
+    GenericRecord record = new GenericRecord(RecordHeader.fromSlice(input), tableDef, pageNumber);
+    for (int i = 0; i < positions.length; i++) {
+      if (positions[i] != NOT_PRESENT) {
+        record.put(i, get(i));
+      }
+    }
+    record.setPrimaryKeyPosition(primaryKeyPosition);
+    return record;
+  }
+
+  private long readInteger(int ordinal, int size) {
+    int position = position(ordinal);
+    if (position == NULL) {
+      return 0L;
+    }
+    input.setPosition(position);
+    long value = 0L;
+    for (int i = 0; i < size; i++) {
+      value = (value << 8) | input.readUnsignedByte();
+    }
+    if (signed[ordinal]) {
+      // flip sign bit and extend it
+      int shift = 64 - size * 8;
+      value = ((value ^ (1L << (size * 8 - 1))) << shift) >> shift;
+    }
+    return value;
+  }
+
+  private Object decodeValue(int ordinal) {
+    input.setPosition(positions[ordinal]);
+    return decoder.decode(input, columns.get(ordinal), varLens[ordinal], overflow[ordinal]);
+  }
+
+  private byte[] toBytes(int ordinal, Object value) {
+    if (value instanceof byte[]) {
+      return (byte[]) value;
+    }
+    try {
+      return String.valueOf(value).getBytes(columns.get(ordinal).getJavaCharset());
+    } catch (UnsupportedEncodingException e) {
+      throw new ReaderException(e);
+    }
+  }
+
+  private int position(int ordinal) {
+    checkElementIndex(ordinal, positions.length);
+    int position = positions[ordinal];
+    checkState(position != NOT_PRESENT, "Column %s is not in projection", columnName(ordinal));
+    return position;
+  }
+
+  private String columnName(int ordinal) {
+    return columns.get(ordinal).getName();
+  }
+
+  private String columnType(int ordinal) {
+    return columns.get(ordinal).getType();
+  }
+
+}
@@ -0,0 +1,22 @@
+/*
+ * Copyright (C) 1999-2019 Alibaba Group Holding Limited
+ */
+package com.alibaba.innodb.java.reader.page.index;
+
+/**
+ * Visitor of rows when scanning with cursor.
+ *
+ * @author xu.zx
+ */
+@FunctionalInterface
+public interface RowVisitor {
+
+  /**
+   * Visit one row, the row is reused for the next one, so it should not be kept
+   * after returning, use {@link Row#toRecord()} to keep a copy.
+   *
+   * @param row row
+   */
+  void visit(Row row);
+
+}
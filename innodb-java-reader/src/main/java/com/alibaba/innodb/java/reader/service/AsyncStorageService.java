@@ -0,0 +1,37 @@
+/*
+ * Copyright (C) 1999-2019 Alibaba Group Holding Limited
+ */
+package com.alibaba.innodb.java.reader.service;
+
+import com.alibaba.innodb.java.reader.page.FilHeader;
+import com.alibaba.innodb.java.reader.page.InnerPage;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Service for reading tablespace page asynchronously, so that one thread can
+ * issue many concurrent reads.
+ *
+ * @author xu.zx
+ */
+public interface AsyncStorageService extends StorageService {
+
+  /**
+   * Load page asynchronously.
+   *
+   * @param pageNumber page number
+   * @return future of InnerPage, completed exceptionally with
+   * {@link com.alibaba.innodb.java.reader.exception.ReaderException} when internal errors occurs
+   */
+  CompletableFuture<InnerPage> loadPageAsync(long pageNumber);
+
+  /**
+   * Load page header only asynchronously.
+   *
+   * @param pageNumber page number
+   * @return future of FilHeader, completed exceptionally with
+   * {@link com.alibaba.innodb.java.reader.exception.ReaderException} when internal errors occurs
+   */
+  CompletableFuture<FilHeader> loadPageHeaderAsync(long pageNumber);
+
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 1999-2019 Alibaba Group Holding Limited
+ */
+package com.alibaba.innodb.java.reader.service;
+
+import java.util.List;
+
+import lombok.Getter;
+
+/**
+ * Result of verifying checksum of all pages in a tablespace.
+ *
+ * @author xu.zx
+ */
+@Getter
+public class ChecksumVerifyResult {
+
+  private final long numOfPages;
+
+  /**
+   * Pages whose checksum is calculated, excluding empty pages and pages in free extents.
+   */
+  private final long numOfVerifiedPages;
+
+  /**
+   * Pages filled with zeros, which are never written.
+   */
+  private final long numOfEmptyPages;
+
+  /**
+   * Pages in free extents which are not read.
+   */
+  private final long numOfSkippedPages;
+
+  /**
+   * Page numbers of corrupted pages in ascending order.
+   */
+  private final List<Long> corruptedPageNumbers;
+
+  private final long bytesRead;
+
+  private final long elapsedMillis;
+
+  private final int parallelism;
+
+  public ChecksumVerifyResult(long numOfPages, long numOfVerifiedPages, long numOfEmptyPages,
+                              long numOfSkippedPages, List<Long> corruptedPageNumbers, long bytesRead,
+                              long elapsedMillis, int parallelism) {
+    this.numOfPages = numOfPages;
+    this.numOfVerifiedPages = numOfVerifiedPages;
+    this.numOfEmptyPages = numOfEmptyPages;
+    this.numOfSkippedPages = numOfSkippedPages;
+    this.corruptedPageNumbers = corruptedPageNumbers;
+    this.bytesRead = bytesRead;
+    this.elapsedMillis = elapsedMillis;
+    this.parallelism = parallelism;
+  }
+
+  public boolean isCorrupted() {
+    return !corruptedPageNumbers.isEmpty();
+  }
+
+  /**
+   * Read and verify throughput.
+   *
+   * @return MB per second
+   */
+  public double getThroughputMbPerSec() {
+    return bytesRead / 1024.0D / 1024.0D / Math.max(elapsedMillis, 1L) * 1000.0D;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("pages=%d, verified=%d, empty=%d, skipped=%d, corrupted=%d, read=%dMB, "
+            + "elapsed=%dms, throughput=%.1fMB/s, threads=%d",
+        numOfPages, numOfVerifiedPages, numOfEmptyPages, numOfSkippedPages, corruptedPageNumbers.size(),
+        bytesRead / 1024L / 1024L, elapsedMillis, getThroughputMbPerSec(), parallelism);
+  }
+
+}
@@ -3,14 +3,24 @@
  */
 package com.alibaba.innodb.java.reader.service;
 
+import com.alibaba.innodb.java.reader.aggregate.AggregateRow;
+import com.alibaba.innodb.java.reader.aggregate.Aggregation;
 import com.alibaba.innodb.java.reader.comparator.ComparisonOperator;
+import com.alibaba.innodb.java.reader.filter.Filter;
+import com.alibaba.innodb.java.reader.page.index.ColumnBatch;
 import com.alibaba.innodb.java.reader.page.index.GenericRecord;
 import com.alibaba.innodb.java.reader.page.index.Index;
+import com.alibaba.innodb.java.reader.page.index.Row;
+import com.alibaba.innodb.java.reader.page.index.RowVisitor;
 
 import java.util.BitSet;
+import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
+import java.util.Spliterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 import java.util.function.Predicate;
 
 /**
@@ -56,6 +66,121 @@ public interface IndexService {
   List<GenericRecord> queryAll(Optional<Predicate<GenericRecord>> recordPredicate,
                                Optional<List<String>> recordProjection);
 
+  /**
+   * Query all records in a tablespace with a declarative filter, the filter is evaluated
+   * before records are decoded, see {@link Filter}.
+   * <p>
+   * Note this will cause out-of-memory if the table size is too big.
+   *
+   * @param filter           filter
+   * @param recordProjection optional projection of selected column names, if no present, all
+   *                         fields will be included, columns used by filter are always included
+   * @return all records
+   */
+  List<GenericRecord> queryAll(Filter filter, Optional<List<String>> recordProjection);
+
+  /**
+   * Scan all records in a tablespace in parallel, B+ tree is split into subtrees which are
+   * traversed by multiple threads.
+   *
+   * @param recordPredicate  optional filtering, if predicate returns true upon
+   *                         record, then it will be passed to consumer
+   * @param recordProjection optional projection of selected column names, if no present, all
+   *                         fields will be included
+   * @param ordered          if true, records are passed to consumer in primary key order by
+   *                         the calling thread, otherwise records are passed to consumer
+   *                         concurrently by worker threads without order
+   * @param recordConsumer   consumer of records, should be thread-safe if not ordered
+   * @return number of records passed to consumer
+   */
+  long parallelScan(Optional<Predicate<GenericRecord>> recordPredicate, Optional<List<String>> recordProjection,
+                    boolean ordered, Consumer<GenericRecord> recordConsumer);
+
+  /**
+   * Scan all records in a tablespace in physical order of pages instead of primary key order.
+   * <p>
+   * The tablespace is read sequentially extent by extent, free extents and free pages are
+   * skipped by XDES entries, leaf pages of clustered index are picked by index id and level
+   * in index header, so reading is sequential no matter how the leaf pages are linked.
+   *
+   * @param recordPredicate  optional filtering, if predicate returns true upon
+   *                         record, then it will be passed to consumer
+   * @param recordProjection optional projection of selected column names, if no present, all
+   *                         fields will be included
+   * @param recordConsumer   consumer of records, records of one page are in primary key order,
+   *                         but there is no order across pages
+   * @return number of records passed to consumer
+   */
+  long unorderedScan(Optional<Predicate<GenericRecord>> recordPredicate, Optional<List<String>> recordProjection,
+                     Consumer<GenericRecord> recordConsumer);
+
+  /**
+   * Group all records in a tablespace by columns and aggregate them, like
+   * <code>SELECT g1, g2, COUNT(*), SUM(c) FROM t WHERE ... GROUP BY g1, g2</code>.
+   * <p>
+   * Subtrees of clustered index are scanned in parallel with cursor, every thread aggregates
+   * {@link Row}s into its own groups by primitive accumulators, groups are merged at the end.
+   * Groups beyond memory budget are spilled to temporary files.
+   *
+   * @param groupBy          group-by column names, empty means one group of all records
+   * @param aggregations     aggregations
+   * @param rowPredicate     optional filtering, evaluated on row before aggregating, should be
+   *                         thread-safe
+   * @param recordProjection optional projection of column names accessed by predicate, group-by
+   *                         columns and aggregated columns are always included
+   * @param resultConsumer   consumer of results of groups, there is no order of groups
+   * @return number of groups
+   */
+  long aggregate(List<String> groupBy, List<Aggregation> aggregations, Optional<Predicate<Row>> rowPredicate,
+                 Optional<List<String>> recordProjection, Consumer<AggregateRow> resultConsumer);
+
+  /**
+   * Scan all records in a tablespace in primary key order, records of leaf pages are
+   * {@link com.alibaba.innodb.java.reader.page.index.LazyGenericRecord} whose column values
+   * are decoded only when they are accessed.
+   * <p>
+   * Records are valid only while they are passed to predicate or consumer, call
+   * {@link com.alibaba.innodb.java.reader.page.index.LazyGenericRecord#materialize()} to keep one.
+   *
+   * @param recordPredicate  optional filtering, if predicate returns true upon
+   *                         record, then it will be passed to consumer
+   * @param recordProjection optional projection of selected column names, if no present, all
+   *                         fields will be included
+   * @param recordConsumer   consumer of records
+   * @return number of records passed to consumer
+   */
+  long lazyScan(Optional<Predicate<GenericRecord>> recordPredicate, Optional<List<String>> recordProjection,
+                Consumer<GenericRecord> recordConsumer);
+
+  /**
+   * Scan records by range of primary key in ascending order with cursor, one mutable
+   * {@link com.alibaba.innodb.java.reader.page.index.Row} is reused for all records, so that
+   * nothing is allocated per record when values are read by primitive accessors.
+   *
+   * @param lower            lower bound, empty means no lower bound
+   * @param lowerOperator    comparison operator for lower
+   * @param upper            upper bound, empty means no upper bound
+   * @param upperOperator    comparison operator for upper
+   * @param recordProjection optional projection of selected column names, if no present, all
+   *                         fields will be included
+   * @param rowVisitor       visitor of rows
+   * @return number of rows visited
+   */
+  long scan(List<Object> lower, ComparisonOperator lowerOperator,
+            List<Object> upper, ComparisonOperator upperOperator,
+            Optional<List<String>> recordProjection, RowVisitor rowVisitor);
+
+  /**
+   * Scan all records of a tablespace in primary key order, records of each leaf page are decoded
+   * column by column into a {@link ColumnBatch} of primitive vectors, the batch is reused.
+   *
+   * @param recordProjection optional projection of selected column names, if no present, all
+   *                         fields will be included
+   * @param batchConsumer    consumer of batches
+   * @return number of records
+   */
+  long scanBatch(Optional<List<String>> recordProjection, Consumer<ColumnBatch> batchConsumer);
+
   /**
    * Query record by primary key in a tablespace with projection list.
    * <p>
@@ -69,6 +194,49 @@ public interface IndexService {
    */
   GenericRecord queryByPrimaryKey(List<Object> key, Optional<List<String>> recordProjection);
 
+  /**
+   * Query record by primary key asynchronously, see
+   * {@link #queryByPrimaryKey(List, Optional)}.
+   *
+   * @param key              key list of primary key, single key or a composite key
+   * @param recordProjection optional projection of selected column names, if no present, all
+   *                         fields will be included
+   * @return future of record, the record is null if not found
+   */
+  CompletableFuture<GenericRecord> queryByPrimaryKeyAsync(List<Object> key, Optional<List<String>> recordProjection);
+
+  /**
+   * Query records by a batch of primary keys, B+ tree is walked once and every page needed
+   * is loaded only once.
+   *
+   * @param keys             keys, every key is a single key or a composite key
+   * @param recordProjection optional projection of selected column names, if no present, all
+   *                         fields will be included
+   * @return records in the same order as keys, null for key not found
+   */
+  List<GenericRecord> queryByPrimaryKeys(Collection<List<Object>> keys, Optional<List<String>> recordProjection);
+
+  /**
+   * Count records in a tablespace by number of records in index header of leaf pages,
+   * records are not decoded.
+   *
+   * @return number of records
+   */
+  long count();
+
+  /**
+   * Count records by primary key range, only records of the first and the last leaf page in
+   * range are compared with bounds, other pages are counted by index header.
+   *
+   * @param lower         lower bound, empty means no lower bound
+   * @param lowerOperator comparison operator for lower
+   * @param upper         upper bound, empty means no upper bound
+   * @param upperOperator comparison operator for upper
+   * @return number of records
+   */
+  long count(List<Object> lower, ComparisonOperator lowerOperator,
+             List<Object> upper, ComparisonOperator upperOperator);
+
   /**
    * Range query records by primary key in a tablespace with a filter and projection.
    * <p>
@@ -124,6 +292,22 @@ public interface IndexService {
                                                 Optional<List<String>> recordProjection,
                                                 boolean ascOrder);
 
+  /**
+   * Return a spliterator to do range query in ascending order, the spliterator can be split
+   * by separator keys of non-leaf pages for parallel stream.
+   *
+   * @param lower            lower bound
+   * @param lowerOperator    comparison operator for lower
+   * @param upper            upper bound
+   * @param upperOperator    comparison operator for upper
+   * @param recordProjection optional projection of selected column names, if no present, all
+   *                         fields will be included
+   * @return record spliterator
+   */
+  Spliterator<GenericRecord> getRangeQuerySpliterator(List<Object> lower, ComparisonOperator lowerOperator,
+                                                      List<Object> upper, ComparisonOperator upperOperator,
+                                                      Optional<List<String>> recordProjection);
+
   /**
    * Return record iterator by secondary key (SK) in a tablespace. This is first go through all
    * secondary keys and look up record back to clustered index.
@@ -149,6 +333,16 @@ public interface IndexService {
                                                Optional<List<String>> recordProjection,
                                                boolean ascOrder);
 
+  /**
+   * Pin all non-leaf levels of clustered index in memory, so that primary key lookup only
+   * loads the leaf page.
+   *
+   * @param maxBytes budget of memory in bytes
+   * @return true if pinned, false if the estimated memory exceeds the budget or there is no
+   * non-leaf level
+   */
+  boolean pinNonLeafLevels(long maxBytes);
+
   /**
    * Load index page by page number.
    *
@@ -9,6 +9,11 @@ import com.alibaba.innodb.java.reader.page.InnerPage;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.alibaba.innodb.java.reader.SizeOf.SIZE_OF_PAGE;
 
 /**
  * Service for reading tablespace page.
@@ -43,6 +48,83 @@ public interface StorageService extends Closeable {
    */
   FilHeader loadPageHeader(long pageNumber) throws ReaderException;
 
+  /**
+   * Load contiguous pages, implementation may read them in one large I/O.
+   *
+   * @param startPageNumber page number of the first page
+   * @param numOfPages      number of pages to load
+   * @return list of InnerPage, size may be less than <code>numOfPages</code> if end of file reached
+   * @throws ReaderException throws ReaderException when internal errors occurs
+   */
+  default List<InnerPage> loadPages(long startPageNumber, int numOfPages) throws ReaderException {
+    int num = (int) Math.max(0L, Math.min(numOfPages, numOfPages() - startPageNumber));
+    List<InnerPage> result = new ArrayList<>(num);
+    for (int i = 0; i < num; i++) {
+      result.add(loadPage(startPageNumber + i));
+    }
+    return result;
+  }
+
+  /**
+   * Read raw bytes of contiguous pages into buffer from its current position without
+   * parsing, so that the caller can reuse one buffer for scanning. Buffer position is
+   * advanced by the bytes read.
+   *
+   * @param startPageNumber page number of the first page
+   * @param numOfPages      max number of pages to read
+   * @param buffer          destination buffer
+   * @return number of pages read, may be less than <code>numOfPages</code> if end of file
+   * reached or buffer remaining is not enough
+   * @throws ReaderException throws ReaderException when internal errors occurs
+   */
+  default int readPages(long startPageNumber, int numOfPages, ByteBuffer buffer) throws ReaderException {
+    int num = (int) Math.max(0L, Math.min(Math.min(numOfPages, buffer.remaining() / SIZE_OF_PAGE),
+        numOfPages() - startPageNumber));
+    for (int i = 0; i < num; i++) {
+      InnerPage page = loadPage(startPageNumber + i);
+      try {
+        page.getSliceInput().setPosition(0);
+        buffer.put(page.getSliceInput().readByteArray(SIZE_OF_PAGE));
+      } finally {
+        page.release();
+      }
+    }
+    return num;
+  }
+
+  /**
+   * Load pages by page numbers known up front, implementation may sort the page
+   * numbers and coalesce adjacent pages into fewer, larger reads.
+   *
+   * @param pageNumbers page numbers, can be in any order and may contain duplicates
+   * @return list of InnerPage in the same order of <code>pageNumbers</code>, every element
+   * is a distinct page even for duplicated page numbers and should be released separately
+   * @throws ReaderException throws ReaderException when internal errors occurs
+   */
+  default List<InnerPage> loadPages(long[] pageNumbers) throws ReaderException {
+    List<InnerPage> result = new ArrayList<>(pageNumbers.length);
+    for (long pageNumber : pageNumbers) {
+      result.add(loadPage(pageNumber));
+    }
+    return result;
+  }
+
+  /**
+   * Load page headers by page numbers known up front, implementation may sort the page
+   * numbers and coalesce adjacent pages into fewer, larger reads.
+   *
+   * @param pageNumbers page numbers, can be in any order and may contain duplicates
+   * @return list of FilHeader in the same order of <code>pageNumbers</code>
+   * @throws ReaderException throws ReaderException when internal errors occurs
+   */
+  default List<FilHeader> loadPageHeaders(long[] pageNumbers) throws ReaderException {
+    List<FilHeader> result = new ArrayList<>(pageNumbers.length);
+    for (long pageNumber : pageNumbers) {
+      result.add(loadPageHeader(pageNumber));
+    }
+    return result;
+  }
+
   /**
    * Number of pages in the tablespace, call underlying storage system API to
    * get the current value.
@@ -0,0 +1,460 @@
+/*
+ * Copyright (C) 1999-2019 Alibaba Group Holding Limited
+ */
+package com.alibaba.innodb.java.reader.service.impl;
+
+import com.google.common.primitives.UnsignedBytes;
+
+import com.alibaba.innodb.java.reader.aggregate.AggregateFunction;
+import com.alibaba.innodb.java.reader.exception.ReaderException;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.stream.IntStream;
+
+/**
+ * Hash table from group key to accumulators of aggregations.
+ * <p>
+ * Group key is encoded in bytes by caller, groups are numbered from 0 in insertion order, keys
+ * are looked up by open addressing without allocation. Accumulators are kept column-wise in
+ * primitive arrays indexed by group number, one array of non-null counts and one array of
+ * long or double values per aggregation, sum of BIGINT is kept in 128 bits by another array of
+ * high 64 bits so that it never overflows.
+ * <p>
+ * Accumulators can be merged from another table or from a spilled run, see
+ * {@link #write(DataOutput, int)}. Table is not thread-safe.
+ *
+ * @author xu.zx
+ */
+final class AggregationTable {
+
+  /**
+   * Unsigned lexicographical order of group keys, groups are spilled in this order.
+   */
+  static final Comparator<byte[]> KEY_ORDER = UnsignedBytes.lexicographicalComparator();
+
+  private static final int INITIAL_CAPACITY = 64;
+
+  /**
+   * Estimated bytes of one group besides key bytes and accumulators, that is key array header
+   * and reference, hash and two slots.
+   */
+  private static final int GROUP_OVERHEAD = 16 + 8 + 4 + 8;
+
+  /**
+   * How values are accumulated.
+   */
+  enum AccumulatorType {
+
+    /**
+     * Only count is kept.
+     */
+    COUNT,
+
+    /**
+     * Values are signed long.
+     */
+    LONG,
+
+    /**
+     * Values are unsigned long, that is BIGINT UNSIGNED.
+     */
+    UNSIGNED_LONG,
+
+    /**
+     * Values are signed long, summed up in 128 bits, that is SUM of BIGINT.
+     */
+    LONG_128,
+
+    /**
+     * Values are unsigned long, summed up in 128 bits, that is SUM of BIGINT UNSIGNED.
+     */
+    UNSIGNED_LONG_128,
+
+    /**
+     * Values are double.
+     */
+    DOUBLE
+  }
+
+  private final AggregateFunction[] functions;
+
+  private final AccumulatorType[] types;
+
+  private final int bytesPerGroup;
+
+  /**
+   * Group number plus one, 0 if slot is empty.
+   */
+  private int[] slots;
+
+  private byte[][] keys;
+
+  private int[] hashes;
+
+  private final long[][] counts;
+
+  private final long[][] longs;
+
+  /**
+   * High 64 bits of 128-bit sums, low 64 bits are in {@link #longs}.
+   */
+  private final long[][] highs;
+
+  private final double[][] doubles;
+
+  private int size;
+
+  private long memoryUsage;
+
+  /**
+   * Constructor.
+   *
+   * @param functions function of each aggregation
+   * @param types     accumulator type of each aggregation
+   */
+  AggregationTable(AggregateFunction[] functions, AccumulatorType[] types) {
+    this.functions = functions;
+    this.types = types;
+    this.bytesPerGroup = GROUP_OVERHEAD + 24 * functions.length;
+    this.slots = new int[INITIAL_CAPACITY * 2];
+    this.keys = new byte[INITIAL_CAPACITY][];
+    this.hashes = new int[INITIAL_CAPACITY];
+    this.counts = new long[functions.length][INITIAL_CAPACITY];
+    this.longs = new long[functions.length][];
+    this.highs = new long[functions.length][];
+    this.doubles = new double[functions.length][];
+    for (int i = 0; i < functions.length; i++) {
+      if (types[i] == AccumulatorType.DOUBLE) {
+        doubles[i] = new double[INITIAL_CAPACITY];
+      } else if (types[i] != AccumulatorType.COUNT) {
+        longs[i] = new long[INITIAL_CAPACITY];
+      }
+      if (is128(types[i])) {
+        highs[i] = new long[INITIAL_CAPACITY];
+      }
+    }
+  }
+
+  int size() {
+    return size;
+  }
+
+  /**
+   * Estimated bytes of groups in table, spare capacity of arrays is not counted.
+   *
+   * @return bytes
+   */
+  long memoryUsage() {
+    return memoryUsage;
+  }
+
+  /**
+   * Find group by key, a new group is added if not found.
+   *
+   * @param key    buffer of key
+   * @param length length of key in buffer
+   * @return group number
+   */
+  int group(byte[] key, int length) {
+    int hash = hash(key, length);
+    int mask = slots.length - 1;
+    int slot = hash & mask;
+    while (slots[slot] != 0) {
+      int group = slots[slot] - 1;
+      if (hashes[group] == hash && equals(keys[group], key, length)) {
+        return group;
+      }
+      slot = (slot + 1) & mask;
+    }
+    if (size == keys.length) {
+      grow();
+      return group(key, length);
+    }
+    int group = size++;
+    keys[group] = Arrays.copyOf(key, length);
+    hashes[group] = hash;
+    for (int i = 0; i < functions.length; i++) {
+      counts[i][group] = 0L;
+      if (highs[i] != null) {
+        highs[i][group] = 0L;
+      }
+    }
+    slots[slot] = group + 1;
+    memoryUsage += length + bytesPerGroup;
+    return group;
+  }
+
+  byte[] key(int group) {
+    return keys[group];
+  }
+
+  /**
+   * Count a row or a non-null value.
+   *
+   * @param aggregation index of aggregation
+   * @param group       group number
+   */
+  void add(int aggregation, int group) {
+    counts[aggregation][group]++;
+  }
+
+  /**
+   * Accumulate a non-null integer value.
+   *
+   * @param aggregation index of aggregation
+   * @param group       group number
+   * @param value       value
+   */
+  void add(int aggregation, int group, long value) {
+    combine(aggregation, group, 1L, value);
+  }
+
+  /**
+   * Accumulate a non-null floating-point value.
+   *
+   * @param aggregation index of aggregation
+   * @param group       group number
+   * @param value       value
+   */
+  void add(int aggregation, int group, double value) {
+    combine(aggregation, group, 1L, value);
+  }
+
+  /**
+   * Merge accumulators of a group of another table with the same aggregations.
+   *
+   * @param group      group number
+   * @param other      other table
+   * @param otherGroup group number in other table
+   */
+  void merge(int group, AggregationTable other, int otherGroup) {
+    for (int i = 0; i < functions.length; i++) {
+      long count = other.counts[i][otherGroup];
+      if (types[i] == AccumulatorType.COUNT) {
+        counts[i][group] += count;
+      } else if (types[i] == AccumulatorType.DOUBLE) {
+        combine(i, group, count, other.doubles[i][otherGroup]);
+      } else if (is128(types[i])) {
+        add128(i, group, count, other.highs[i][otherGroup], other.longs[i][otherGroup]);
+      } else {
+        combine(i, group, count, other.longs[i][otherGroup]);
+      }
+    }
+  }
+
+  /**
+   * Write accumulators of a group, see {@link #merge(int, DataInput)}.
+   *
+   * @param out   output
+   * @param group group number
+   * @throws IOException if an I/O error occurs
+   */
+  void write(DataOutput out, int group) throws IOException {
+    for (int i = 0; i < functions.length; i++) {
+      out.writeLong(counts[i][group]);
+      if (types[i] == AccumulatorType.DOUBLE) {
+        out.writeDouble(doubles[i][group]);
+      } else if (types[i] != AccumulatorType.COUNT) {
+        out.writeLong(longs[i][group]);
+      }
+      if (is128(types[i])) {
+        out.writeLong(highs[i][group]);
+      }
+    }
+  }
+
+  /**
+   * Merge accumulators written by {@link #write(DataOutput, int)}.
+   *
+   * @param group group number
+   * @param in    input
+   * @throws IOException if an I/O error occurs
+   */
+  void merge(int group, DataInput in) throws IOException {
+    for (int i = 0; i < functions.length; i++) {
+      long count = in.readLong();
+      if (types[i] == AccumulatorType.COUNT) {
+        counts[i][group] += count;
+      } else if (types[i] == AccumulatorType.DOUBLE) {
+        combine(i, group, count, in.readDouble());
+      } else if (is128(types[i])) {
+        long low = in.readLong();
+        add128(i, group, count, in.readLong(), low);
+      } else {
+        combine(i, group, count, in.readLong());
+      }
+    }
+  }
+
+  /**
+   * Result of aggregation, see {@link AggregateFunction}.
+   *
+   * @param aggregation index of aggregation
+   * @param group       group number
+   * @return result, null if there is no value for functions other than COUNT
+   */
+  Object result(int aggregation, int group) {
+    long count = counts[aggregation][group];
+    if (types[aggregation] == AccumulatorType.COUNT) {
+      return count;
+    } else if (count == 0L) {
+      return null;
+    } else if (types[aggregation] == AccumulatorType.DOUBLE) {
+      return doubles[aggregation][group];
+    } else if (types[aggregation] == AccumulatorType.UNSIGNED_LONG) {
+      return new BigInteger(Long.toUnsignedString(longs[aggregation][group]));
+    } else if (is128(types[aggregation])) {
+      return BigInteger.valueOf(highs[aggregation][group]).shiftLeft(64)
+          .add(new BigInteger(Long.toUnsignedString(longs[aggregation][group])));
+    }
+    return longs[aggregation][group];
+  }
+
+  /**
+   * Group numbers sorted by key in {@link #KEY_ORDER}.
+   *
+   * @return group numbers
+   */
+  int[] sortedGroups() {
+    return IntStream.range(0, size).boxed()
+        .sorted((a, b) -> KEY_ORDER.compare(keys[a], keys[b]))
+        .mapToInt(Integer::intValue).toArray();
+  }
+
+  /**
+   * Remove all groups, arrays are kept for reuse.
+   */
+  void clear() {
+    Arrays.fill(slots, 0);
+    Arrays.fill(keys, 0, size, null);
+    size = 0;
+    memoryUsage = 0L;
+  }
+
+  private void combine(int aggregation, int group, long count, long value) {
+    if (count == 0L) {
+      return;
+    }
+    if (is128(types[aggregation])) {
+      // sign extension of value, unsigned value is non-negative
+      long high = types[aggregation] == AccumulatorType.LONG_128 ? value >> 63 : 0L;
+      add128(aggregation, group, count, high, value);
+      return;
+    }
+    long[] values = longs[aggregation];
+    long current = values[group];
+    if (counts[aggregation][group] == 0L) {
+      values[group] = value;
+    } else if (functions[aggregation] == AggregateFunction.SUM) {
+      try {
+        values[group] = Math.addExact(current, value);
+      } catch (ArithmeticException e) {
+        throw new ReaderException("SUM overflows BIGINT", e);
+      }
+    } else {
+      boolean less = types[aggregation] == AccumulatorType.UNSIGNED_LONG
+          ? Long.compareUnsigned(value, current) < 0 : value < current;
+      boolean replace = functions[aggregation] == AggregateFunction.MIN ? less : !less && value != current;
+      if (replace) {
+        values[group] = value;
+      }
+    }
+    counts[aggregation][group] += count;
+  }
+
+  private void combine(int aggregation, int group, long count, double value) {
+    if (count == 0L) {
+      return;
+    }
+    double[] values = doubles[aggregation];
+    double current = values[group];
+    if (counts[aggregation][group] == 0L) {
+      values[group] = value;
+    } else if (functions[aggregation] == AggregateFunction.SUM) {
+      values[group] = current + value;
+    } else if (functions[aggregation] == AggregateFunction.MIN) {
+      values[group] = Math.min(current, value);
+    } else {
+      values[group] = Math.max(current, value);
+    }
+    counts[aggregation][group] += count;
+  }
+
+  /**
+   * Add 128-bit value to 128-bit sum.
+   */
+  private void add128(int aggregation, int group, long count, long high, long low) {
+    if (count == 0L) {
+      return;
+    }
+    long[] lows = longs[aggregation];
+    long sum = lows[group] + low;
+    long carry = Long.compareUnsigned(sum, low) < 0 ? 1L : 0L;
+    if (counts[aggregation][group] == 0L) {
+      highs[aggregation][group] = high;
+      lows[group] = low;
+    } else {
+      highs[aggregation][group] += high + carry;
+      lows[group] = sum;
+    }
+    counts[aggregation][group] += count;
+  }
+
+  private static boolean is128(AccumulatorType type) {
+    return type == AccumulatorType.LONG_128 || type == AccumulatorType.UNSIGNED_LONG_128;
+  }
+
+  private void grow() {
+    int capacity = keys.length * 2;
+    keys = Arrays.copyOf(keys, capacity);
+    hashes = Arrays.copyOf(hashes, capacity);
+    for (int i = 0; i < functions.length; i++) {
+      counts[i] = Arrays.copyOf(counts[i], capacity);
+      if (longs[i] != null) {
+        longs[i] = Arrays.copyOf(longs[i], capacity);
+      }
+      if (highs[i] != null) {
+        highs[i] = Arrays.copyOf(highs[i], capacity);
+      }
+      if (doubles[i] != null) {
+        doubles[i] = Arrays.copyOf(doubles[i], capacity);
+      }
+    }
+    // keep load factor no more than 0.5
+    slots = new int[capacity * 2];
+    int mask = slots.length - 1;
+    for (int group = 0; group < size; group++) {
+      int slot = hashes[group] & mask;
+      while (slots[slot] != 0) {
+        slot = (slot + 1) & mask;
+      }
+      slots[slot] = group + 1;
+    }
+  }
+
+  private static int hash(byte[] key, int length) {
+    int hash = 1;
+    for (int i = 0; i < length; i++) {
+      hash = 31 * hash + key[i];
+    }
+    return hash ^ (hash >>> 16);
+  }
+
+  private static boolean equals(byte[] a, byte[] b, int length) {
+    if (a.length != length) {
+      return false;
+    }
+    for (int i = 0; i < length; i++) {
+      if (a[i] != b[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+}
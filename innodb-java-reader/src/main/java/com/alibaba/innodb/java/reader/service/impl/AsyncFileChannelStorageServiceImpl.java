@@ -0,0 +1,292 @@
+/*
+ * Copyright (C) 1999-2019 Alibaba Group Holding Limited
+ */
+package com.alibaba.innodb.java.reader.service.impl;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import com.alibaba.innodb.java.reader.config.ReaderSystemProperty;
+import com.alibaba.innodb.java.reader.exception.PageLoadException;
+import com.alibaba.innodb.java.reader.exception.ReaderException;
+import com.alibaba.innodb.java.reader.page.FilHeader;
+import com.alibaba.innodb.java.reader.page.InnerPage;
+import com.alibaba.innodb.java.reader.service.AsyncStorageService;
+import com.alibaba.innodb.java.reader.util.Slices;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import lombok.extern.slf4j.Slf4j;
+
+import static com.alibaba.innodb.java.reader.SizeOf.SIZE_OF_FIL_HEADER;
+import static com.alibaba.innodb.java.reader.SizeOf.SIZE_OF_PAGE;
+import static com.alibaba.innodb.java.reader.util.Utils.humanReadableBytes;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Asynchronous storage service backed by {@link AsynchronousFileChannel}.
+ * <p>
+ * At most <code>maxOutstandingReads</code> reads are issued to the channel at the same time,
+ * more reads are queued and issued when outstanding ones complete, callers are never blocked.
+ * On SSD or NVMe, throughput comes from queue depth, so that one thread can drive hundreds
+ * of concurrent page loads without one thread per request.
+ * <p>
+ * Futures are completed in the completion handler threads, continuations attached to the
+ * futures, like searching the next level of B+ tree, run in these threads as well.
+ * Synchronous methods of {@link com.alibaba.innodb.java.reader.service.StorageService}
+ * simply wait for the futures.
+ *
+ * @author xu.zx
+ */
+@Slf4j
+public class AsyncFileChannelStorageServiceImpl implements AsyncStorageService {
+
+  private final int maxOutstandingReads;
+
+  private final ExecutorService executorService;
+
+  private final boolean ownExecutorService;
+
+  private final Queue<ReadRequest> pendingReads = new ConcurrentLinkedQueue<>();
+
+  private final AtomicInteger outstandingReads = new AtomicInteger();
+
+  private final AtomicInteger peakOutstandingReads = new AtomicInteger();
+
+  private final CompletionHandler<Integer, ReadRequest> readHandler = new ReadHandler();
+
+  private volatile AsynchronousFileChannel channel;
+
+  public AsyncFileChannelStorageServiceImpl() {
+    this(ReaderSystemProperty.ASYNC_IO_MAX_OUTSTANDING_READS.value());
+  }
+
+  public AsyncFileChannelStorageServiceImpl(int maxOutstandingReads) {
+    this(maxOutstandingReads, null);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param maxOutstandingReads max number of reads issued to the channel at the same time
+   * @param executorService     thread pool to handle I/O completion, if null, a pool of daemon
+   *                            threads sized to the number of processors is created and shut
+   *                            down when the service is closed
+   */
+  public AsyncFileChannelStorageServiceImpl(int maxOutstandingReads, ExecutorService executorService) {
+    checkArgument(maxOutstandingReads > 0, "maxOutstandingReads should be positive");
+    this.maxOutstandingReads = maxOutstandingReads;
+    this.ownExecutorService = executorService == null;
+    if (executorService == null) {
+      int threads = Runtime.getRuntime().availableProcessors();
+      executorService = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+          new LinkedBlockingQueue<>(),
+          new ThreadFactoryBuilder().setDaemon(true).setNameFormat("innodb-reader-async-io-%d").build());
+    }
+    this.executorService = executorService;
+  }
+
+  @Override
+  public void open(String ibdFilePath) throws IOException {
+    channel = AsynchronousFileChannel.open(Paths.get(ibdFilePath),
+        ImmutableSet.of(StandardOpenOption.READ), executorService);
+    if (ReaderSystemProperty.ENABLE_IBD_FILE_LENGTH_CHECK.value()) {
+      long tableFileLength = channel.size();
+      checkState(tableFileLength % SIZE_OF_PAGE == 0,
+          "Table file length is invalid, actual file size is " + tableFileLength);
+    }
+    if (log.isDebugEnabled()) {
+      long tableFileLength = channel.size();
+      log.debug("Open {} done, file length is {}({}), numOfPages is {}, max outstanding reads is {}",
+          ibdFilePath, tableFileLength, humanReadableBytes(tableFileLength), tableFileLength / SIZE_OF_PAGE,
+          maxOutstandingReads);
+    }
+  }
+
+  @Override
+  public CompletableFuture<InnerPage> loadPageAsync(long pageNumber) {
+    return read(pageNumber, SIZE_OF_PAGE)
+        .thenApply(buffer -> new InnerPage(pageNumber, Slices.fromByteBuffer(buffer)));
+  }
+
+  @Override
+  public CompletableFuture<FilHeader> loadPageHeaderAsync(long pageNumber) {
+    return read(pageNumber, SIZE_OF_FIL_HEADER)
+        .thenApply(buffer -> FilHeader.fromSlice(Slices.fromByteBuffer(buffer).input()));
+  }
+
+  @Override
+  public InnerPage loadPage(long pageNumber) throws ReaderException {
+    return join(loadPageAsync(pageNumber));
+  }
+
+  @Override
+  public FilHeader loadPageHeader(long pageNumber) throws ReaderException {
+    return join(loadPageHeaderAsync(pageNumber));
+  }
+
+  @Override
+  public long numOfPages() {
+    checkState(channel != null, "Storage service is not opened");
+    try {
+      return channel.size() / SIZE_OF_PAGE;
+    } catch (IOException e) {
+      throw new ReaderException(e);
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (channel != null) {
+      channel.close();
+    }
+    for (ReadRequest request = pendingReads.poll(); request != null; request = pendingReads.poll()) {
+      request.future.completeExceptionally(new PageLoadException("Storage service is closed"));
+    }
+    if (ownExecutorService) {
+      executorService.shutdown();
+    }
+    log.debug("Close async storage service, peak outstanding reads is {}", getPeakOutstandingReads());
+  }
+
+  /**
+   * Number of reads issued to the channel but not completed.
+   *
+   * @return count
+   */
+  public int getOutstandingReads() {
+    return outstandingReads.get();
+  }
+
+  /**
+   * Max number of outstanding reads ever reached, should never exceed the limit.
+   *
+   * @return count
+   */
+  public int getPeakOutstandingReads() {
+    return peakOutstandingReads.get();
+  }
+
+  public int getMaxOutstandingReads() {
+    return maxOutstandingReads;
+  }
+
+  private CompletableFuture<ByteBuffer> read(long pageNumber, int length) {
+    checkState(channel != null, "Storage service is not opened");
+    ReadRequest request = new ReadRequest(pageNumber, ByteBuffer.allocate(length));
+    pendingReads.offer(request);
+    dispatch();
+    return request.future;
+  }
+
+  /**
+   * Issue pending reads as long as the number of outstanding reads is under limit.
+   */
+  private void dispatch() {
+    while (true) {
+      int outstanding = outstandingReads.get();
+      if (outstanding >= maxOutstandingReads) {
+        return;
+      }
+      if (!outstandingReads.compareAndSet(outstanding, outstanding + 1)) {
+        continue;
+      }
+      ReadRequest request = pendingReads.poll();
+      if (request == null) {
+        outstandingReads.decrementAndGet();
+        // another thread may have queued a read after polling and seen no free slot
+        if (pendingReads.isEmpty()) {
+          return;
+        }
+        continue;
+      }
+      peakOutstandingReads.accumulateAndGet(outstanding + 1, Math::max);
+      issue(request);
+    }
+  }
+
+  private void issue(ReadRequest request) {
+    try {
+      channel.read(request.buffer, request.pageNumber * SIZE_OF_PAGE + request.buffer.position(),
+          request, readHandler);
+    } catch (Throwable e) {
+      readHandler.failed(e, request);
+    }
+  }
+
+  private void complete(ReadRequest request, Throwable error) {
+    // free the slot before completing, so that reads issued by continuations are not queued behind
+    outstandingReads.decrementAndGet();
+    dispatch();
+    if (error == null) {
+      request.future.complete(request.buffer);
+    } else if (error instanceof ReaderException) {
+      request.future.completeExceptionally(error);
+    } else {
+      request.future.completeExceptionally(
+          new PageLoadException("Load page number " + request.pageNumber + " failed", error));
+    }
+  }
+
+  private static <T> T join(CompletableFuture<T> future) {
+    try {
+      return future.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof ReaderException) {
+        throw (ReaderException) e.getCause();
+      }
+      throw new ReaderException(e.getCause());
+    }
+  }
+
+  private final class ReadHandler implements CompletionHandler<Integer, ReadRequest> {
+
+    @Override
+    public void completed(Integer result, ReadRequest request) {
+      if (result < 0) {
+        complete(request, new PageLoadException("Load page number " + request.pageNumber
+            + " failed, reach end of file"));
+      } else if (request.buffer.hasRemaining()) {
+        // partial read, continue with the same slot
+        issue(request);
+      } else {
+        complete(request, null);
+      }
+    }
+
+    @Override
+    public void failed(Throwable exc, ReadRequest request) {
+      complete(request, exc);
+    }
+  }
+
+  private static final class ReadRequest {
+
+    private final long pageNumber;
+
+    private final ByteBuffer buffer;
+
+    private final CompletableFuture<ByteBuffer> future = new CompletableFuture<>();
+
+    ReadRequest(long pageNumber, ByteBuffer buffer) {
+      this.pageNumber = pageNumber;
+      this.buffer = buffer;
+    }
+  }
+
+}
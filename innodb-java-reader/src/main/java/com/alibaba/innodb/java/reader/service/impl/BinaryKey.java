@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 1999-2019 Alibaba Group Holding Limited
+ */
+package com.alibaba.innodb.java.reader.service.impl;
+
+import com.alibaba.innodb.java.reader.column.ColumnType;
+import com.alibaba.innodb.java.reader.schema.Column;
+import com.alibaba.innodb.java.reader.schema.TableDef;
+import com.alibaba.innodb.java.reader.util.SliceInput;
+import com.alibaba.innodb.java.reader.util.Utils;
+
+import java.util.List;
+
+import static com.alibaba.innodb.java.reader.Constants.MAX_VAL;
+import static com.alibaba.innodb.java.reader.Constants.MIN_VAL;
+
+/**
+ * Search key encoded as key columns are stored in page, so that key of record can be compared
+ * with it byte by byte without decoding the record, the result is the same as
+ * {@link com.alibaba.innodb.java.reader.comparator.DefaultKeyComparator}.
+ * <p>
+ * Only key of non-null integer columns can be encoded, they are stored at the beginning of record
+ * in big-endian with sign bit flipped, like memcomparable format. Other keys, for example, string
+ * whose comparison depends on collation, are compared by decoding record.
+ *
+ * @author xu.zx
+ */
+final class BinaryKey {
+
+  /**
+   * Encoded bytes of all columns, empty for <code>MIN_VAL</code> or <code>MAX_VAL</code>.
+   */
+  private final byte[][] columns;
+
+  /**
+   * 1 if column is <code>MIN_VAL</code>, -1 if column is <code>MAX_VAL</code>, that is the result
+   * of comparing any record with it, otherwise 0.
+   */
+  private final int[] sentinels;
+
+  /**
+   * Offset of column from the beginning of record.
+   */
+  private final int[] offsets;
+
+  private BinaryKey(byte[][] columns, int[] sentinels, int[] offsets) {
+    this.columns = columns;
+    this.sentinels = sentinels;
+    this.offsets = offsets;
+  }
+
+  /**
+   * Encode search key.
+   *
+   * @param tableDef table definition whose primary key is the key of index
+   * @param key      search key, may contain <code>MIN_VAL</code> or <code>MAX_VAL</code>
+   * @return binary key, null if key cannot be compared in bytes
+   */
+  static BinaryKey encode(TableDef tableDef, List<Object> key) {
+    List<Column> keyColumns = tableDef.getPrimaryKeyColumns();
+    if (key == null || key.size() != keyColumns.size()) {
+      return null;
+    }
+    byte[][] columns = new byte[key.size()][];
+    int[] sentinels = new int[key.size()];
+    int[] offsets = new int[key.size()];
+    int offset = 0;
+    for (int i = 0; i < key.size(); i++) {
+      Column column = keyColumns.get(i);
+      Integer size = ColumnType.INTEGER_TYPE_SIZES.get(column.getType());
+      // null column takes no space in record, so offset of the following columns is unknown
+      if (size == null || column.isNullable()) {
+        return null;
+      }
+      offsets[i] = offset;
+      offset += size;
+      Object value = key.get(i);
+      if (MIN_VAL == value) {
+        sentinels[i] = 1;
+        columns[i] = new byte[0];
+      } else if (MAX_VAL == value) {
+        sentinels[i] = -1;
+        columns[i] = new byte[0];
+      } else {
+        columns[i] = Utils.encodeInteger(value, size, !column.getType().endsWith("UNSIGNED"));
+        if (columns[i] == null) {
+          return null;
+        }
+      }
+    }
+    return new BinaryKey(columns, sentinels, offsets);
+  }
+
+  /**
+   * Compare key of record with this key.
+   *
+   * @param input              input of the page, position will be changed
+   * @param primaryKeyPosition position of the record, right after record header
+   * @return negative, zero or positive if key of record is less than, equal to or greater than this key
+   */
+  int compare(SliceInput input, int primaryKeyPosition) {
+    for (int i = 0; i < columns.length; i++) {
+      if (sentinels[i] != 0) {
+        return sentinels[i];
+      }
+      byte[] column = columns[i];
+      input.setPosition(primaryKeyPosition + offsets[i]);
+      for (byte b : column) {
+        int cmp = input.readUnsignedByte() - (b & 0xff);
+        if (cmp != 0) {
+          return cmp;
+        }
+      }
+    }
+    return 0;
+  }
+
+}
@@ -0,0 +1,616 @@
+/*
+ * Copyright (C) 1999-2019 Alibaba Group Holding Limited
+ */
+package com.alibaba.innodb.java.reader.service.impl;
+
+import com.alibaba.innodb.java.reader.exception.PageLoadException;
+import com.alibaba.innodb.java.reader.exception.ReaderException;
+import com.alibaba.innodb.java.reader.page.FilHeader;
+import com.alibaba.innodb.java.reader.page.InnerPage;
+import com.alibaba.innodb.java.reader.service.StorageService;
+import com.alibaba.innodb.java.reader.util.ByteBufferSlice;
+import com.alibaba.innodb.java.reader.util.SliceInput;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.LongAdder;
+
+import lombok.extern.slf4j.Slf4j;
+
+import static com.alibaba.innodb.java.reader.SizeOf.SIZE_OF_FIL_HEADER;
+import static com.alibaba.innodb.java.reader.SizeOf.SIZE_OF_PAGE;
+import static com.alibaba.innodb.java.reader.util.Utils.humanReadableBytes;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Storage service decorator which caches pages in a size-bounded pool of direct
+ * byte buffers, pages are served as {@link ByteBufferSlice} over the cached buffer
+ * without copying. At most <code>poolSizeInBytes / 16k</code> direct buffers are ever
+ * allocated, they are reused from frame to frame.
+ * <p>
+ * Eviction follows InnoDB midpoint insertion strategy, refer to
+ * https://dev.mysql.com/doc/refman/5.7/en/innodb-buffer-pool.html. The LRU list is
+ * divided into young sublist and old sublist, a newly read page is inserted to the head
+ * of old sublist, and is moved to the head of young sublist only if it is accessed again
+ * at least {@link #oldBlocksTimeMillis} after the first access. So a full scan which touches
+ * each page only once in a short time will not flush hot pages like root and internal
+ * pages out of the pool. Pages are evicted from the tail of old sublist.
+ * <p>
+ * Concurrent misses on the same page are coalesced into one read from the underlying
+ * storage service.
+ * <p>
+ * A page served pins its frame until the page is released by {@link InnerPage#release()},
+ * pinned frames are never evicted so that the buffer is not overwritten while it is still
+ * in use. If every frame is pinned, pages missed are served from heap copies without
+ * caching, so pages not released by caller degrade the pool instead of growing it.
+ *
+ * @author xu.zx
+ */
+@Slf4j
+public class BufferPoolStorageServiceImpl implements StorageService {
+
+  public static final int DEFAULT_OLD_BLOCKS_PCT = 37;
+
+  public static final int DEFAULT_OLD_BLOCKS_TIME_MILLIS = 1000;
+
+  private final StorageService delegate;
+
+  private final int capacity;
+
+  private final int oldCapacity;
+
+  private final long oldBlocksTimeMillis;
+
+  private final Map<Long, Frame> frames;
+
+  private final FrameList young = new FrameList();
+
+  private final FrameList old = new FrameList();
+
+  /**
+   * Direct buffers not used by any frame, at most {@link #capacity} buffers are allocated.
+   */
+  private final Deque<ByteBuffer> freeBuffers = new ArrayDeque<>();
+
+  private int allocatedBuffers;
+
+  private final ConcurrentMap<Long, FutureTask<Frame>> inflight = new ConcurrentHashMap<>();
+
+  private final LongAdder hitCount = new LongAdder();
+
+  private final LongAdder missCount = new LongAdder();
+
+  private final LongAdder evictionCount = new LongAdder();
+
+  public BufferPoolStorageServiceImpl(StorageService delegate, long poolSizeInBytes) {
+    this(delegate, poolSizeInBytes, DEFAULT_OLD_BLOCKS_PCT, DEFAULT_OLD_BLOCKS_TIME_MILLIS);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param delegate            underlying storage service
+   * @param poolSizeInBytes     pool size, should be able to hold at least 2 pages
+   * @param oldBlocksPct        percentage of old sublist, like <code>innodb_old_blocks_pct</code>
+   * @param oldBlocksTimeMillis how long a page must stay in old sublist after its first access before
+   *                            it can be moved to young sublist, like <code>innodb_old_blocks_time</code>
+   */
+  public BufferPoolStorageServiceImpl(StorageService delegate, long poolSizeInBytes,
+                                      int oldBlocksPct, long oldBlocksTimeMillis) {
+    checkNotNull(delegate, "delegate storage service should not be null");
+    checkArgument(poolSizeInBytes / SIZE_OF_PAGE >= 2 && poolSizeInBytes / SIZE_OF_PAGE <= Integer.MAX_VALUE,
+        "pool size is invalid " + poolSizeInBytes);
+    checkArgument(oldBlocksPct > 0 && oldBlocksPct < 100, "oldBlocksPct should be in (0, 100)");
+    checkArgument(oldBlocksTimeMillis >= 0, "oldBlocksTimeMillis should not be negative");
+    this.delegate = delegate;
+    this.capacity = (int) (poolSizeInBytes / SIZE_OF_PAGE);
+    this.oldCapacity = Math.max(1, (int) ((long) capacity * oldBlocksPct / 100));
+    this.oldBlocksTimeMillis = oldBlocksTimeMillis;
+    this.frames = new HashMap<>(capacity * 4 / 3 + 1);
+  }
+
+  @Override
+  public void open(String ibdFilePath) throws IOException {
+    delegate.open(ibdFilePath);
+    log.debug("Buffer pool capacity is {} pages({})", capacity,
+        humanReadableBytes((long) capacity * SIZE_OF_PAGE));
+  }
+
+  @Override
+  public InnerPage loadPage(long pageNumber) throws ReaderException {
+    while (true) {
+      Frame frame;
+      synchronized (this) {
+        frame = frames.get(pageNumber);
+        if (frame != null) {
+          touch(frame);
+          frame.pins++;
+        }
+      }
+      if (frame != null) {
+        hitCount.increment();
+      } else {
+        frame = loadFrame(pageNumber);
+      }
+      if (frame != null) {
+        return toPage(frame);
+      }
+      // evicted before it could be pinned, look up again
+    }
+  }
+
+  /**
+   * Cached pages are served from pool, missing pages are loaded from underlying storage
+   * service in one batch and cached. Each page number, including duplicates, is served as
+   * its own page which should be released separately.
+   */
+  @Override
+  public List<InnerPage> loadPages(long[] pageNumbers) throws ReaderException {
+    Frame[] pinned = new Frame[pageNumbers.length];
+    Set<Long> missing = new LinkedHashSet<>();
+    synchronized (this) {
+      for (int i = 0; i < pageNumbers.length; i++) {
+        Frame frame = frames.get(pageNumbers[i]);
+        if (frame != null) {
+          touch(frame);
+          frame.pins++;
+          pinned[i] = frame;
+        } else {
+          missing.add(pageNumbers[i]);
+        }
+      }
+    }
+    hitCount.add(pageNumbers.length - missing.size());
+    if (!missing.isEmpty()) {
+      long[] missingPageNumbers = missing.stream().mapToLong(Long::longValue).toArray();
+      List<InnerPage> pages;
+      try {
+        pages = delegate.loadPages(missingPageNumbers);
+      } catch (RuntimeException e) {
+        for (Frame frame : pinned) {
+          if (frame != null) {
+            unpin(frame);
+          }
+        }
+        throw e;
+      }
+      Map<Long, Frame> loaded = new HashMap<>(missingPageNumbers.length * 4 / 3 + 1);
+      for (int i = 0; i < missingPageNumbers.length; i++) {
+        missCount.increment();
+        loaded.put(missingPageNumbers[i], cacheFrame(missingPageNumbers[i], pages.get(i)));
+      }
+      synchronized (this) {
+        for (int i = 0; i < pageNumbers.length; i++) {
+          if (pinned[i] == null) {
+            Frame frame = loaded.remove(pageNumbers[i]);
+            if (frame == null) {
+              // duplicate of a missing page, already pinned by the first occurrence
+              frame = pinned[indexOf(pageNumbers, pageNumbers[i])];
+              frame.pins++;
+            }
+            pinned[i] = frame;
+          }
+        }
+      }
+    }
+    List<InnerPage> result = new ArrayList<>(pageNumbers.length);
+    for (Frame frame : pinned) {
+      result.add(toPage(frame));
+    }
+    return result;
+  }
+
+  /**
+   * If page is cached, parse header from buffer pool, otherwise load header from underlying
+   * storage service without caching, so reading all page headers will not pollute the pool.
+   */
+  @Override
+  public FilHeader loadPageHeader(long pageNumber) throws ReaderException {
+    synchronized (this) {
+      Frame frame = frames.get(pageNumber);
+      if (frame != null) {
+        return headerOf(frame);
+      }
+    }
+    return delegate.loadPageHeader(pageNumber);
+  }
+
+  /**
+   * Batch read is for scanning, load from underlying storage service without caching
+   * so that the pool is not polluted.
+   */
+  @Override
+  public List<InnerPage> loadPages(long startPageNumber, int numOfPages) throws ReaderException {
+    return delegate.loadPages(startPageNumber, numOfPages);
+  }
+
+  @Override
+  public int readPages(long startPageNumber, int numOfPages, ByteBuffer buffer) throws ReaderException {
+    return delegate.readPages(startPageNumber, numOfPages, buffer);
+  }
+
+  @Override
+  public List<FilHeader> loadPageHeaders(long[] pageNumbers) throws ReaderException {
+    FilHeader[] result = new FilHeader[pageNumbers.length];
+    List<Integer> missing = new ArrayList<>();
+    synchronized (this) {
+      for (int i = 0; i < pageNumbers.length; i++) {
+        Frame frame = frames.get(pageNumbers[i]);
+        if (frame != null) {
+          result[i] = headerOf(frame);
+        } else {
+          missing.add(i);
+        }
+      }
+    }
+    if (!missing.isEmpty()) {
+      long[] missingPageNumbers = missing.stream().mapToLong(i -> pageNumbers[i]).toArray();
+      List<FilHeader> headers = delegate.loadPageHeaders(missingPageNumbers);
+      for (int i = 0; i < missing.size(); i++) {
+        result[missing.get(i)] = headers.get(i);
+      }
+    }
+    return Arrays.asList(result);
+  }
+
+  @Override
+  public long numOfPages() {
+    return delegate.numOfPages();
+  }
+
+  /**
+   * Buffers of pages still pinned by callers are not reused, all buffers are left to GC.
+   */
+  @Override
+  public void close() throws IOException {
+    synchronized (this) {
+      frames.clear();
+      young.clear();
+      old.clear();
+      freeBuffers.clear();
+      allocatedBuffers = 0;
+    }
+    delegate.close();
+  }
+
+  public long getHitCount() {
+    return hitCount.sum();
+  }
+
+  public long getMissCount() {
+    return missCount.sum();
+  }
+
+  public long getEvictionCount() {
+    return evictionCount.sum();
+  }
+
+  public double getHitRate() {
+    long hit = getHitCount();
+    long total = hit + getMissCount();
+    return total == 0 ? 0D : (double) hit / total;
+  }
+
+  /**
+   * Number of pages cached.
+   *
+   * @return size
+   */
+  public synchronized int size() {
+    return frames.size();
+  }
+
+  /**
+   * Pool capacity in number of pages.
+   *
+   * @return capacity
+   */
+  public int capacity() {
+    return capacity;
+  }
+
+  /**
+   * Whether the page is cached.
+   *
+   * @param pageNumber page number
+   * @return true if cached
+   */
+  public synchronized boolean contains(long pageNumber) {
+    return frames.containsKey(pageNumber);
+  }
+
+  @Override
+  public String toString() {
+    return "BufferPool(capacity=" + capacity + ", size=" + size() + ", hit=" + getHitCount()
+        + ", miss=" + getMissCount() + ", eviction=" + getEvictionCount() + ")";
+  }
+
+  /**
+   * Load page into a frame pinned for the caller, return null if the frame read by another
+   * thread has been evicted before it could be pinned.
+   */
+  private Frame loadFrame(long pageNumber) {
+    FutureTask<Frame> task = new FutureTask<>(() -> readFrame(pageNumber));
+    FutureTask<Frame> future = inflight.putIfAbsent(pageNumber, task);
+    if (future == null) {
+      try {
+        task.run();
+      } finally {
+        inflight.remove(pageNumber, task);
+      }
+      return getFrame(task, pageNumber);
+    }
+    // coalesced with another in-flight read, no extra io is issued
+    hitCount.increment();
+    Frame frame = getFrame(future, pageNumber);
+    synchronized (this) {
+      if (!frame.pooled) {
+        return frame;
+      } else if (frame.cached) {
+        frame.pins++;
+        return frame;
+      }
+    }
+    return null;
+  }
+
+  private Frame getFrame(FutureTask<Frame> future, long pageNumber) {
+    try {
+      return future.get();
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof ReaderException) {
+        throw (ReaderException) e.getCause();
+      }
+      throw new PageLoadException("Load page number " + pageNumber + " failed", e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new PageLoadException("Load page number " + pageNumber + " interrupted", e);
+    }
+  }
+
+  private Frame readFrame(long pageNumber) {
+    synchronized (this) {
+      Frame frame = frames.get(pageNumber);
+      if (frame != null) {
+        hitCount.increment();
+        touch(frame);
+        frame.pins++;
+        return frame;
+      }
+    }
+    missCount.increment();
+    return cacheFrame(pageNumber, delegate.loadPage(pageNumber));
+  }
+
+  /**
+   * Copy page into a free frame buffer and cache it, return the existing frame if the page
+   * has been cached by others. The frame returned is pinned once for the caller.
+   * <p>
+   * If every frame is pinned, the page is copied to a heap buffer which is not cached.
+   */
+  private Frame cacheFrame(long pageNumber, InnerPage page) {
+    ByteBuffer buffer;
+    synchronized (this) {
+      buffer = reserveBuffer();
+    }
+    boolean pooled = buffer != null;
+    if (!pooled) {
+      buffer = ByteBuffer.allocate(SIZE_OF_PAGE);
+    }
+    try {
+      page.getSliceInput().setPosition(0);
+      page.getSliceInput().readBytes(buffer);
+      buffer.clear();
+    } catch (RuntimeException e) {
+      if (pooled) {
+        synchronized (this) {
+          freeBuffers.push(buffer);
+        }
+      }
+      throw e;
+    } finally {
+      page.release();
+    }
+    Frame frame = new Frame(pageNumber, buffer, pooled);
+    if (!pooled) {
+      return frame;
+    }
+    synchronized (this) {
+      Frame existing = frames.get(pageNumber);
+      if (existing != null) {
+        freeBuffers.push(buffer);
+        existing.pins++;
+        return existing;
+      }
+      frame.firstAccessTime = System.currentTimeMillis();
+      frame.old = true;
+      frame.cached = true;
+      frame.pins = 1;
+      old.addFirst(frame);
+      frames.put(pageNumber, frame);
+    }
+    return frame;
+  }
+
+  /**
+   * Called with lock held, take a free buffer, allocate one if the pool is not full, or
+   * evict the least recently used frame which is not pinned. Return null if every frame
+   * is pinned.
+   */
+  private ByteBuffer reserveBuffer() {
+    if (!freeBuffers.isEmpty()) {
+      return freeBuffers.pop();
+    }
+    if (allocatedBuffers < capacity) {
+      allocatedBuffers++;
+      return ByteBuffer.allocateDirect(SIZE_OF_PAGE);
+    }
+    Frame victim = old.lastUnpinned();
+    if (victim == null) {
+      victim = young.lastUnpinned();
+    }
+    if (victim == null) {
+      return null;
+    }
+    remove(victim);
+    frames.remove(victim.pageNumber);
+    victim.cached = false;
+    evictionCount.increment();
+    return victim.buffer;
+  }
+
+  private synchronized void unpin(Frame frame) {
+    frame.pins--;
+  }
+
+  private InnerPage toPage(Frame frame) {
+    InnerPage page = new InnerPage(frame.pageNumber,
+        new ByteBufferSlice(frame.buffer.duplicate(), 0, SIZE_OF_PAGE), false);
+    if (frame.pooled) {
+      page.setReleaseHook(() -> unpin(frame));
+    }
+    return page;
+  }
+
+  private FilHeader headerOf(Frame frame) {
+    return FilHeader.fromSlice(new SliceInput(
+        new ByteBufferSlice(frame.buffer.duplicate(), 0, SIZE_OF_FIL_HEADER)));
+  }
+
+  private static int indexOf(long[] pageNumbers, long pageNumber) {
+    for (int i = 0; i < pageNumbers.length; i++) {
+      if (pageNumbers[i] == pageNumber) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Called with lock held when the page is accessed again.
+   */
+  private void touch(Frame frame) {
+    if (frame.old) {
+      if (System.currentTimeMillis() - frame.firstAccessTime >= oldBlocksTimeMillis) {
+        old.remove(frame);
+        frame.old = false;
+        young.addFirst(frame);
+        // keep young sublist size, demote the tail to the head of old sublist
+        while (young.size > capacity - oldCapacity) {
+          Frame demoted = young.last();
+          young.remove(demoted);
+          demoted.old = true;
+          old.addFirst(demoted);
+        }
+      }
+    } else if (young.head.next != frame) {
+      young.remove(frame);
+      young.addFirst(frame);
+    }
+  }
+
+  private void remove(Frame frame) {
+    if (frame.old) {
+      old.remove(frame);
+    } else {
+      young.remove(frame);
+    }
+  }
+
+  private static final class Frame {
+
+    private final long pageNumber;
+
+    private final ByteBuffer buffer;
+
+    /**
+     * False if the buffer is a heap copy served without caching.
+     */
+    private final boolean pooled;
+
+    private boolean cached;
+
+    /**
+     * Number of pages served and not released yet, frame is evicted only if it is 0.
+     */
+    private int pins;
+
+    private long firstAccessTime;
+
+    private boolean old;
+
+    private Frame prev;
+
+    private Frame next;
+
+    Frame(long pageNumber, ByteBuffer buffer, boolean pooled) {
+      this.pageNumber = pageNumber;
+      this.buffer = buffer;
+      this.pooled = pooled;
+    }
+  }
+
+  /**
+   * Doubly linked list with a sentinel head.
+   */
+  private static final class FrameList {
+
+    private final Frame head = new Frame(-1L, null, false);
+
+    private int size;
+
+    FrameList() {
+      clear();
+    }
+
+    void addFirst(Frame frame) {
+      frame.next = head.next;
+      frame.prev = head;
+      head.next.prev = frame;
+      head.next = frame;
+      size++;
+    }
+
+    void remove(Frame frame) {
+      frame.prev.next = frame.next;
+      frame.next.prev = frame.prev;
+      frame.prev = null;
+      frame.next = null;
+      size--;
+    }
+
+    Frame last() {
+      return head.prev;
+    }
+
+    Frame lastUnpinned() {
+      for (Frame frame = head.prev; frame != head; frame = frame.prev) {
+        if (frame.pins == 0) {
+          return frame;
+        }
+      }
+      return null;
+    }
+
+    void clear() {
+      head.next = head;
+      head.prev = head;
+      size = 0;
+    }
+  }
+
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 1999-2019 Alibaba Group Holding Limited
+ */
+package com.alibaba.innodb.java.reader.service.impl;
+
+import com.alibaba.innodb.java.reader.config.ReaderSystemProperty;
+import com.alibaba.innodb.java.reader.exception.ReaderException;
+import com.alibaba.innodb.java.reader.page.PageChecksum;
+import com.alibaba.innodb.java.reader.service.ChecksumVerifyResult;
+import com.alibaba.innodb.java.reader.service.StorageService;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+import lombok.extern.slf4j.Slf4j;
+
+import static com.alibaba.innodb.java.reader.SizeOf.SIZE_OF_PAGE;
+
+/**
+ * Verify checksum of every page in the tablespace regardless of page type, using all
+ * cores.
+ * <p>
+ * Extents are read in one I/O each by multiple threads, see {@link ParallelExtentScanner},
+ * checksum is calculated on the read buffer directly. <code>crc32</code> algorithm is
+ * hardware-accelerated on Java 9 or later, <code>innodb</code> algorithm is tried only if
+ * <code>crc32</code> does not match and
+ * {@link ReaderSystemProperty#ENABLE_INNODB_PAGE_CHECKSUM_ALGORITHM} is enabled. Pages filled
+ * with zeros are never written and regarded as valid, pages in free extents are skipped.
+ *
+ * @author xu.zx
+ */
+@Slf4j
+public class ChecksumVerifier {
+
+  private final StorageService storageService;
+
+  private final ParallelExtentScanner extentScanner;
+
+  private final boolean tryInnodbAlgorithm;
+
+  public ChecksumVerifier(StorageService storageService) {
+    this(storageService, ReaderSystemProperty.TABLESPACE_SCAN_PARALLELISM.value());
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param storageService storage service, should be thread-safe
+   * @param parallelism    number of threads including the calling thread, 0 means the
+   *                       number of available processors
+   */
+  public ChecksumVerifier(StorageService storageService, int parallelism) {
+    this.storageService = storageService;
+    this.extentScanner = new ParallelExtentScanner(storageService, parallelism, "innodb-reader-checksum-%d");
+    this.tryInnodbAlgorithm = ReaderSystemProperty.ENABLE_INNODB_PAGE_CHECKSUM_ALGORITHM.value();
+  }
+
+  /**
+   * Verify all pages.
+   *
+   * @return result
+   * @throws ReaderException throws ReaderException when internal errors occurs
+   */
+  public ChecksumVerifyResult verify() throws ReaderException {
+    ExtentReader extentReader = new ExtentReader(storageService);
+    LongAdder verified = new LongAdder();
+    LongAdder empty = new LongAdder();
+    LongAdder skipped = new LongAdder();
+    LongAdder bytesRead = new LongAdder();
+    List<Long> corrupted = Collections.synchronizedList(new ArrayList<>());
+    long start = System.currentTimeMillis();
+    int threads = extentScanner.scan(extentReader, true, (startPageNumber, numOfPages, pages) -> {
+      if (pages == null) {
+        skipped.add(numOfPages);
+        return;
+      }
+      bytesRead.add((long) numOfPages * SIZE_OF_PAGE);
+      byte[] bytes = pages.array();
+      for (int i = 0; i < numOfPages; i++) {
+        int offset = pages.arrayOffset() + i * SIZE_OF_PAGE;
+        if (PageChecksum.isCorrupted(bytes, offset, tryInnodbAlgorithm)) {
+          log.warn("Page {} is corrupted", startPageNumber + i);
+          corrupted.add(startPageNumber + i);
+        } else if (PageChecksum.isEmpty(bytes, offset)) {
+          empty.increment();
+        } else {
+          verified.increment();
+        }
+      }
+    });
+    List<Long> corruptedPageNumbers = new ArrayList<>(corrupted);
+    Collections.sort(corruptedPageNumbers);
+    ChecksumVerifyResult result = new ChecksumVerifyResult(extentReader.getNumOfPages(), verified.sum(),
+        empty.sum(), skipped.sum(), corruptedPageNumbers, bytesRead.sum(), System.currentTimeMillis() - start,
+        threads);
+    log.debug("Verify checksum done, {}", result);
+    return result;
+  }
+
+}
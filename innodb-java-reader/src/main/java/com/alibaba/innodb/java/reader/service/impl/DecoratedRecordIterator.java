@@ -32,7 +32,7 @@ import lombok.extern.slf4j.Slf4j;
  * @author xu.zx
  */
 @Slf4j
-public class DecoratedRecordIterator implements Iterator<GenericRecord> {
+public class DecoratedRecordIterator implements Iterator<GenericRecord>, AutoCloseable {
 
   protected Iterator<GenericRecord> recordIterator;
 
@@ -50,4 +50,11 @@ public class DecoratedRecordIterator implements Iterator<GenericRecord> {
     return recordIterator.next();
   }
 
+  @Override
+  public void close() throws Exception {
+    if (recordIterator instanceof AutoCloseable) {
+      ((AutoCloseable) recordIterator).close();
+    }
+  }
+
 }
@@ -3,46 +3,306 @@
  */
 package com.alibaba.innodb.java.reader.service.impl;
 
+import com.alibaba.innodb.java.reader.config.ReaderSystemProperty;
+import com.alibaba.innodb.java.reader.exception.PageLoadException;
 import com.alibaba.innodb.java.reader.exception.ReaderException;
 import com.alibaba.innodb.java.reader.page.FilHeader;
 import com.alibaba.innodb.java.reader.page.InnerPage;
 import com.alibaba.innodb.java.reader.service.StorageService;
+import com.alibaba.innodb.java.reader.util.ByteBufferCleaner;
+import com.alibaba.innodb.java.reader.util.PosixIo;
+import com.alibaba.innodb.java.reader.util.Slices;
+import com.alibaba.innodb.java.reader.util.Utils;
 
+import net.smacke.jaydio.DirectIoLib;
+import net.smacke.jaydio.buffer.AlignedDirectByteBuffer;
+import net.smacke.jaydio.channel.DirectIoByteChannel;
+
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 import lombok.extern.slf4j.Slf4j;
 
+import static com.alibaba.innodb.java.reader.SizeOf.SIZE_OF_FIL_HEADER;
+import static com.alibaba.innodb.java.reader.SizeOf.SIZE_OF_PAGE;
+import static com.alibaba.innodb.java.reader.util.Utils.humanReadableBytes;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+
 /**
  * Storage service leveraging direct io.
+ * <p>
+ * Reading a large ibd file through page cache will evict hot pages of other processes, for
+ * example, a live MySQL instance on the same host. This service opens file with O_DIRECT
+ * to bypass page cache, data are read into block-aligned native memory then copy to heap.
+ * <p>
+ * Each thread owns one aligned read buffer of {@link #readAheadPages} pages. When page
+ * number is requested sequentially (ascending or descending), a large multi-page read is
+ * issued to fill the whole buffer, otherwise only one page is read, so both scan and
+ * random lookup work well.
+ * <p>
+ * If O_DIRECT is not available, for example, not running on Linux or the file system does
+ * not support it, buffered io is used instead, and page cache of the range just read is
+ * released by <code>posix_fadvise(POSIX_FADV_DONTNEED)</code> if possible.
  *
  * @author xu.zx
  */
 @Slf4j
 public class DirectIoStorageServiceImpl implements StorageService {
 
+  private final int readAheadPages;
+
+  private final boolean preferDirectIo;
+
+  private DirectIoLib directIoLib;
+
+  private DirectIoByteChannel directIoChannel;
+
+  private FileChannel fileChannel;
+
+  /**
+   * File descriptor used to call fadvise in buffered mode, -1 if not available.
+   */
+  private int fadviseFd = -1;
+
+  private long numOfPages;
+
+  private volatile boolean closed;
+
+  private final Queue<ReadBuffer> allocatedBuffers = new ConcurrentLinkedQueue<>();
+
+  private final ThreadLocal<ReadBuffer> readBufferThreadLocal = ThreadLocal.withInitial(this::allocateReadBuffer);
+
+  public DirectIoStorageServiceImpl() {
+    this(ReaderSystemProperty.DIRECT_IO_READ_AHEAD_PAGES.value(), true);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param readAheadPages max number of pages to read at once when access is sequential
+   * @param preferDirectIo if false, always use buffered io with page cache releasing
+   */
+  public DirectIoStorageServiceImpl(int readAheadPages, boolean preferDirectIo) {
+    checkArgument(readAheadPages > 0, "readAheadPages should be positive");
+    this.readAheadPages = readAheadPages;
+    this.preferDirectIo = preferDirectIo;
+  }
+
   @Override
   public void open(String ibdFilePath) throws IOException {
+    checkState(directIoChannel == null && fileChannel == null, "Storage service can only be opened once");
+    File file = new File(ibdFilePath);
+    if (preferDirectIo) {
+      openDirectIo(file);
+    }
+    long tableFileLength;
+    if (directIoChannel != null) {
+      tableFileLength = directIoChannel.size();
+    } else {
+      fileChannel = new FileInputStream(file).getChannel();
+      tableFileLength = fileChannel.size();
+      if (PosixIo.isAvailable()) {
+        fadviseFd = PosixIo.openReadOnly(file.getPath());
+      }
+    }
+    if (ReaderSystemProperty.ENABLE_IBD_FILE_LENGTH_CHECK.value()) {
+      checkState(tableFileLength % SIZE_OF_PAGE == 0,
+          "Table file length is invalid, actual file size is " + tableFileLength);
+    }
+    numOfPages = tableFileLength / SIZE_OF_PAGE;
+    if (log.isDebugEnabled()) {
+      log.debug("Open {} done with {}, file length is {}({}), numOfPages is {}", ibdFilePath,
+          isDirectIo() ? "O_DIRECT" : "buffered io", tableFileLength, humanReadableBytes(tableFileLength),
+          numOfPages);
+    }
+  }
+
+  private void openDirectIo(File file) {
+    try {
+      DirectIoLib lib = DirectIoLib.getLibForPath(file.getPath());
+      if (lib == null || SIZE_OF_PAGE % lib.blockSize() != 0) {
+        log.warn("O_DIRECT is not supported for {}, fallback to buffered io", file);
+        return;
+      }
+      directIoChannel = DirectIoByteChannel.getChannel(lib, file, true);
+      directIoLib = lib;
+    } catch (IOException | LinkageError e) {
+      log.warn("Open {} with O_DIRECT failed, fallback to buffered io, {}", file, e.getMessage());
+    }
+  }
 
+  /**
+   * Whether O_DIRECT is used.
+   *
+   * @return true if file is opened with O_DIRECT
+   */
+  public boolean isDirectIo() {
+    return directIoChannel != null;
   }
 
   @Override
   public InnerPage loadPage(long pageNumber) throws ReaderException {
-    throw new UnsupportedOperationException();
+    ReadBuffer readBuffer = fill(pageNumber);
+    byte[] page = new byte[SIZE_OF_PAGE];
+    readBuffer.copy(pageNumber, page, SIZE_OF_PAGE);
+    return new InnerPage(pageNumber, Slices.fromByteBuffer(ByteBuffer.wrap(page)));
   }
 
   @Override
   public FilHeader loadPageHeader(long pageNumber) throws ReaderException {
-    throw new UnsupportedOperationException();
+    ReadBuffer readBuffer = fill(pageNumber);
+    byte[] header = new byte[SIZE_OF_FIL_HEADER];
+    readBuffer.copy(pageNumber, header, SIZE_OF_FIL_HEADER);
+    return FilHeader.fromSlice(Slices.fromByteBuffer(ByteBuffer.wrap(header)).input());
   }
 
   @Override
   public long numOfPages() {
-    return 0;
+    return numOfPages;
   }
 
   @Override
   public void close() throws IOException {
+    closed = true;
+    try {
+      Utils.close(directIoChannel);
+      Utils.close(fileChannel);
+    } finally {
+      PosixIo.close(fadviseFd);
+      fadviseFd = -1;
+      for (ReadBuffer readBuffer = allocatedBuffers.poll(); readBuffer != null;
+           readBuffer = allocatedBuffers.poll()) {
+        readBuffer.release();
+      }
+    }
+  }
+
+  /**
+   * Make sure the page is in current thread's read buffer.
+   */
+  private ReadBuffer fill(long pageNumber) {
+    if (closed) {
+      throw new PageLoadException("Load page number " + pageNumber + " failed, storage service is closed");
+    }
+    if (pageNumber < 0 || pageNumber >= numOfPages) {
+      throw new PageLoadException("Load page number " + pageNumber + " failed, out of range, numOfPages is "
+          + numOfPages);
+    }
+    ReadBuffer readBuffer = readBufferThreadLocal.get();
+    if (!readBuffer.contains(pageNumber)) {
+      long start = pageNumber;
+      int pages = 1;
+      if (pageNumber == readBuffer.lastPageNumber + 1) {
+        pages = (int) Math.min(readAheadPages, numOfPages - pageNumber);
+      } else if (pageNumber == readBuffer.lastPageNumber - 1) {
+        start = Math.max(0L, pageNumber - readAheadPages + 1);
+        pages = (int) (pageNumber - start + 1);
+      }
+      try {
+        read(readBuffer, start, pages);
+      } catch (IOException e) {
+        readBuffer.reset();
+        throw new PageLoadException("Load page number " + pageNumber + " failed", e);
+      }
+    }
+    readBuffer.lastPageNumber = pageNumber;
+    return readBuffer;
+  }
+
+  private void read(ReadBuffer readBuffer, long startPageNumber, int pages) throws IOException {
+    long position = startPageNumber * SIZE_OF_PAGE;
+    int length = pages * SIZE_OF_PAGE;
+    int read;
+    if (isDirectIo()) {
+      read = PosixIo.pread(directIoChannel.getFD(), readBuffer.aligned.pointer(), length, position);
+    } else {
+      ByteBuffer buffer = readBuffer.data.duplicate();
+      buffer.limit(length);
+      read = 0;
+      while (buffer.hasRemaining()) {
+        int n = fileChannel.read(buffer, position + read);
+        if (n < 0) {
+          break;
+        }
+        read += n;
+      }
+      if (fadviseFd >= 0) {
+        PosixIo.fadviseDontNeed(fadviseFd, position, length);
+      }
+    }
+    if (read < length) {
+      throw new IOException("Read " + read + " bytes at position " + position + ", expected " + length);
+    }
+    readBuffer.startPageNumber = startPageNumber;
+    readBuffer.numOfPages = pages;
+  }
+
+  private ReadBuffer allocateReadBuffer() {
+    int capacity = readAheadPages * SIZE_OF_PAGE;
+    ReadBuffer readBuffer;
+    if (isDirectIo()) {
+      AlignedDirectByteBuffer aligned = AlignedDirectByteBuffer.allocate(directIoLib, capacity);
+      readBuffer = new ReadBuffer(aligned.pointer().getByteBuffer(0, capacity), aligned);
+    } else {
+      readBuffer = new ReadBuffer(ByteBuffer.allocateDirect(capacity), null);
+    }
+    allocatedBuffers.add(readBuffer);
+    return readBuffer;
+  }
+
+  /**
+   * Per-thread read buffer, pages [startPageNumber, startPageNumber + numOfPages) are loaded.
+   */
+  private static final class ReadBuffer {
+
+    /**
+     * View of native memory, for direct io it is backed by {@link #aligned}.
+     */
+    private final ByteBuffer data;
+
+    private final AlignedDirectByteBuffer aligned;
+
+    private long startPageNumber = -1L;
+
+    private int numOfPages;
+
+    private long lastPageNumber = -2L;
+
+    ReadBuffer(ByteBuffer data, AlignedDirectByteBuffer aligned) {
+      this.data = data;
+      this.aligned = aligned;
+    }
+
+    boolean contains(long pageNumber) {
+      return pageNumber >= startPageNumber && pageNumber < startPageNumber + numOfPages;
+    }
+
+    void copy(long pageNumber, byte[] dest, int length) {
+      ByteBuffer buffer = data.duplicate();
+      buffer.position((int) (pageNumber - startPageNumber) * SIZE_OF_PAGE);
+      buffer.get(dest, 0, length);
+    }
+
+    void reset() {
+      startPageNumber = -1L;
+      numOfPages = 0;
+      lastPageNumber = -2L;
+    }
 
+    void release() {
+      reset();
+      if (aligned != null) {
+        aligned.close();
+      } else {
+        ByteBufferCleaner.clean(data);
+      }
+    }
   }
 
 }
@@ -0,0 +1,236 @@
+/*
+ * Copyright (C) 1999-2019 Alibaba Group Holding Limited
+ */
+package com.alibaba.innodb.java.reader.service.impl;
+
+import com.alibaba.innodb.java.reader.exception.ReaderException;
+import com.alibaba.innodb.java.reader.page.FilHeader;
+import com.alibaba.innodb.java.reader.page.InnerPage;
+import com.alibaba.innodb.java.reader.page.PageType;
+import com.alibaba.innodb.java.reader.page.fsphdr.FspHdrXes;
+import com.alibaba.innodb.java.reader.page.fsphdr.Xdes;
+import com.alibaba.innodb.java.reader.page.fsphdr.XdesState;
+import com.alibaba.innodb.java.reader.service.StorageService;
+import com.alibaba.innodb.java.reader.util.ByteBufferSlice;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import lombok.extern.slf4j.Slf4j;
+
+import static com.alibaba.innodb.java.reader.Constants.PAGES_PER_EXTENT;
+import static com.alibaba.innodb.java.reader.Constants.PAGES_PER_XDES;
+import static com.alibaba.innodb.java.reader.SizeOf.SIZE_OF_FIL_HEADER;
+import static com.alibaba.innodb.java.reader.SizeOf.SIZE_OF_PAGE;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Read tablespace extent by extent, every extent (64 pages, 1MB) is loaded by
+ * {@link StorageService#loadPages(long, int)} in one large sequential I/O instead of
+ * 64 small reads.
+ * <p>
+ * Extent state is looked up from XDES entries in FSP_HDR or XDES page which manages
+ * the extent, extents in {@link XdesState#FREE} state contain no used pages and can
+ * be skipped without any I/O.
+ * <p>
+ * Not thread-safe, XDES entries are cached in the instance.
+ *
+ * @author xu.zx
+ */
+@Slf4j
+public class ExtentReader {
+
+  private final StorageService storageService;
+
+  private final long numOfPages;
+
+  /**
+   * XDES entries keyed by page number of FSP_HDR or XDES page.
+   */
+  private final Map<Long, List<Xdes>> xdesListCache = new HashMap<>(4);
+
+  private long skippedExtentCount;
+
+  public ExtentReader(StorageService storageService) {
+    checkNotNull(storageService, "storageService should not be null");
+    this.storageService = storageService;
+    this.numOfPages = storageService.numOfPages();
+  }
+
+  /**
+   * Number of pages when the reader is created.
+   *
+   * @return number of pages
+   */
+  public long getNumOfPages() {
+    return numOfPages;
+  }
+
+  public long getNumOfExtents() {
+    return (numOfPages + PAGES_PER_EXTENT - 1) / PAGES_PER_EXTENT;
+  }
+
+  /**
+   * Page number of the first page in extent.
+   *
+   * @param extentNumber extent number
+   * @return page number
+   */
+  public long getStartPageNumber(long extentNumber) {
+    return extentNumber * PAGES_PER_EXTENT;
+  }
+
+  /**
+   * Number of pages in extent, the last extent may be partial.
+   *
+   * @param extentNumber extent number
+   * @return number of pages
+   */
+  public int getNumOfPagesInExtent(long extentNumber) {
+    return (int) Math.max(0L, Math.min(PAGES_PER_EXTENT, numOfPages - getStartPageNumber(extentNumber)));
+  }
+
+  /**
+   * Return state of extent.
+   *
+   * @param extentNumber extent number
+   * @return state, or null if extent is not described by any XDES entry, for example
+   * beyond free limit of the tablespace
+   */
+  public XdesState getExtentState(long extentNumber) {
+    Xdes xdes = getXdes(extentNumber);
+    return xdes == null ? null : xdes.getState();
+  }
+
+  public boolean isFreeExtent(long extentNumber) {
+    return XdesState.FREE.equals(getExtentState(extentNumber));
+  }
+
+  /**
+   * Check if page is marked free in the page state bitmap of XDES entry. Page freed from
+   * B+ tree keeps its content, so page type and index header are not enough to tell
+   * whether the page is in use.
+   *
+   * @param pageNumber page number
+   * @return true if page is free, false if it is used or not described by any XDES entry
+   */
+  public boolean isFreePage(long pageNumber) {
+    Xdes xdes = getXdes(pageNumber / PAGES_PER_EXTENT);
+    return xdes != null && xdes.isPageFree((int) (pageNumber % PAGES_PER_EXTENT));
+  }
+
+  private Xdes getXdes(long extentNumber) {
+    long xdesPageNumber = getStartPageNumber(extentNumber) / PAGES_PER_XDES * PAGES_PER_XDES;
+    List<Xdes> xdesList = xdesListCache.computeIfAbsent(xdesPageNumber, this::loadXdesList);
+    int index = (int) ((getStartPageNumber(extentNumber) - xdesPageNumber) / PAGES_PER_EXTENT);
+    return index < xdesList.size() ? xdesList.get(index) : null;
+  }
+
+  /**
+   * Load all pages of extent in one I/O.
+   *
+   * @param extentNumber extent number
+   * @return pages
+   * @throws ReaderException throws ReaderException when internal errors occurs
+   */
+  public List<InnerPage> readExtent(long extentNumber) throws ReaderException {
+    return storageService.loadPages(getStartPageNumber(extentNumber), getNumOfPagesInExtent(extentNumber));
+  }
+
+  /**
+   * Read all pages of extent in one I/O into buffer and parse only the FIL header of each
+   * page, pages are not constructed so that LSN and checksum are not validated, a torn or
+   * corrupted page does not fail the read.
+   *
+   * @param extentNumber extent number
+   * @param buffer       buffer to read into, should be able to hold one extent
+   * @return headers of pages read
+   * @throws ReaderException throws ReaderException when internal errors occurs
+   */
+  public List<FilHeader> readExtentHeaders(long extentNumber, ByteBuffer buffer) throws ReaderException {
+    checkArgument(buffer.capacity() >= PAGES_PER_EXTENT * SIZE_OF_PAGE, "buffer should hold one extent");
+    buffer.clear();
+    int read = storageService.readPages(getStartPageNumber(extentNumber), getNumOfPagesInExtent(extentNumber),
+        buffer);
+    List<FilHeader> result = new ArrayList<>(read);
+    for (int i = 0; i < read; i++) {
+      result.add(FilHeader.fromSlice(new ByteBufferSlice(buffer, i * SIZE_OF_PAGE, SIZE_OF_FIL_HEADER).input()));
+    }
+    return result;
+  }
+
+  /**
+   * Iterate pages in physical order, extent by extent.
+   *
+   * @param skipFreeExtents if true, pages in free extents are not loaded and not returned
+   * @return page iterator
+   */
+  public Iterator<InnerPage> pageIterator(boolean skipFreeExtents) {
+    return new Iterator<InnerPage>() {
+
+      private long nextExtentNumber = 0L;
+
+      private List<InnerPage> pages = Collections.emptyList();
+
+      private int index;
+
+      @Override
+      public boolean hasNext() {
+        while (index == pages.size() && nextExtentNumber < getNumOfExtents()) {
+          long extentNumber = nextExtentNumber++;
+          if (skipFreeExtents && isFreeExtent(extentNumber)) {
+            skippedExtentCount++;
+            log.debug("Skip free extent {}", extentNumber);
+            continue;
+          }
+          pages = readExtent(extentNumber);
+          index = 0;
+        }
+        return index < pages.size();
+      }
+
+      @Override
+      public InnerPage next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        return pages.get(index++);
+      }
+    };
+  }
+
+  /**
+   * Number of free extents skipped by page iterators.
+   *
+   * @return count
+   */
+  public long getSkippedExtentCount() {
+    return skippedExtentCount;
+  }
+
+  private List<Xdes> loadXdesList(long xdesPageNumber) {
+    if (xdesPageNumber >= numOfPages) {
+      return Collections.emptyList();
+    }
+    InnerPage page = storageService.loadPage(xdesPageNumber);
+    try {
+      if (PageType.FILE_SPACE_HEADER.equals(page.pageType())
+          || PageType.EXTENT_DESCRIPTOR.equals(page.pageType())) {
+        return new FspHdrXes(page).getXdesList();
+      }
+      // XDES page is not initialized yet
+      log.debug("Page {} is not XDES page, actual page type is {}", xdesPageNumber, page.pageType());
+      return Collections.emptyList();
+    } finally {
+      page.release();
+    }
+  }
+
+}
@@ -9,6 +9,9 @@ import com.alibaba.innodb.java.reader.exception.ReaderException;
 import com.alibaba.innodb.java.reader.page.FilHeader;
 import com.alibaba.innodb.java.reader.page.InnerPage;
 import com.alibaba.innodb.java.reader.service.StorageService;
+import com.alibaba.innodb.java.reader.util.ByteBufferSlice;
+import com.alibaba.innodb.java.reader.util.PageBufferPool;
+import com.alibaba.innodb.java.reader.util.SliceInput;
 import com.alibaba.innodb.java.reader.util.Slices;
 import com.alibaba.innodb.java.reader.util.Utils;
 
@@ -17,7 +20,14 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 
 import lombok.extern.slf4j.Slf4j;
 
@@ -39,17 +49,48 @@ import static com.google.common.base.Preconditions.checkState;
  * done, so we cannot simply add try-finally to clean the buffer after load and recycle them
  * to the pool. The lifecycle of the direct byte buffer must be managed by index service as well,
  * this will be enhanced in the future.
+ * <p>
+ * To reduce GC pressure when scanning large table, page buffers can be recycled by
+ * {@link PageBufferPool}, enabled by {@link ReaderSystemProperty#ENABLE_PAGE_BUFFER_POOL}.
+ * Then pages should be released by {@link InnerPage#release()} when they are decoded.
  *
  * @author xu.zx
  */
 @Slf4j
 public class FileChannelStorageServiceImpl implements StorageService {
 
+  /**
+   * Linux IOV_MAX is 1024, keep each scatter read within one extent.
+   */
+  public static final int MAX_PAGES_PER_SCATTER_READ = 64;
+
   private FileChannel fileChannel;
 
+  private final Object positionLock = new Object();
+
+  /**
+   * Null if page buffer recycling is disabled.
+   */
+  private final PageBufferPool pageBufferPool;
+
   private ThreadLocal<ByteBuffer> pageHeaderBufferThreadLocal =
       ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(SIZE_OF_FIL_HEADER));
 
+  public FileChannelStorageServiceImpl() {
+    this(ReaderSystemProperty.ENABLE_PAGE_BUFFER_POOL.value()
+        ? new PageBufferPool(ReaderSystemProperty.PAGE_BUFFER_POOL_MAX_FREE_BUFFERS.value(),
+        ReaderSystemProperty.ENABLE_PAGE_BUFFER_LEAK_DETECTION.value()) : null);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param pageBufferPool pool to recycle page buffers, null to disable recycling
+   */
+  public FileChannelStorageServiceImpl(PageBufferPool pageBufferPool) {
+    this.pageBufferPool = pageBufferPool;
+  }
+
   @Override
   public void open(String ibdFilePath) throws IOException {
     fileChannel = new FileInputStream(new File(ibdFilePath)).getChannel();
@@ -68,13 +109,116 @@ public class FileChannelStorageServiceImpl implements StorageService {
 
   @Override
   public InnerPage loadPage(long pageNumber) throws ReaderException {
+    if (pageBufferPool == null) {
+      try {
+        ByteBuffer buffer = ByteBuffer.allocate(SIZE_OF_PAGE);
+        fileChannel.read(buffer, pageNumber * SIZE_OF_PAGE);
+        return new InnerPage(pageNumber, Slices.fromByteBuffer(buffer));
+      } catch (IOException e) {
+        throw new PageLoadException("Load page number " + pageNumber + " failed", e);
+      }
+    }
+    ByteBuffer buffer = pageBufferPool.acquire();
+    boolean attached = false;
     try {
-      ByteBuffer buffer = ByteBuffer.allocate(SIZE_OF_PAGE);
       fileChannel.read(buffer, pageNumber * SIZE_OF_PAGE);
-      return new InnerPage(pageNumber, Slices.fromByteBuffer(buffer));
+      InnerPage page = new InnerPage(pageNumber, Slices.fromByteBuffer(buffer));
+      pageBufferPool.attach(page, buffer);
+      attached = true;
+      return page;
     } catch (IOException e) {
       throw new PageLoadException("Load page number " + pageNumber + " failed", e);
+    } finally {
+      if (!attached) {
+        pageBufferPool.release(buffer);
+      }
+    }
+  }
+
+  /**
+   * Read all pages in one I/O, pages share the same heap buffer and are not
+   * recycled by {@link PageBufferPool}.
+   */
+  @Override
+  public List<InnerPage> loadPages(long startPageNumber, int numOfPages) throws ReaderException {
+    int num = (int) Math.max(0L, Math.min(numOfPages, numOfPages() - startPageNumber));
+    List<InnerPage> result = new ArrayList<>(num);
+    if (num == 0) {
+      return result;
+    }
+    ByteBuffer buffer = ByteBuffer.allocate(num * SIZE_OF_PAGE);
+    readFully(buffer, startPageNumber, num);
+    for (int i = 0; i < num; i++) {
+      result.add(new InnerPage(startPageNumber + i,
+          new ByteBufferSlice(buffer.duplicate(), i * SIZE_OF_PAGE, SIZE_OF_PAGE)));
+    }
+    return result;
+  }
+
+  /**
+   * Page numbers are sorted and de-duplicated, adjacent pages are coalesced into one
+   * scatter read of at most {@link #MAX_PAGES_PER_SCATTER_READ} pages. Every page still
+   * has its own buffer so that it can be recycled by {@link PageBufferPool}.
+   * <p>
+   * Duplicated page numbers are read once, every duplicate gets its own copy of the page
+   * so that each page in the result can be released separately.
+   */
+  @Override
+  public List<InnerPage> loadPages(long[] pageNumbers) throws ReaderException {
+    long[] sorted = sortedDistinct(pageNumbers);
+    Map<Long, InnerPage> pages = new HashMap<>(sorted.length * 4 / 3 + 1);
+    int from = 0;
+    while (from < sorted.length) {
+      int to = endOfAdjacentRun(sorted, from);
+      if (to - from == 1) {
+        pages.put(sorted[from], loadPage(sorted[from]));
+      } else {
+        scatterRead(sorted, from, to, pages);
+      }
+      from = to;
+    }
+    List<InnerPage> result = new ArrayList<>(pageNumbers.length);
+    Set<Long> served = new HashSet<>(sorted.length * 4 / 3 + 1);
+    for (long pageNumber : pageNumbers) {
+      InnerPage page = pages.get(pageNumber);
+      result.add(served.add(pageNumber) ? page : copyOf(page));
+    }
+    return result;
+  }
+
+  /**
+   * Page numbers are sorted and de-duplicated, headers of adjacent pages are parsed from
+   * one read of the whole pages.
+   */
+  @Override
+  public List<FilHeader> loadPageHeaders(long[] pageNumbers) throws ReaderException {
+    long[] sorted = sortedDistinct(pageNumbers);
+    Map<Long, FilHeader> headers = new HashMap<>(sorted.length * 4 / 3 + 1);
+    ByteBuffer buffer = null;
+    int from = 0;
+    while (from < sorted.length) {
+      int to = endOfAdjacentRun(sorted, from);
+      if (to - from == 1) {
+        headers.put(sorted[from], loadPageHeader(sorted[from]));
+      } else {
+        if (buffer == null) {
+          buffer = ByteBuffer.allocate(MAX_PAGES_PER_SCATTER_READ * SIZE_OF_PAGE);
+        }
+        buffer.clear();
+        buffer.limit((to - from) * SIZE_OF_PAGE);
+        readFully(buffer, sorted[from], to - from);
+        for (int i = from; i < to; i++) {
+          headers.put(sorted[i], FilHeader.fromSlice(
+              new ByteBufferSlice(buffer, (i - from) * SIZE_OF_PAGE, SIZE_OF_FIL_HEADER).input()));
+        }
+      }
+      from = to;
+    }
+    List<FilHeader> result = new ArrayList<>(pageNumbers.length);
+    for (long pageNumber : pageNumbers) {
+      result.add(headers.get(pageNumber));
     }
+    return result;
   }
 
   /**
@@ -93,9 +237,135 @@ public class FileChannelStorageServiceImpl implements StorageService {
     }
   }
 
+  private InnerPage copyOf(InnerPage page) {
+    ByteBuffer buffer = pageBufferPool == null ? ByteBuffer.allocate(SIZE_OF_PAGE) : pageBufferPool.acquire();
+    SliceInput input = page.getSliceInput();
+    int position = input.position();
+    input.setPosition(0);
+    input.readBytes(buffer);
+    input.setPosition(position);
+    // checksum has been validated when the page is loaded
+    InnerPage copy = new InnerPage(page.getPageNumber(), Slices.fromByteBuffer(buffer), false);
+    if (pageBufferPool != null) {
+      pageBufferPool.attach(copy, buffer);
+    }
+    return copy;
+  }
+
+  private void scatterRead(long[] sorted, int from, int to, Map<Long, InnerPage> pages) {
+    int num = to - from;
+    ByteBuffer[] buffers = new ByteBuffer[num];
+    try {
+      for (int i = 0; i < num; i++) {
+        buffers[i] = pageBufferPool == null ? ByteBuffer.allocate(SIZE_OF_PAGE) : pageBufferPool.acquire();
+      }
+      long expected = (long) num * SIZE_OF_PAGE;
+      // scatter read works on channel position, which is shared by all threads
+      synchronized (positionLock) {
+        fileChannel.position(sorted[from] * SIZE_OF_PAGE);
+        long total = 0L;
+        while (total < expected) {
+          long read = fileChannel.read(buffers);
+          if (read < 0) {
+            throw new PageLoadException("Load page number " + sorted[from] + " to " + sorted[to - 1]
+                + " failed, reach end of file");
+          }
+          total += read;
+        }
+      }
+      for (int i = 0; i < num; i++) {
+        InnerPage page = new InnerPage(sorted[from + i], Slices.fromByteBuffer(buffers[i]));
+        if (pageBufferPool != null) {
+          pageBufferPool.attach(page, buffers[i]);
+        }
+        buffers[i] = null;
+        pages.put(sorted[from + i], page);
+      }
+    } catch (IOException e) {
+      throw new PageLoadException("Load page number " + sorted[from] + " to " + sorted[to - 1] + " failed", e);
+    } finally {
+      if (pageBufferPool != null) {
+        for (ByteBuffer buffer : buffers) {
+          if (buffer != null) {
+            pageBufferPool.release(buffer);
+          }
+        }
+      }
+    }
+  }
+
+  @Override
+  public int readPages(long startPageNumber, int numOfPages, ByteBuffer buffer) throws ReaderException {
+    int num = (int) Math.max(0L, Math.min(Math.min(numOfPages, buffer.remaining() / SIZE_OF_PAGE),
+        numOfPages() - startPageNumber));
+    if (num == 0) {
+      return 0;
+    }
+    int limit = buffer.limit();
+    int start = buffer.position();
+    buffer.limit(start + num * SIZE_OF_PAGE);
+    try {
+      long position = startPageNumber * SIZE_OF_PAGE - start;
+      while (buffer.hasRemaining()) {
+        if (fileChannel.read(buffer, position + buffer.position()) < 0) {
+          throw new PageLoadException("Load page number " + startPageNumber + " to "
+              + (startPageNumber + num - 1) + " failed, reach end of file");
+        }
+      }
+    } catch (IOException e) {
+      throw new PageLoadException("Load page number " + startPageNumber + " to "
+          + (startPageNumber + num - 1) + " failed", e);
+    } finally {
+      buffer.limit(limit);
+    }
+    return num;
+  }
+
+  private void readFully(ByteBuffer buffer, long startPageNumber, int numOfPages) {
+    try {
+      long position = startPageNumber * SIZE_OF_PAGE;
+      while (buffer.hasRemaining()) {
+        if (fileChannel.read(buffer, position + buffer.position()) < 0) {
+          throw new PageLoadException("Load page number " + startPageNumber + " to "
+              + (startPageNumber + numOfPages - 1) + " failed, reach end of file");
+        }
+      }
+    } catch (IOException e) {
+      throw new PageLoadException("Load page number " + startPageNumber + " to "
+          + (startPageNumber + numOfPages - 1) + " failed", e);
+    }
+  }
+
+  private static long[] sortedDistinct(long[] pageNumbers) {
+    return Arrays.stream(pageNumbers).sorted().distinct().toArray();
+  }
+
+  /**
+   * Return exclusive end index of the run of adjacent page numbers starting from <code>from</code>.
+   */
+  private static int endOfAdjacentRun(long[] sorted, int from) {
+    int to = from + 1;
+    while (to < sorted.length && to - from < MAX_PAGES_PER_SCATTER_READ && sorted[to] == sorted[to - 1] + 1) {
+      to++;
+    }
+    return to;
+  }
+
   @Override
   public void close() throws IOException {
     Utils.close(fileChannel);
+    if (pageBufferPool != null) {
+      log.debug("{}", pageBufferPool);
+    }
+  }
+
+  /**
+   * Return page buffer pool.
+   *
+   * @return null if page buffer recycling is disabled
+   */
+  public PageBufferPool getPageBufferPool() {
+    return pageBufferPool;
   }
 
   @Override
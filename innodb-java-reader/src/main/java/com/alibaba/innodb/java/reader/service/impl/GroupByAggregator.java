@@ -0,0 +1,445 @@
+/*
+ * Copyright (C) 1999-2019 Alibaba Group Holding Limited
+ */
+package com.alibaba.innodb.java.reader.service.impl;
+
+import com.alibaba.innodb.java.reader.aggregate.AggregateFunction;
+import com.alibaba.innodb.java.reader.aggregate.AggregateRow;
+import com.alibaba.innodb.java.reader.aggregate.Aggregation;
+import com.alibaba.innodb.java.reader.column.ColumnType;
+import com.alibaba.innodb.java.reader.exception.ReaderException;
+import com.alibaba.innodb.java.reader.page.index.LazyGenericRecord.ColumnDecoder;
+import com.alibaba.innodb.java.reader.page.index.Row;
+import com.alibaba.innodb.java.reader.schema.Column;
+import com.alibaba.innodb.java.reader.schema.TableDef;
+import com.alibaba.innodb.java.reader.service.impl.AggregationTable.AccumulatorType;
+import com.alibaba.innodb.java.reader.util.SliceInput;
+import com.alibaba.innodb.java.reader.util.Slices;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+import lombok.extern.slf4j.Slf4j;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Group rows by columns and aggregate them, rows are passed to {@link Partial} of the current
+ * thread by scanning threads, then partials are merged by {@link #finish(Consumer)}.
+ * <p>
+ * Values of group-by columns are encoded as they are stored in page into group key, so group-by
+ * columns are compared in bytes, strings are not compared by collation. Aggregated columns are
+ * read by primitive accessors of {@link Row} into {@link AggregationTable}.
+ * <p>
+ * Every partial keeps its groups within an even share of memory budget. When the budget is
+ * exceeded, groups are sorted by key and spilled to a temporary file as a run. If there is no
+ * run, partials are merged in memory, otherwise the remaining groups are spilled as well and all
+ * runs are merged by key, so at most one group per run is kept in memory. Runs are deleted when
+ * aggregator is closed.
+ *
+ * @author xu.zx
+ */
+@Slf4j
+final class GroupByAggregator implements AutoCloseable {
+
+  private static final byte NULL_VALUE = 0;
+
+  private static final byte NOT_NULL_VALUE = 1;
+
+  private static final int END_OF_RUN = -1;
+
+  private static final int SPILL_BUFFER_SIZE = 64 * 1024;
+
+  private final Column[] groupColumns;
+
+  private final AggregateFunction[] functions;
+
+  /**
+   * Ordinal of aggregated column, -1 for <code>COUNT(*)</code>.
+   */
+  private final int[] ordinals;
+
+  private final AccumulatorType[] types;
+
+  private final ColumnDecoder decoder;
+
+  private final long partialMemoryBudget;
+
+  private final File spillDir;
+
+  private final Map<Thread, Partial> partials = new ConcurrentHashMap<>(16);
+
+  private final List<File> runs = Collections.synchronizedList(new ArrayList<>());
+
+  /**
+   * Constructor.
+   *
+   * @param tableDef     table definition
+   * @param decoder      column decoder to decode values of group-by columns
+   * @param groupBy      group-by column names, may be empty
+   * @param aggregations aggregations
+   * @param memoryBudget memory budget in bytes of all partials
+   * @param parallelism  number of threads to pass rows
+   * @param spillDir     directory of spilled runs
+   */
+  GroupByAggregator(TableDef tableDef, ColumnDecoder decoder, List<String> groupBy, List<Aggregation> aggregations,
+                    long memoryBudget, int parallelism, File spillDir) {
+    checkNotNull(groupBy, "groupBy should not be null");
+    checkArgument(aggregations != null && !aggregations.isEmpty(), "aggregations should not be empty");
+    checkArgument(memoryBudget > 0 && parallelism > 0, "memoryBudget and parallelism should be positive");
+    this.decoder = checkNotNull(decoder);
+    this.partialMemoryBudget = Math.max(1L, memoryBudget / parallelism);
+    this.spillDir = checkNotNull(spillDir, "spillDir should not be null");
+    this.groupColumns = new Column[groupBy.size()];
+    for (int i = 0; i < groupColumns.length; i++) {
+      groupColumns[i] = getColumn(tableDef, groupBy.get(i));
+    }
+    this.functions = new AggregateFunction[aggregations.size()];
+    this.ordinals = new int[aggregations.size()];
+    this.types = new AccumulatorType[aggregations.size()];
+    for (int i = 0; i < functions.length; i++) {
+      Aggregation aggregation = checkNotNull(aggregations.get(i), "aggregation should not be null");
+      functions[i] = aggregation.getFunction();
+      if (aggregation.getColumnName() == null) {
+        ordinals[i] = -1;
+        types[i] = AccumulatorType.COUNT;
+        continue;
+      }
+      Column column = getColumn(tableDef, aggregation.getColumnName());
+      ordinals[i] = column.getOrdinal();
+      types[i] = accumulatorType(aggregation, column);
+    }
+  }
+
+  /**
+   * Ordinals of group-by columns and aggregated columns, they should be in projection.
+   *
+   * @return ordinals
+   */
+  BitSet columns() {
+    BitSet result = new BitSet();
+    for (Column column : groupColumns) {
+      result.set(column.getOrdinal());
+    }
+    for (int ordinal : ordinals) {
+      if (ordinal >= 0) {
+        result.set(ordinal);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Partial aggregation of the current thread.
+   *
+   * @return partial
+   */
+  Partial partial() {
+    return partials.computeIfAbsent(Thread.currentThread(), t -> new Partial());
+  }
+
+  /**
+   * Merge all partials and spilled runs, call this after all rows are passed.
+   *
+   * @param consumer consumer of results of groups, in key order if any run is spilled
+   * @return number of groups
+   */
+  long finish(Consumer<AggregateRow> consumer) {
+    checkNotNull(consumer, "consumer should not be null");
+    if (runs.isEmpty()) {
+      return mergeInMemory(consumer);
+    }
+    for (Partial partial : partials.values()) {
+      if (partial.table.size() > 0) {
+        spill(partial.table);
+      }
+    }
+    return mergeRuns(consumer);
+  }
+
+  /**
+   * Release partials and delete spilled runs.
+   */
+  @Override
+  public void close() {
+    partials.clear();
+    synchronized (runs) {
+      for (File run : runs) {
+        if (!run.delete()) {
+          log.warn("Failed to delete spilled run {}", run);
+        }
+      }
+      runs.clear();
+    }
+  }
+
+  private long mergeInMemory(Consumer<AggregateRow> consumer) {
+    AggregationTable merged;
+    if (partials.size() == 1) {
+      merged = partials.values().iterator().next().table;
+    } else {
+      merged = newTable();
+      for (Partial partial : partials.values()) {
+        AggregationTable table = partial.table;
+        for (int group = 0; group < table.size(); group++) {
+          byte[] key = table.key(group);
+          merged.merge(merged.group(key, key.length), table, group);
+        }
+      }
+    }
+    if (groupColumns.length == 0 && merged.size() == 0) {
+      // like SQL, aggregation without group-by always returns one row
+      merged.group(new byte[0], 0);
+    }
+    for (int group = 0; group < merged.size(); group++) {
+      consumer.accept(toRow(merged, group));
+    }
+    return merged.size();
+  }
+
+  private long mergeRuns(Consumer<AggregateRow> consumer) {
+    List<RunReader> readers = new ArrayList<>(runs.size());
+    PriorityQueue<RunReader> queue = new PriorityQueue<>(runs.size(),
+        (a, b) -> AggregationTable.KEY_ORDER.compare(a.key, b.key));
+    try {
+      for (File run : runs) {
+        RunReader reader = new RunReader(run);
+        readers.add(reader);
+        if (reader.advance()) {
+          queue.add(reader);
+        }
+      }
+      AggregationTable merged = newTable();
+      long count = 0L;
+      while (!queue.isEmpty()) {
+        byte[] key = queue.peek().key;
+        merged.clear();
+        int group = merged.group(key, key.length);
+        while (!queue.isEmpty() && Arrays.equals(queue.peek().key, key)) {
+          RunReader reader = queue.poll();
+          merged.merge(group, reader.input);
+          if (reader.advance()) {
+            queue.add(reader);
+          }
+        }
+        consumer.accept(toRow(merged, group));
+        count++;
+      }
+      log.debug("Merge {} groups from {} spilled runs", count, runs.size());
+      return count;
+    } catch (IOException e) {
+      throw new ReaderException("Failed to merge spilled runs", e);
+    } finally {
+      for (RunReader reader : readers) {
+        reader.close();
+      }
+    }
+  }
+
+  private void spill(AggregationTable table) {
+    File run;
+    try {
+      run = File.createTempFile("innodb-java-reader-aggregate-", ".run", spillDir);
+    } catch (IOException e) {
+      throw new ReaderException("Failed to create spilled run in " + spillDir, e);
+    }
+    runs.add(run);
+    try (DataOutputStream out = new DataOutputStream(
+        new BufferedOutputStream(new FileOutputStream(run), SPILL_BUFFER_SIZE))) {
+      for (int group : table.sortedGroups()) {
+        byte[] key = table.key(group);
+        out.writeInt(key.length);
+        out.write(key);
+        table.write(out, group);
+      }
+      out.writeInt(END_OF_RUN);
+    } catch (IOException e) {
+      throw new ReaderException("Failed to spill groups to " + run, e);
+    }
+    log.debug("Spill {} groups of {} bytes to {}", table.size(), table.memoryUsage(), run);
+    table.clear();
+  }
+
+  private AggregationTable newTable() {
+    return new AggregationTable(functions, types);
+  }
+
+  private AggregateRow toRow(AggregationTable table, int group) {
+    Object[] values = new Object[functions.length];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = table.result(i, group);
+    }
+    return new AggregateRow(decodeKey(table.key(group)), values);
+  }
+
+  /**
+   * Decode values of group-by columns from group key, see {@link Partial#accept(Row)}.
+   */
+  private Object[] decodeKey(byte[] key) {
+    Object[] values = new Object[groupColumns.length];
+    SliceInput input = new SliceInput(Slices.fromByteBuffer(ByteBuffer.wrap(key)));
+    int position = 0;
+    for (int i = 0; i < values.length; i++) {
+      if (key[position++] == NULL_VALUE) {
+        continue;
+      }
+      int length = ((key[position] & 0xFF) << 8) | (key[position + 1] & 0xFF);
+      position += 2;
+      input.setPosition(position);
+      Column column = groupColumns[i];
+      values[i] = decoder.decode(input, column, column.isVariableLength() ? length : -1, false);
+      position += length;
+    }
+    return values;
+  }
+
+  private static Column getColumn(TableDef tableDef, String columnName) {
+    TableDef.Field field = tableDef.getField(columnName);
+    if (field == null) {
+      throw new ReaderException("Column " + columnName + " not found in TableDef");
+    }
+    return field.getColumn();
+  }
+
+  private static AccumulatorType accumulatorType(Aggregation aggregation, Column column) {
+    if (aggregation.getFunction() == AggregateFunction.COUNT) {
+      return AccumulatorType.COUNT;
+    }
+    String type = column.getType();
+    boolean sum = aggregation.getFunction() == AggregateFunction.SUM;
+    if (ColumnType.UNSIGNED_BIGINT.equals(type)) {
+      return sum ? AccumulatorType.UNSIGNED_LONG_128 : AccumulatorType.UNSIGNED_LONG;
+    } else if (ColumnType.BIGINT.equals(type)) {
+      return sum ? AccumulatorType.LONG_128 : AccumulatorType.LONG;
+    } else if (ColumnType.INTEGER_TYPE_SIZES.containsKey(type)) {
+      return AccumulatorType.LONG;
+    }
+    boolean floatingPoint = ColumnType.FLOAT.equals(type) || ColumnType.UNSIGNED_FLOAT.equals(type)
+        || ColumnType.REAL.equals(type) || ColumnType.UNSIGNED_REAL.equals(type)
+        || ColumnType.DOUBLE.equals(type) || ColumnType.UNSIGNED_DOUBLE.equals(type);
+    if (floatingPoint) {
+      return AccumulatorType.DOUBLE;
+    }
+    throw new ReaderException(aggregation + " is not supported for column of type " + type);
+  }
+
+  /**
+   * Aggregation of rows passed by one thread.
+   */
+  final class Partial {
+
+    private final AggregationTable table = newTable();
+
+    private byte[] keyBuffer = new byte[64];
+
+    /**
+     * Aggregate a row into its group, the group key is null flag of every group-by column
+     * followed by 2 bytes length and bytes in page if the value is not null.
+     *
+     * @param row row located at a record, group-by columns and aggregated columns should be
+     *            present
+     */
+    void accept(Row row) {
+      int length = 0;
+      for (Column column : groupColumns) {
+        int ordinal = column.getOrdinal();
+        if (row.isNull(ordinal)) {
+          ensureCapacity(length + 1);
+          keyBuffer[length++] = NULL_VALUE;
+          continue;
+        }
+        if (row.isOverflow(ordinal)) {
+          throw new ReaderException("Group by column " + column.getName() + " stored in overflow pages");
+        }
+        int valueLength = row.getLength(ordinal);
+        ensureCapacity(length + 3 + valueLength);
+        keyBuffer[length++] = NOT_NULL_VALUE;
+        keyBuffer[length++] = (byte) (valueLength >>> 8);
+        keyBuffer[length++] = (byte) valueLength;
+        length += row.getBytes(ordinal, keyBuffer, length);
+      }
+
+      int group = table.group(keyBuffer, length);
+      for (int i = 0; i < ordinals.length; i++) {
+        int ordinal = ordinals[i];
+        if (ordinal < 0) {
+          table.add(i, group);
+        } else if (!row.isNull(ordinal)) {
+          if (types[i] == AccumulatorType.COUNT) {
+            table.add(i, group);
+          } else if (types[i] == AccumulatorType.DOUBLE) {
+            table.add(i, group, row.getDouble(ordinal));
+          } else {
+            table.add(i, group, row.getLong(ordinal));
+          }
+        }
+      }
+      if (table.memoryUsage() > partialMemoryBudget) {
+        spill(table);
+      }
+    }
+
+    private void ensureCapacity(int capacity) {
+      if (keyBuffer.length < capacity) {
+        keyBuffer = Arrays.copyOf(keyBuffer, Math.max(capacity, keyBuffer.length * 2));
+      }
+    }
+  }
+
+  /**
+   * Read groups of a spilled run one by one.
+   */
+  private static final class RunReader implements Closeable {
+
+    private final DataInputStream input;
+
+    private byte[] key;
+
+    RunReader(File run) throws IOException {
+      this.input = new DataInputStream(new BufferedInputStream(new FileInputStream(run), SPILL_BUFFER_SIZE));
+    }
+
+    /**
+     * Read key of the next group, accumulators should be read before advancing again.
+     *
+     * @return false if there is no more group
+     */
+    boolean advance() throws IOException {
+      int length = input.readInt();
+      if (length == END_OF_RUN) {
+        return false;
+      }
+      key = new byte[length];
+      input.readFully(key);
+      return true;
+    }
+
+    @Override
+    public void close() {
+      try {
+        input.close();
+      } catch (IOException e) {
+        log.warn("Failed to close spilled run", e);
+      }
+    }
+  }
+
+}
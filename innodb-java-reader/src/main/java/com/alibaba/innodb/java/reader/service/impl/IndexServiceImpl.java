@@ -5,23 +5,33 @@ package com.alibaba.innodb.java.reader.service.impl;
 
 import com.google.common.collect.ImmutableList;
 
+import com.alibaba.innodb.java.reader.aggregate.AggregateRow;
+import com.alibaba.innodb.java.reader.aggregate.Aggregation;
 import com.alibaba.innodb.java.reader.column.ColumnFactory;
 import com.alibaba.innodb.java.reader.comparator.ComparisonOperator;
+import com.alibaba.innodb.java.reader.comparator.DefaultKeyComparator;
 import com.alibaba.innodb.java.reader.comparator.KeyComparator;
 import com.alibaba.innodb.java.reader.exception.ReaderException;
+import com.alibaba.innodb.java.reader.filter.Filter;
 import com.alibaba.innodb.java.reader.page.InnerPage;
 import com.alibaba.innodb.java.reader.page.PageType;
 import com.alibaba.innodb.java.reader.page.blob.Blob;
 import com.alibaba.innodb.java.reader.page.index.DumbGenericRecord;
+import com.alibaba.innodb.java.reader.page.index.ColumnBatch;
 import com.alibaba.innodb.java.reader.page.index.GenericRecord;
 import com.alibaba.innodb.java.reader.page.index.Index;
+import com.alibaba.innodb.java.reader.page.index.LazyGenericRecord;
+import com.alibaba.innodb.java.reader.page.index.LazyGenericRecord.PageScope;
 import com.alibaba.innodb.java.reader.page.index.OverflowPagePointer;
 import com.alibaba.innodb.java.reader.page.index.RecordHeader;
 import com.alibaba.innodb.java.reader.page.index.RecordType;
+import com.alibaba.innodb.java.reader.page.index.Row;
+import com.alibaba.innodb.java.reader.page.index.RowVisitor;
 import com.alibaba.innodb.java.reader.schema.Column;
 import com.alibaba.innodb.java.reader.schema.KeyMeta;
 import com.alibaba.innodb.java.reader.schema.TableDef;
 import com.alibaba.innodb.java.reader.schema.Workaround;
+import com.alibaba.innodb.java.reader.service.AsyncStorageService;
 import com.alibaba.innodb.java.reader.service.IndexService;
 import com.alibaba.innodb.java.reader.service.StorageService;
 import com.alibaba.innodb.java.reader.util.Pair;
@@ -31,15 +41,27 @@ import com.alibaba.innodb.java.reader.util.Utils;
 
 import org.apache.commons.collections.CollectionUtils;
 
+import java.io.File;
 import java.io.UnsupportedEncodingException;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.BitSet;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
 import java.util.function.Predicate;
 
 import lombok.extern.slf4j.Slf4j;
@@ -62,7 +84,12 @@ import static com.alibaba.innodb.java.reader.comparator.ComparisonOperator.GTE;
 import static com.alibaba.innodb.java.reader.comparator.ComparisonOperator.LT;
 import static com.alibaba.innodb.java.reader.comparator.ComparisonOperator.LTE;
 import static com.alibaba.innodb.java.reader.comparator.ComparisonOperator.NOP;
+import static com.alibaba.innodb.java.reader.config.ReaderSystemProperty.AGGREGATE_MEMORY_BUDGET_MB;
+import static com.alibaba.innodb.java.reader.config.ReaderSystemProperty.AGGREGATE_SPILL_DIR;
+import static com.alibaba.innodb.java.reader.config.ReaderSystemProperty.ENABLE_BINARY_KEY_SEARCH;
+import static com.alibaba.innodb.java.reader.config.ReaderSystemProperty.ENABLE_COMPILED_RECORD_DECODER;
 import static com.alibaba.innodb.java.reader.config.ReaderSystemProperty.ENABLE_THROW_EXCEPTION_FOR_UNSUPPORTED_MYSQL80_LOB;
+import static com.alibaba.innodb.java.reader.config.ReaderSystemProperty.RANGE_QUERY_READ_AHEAD_PAGES;
 import static com.alibaba.innodb.java.reader.util.Utils.anyElementEmpty;
 import static com.alibaba.innodb.java.reader.util.Utils.constructMaxRecord;
 import static com.alibaba.innodb.java.reader.util.Utils.constructMinRecord;
@@ -85,12 +112,43 @@ import static org.apache.commons.collections.CollectionUtils.isNotEmpty;
 @Slf4j
 public class IndexServiceImpl implements IndexService {
 
+  /**
+   * Number of pages loaded in one batch when pinning non-leaf levels or querying by a batch of keys.
+   */
+  private static final int LOAD_BATCH_PAGES = 256;
+
+  /**
+   * Max number of compiled record decoders kept.
+   */
+  private static final int MAX_RECORD_DECODERS = 64;
+
   private TableDef tableDef;
 
   private StorageService storageService;
 
   private KeyComparator keyComparator;
 
+  private int readAheadPages = RANGE_QUERY_READ_AHEAD_PAGES.value();
+
+  private volatile NonLeafLevelCache nonLeafLevelCache;
+
+  private ForkJoinPool scanPool = ParallelIndexScanner.defaultPool();
+
+  private final LazyGenericRecord.ColumnDecoder columnDecoder = this::readColumnValue;
+
+  private boolean compiledRecordDecoder = ENABLE_COMPILED_RECORD_DECODER.value();
+
+  private boolean binaryKeySearch = ENABLE_BINARY_KEY_SEARCH.value();
+
+  private long aggregateMemoryBudget = AGGREGATE_MEMORY_BUDGET_MB.value() * 1024L * 1024L;
+
+  /**
+   * Compiled record decoders, the most recently used one is checked first.
+   */
+  private final List<RecordDecoder> recordDecoders = new CopyOnWriteArrayList<>();
+
+  private volatile RecordDecoder lastRecordDecoder;
+
   public IndexServiceImpl(StorageService storageService, TableDef tableDef,
                           KeyComparator keyComparator) {
     this.storageService = storageService;
@@ -98,6 +156,48 @@ public class IndexServiceImpl implements IndexService {
     this.keyComparator = keyComparator;
   }
 
+  /**
+   * Set number of leaf pages loaded ahead in background by range query iterator,
+   * default value is {@link com.alibaba.innodb.java.reader.config.ReaderSystemProperty#RANGE_QUERY_READ_AHEAD_PAGES}.
+   *
+   * @param readAheadPages number of pages, 0 to disable read-ahead
+   */
+  public void setReadAheadPages(int readAheadPages) {
+    checkArgument(readAheadPages >= 0, "readAheadPages should not be negative");
+    this.readAheadPages = readAheadPages;
+  }
+
+  /**
+   * Set whether to decode records by decoder compiled per table definition and projection,
+   * default value is {@link com.alibaba.innodb.java.reader.config.ReaderSystemProperty#ENABLE_COMPILED_RECORD_DECODER}.
+   *
+   * @param compiledRecordDecoder true to use compiled decoder, false to decode column by column generically
+   */
+  public void setCompiledRecordDecoder(boolean compiledRecordDecoder) {
+    this.compiledRecordDecoder = compiledRecordDecoder;
+  }
+
+  /**
+   * Set whether to compare search key with records in bytes when searching B+ tree,
+   * default value is {@link com.alibaba.innodb.java.reader.config.ReaderSystemProperty#ENABLE_BINARY_KEY_SEARCH}.
+   *
+   * @param binaryKeySearch true to compare encoded key if possible, false to always decode records
+   */
+  public void setBinaryKeySearch(boolean binaryKeySearch) {
+    this.binaryKeySearch = binaryKeySearch;
+  }
+
+  /**
+   * Set memory budget of aggregation in bytes, default value is
+   * {@link com.alibaba.innodb.java.reader.config.ReaderSystemProperty#AGGREGATE_MEMORY_BUDGET_MB}.
+   *
+   * @param aggregateMemoryBudget bytes of groups kept in memory
+   */
+  public void setAggregateMemoryBudget(long aggregateMemoryBudget) {
+    checkArgument(aggregateMemoryBudget > 0, "aggregateMemoryBudget should be positive");
+    this.aggregateMemoryBudget = aggregateMemoryBudget;
+  }
+
   /**
    * Query all records by single index page.
    *
@@ -117,7 +217,12 @@ public class IndexServiceImpl implements IndexService {
    */
   @Override
   public List<GenericRecord> queryByPageNumber(long pageNumber) {
-    return queryWithinIndexPage(tableDef, loadIndexPage(pageNumber));
+    Index index = loadIndexPage(pageNumber);
+    try {
+      return queryWithinIndexPage(tableDef, index);
+    } finally {
+      index.release();
+    }
   }
 
   /**
@@ -129,8 +234,7 @@ public class IndexServiceImpl implements IndexService {
    * @return list of records
    */
   private List<GenericRecord> queryWithinIndexPage(TableDef tableDef, Index index) {
-    return queryWithinIndexPage(tableDef, index, false, ImmutableList.of(),
-        NOP, ImmutableList.of(), NOP, NOP_PROJECTION);
+    return queryWithinIndexPage(tableDef, index, NOP_PROJECTION);
   }
 
   /**
@@ -142,29 +246,6 @@ public class IndexServiceImpl implements IndexService {
    * @return list of records
    */
   private List<GenericRecord> queryWithinIndexPage(TableDef tableDef, Index index, BitSet projection) {
-    return queryWithinIndexPage(tableDef, index, false, ImmutableList.of(),
-        NOP, ImmutableList.of(), NOP, projection);
-  }
-
-  /**
-   * Query within one index page, range query is supported.
-   *
-   * @param tableDef      table definition
-   * @param index         index page
-   * @param rangeQuery    if the query is range enabled
-   * @param lower         if rangeQuery is true, then this is the lower bound
-   * @param lowerOperator if rangeQuery is true, then this is the comparison operator for lower
-   * @param upper         if rangeQuery is true, then this is the upper bound
-   * @param upperOperator if rangeQuery is true, then this is the comparison operator for upper
-   * @param projection    projection of selected column ordinal in bitmap
-   * @return list of records
-   */
-  private List<GenericRecord> queryWithinIndexPage(TableDef tableDef, Index index, boolean rangeQuery,
-                                                   List<Object> lower, ComparisonOperator lowerOperator,
-                                                   List<Object> upper, ComparisonOperator upperOperator,
-                                                   BitSet projection) {
-    checkKey(lower, lowerOperator, upper, upperOperator);
-
     // num of heap records - system records
     List<GenericRecord> result = new ArrayList<>(index.getIndexHeader().getNumOfRecs());
     SliceInput sliceInput = index.getSliceInput();
@@ -178,43 +259,10 @@ public class IndexServiceImpl implements IndexService {
     int recCounter = 0;
     sliceInput.setPosition(nextRecPos);
 
-    // only range query needed
-    boolean noneEmpty = false;
-    boolean lowerNotEmpty = false;
-    boolean upperNotEmpty = false;
-
-    if (rangeQuery) {
-      noneEmpty = noneEmpty(lower, upper);
-      lowerNotEmpty = isNotEmpty(lower);
-      upperNotEmpty = isNotEmpty(upper);
-    }
-
     while (nextRecPos != supremum.getPrimaryKeyPosition()) {
       GenericRecord record = readRecord(tableDef, index.getPageNumber(), sliceInput,
           index.isLeafPage(), projection);
-      if (rangeQuery) {
-        if (noneEmpty) {
-          if (qualified(tableDef.getPrimaryKeyColumns(), record.getPrimaryKey(),
-              lower, lowerOperator, upper, upperOperator)) {
-            result.add(record);
-          }
-        } else if (lowerNotEmpty) {
-          if (lowerQualified(tableDef.getPrimaryKeyColumns(), record.getPrimaryKey(),
-              lower, lowerOperator)) {
-            result.add(record);
-          }
-        } else if (upperNotEmpty) {
-          if (upperQualified(tableDef.getPrimaryKeyColumns(), record.getPrimaryKey(),
-              upper, upperOperator)) {
-            result.add(record);
-            break;
-          }
-        } else {
-          throw new ReaderException("Lower and upper should not be both empty");
-        }
-      } else {
-        result.add(record);
-      }
+      result.add(record);
       nextRecPos = record.nextRecordPosition();
       recCounter++;
     }
@@ -243,10 +291,361 @@ public class IndexServiceImpl implements IndexService {
   public List<GenericRecord> queryAll(Optional<Predicate<GenericRecord>> recordPredicate,
                                       Optional<List<String>> recordProjection) {
     List<GenericRecord> recordList = new ArrayList<>();
-    traverseBPlusTree(tableDef, ROOT_PAGE_NUMBER, recordList, recordPredicate, transformProjection(recordProjection));
+    traverseBPlusTree(tableDef, ROOT_PAGE_NUMBER, recordList::add, recordPredicate,
+        transformProjection(recordProjection), false);
+    return recordList;
+  }
+
+  /**
+   * Query all records of a tablespace with filter which is compiled and evaluated on
+   * {@link LazyGenericRecord}, only qualifying records are materialized.
+   */
+  @Override
+  public List<GenericRecord> queryAll(Filter filter, Optional<List<String>> recordProjection) {
+    checkNotNull(filter, "filter should not be null");
+    Optional<List<String>> projection = recordProjection;
+    if (isOptionalPresent(recordProjection)) {
+      Set<String> columnNames = new LinkedHashSet<>(recordProjection.get());
+      filter.collectColumnNames(columnNames);
+      projection = Optional.of(new ArrayList<>(columnNames));
+    }
+    List<GenericRecord> recordList = new ArrayList<>();
+    lazyScan(Optional.of(filter.compile(tableDef)), projection,
+        record -> recordList.add(((LazyGenericRecord) record).materialize()));
     return recordList;
   }
 
+  /**
+   * Scan all records of a tablespace in primary key order with {@link LazyGenericRecord}, column
+   * values are decoded only when they are accessed by predicate or consumer.
+   */
+  @Override
+  public long lazyScan(Optional<Predicate<GenericRecord>> recordPredicate, Optional<List<String>> recordProjection,
+                       Consumer<GenericRecord> recordConsumer) {
+    checkNotNull(recordConsumer, "consumer should not be null");
+    long[] count = new long[1];
+    traverseBPlusTree(tableDef, ROOT_PAGE_NUMBER, record -> {
+      recordConsumer.accept(record);
+      count[0]++;
+    }, recordPredicate, transformProjection(recordProjection), true);
+    return count[0];
+  }
+
+  /**
+   * Scan records by range of primary key in ascending order with one {@link Row} reused for
+   * all records, leaf pages are walked through by next page pointer from the start page to the
+   * end page, only records of these two pages are compared with bounds.
+   * <p>
+   * For table without primary key, range is not supported.
+   */
+  @Override
+  public long scan(List<Object> lower, ComparisonOperator lowerOperator,
+                   List<Object> upper, ComparisonOperator upperOperator,
+                   Optional<List<String>> recordProjection, RowVisitor rowVisitor) {
+    checkKey(lower, lowerOperator, upper, upperOperator);
+    checkNotNull(rowVisitor, "rowVisitor should not be null");
+    boolean ranged = isNotEmpty(lower) || isNotEmpty(upper);
+    checkArgument(!ranged || !tableDef.isNoPrimaryKey(), "Range is not supported for table without primary key");
+
+    TableDef internalTableDef = tableDef.isNoPrimaryKey() ? cloneTableDefWithDefaultRowIdAsPk() : tableDef;
+    BitSet pkProjection = internalTableDef.createBitmapWithPkIncluded();
+    long startPageNumber;
+    long endPageNumber;
+    if (ranged) {
+      int keyColumnNum = tableDef.getPrimaryKeyColumnNum();
+      lower = makeTypeCompatible(lower, tableDef);
+      upper = makeTypeCompatible(upper, tableDef);
+      if (isEmpty(lower)) {
+        lower = constructMinRecord(keyColumnNum);
+        lowerOperator = GTE;
+      } else if (lower.size() < keyColumnNum) {
+        lower = expandRecord(lower, lowerOperator, keyColumnNum);
+      }
+      if (isEmpty(upper)) {
+        upper = constructMaxRecord(keyColumnNum);
+        upperOperator = LTE;
+      } else if (upper.size() < keyColumnNum) {
+        upper = expandRecord(upper, upperOperator, keyColumnNum);
+      }
+      if (keyComparator.compare(lower, upper, tableDef.getPrimaryKeyColumns()) > 0) {
+        return 0L;
+      }
+      Pair<Long, Long> startAndEndPageNumber = queryStartAndEndPageNumber(tableDef, ROOT_PAGE_NUMBER,
+          lower, lowerOperator, upper, upperOperator, pkProjection);
+      startPageNumber = startAndEndPageNumber.getFirst();
+      endPageNumber = startAndEndPageNumber.getSecond();
+    } else {
+      startPageNumber = queryStartPage(internalTableDef, ROOT_PAGE_NUMBER, pkProjection);
+      endPageNumber = queryEndPage(internalTableDef, ROOT_PAGE_NUMBER, pkProjection);
+    }
+
+    RecordDecoder decoder = getRecordDecoder(internalTableDef, true, transformProjection(recordProjection));
+    Row row = new Row(internalTableDef, columnDecoder);
+    List<Column> keyColumns = internalTableDef.getPrimaryKeyColumns();
+    BinaryKey lowerKey = ranged ? encodeKey(internalTableDef, lower) : null;
+    BinaryKey upperKey = ranged ? encodeKey(internalTableDef, upper) : null;
+    boolean binaryBounds = lowerKey != null && upperKey != null;
+    long count = 0L;
+    long pageNumber = startPageNumber;
+    while (true) {
+      Index index = loadIndexPage(pageNumber);
+      try {
+        // records between start page and end page are all within range
+        boolean boundary = ranged && (pageNumber == startPageNumber || pageNumber == endPageNumber);
+        SliceInput sliceInput = index.getSliceInput();
+        int supremumPos = index.getSupremum().getPrimaryKeyPosition();
+        int recordPos = index.getInfimum().nextRecordPosition();
+        while (recordPos != supremumPos) {
+          // next record offset is the last 2 bytes of record header
+          sliceInput.setPosition(recordPos - 2);
+          int nextRecordPos = recordPos + sliceInput.readShort();
+          if (boundary && binaryBounds) {
+            // compare in bytes before locating columns
+            if (!upperQualified(upperKey.compare(sliceInput, recordPos), upperOperator)) {
+              return count;
+            }
+            if (!lowerQualified(lowerKey.compare(sliceInput, recordPos), lowerOperator)) {
+              recordPos = nextRecordPos;
+              continue;
+            }
+          }
+          decoder.locate(sliceInput, pageNumber, recordPos, row);
+          if (boundary && !binaryBounds) {
+            List<Object> key = new ArrayList<>(keyColumns.size());
+            for (Column keyColumn : keyColumns) {
+              key.add(row.get(keyColumn.getOrdinal()));
+            }
+            if (!upperQualified(keyColumns, key, upper, upperOperator)) {
+              return count;
+            }
+            if (!lowerQualified(keyColumns, key, lower, lowerOperator)) {
+              recordPos = nextRecordPos;
+              continue;
+            }
+          }
+          rowVisitor.visit(row);
+          count++;
+          recordPos = nextRecordPos;
+        }
+        Long nextPageNumber = index.getInnerPage().getFilHeader().getNextPage();
+        if (pageNumber == endPageNumber || nextPageNumber == null) {
+          return count;
+        }
+        pageNumber = nextPageNumber;
+      } finally {
+        index.release();
+      }
+    }
+  }
+
+  /**
+   * Scan leaf pages in primary key order, each page is decoded into the same {@link ColumnBatch}
+   * by {@link VectorizedPageReader}, empty pages are skipped.
+   */
+  @Override
+  public long scanBatch(Optional<List<String>> recordProjection, Consumer<ColumnBatch> batchConsumer) {
+    checkNotNull(batchConsumer, "batchConsumer should not be null");
+    TableDef internalTableDef = tableDef.isNoPrimaryKey() ? cloneTableDefWithDefaultRowIdAsPk() : tableDef;
+    BitSet pkProjection = internalTableDef.createBitmapWithPkIncluded();
+    long pageNumber = queryStartPage(internalTableDef, ROOT_PAGE_NUMBER, pkProjection);
+
+    BitSet projection = transformProjection(recordProjection);
+    BitSet batchProjection = projection;
+    if (projection == NOP_PROJECTION) {
+      batchProjection = new BitSet(tableDef.getColumnNum());
+      batchProjection.set(0, tableDef.getColumnNum());
+    }
+    VectorizedPageReader pageReader = new VectorizedPageReader(getRecordDecoder(internalTableDef, true, projection),
+        new Row(internalTableDef, columnDecoder), new ColumnBatch(tableDef, batchProjection));
+    long count = 0L;
+    while (true) {
+      Index index = loadIndexPage(pageNumber);
+      Long nextPageNumber;
+      try {
+        ColumnBatch batch = pageReader.read(index);
+        if (batch.size() > 0) {
+          batchConsumer.accept(batch);
+          count += batch.size();
+        }
+        nextPageNumber = index.getInnerPage().getFilHeader().getNextPage();
+      } finally {
+        index.release();
+      }
+      if (nextPageNumber == null) {
+        return count;
+      }
+      pageNumber = nextPageNumber;
+    }
+  }
+
+  /**
+   * Scan all records of a tablespace in parallel, see {@link ParallelIndexScanner}.
+   * <p>
+   * Pool can be set by {@link #setScanPool(ForkJoinPool)}, default pool is decided by
+   * {@link com.alibaba.innodb.java.reader.config.ReaderSystemProperty#PARALLEL_SCAN_PARALLELISM}.
+   */
+  @Override
+  public long parallelScan(Optional<Predicate<GenericRecord>> recordPredicate, Optional<List<String>> recordProjection,
+                           boolean ordered, Consumer<GenericRecord> recordConsumer) {
+    BitSet projection = transformProjection(recordProjection);
+    ParallelIndexScanner scanner = new ParallelIndexScanner(scanPool, this::loadChildPageNumbers,
+        (pageNumber, consumer) -> traverseBPlusTree(tableDef, pageNumber, consumer, recordPredicate, projection,
+            false));
+    return scanner.scan(ROOT_PAGE_NUMBER, ordered, recordConsumer);
+  }
+
+  /**
+   * Scan leaf pages of clustered index in physical order, see
+   * {@link IndexService#unorderedScan(Optional, Optional, Consumer)}.
+   * <p>
+   * Pages are loaded extent by extent by {@link ExtentReader}, a page is decoded only if it
+   * is an index page in use whose index id is the same as root page and level is 0.
+   */
+  @Override
+  public long unorderedScan(Optional<Predicate<GenericRecord>> recordPredicate,
+                            Optional<List<String>> recordProjection, Consumer<GenericRecord> recordConsumer) {
+    checkNotNull(recordConsumer, "consumer should not be null");
+    BitSet projection = transformProjection(recordProjection);
+    Predicate<GenericRecord> predicate = isOptionalPresent(recordPredicate) ? recordPredicate.get() : null;
+    long indexId;
+    Index root = loadIndexPage(ROOT_PAGE_NUMBER);
+    try {
+      checkState(root.isRootPage(), "Root page is wrong which should not happen");
+      indexId = root.getIndexHeader().getIndexId();
+    } finally {
+      root.release();
+    }
+
+    ExtentReader extentReader = new ExtentReader(storageService);
+    Iterator<InnerPage> iterator = extentReader.pageIterator(true);
+    long count = 0L;
+    while (iterator.hasNext()) {
+      InnerPage page = iterator.next();
+      try {
+        // page freed from B+ tree may still look like a leaf page
+        boolean indexPage = PageType.INDEX.equals(page.pageType())
+            && !extentReader.isFreePage(page.getPageNumber());
+        if (!indexPage) {
+          continue;
+        }
+        Index index = new Index(page, tableDef);
+        boolean clusteredLeafPage = index.isLeafPage() && index.getIndexHeader().getIndexId() == indexId;
+        if (!clusteredLeafPage) {
+          continue;
+        }
+        for (GenericRecord record : queryWithinIndexPage(tableDef, index, projection)) {
+          if (predicate == null || predicate.test(record)) {
+            recordConsumer.accept(record);
+            count++;
+          }
+        }
+      } finally {
+        page.release();
+      }
+    }
+    log.debug("Unordered scan {} records, {} free extents skipped", count, extentReader.getSkippedExtentCount());
+    return count;
+  }
+
+  /**
+   * Aggregate records by {@link GroupByAggregator}, subtrees split by {@link ParallelIndexScanner}
+   * are visited in parallel, leaf pages of a subtree are walked through from the leftmost one
+   * to the rightmost one and records are located into a {@link Row} of the task.
+   */
+  @Override
+  public long aggregate(List<String> groupBy, List<Aggregation> aggregations, Optional<Predicate<Row>> rowPredicate,
+                        Optional<List<String>> recordProjection, Consumer<AggregateRow> resultConsumer) {
+    checkNotNull(resultConsumer, "consumer should not be null");
+    TableDef internalTableDef = tableDef.isNoPrimaryKey() ? cloneTableDefWithDefaultRowIdAsPk() : tableDef;
+    BitSet pkProjection = internalTableDef.createBitmapWithPkIncluded();
+    Predicate<Row> predicate = isOptionalPresent(rowPredicate) ? rowPredicate.get() : null;
+    try (GroupByAggregator aggregator = new GroupByAggregator(tableDef, columnDecoder, groupBy, aggregations,
+        aggregateMemoryBudget, scanPool.getParallelism(), new File(AGGREGATE_SPILL_DIR.value()))) {
+      BitSet projection = isOptionalPresent(recordProjection)
+          ? transformProjection(recordProjection.get()) : tableDef.createBitmapWithPkIncluded();
+      projection.or(aggregator.columns());
+      RecordDecoder decoder = getRecordDecoder(internalTableDef, true, projection);
+      ParallelIndexScanner scanner = new ParallelIndexScanner(scanPool, this::loadChildPageNumbers);
+      scanner.forEachSubtree(ROOT_PAGE_NUMBER, subtreePageNumber -> {
+        GroupByAggregator.Partial partial = aggregator.partial();
+        Row row = new Row(internalTableDef, columnDecoder);
+        long startPageNumber = queryStartPage(internalTableDef, subtreePageNumber, pkProjection);
+        long endPageNumber = queryEndPage(internalTableDef, subtreePageNumber, pkProjection);
+        visitLeafPages(startPageNumber, endPageNumber, decoder, row, r -> {
+          if (predicate == null || predicate.test(r)) {
+            partial.accept(r);
+          }
+        });
+      });
+      return aggregator.finish(resultConsumer);
+    }
+  }
+
+  /**
+   * Locate all records of leaf pages from start page to end page into row one by one.
+   *
+   * @param startPageNumber start leaf page number
+   * @param endPageNumber   end leaf page number, reachable from start page by next page pointers
+   * @param decoder         decoder of leaf page records
+   * @param row             row to locate records into
+   * @param rowVisitor      visitor of rows
+   */
+  private void visitLeafPages(long startPageNumber, long endPageNumber, RecordDecoder decoder, Row row,
+                              RowVisitor rowVisitor) {
+    long pageNumber = startPageNumber;
+    while (true) {
+      Index index = loadIndexPage(pageNumber);
+      Long nextPageNumber;
+      try {
+        SliceInput sliceInput = index.getSliceInput();
+        int supremumPos = index.getSupremum().getPrimaryKeyPosition();
+        int recordPos = index.getInfimum().nextRecordPosition();
+        while (recordPos != supremumPos) {
+          // next record offset is the last 2 bytes of record header
+          sliceInput.setPosition(recordPos - 2);
+          int nextRecordPos = recordPos + sliceInput.readShort();
+          decoder.locate(sliceInput, pageNumber, recordPos, row);
+          rowVisitor.visit(row);
+          recordPos = nextRecordPos;
+        }
+        nextPageNumber = index.getInnerPage().getFilHeader().getNextPage();
+      } finally {
+        index.release();
+      }
+      if (pageNumber == endPageNumber || nextPageNumber == null) {
+        return;
+      }
+      pageNumber = nextPageNumber;
+    }
+  }
+
+  /**
+   * Set pool for {@link #parallelScan(Optional, Optional, boolean, Consumer)}.
+   *
+   * @param scanPool pool
+   */
+  public void setScanPool(ForkJoinPool scanPool) {
+    this.scanPool = checkNotNull(scanPool, "scanPool should not be null");
+  }
+
+  /**
+   * Load child page numbers of a page.
+   *
+   * @param pageNumber page number
+   * @return child page numbers in key order, null if it is leaf page
+   */
+  private long[] loadChildPageNumbers(long pageNumber) {
+    Index index = loadIndexPage(pageNumber);
+    try {
+      if (index.isLeafPage()) {
+        return null;
+      }
+      return queryWithinIndexPage(tableDef, index).stream().mapToLong(GenericRecord::getChildPageNumber).toArray();
+    } finally {
+      index.release();
+    }
+  }
+
   /**
    * Query record by primary key in a tablespace with projection list.
    * <p>
@@ -270,15 +669,295 @@ public class IndexServiceImpl implements IndexService {
     checkArgument(key.size() == tableDef.getPrimaryKeyColumnNum(),
         "Search key count not match, expected " + tableDef.getPrimaryKeyColumnNum());
 
-    key = makeTypeCompatible(key, tableDef);
-    BitSet projection = transformProjection(recordProjection);
-    Index index = loadIndexPage(ROOT_PAGE_NUMBER);
-    checkState(index.isRootPage(), "Root page is wrong which should not happen");
-    GenericRecord record = binarySearchByDirectory(tableDef, ROOT_PAGE_NUMBER, index, key, projection);
-    if (record == null || DumbGenericRecord.class.equals(record.getClass())) {
-      return null;
+    key = makeTypeCompatible(key, tableDef);
+    BitSet projection = transformProjection(recordProjection);
+    NonLeafLevelCache cache = nonLeafLevelCache;
+    long pageNumber = cache == null ? ROOT_PAGE_NUMBER : cache.searchLeafPageNumber(key, keyComparator);
+    Index index = loadIndexPage(pageNumber);
+    GenericRecord record;
+    try {
+      if (cache == null) {
+        checkState(index.isRootPage(), "Root page is wrong which should not happen");
+      } else {
+        checkState(index.isLeafPage(), "Page " + pageNumber + " should be leaf page");
+      }
+      record = binarySearchByDirectory(tableDef, pageNumber, index, key, projection);
+    } finally {
+      index.release();
+    }
+    if (record == null || DumbGenericRecord.class.equals(record.getClass())) {
+      return null;
+    }
+    return record;
+  }
+
+  /**
+   * Query record by primary key asynchronously.
+   * <p>
+   * If storage service is {@link AsyncStorageService}, every level of B+ tree is searched
+   * when the page is loaded without blocking any thread, otherwise pages are loaded
+   * synchronously in the calling thread.
+   */
+  @Override
+  public CompletableFuture<GenericRecord> queryByPrimaryKeyAsync(List<Object> key,
+                                                                 Optional<List<String>> recordProjection) {
+    checkArgument(isNotEmpty(key), "Key should not be empty");
+    checkArgument(!anyElementEmpty(key), "Key should not contain null elements");
+    checkArgument(key.size() == tableDef.getPrimaryKeyColumnNum(),
+        "Search key count not match, expected " + tableDef.getPrimaryKeyColumnNum());
+
+    List<Object> targetKey = makeTypeCompatible(key, tableDef);
+    BitSet projection = transformProjection(recordProjection);
+    NonLeafLevelCache cache = nonLeafLevelCache;
+    long pageNumber = cache == null ? ROOT_PAGE_NUMBER : cache.searchLeafPageNumber(targetKey, keyComparator);
+    return searchAsync(tableDef, pageNumber, targetKey, encodeKey(tableDef, targetKey), projection)
+        .thenApply(record -> record == null || DumbGenericRecord.class.equals(record.getClass()) ? null : record);
+  }
+
+  private CompletableFuture<GenericRecord> searchAsync(TableDef tableDef, long pageNumber, List<Object> targetKey,
+                                                       BinaryKey binaryKey, BitSet projection) {
+    return loadIndexPageAsync(pageNumber).thenCompose(index -> {
+      GenericRecord record;
+      try {
+        if (pageNumber == ROOT_PAGE_NUMBER) {
+          checkState(index.isRootPage(), "Root page is wrong which should not happen");
+        }
+        record = searchWithinPage(tableDef, pageNumber, index, targetKey, binaryKey, projection);
+        if (index.isLeafPage()) {
+          return CompletableFuture.completedFuture(record);
+        }
+      } finally {
+        index.release();
+      }
+      return searchAsync(tableDef, record.getChildPageNumber(), targetKey, binaryKey, projection);
+    });
+  }
+
+  /**
+   * Query records by a batch of primary keys.
+   * <p>
+   * Keys are sorted by {@link KeyComparator} and partitioned into child pages while walking
+   * down B+ tree level by level, so every page is loaded and searched once for all keys
+   * falling into it. Pages of the same level are loaded in ascending page number order in
+   * batches by {@link StorageService#loadPages(long[])}. If non-leaf levels are pinned, keys
+   * are partitioned into leaf pages directly.
+   */
+  @Override
+  public List<GenericRecord> queryByPrimaryKeys(Collection<List<Object>> keys,
+                                                Optional<List<String>> recordProjection) {
+    checkNotNull(keys, "Keys should not be null");
+    List<List<Object>> targetKeys = new ArrayList<>(keys.size());
+    for (List<Object> key : keys) {
+      checkArgument(isNotEmpty(key), "Key should not be empty");
+      checkArgument(!anyElementEmpty(key), "Key should not contain null elements");
+      checkArgument(key.size() == tableDef.getPrimaryKeyColumnNum(),
+          "Search key count not match, expected " + tableDef.getPrimaryKeyColumnNum());
+      targetKeys.add(makeTypeCompatible(key, tableDef));
+    }
+    BitSet projection = transformProjection(recordProjection);
+    GenericRecord[] result = new GenericRecord[targetKeys.size()];
+    if (targetKeys.isEmpty()) {
+      return Arrays.asList(result);
+    }
+
+    // positions of keys in input order, sorted by key
+    Integer[] sorted = new Integer[targetKeys.size()];
+    for (int i = 0; i < sorted.length; i++) {
+      sorted[i] = i;
+    }
+    Arrays.sort(sorted, (a, b) -> keyComparator.compare(targetKeys.get(a), targetKeys.get(b),
+        tableDef.getPrimaryKeyColumns()));
+    List<List<Object>> sortedKeys = new ArrayList<>(sorted.length);
+    for (Integer position : sorted) {
+      sortedKeys.add(targetKeys.get(position));
+    }
+
+    List<PageKeys> pages;
+    NonLeafLevelCache cache = nonLeafLevelCache;
+    if (cache == null) {
+      Index root = loadIndexPage(ROOT_PAGE_NUMBER);
+      pages = new ArrayList<>();
+      try {
+        checkState(root.isRootPage(), "Root page is wrong which should not happen");
+        searchKeysWithinPage(root, new PageKeys(root.getPageNumber(), 0, sortedKeys.size()), sortedKeys, sorted,
+            projection, result, pages);
+      } finally {
+        root.release();
+      }
+    } else {
+      pages = partitionByLeafPage(cache, sortedKeys);
+    }
+
+    while (!pages.isEmpty()) {
+      pages.sort(Comparator.comparingLong(p -> p.pageNumber));
+      List<PageKeys> children = new ArrayList<>(pages.size());
+      for (int from = 0; from < pages.size(); from += LOAD_BATCH_PAGES) {
+        List<PageKeys> batch = pages.subList(from, Math.min(from + LOAD_BATCH_PAGES, pages.size()));
+        long[] pageNumbers = batch.stream().mapToLong(p -> p.pageNumber).toArray();
+        List<InnerPage> innerPages = storageService.loadPages(pageNumbers);
+        for (int i = 0; i < innerPages.size(); i++) {
+          Index index = new Index(innerPages.get(i), tableDef);
+          try {
+            searchKeysWithinPage(index, batch.get(i), sortedKeys, sorted, projection, result, children);
+          } finally {
+            index.release();
+          }
+        }
+      }
+      pages = children;
+    }
+    return Arrays.asList(result);
+  }
+
+  /**
+   * Search keys within one page, for leaf page records are set to result, for non-leaf page
+   * keys are partitioned into child pages.
+   */
+  private void searchKeysWithinPage(Index index, PageKeys pageKeys, List<List<Object>> sortedKeys, Integer[] sorted,
+                                    BitSet projection, GenericRecord[] result, List<PageKeys> children) {
+    PageKeys child = null;
+    for (int i = pageKeys.from; i < pageKeys.to; i++) {
+      GenericRecord record = searchWithinPage(tableDef, pageKeys.pageNumber, index, sortedKeys.get(i),
+          encodeKey(tableDef, sortedKeys.get(i)), projection);
+      if (index.isLeafPage()) {
+        if (record != null && !DumbGenericRecord.class.equals(record.getClass())) {
+          result[sorted[i]] = record;
+        }
+      } else if (child != null && child.pageNumber == record.getChildPageNumber()) {
+        child.to = i + 1;
+      } else {
+        child = new PageKeys(record.getChildPageNumber(), i, i + 1);
+        children.add(child);
+      }
+    }
+  }
+
+  private List<PageKeys> partitionByLeafPage(NonLeafLevelCache cache, List<List<Object>> sortedKeys) {
+    List<PageKeys> leaves = new ArrayList<>();
+    PageKeys leaf = null;
+    for (int i = 0; i < sortedKeys.size(); i++) {
+      long pageNumber = cache.searchLeafPageNumber(sortedKeys.get(i), keyComparator);
+      if (leaf != null && leaf.pageNumber == pageNumber) {
+        leaf.to = i + 1;
+      } else {
+        leaf = new PageKeys(pageNumber, i, i + 1);
+        leaves.add(leaf);
+      }
+    }
+    return leaves;
+  }
+
+  /**
+   * Page to search and the range of sorted keys falling into it.
+   */
+  private static final class PageKeys {
+
+    private final long pageNumber;
+
+    private final int from;
+
+    private int to;
+
+    PageKeys(long pageNumber, int from, int to) {
+      this.pageNumber = pageNumber;
+      this.from = from;
+      this.to = to;
+    }
+  }
+
+  /**
+   * Load all non-leaf levels of clustered index and pin them in memory as
+   * {@link NonLeafLevelCache}, after that primary key lookups search non-leaf levels in memory
+   * and load only the leaf page.
+   * <p>
+   * Pages are loaded level by level from root, every level is loaded in batches by
+   * {@link StorageService#loadPages(long[])}. If the estimated memory exceeds the budget,
+   * nothing is pinned.
+   *
+   * @param maxBytes budget of memory in bytes
+   * @return true if pinned, false if the tree is too large or root is a leaf page
+   */
+  @Override
+  public boolean pinNonLeafLevels(long maxBytes) {
+    checkArgument(maxBytes > 0, "maxBytes should be positive");
+    long start = System.currentTimeMillis();
+    TableDef keyTableDef = tableDef.isNoPrimaryKey() ? cloneTableDefWithDefaultRowIdAsPk() : tableDef;
+    Index root = loadIndexPage(ROOT_PAGE_NUMBER);
+    NonLeafLevelCache.Builder builder;
+    List<Long> childPageNumbers;
+    try {
+      checkState(root.isRootPage(), "Root page is wrong which should not happen");
+      int numOfLevels = root.getIndexHeader().getPageLevel();
+      if (numOfLevels == 0) {
+        log.info("Root page is leaf page, no non-leaf level to pin");
+        return false;
+      }
+      builder = new NonLeafLevelCache.Builder(root.getPageNumber(), keyTableDef.getPrimaryKeyColumns(),
+          numOfLevels, maxBytes);
+      childPageNumbers = new ArrayList<>();
+      if (!pinNonLeafPage(keyTableDef, root, builder, numOfLevels > 1 ? childPageNumbers : null)) {
+        return refusePin(builder, maxBytes);
+      }
+    } finally {
+      root.release();
+    }
+    while (!childPageNumbers.isEmpty()) {
+      List<Long> nextLevel = new ArrayList<>(childPageNumbers.size() * 16);
+      for (int from = 0; from < childPageNumbers.size(); from += LOAD_BATCH_PAGES) {
+        int to = Math.min(from + LOAD_BATCH_PAGES, childPageNumbers.size());
+        long[] batch = childPageNumbers.subList(from, to).stream().mapToLong(Long::longValue).toArray();
+        boolean withinBudget = true;
+        for (InnerPage page : storageService.loadPages(batch)) {
+          // pages of the batch are all released even if budget is exceeded
+          Index index = new Index(page, tableDef);
+          try {
+            checkState(!index.isLeafPage(), "Page " + index.getPageNumber() + " should be non-leaf page");
+            withinBudget = withinBudget && pinNonLeafPage(keyTableDef, index, builder,
+                index.getIndexHeader().getPageLevel() > 1 ? nextLevel : null);
+          } finally {
+            index.release();
+          }
+        }
+        if (!withinBudget) {
+          return refusePin(builder, maxBytes);
+        }
+      }
+      childPageNumbers = nextLevel;
+    }
+    nonLeafLevelCache = builder.build();
+    log.info("Pin non-leaf levels {} using {}ms", nonLeafLevelCache, System.currentTimeMillis() - start);
+    return true;
+  }
+
+  private boolean pinNonLeafPage(TableDef keyTableDef, Index index, NonLeafLevelCache.Builder builder,
+                                 List<Long> nextLevel) {
+    List<GenericRecord> records = queryWithinIndexPage(keyTableDef, index);
+    List<List<Object>> keys = new ArrayList<>(records.size());
+    long[] children = new long[records.size()];
+    for (int i = 0; i < children.length; i++) {
+      GenericRecord record = records.get(i);
+      keys.add(record.getPrimaryKey());
+      children[i] = record.getChildPageNumber();
+      if (nextLevel != null) {
+        nextLevel.add(children[i]);
+      }
     }
-    return record;
+    return builder.add(index.getPageNumber(), keys, children);
+  }
+
+  private boolean refusePin(NonLeafLevelCache.Builder builder, long maxBytes) {
+    log.warn("Refuse to pin non-leaf levels since estimated memory exceeds {} bytes, at least {} bytes are needed",
+        maxBytes, builder.getEstimatedBytes());
+    return false;
+  }
+
+  /**
+   * Get pinned non-leaf levels.
+   *
+   * @return pinned non-leaf levels, null if not pinned
+   */
+  public NonLeafLevelCache getNonLeafLevelCache() {
+    return nonLeafLevelCache;
   }
 
   /**
@@ -324,6 +1003,42 @@ public class IndexServiceImpl implements IndexService {
         recordProjection, ascOrder);
   }
 
+  /**
+   * Return a spliterator to do range query in ascending order, see {@link RecordSpliterator}.
+   * <p>
+   * For table without primary key, the spliterator cannot be split.
+   */
+  @Override
+  public Spliterator<GenericRecord> getRangeQuerySpliterator(List<Object> lower, ComparisonOperator lowerOperator,
+                                                             List<Object> upper, ComparisonOperator upperOperator,
+                                                             Optional<List<String>> recordProjection) {
+    checkKey(lower, lowerOperator, upper, upperOperator);
+    if (tableDef.isNoPrimaryKey()) {
+      return Spliterators.spliteratorUnknownSize(getRangeQueryIterator(lower, lowerOperator, upper, upperOperator,
+          recordProjection, true), Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.IMMUTABLE);
+    }
+    int keyColumnNum = tableDef.getPrimaryKeyColumnNum();
+    List<Object> fullLower = makeTypeCompatible(lower, tableDef);
+    List<Object> fullUpper = makeTypeCompatible(upper, tableDef);
+    if (isEmpty(fullLower)) {
+      fullLower = constructMinRecord(keyColumnNum);
+      lowerOperator = GTE;
+    } else if (fullLower.size() < keyColumnNum) {
+      fullLower = expandRecord(fullLower, lowerOperator, keyColumnNum);
+    }
+    if (isEmpty(fullUpper)) {
+      fullUpper = constructMaxRecord(keyColumnNum);
+      upperOperator = LTE;
+    } else if (fullUpper.size() < keyColumnNum) {
+      fullUpper = expandRecord(fullUpper, upperOperator, keyColumnNum);
+    }
+    BitSet pkProjection = tableDef.createBitmapWithPkIncluded();
+    return new RecordSpliterator(keyComparator, tableDef.getPrimaryKeyColumns(), ROOT_PAGE_NUMBER,
+        this::loadIndexPage, index -> queryWithinIndexPage(tableDef, index, pkProjection),
+        (l, lo, u, uo) -> getRangeQueryIterator(l, lo, u, uo, recordProjection, true),
+        fullLower, lowerOperator, fullUpper, upperOperator);
+  }
+
   /**
    * Return record iterator by secondary key (SK) in a tablespace. This is first go through all
    * secondary keys and look up record back to clustered index.
@@ -520,8 +1235,32 @@ public class IndexServiceImpl implements IndexService {
     final ComparisonOperator finalLowerOperator = lowerOperator;
     final ComparisonOperator finalUpperOperator = upperOperator;
 
-    // load first page lazily
+    // load first page lazily, then decode records one at a time
     return new RecordIterator() {
+
+      private final PageRecordCursor cursor = new PageRecordCursor();
+
+      private final BitSet keyProjection = tableDef.createBitmapWithPkIncluded();
+
+      private BinaryKey lowerKey;
+
+      private BinaryKey upperKey;
+
+      /**
+       * Bounds are checked on start and end page only.
+       */
+      private boolean checkBounds;
+
+      /**
+       * Records are skipped until the bound at the beginning of iteration order is met, that
+       * is lower bound in ascending order, or upper bound in descending order.
+       */
+      private boolean startBoundPending;
+
+      private GenericRecord nextRecord;
+
+      private boolean finished;
+
       @Override
       public void init() {
         // for initialization, we only need to search by pk projection
@@ -538,9 +1277,10 @@ public class IndexServiceImpl implements IndexService {
             currPageNumber = startAndEndPageNumber.getSecond();
             endPageNumber = startAndEndPageNumber.getFirst();
           }
-          indexPage = loadIndexPage(currPageNumber);
-          curr = queryWithinIndexPage(tableDef, indexPage, true,
-              finalLower, finalLowerOperator, finalUpper, finalUpperOperator, projection);
+          lowerKey = encodeKey(tableDef, finalLower);
+          upperKey = encodeKey(tableDef, finalUpper);
+          checkBounds = true;
+          startBoundPending = true;
         } else {
           if (asc) {
             currPageNumber = queryStartPage(tableDef, rootPageNumber, pkProjection);
@@ -549,50 +1289,108 @@ public class IndexServiceImpl implements IndexService {
             currPageNumber = queryEndPage(tableDef, rootPageNumber, pkProjection);
             endPageNumber = queryStartPage(tableDef, rootPageNumber, pkProjection);
           }
-          indexPage = loadIndexPage(currPageNumber);
-          curr = queryWithinIndexPage(tableDef, indexPage, projection);
-        }
-        if (!asc) {
-          Collections.reverse(curr);
         }
+        indexPage = loadIndexPage(currPageNumber);
+        cursor.reset(indexPage, asc);
 
         if (log.isDebugEnabled()) {
-          log.debug("RangeQuery, start page {} records, {}", curr.size(), indexPage.getIndexHeader());
+          log.debug("RangeQuery, start page {}", indexPage.getIndexHeader());
+        }
+        if (readAheadPages > 0 && currPageNumber != endPageNumber) {
+          Long nextPageNumber = nextPageNumber();
+          if (nextPageNumber != null) {
+            readAhead = new PageReadAhead(this, IndexServiceImpl.this::loadIndexPage,
+                nextPageNumber, endPageNumber, asc, readAheadPages);
+          }
         }
         initialized = true;
       }
 
       @Override
       public boolean doHasNext() {
-        if (currIndex == curr.size()) {
-          if (currPageNumber != endPageNumber) {
-            if (asc) {
-              currPageNumber = indexPage.getInnerPage().getFilHeader().getNextPage();
-            } else {
-              currPageNumber = indexPage.getInnerPage().getFilHeader().getPrevPage();
-            }
-            Index nextIndexPage = loadIndexPage(currPageNumber);
+        while (nextRecord == null) {
+          if (finished) {
+            return false;
+          }
+          int position = cursor.next();
+          if (position != PageRecordCursor.END) {
+            nextRecord = checkBounds ? readWithinBounds(position)
+                : readRecordAt(tableDef, indexPage, position, projection);
+          } else if (currPageNumber != endPageNumber) {
+            // records are decoded, only parsed headers of the page are accessed afterwards
+            indexPage.release();
+            currPageNumber = nextPageNumber();
+            Index nextIndexPage = readAhead != null ? readAhead.next() : loadIndexPage(currPageNumber);
+            checkState(nextIndexPage != null && nextIndexPage.getInnerPage().getPageNumber() == currPageNumber,
+                "Read ahead page mismatch, expected page " + currPageNumber);
             if (log.isDebugEnabled()) {
-              log.debug("RangeQuery, load page {} records, {}", nextIndexPage.getIndexHeader());
-            }
-            this.indexPage = nextIndexPage;
-            if (currPageNumber != endPageNumber || isNoPk) {
-              this.curr = queryWithinIndexPage(tableDef, nextIndexPage, projection);
-            } else {
-              this.curr = queryWithinIndexPage(tableDef, nextIndexPage, true,
-                  finalLower, finalLowerOperator, finalUpper, finalUpperOperator, projection);
+              log.debug("RangeQuery, load page {}", nextIndexPage.getIndexHeader());
             }
-            if (!asc) {
-              Collections.reverse(curr);
-            }
-            this.currIndex = 0;
-            return true;
+            indexPage = nextIndexPage;
+            // end page may have no record within range, e.g. upper bound is the first key of it
+            checkBounds = !isNoPk && currPageNumber == endPageNumber;
+            cursor.reset(indexPage, asc);
           } else {
-            return false;
+            close();
           }
         }
         return true;
       }
+
+      @Override
+      public GenericRecord next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        GenericRecord record = nextRecord;
+        nextRecord = null;
+        return record;
+      }
+
+      /**
+       * Check bounds with key of record, decoded with projection only if it is within range.
+       *
+       * @return record, or null if it is out of range
+       */
+      private GenericRecord readWithinBounds(int position) {
+        // key is compared in bytes if both bounds are encoded
+        GenericRecord keyRecord = lowerKey != null && upperKey != null
+            ? null : readRecordAt(tableDef, indexPage, position, keyProjection);
+        SliceInput sliceInput = indexPage.getSliceInput();
+        if (startBoundPending) {
+          boolean qualified = asc
+              ? lowerQualified(compareKey(sliceInput, position, keyRecord, finalLower, lowerKey), finalLowerOperator)
+              : upperQualified(compareKey(sliceInput, position, keyRecord, finalUpper, upperKey), finalUpperOperator);
+          if (!qualified) {
+            return null;
+          }
+          startBoundPending = false;
+        }
+        boolean qualified = asc
+            ? upperQualified(compareKey(sliceInput, position, keyRecord, finalUpper, upperKey), finalUpperOperator)
+            : lowerQualified(compareKey(sliceInput, position, keyRecord, finalLower, lowerKey), finalLowerOperator);
+        if (!qualified) {
+          // records are ordered, all the following are out of range
+          close();
+          return null;
+        }
+        return keyRecord != null && keyProjection.equals(projection)
+            ? keyRecord : readRecordAt(tableDef, indexPage, position, projection);
+      }
+
+      private Long nextPageNumber() {
+        return asc ? indexPage.getInnerPage().getFilHeader().getNextPage()
+            : indexPage.getInnerPage().getFilHeader().getPrevPage();
+      }
+
+      @Override
+      public void close() {
+        finished = true;
+        super.close();
+        if (indexPage != null) {
+          indexPage.release();
+        }
+      }
     };
   }
 
@@ -602,8 +1400,14 @@ public class IndexServiceImpl implements IndexService {
                                                       BitSet projection) {
     checkKey(lower, lowerOperator, upper, upperOperator);
     Index index = loadIndexPage(rootPageNumber);
-    GenericRecord startRecord = binarySearchByDirectory(tableDef, rootPageNumber, index, lower, projection);
-    GenericRecord endRecord = binarySearchByDirectory(tableDef, rootPageNumber, index, upper, projection);
+    GenericRecord startRecord;
+    GenericRecord endRecord;
+    try {
+      startRecord = binarySearchByDirectory(tableDef, rootPageNumber, index, lower, projection);
+      endRecord = binarySearchByDirectory(tableDef, rootPageNumber, index, upper, projection);
+    } finally {
+      index.release();
+    }
     if (log.isDebugEnabled()) {
       log.debug("RangeQuery, start record(inc) is {}, end record(exc) is {}", startRecord, endRecord);
     }
@@ -628,12 +1432,14 @@ public class IndexServiceImpl implements IndexService {
     if (nextRecPos != supremum.getPrimaryKeyPosition()) {
       GenericRecord record = readRecord(tableDef, index.getPageNumber(), sliceInput,
           index.isLeafPage(), projection);
+      index.release();
       if (record.isLeafRecord()) {
         return record.getPageNumber();
       } else {
         return queryStartPage(tableDef, record.getChildPageNumber(), projection);
       }
     }
+    index.release();
     return pageNumber;
   }
 
@@ -659,6 +1465,7 @@ public class IndexServiceImpl implements IndexService {
           index.isLeafPage(), projection);
       nextRecPos = lastRecord.nextRecordPosition();
     }
+    index.release();
 
     if (lastRecord == null) {
       return pageNumber;
@@ -670,6 +1477,105 @@ public class IndexServiceImpl implements IndexService {
     return queryEndPage(tableDef, lastRecord.getChildPageNumber(), projection);
   }
 
+  /**
+   * Count records of leaf pages of clustered index by index header, see
+   * {@link PageHeaderScanner#countLeafRecords(long)}, the tablespace is read sequentially
+   * in parallel, pages are not decoded.
+   */
+  @Override
+  public long count() {
+    long indexId;
+    Index root = loadIndexPage(ROOT_PAGE_NUMBER);
+    try {
+      checkState(root.isRootPage(), "Root page is wrong which should not happen");
+      if (root.isLeafPage()) {
+        return root.getIndexHeader().getNumOfRecs();
+      }
+      indexId = root.getIndexHeader().getIndexId();
+    } finally {
+      root.release();
+    }
+    return new PageHeaderScanner(storageService).countLeafRecords(indexId);
+  }
+
+  /**
+   * Count records by primary key range, leaf pages are walked through by next page pointer
+   * from the start page to the end page like
+   * {@link #scan(List, ComparisonOperator, List, ComparisonOperator, Optional, RowVisitor)},
+   * only keys of records of these two pages are compared with bounds.
+   * <p>
+   * For table without primary key, range is not supported.
+   */
+  @Override
+  public long count(List<Object> lower, ComparisonOperator lowerOperator,
+                    List<Object> upper, ComparisonOperator upperOperator) {
+    checkKey(lower, lowerOperator, upper, upperOperator);
+    if (isEmpty(lower) && isEmpty(upper)) {
+      return count();
+    }
+    checkArgument(!tableDef.isNoPrimaryKey(), "Range is not supported for table without primary key");
+
+    int keyColumnNum = tableDef.getPrimaryKeyColumnNum();
+    lower = makeTypeCompatible(lower, tableDef);
+    upper = makeTypeCompatible(upper, tableDef);
+    if (isEmpty(lower)) {
+      lower = constructMinRecord(keyColumnNum);
+      lowerOperator = GTE;
+    } else if (lower.size() < keyColumnNum) {
+      lower = expandRecord(lower, lowerOperator, keyColumnNum);
+    }
+    if (isEmpty(upper)) {
+      upper = constructMaxRecord(keyColumnNum);
+      upperOperator = LTE;
+    } else if (upper.size() < keyColumnNum) {
+      upper = expandRecord(upper, upperOperator, keyColumnNum);
+    }
+    if (keyComparator.compare(lower, upper, tableDef.getPrimaryKeyColumns()) > 0) {
+      return 0L;
+    }
+    BitSet keyProjection = tableDef.createBitmapWithPkIncluded();
+    Pair<Long, Long> startAndEndPageNumber = queryStartAndEndPageNumber(tableDef, ROOT_PAGE_NUMBER,
+        lower, lowerOperator, upper, upperOperator, keyProjection);
+    long startPageNumber = startAndEndPageNumber.getFirst();
+    long endPageNumber = startAndEndPageNumber.getSecond();
+
+    BinaryKey lowerKey = encodeKey(tableDef, lower);
+    BinaryKey upperKey = encodeKey(tableDef, upper);
+    PageRecordCursor cursor = new PageRecordCursor();
+    long count = 0L;
+    long pageNumber = startPageNumber;
+    while (true) {
+      Index index = loadIndexPage(pageNumber);
+      try {
+        if (pageNumber == startPageNumber || pageNumber == endPageNumber) {
+          SliceInput sliceInput = index.getSliceInput();
+          cursor.reset(index, true);
+          for (int position = cursor.next(); position != PageRecordCursor.END; position = cursor.next()) {
+            // key is compared in bytes if both bounds are encoded
+            GenericRecord keyRecord = lowerKey != null && upperKey != null
+                ? null : readRecordAt(tableDef, index, position, keyProjection);
+            if (!upperQualified(compareKey(sliceInput, position, keyRecord, upper, upperKey), upperOperator)) {
+              return count;
+            }
+            if (lowerQualified(compareKey(sliceInput, position, keyRecord, lower, lowerKey), lowerOperator)) {
+              count++;
+            }
+          }
+        } else {
+          // records between start page and end page are all within range
+          count += index.getIndexHeader().getNumOfRecs();
+        }
+        Long nextPageNumber = index.getInnerPage().getFilHeader().getNextPage();
+        if (pageNumber == endPageNumber || nextPageNumber == null) {
+          return count;
+        }
+        pageNumber = nextPageNumber;
+      } finally {
+        index.release();
+      }
+    }
+  }
+
   /**
    * Range query records by primary key in a tablespace.
    * <p>
@@ -726,59 +1632,76 @@ public class IndexServiceImpl implements IndexService {
    *
    * @param tableDef        table definition
    * @param pageNumber      page number
-   * @param recordList      where record will be add to
-   * @param recordPredicate optional filtering record, if true then it will be added to result set,
+   * @param recordConsumer  where record will be passed to in primary key order
+   * @param recordPredicate optional filtering record, if true then it will be passed to consumer,
    *                        else skip it
    * @param projection      projection of selected column ordinal in bitmap
+   * @param lazy            if true, records of leaf pages are {@link LazyGenericRecord} which are
+   *                        valid only when they are passed to predicate or consumer
    */
-  private void traverseBPlusTree(TableDef tableDef, long pageNumber, List<GenericRecord> recordList,
+  private void traverseBPlusTree(TableDef tableDef, long pageNumber, Consumer<GenericRecord> recordConsumer,
                                  Optional<Predicate<GenericRecord>> recordPredicate,
-                                 BitSet projection) {
+                                 BitSet projection, boolean lazy) {
     Index index = loadIndexPage(pageNumber);
-    SliceInput sliceInput = index.getSliceInput();
-
-    if (log.isTraceEnabled()) {
-      log.trace("{}", index.getIndexHeader());
-    }
-    GenericRecord infimum = index.getInfimum();
-    GenericRecord supremum = index.getSupremum();
-    int nextRecPos = infimum.nextRecordPosition();
-    int recCounter = 0;
-    sliceInput.setPosition(nextRecPos);
+    PageScope scope = null;
+    try {
+      SliceInput sliceInput = index.getSliceInput();
+      if (lazy && index.isLeafPage()) {
+        scope = new PageScope(sliceInput.duplicate(), columnDecoder);
+      }
 
-    if (isOptionalPresent(recordPredicate)) {
-      // duplicate some code to avoid break branch prediction
-      Predicate<GenericRecord> predicate = recordPredicate.get();
-      while (nextRecPos != supremum.getPrimaryKeyPosition()) {
-        GenericRecord record = readRecord(tableDef, index.getPageNumber(), sliceInput,
-            index.isLeafPage(), projection);
-        if (record.isLeafRecord()) {
-          if (predicate.test(record)) {
-            recordList.add(record);
+      if (log.isTraceEnabled()) {
+        log.trace("{}", index.getIndexHeader());
+      }
+      GenericRecord infimum = index.getInfimum();
+      GenericRecord supremum = index.getSupremum();
+      int nextRecPos = infimum.nextRecordPosition();
+      int recCounter = 0;
+      sliceInput.setPosition(nextRecPos);
+
+      if (isOptionalPresent(recordPredicate)) {
+        // duplicate some code to avoid break branch prediction
+        Predicate<GenericRecord> predicate = recordPredicate.get();
+        while (nextRecPos != supremum.getPrimaryKeyPosition()) {
+          GenericRecord record = readRecord(tableDef, index.getPageNumber(), sliceInput,
+              index.isLeafPage(), projection, scope);
+          if (record.isLeafRecord()) {
+            if (predicate.test(record)) {
+              recordConsumer.accept(record);
+            }
+          } else {
+            traverseBPlusTree(tableDef, record.getChildPageNumber(), recordConsumer, recordPredicate, projection,
+                lazy);
           }
-        } else {
-          traverseBPlusTree(tableDef, record.getChildPageNumber(), recordList, recordPredicate, projection);
+          nextRecPos = record.nextRecordPosition();
+          recCounter++;
         }
-        nextRecPos = record.nextRecordPosition();
-        recCounter++;
-      }
-    } else {
-      while (nextRecPos != supremum.getPrimaryKeyPosition()) {
-        GenericRecord record = readRecord(tableDef, index.getPageNumber(), sliceInput,
-            index.isLeafPage(), projection);
-        if (record.isLeafRecord()) {
-          recordList.add(record);
-        } else {
-          traverseBPlusTree(tableDef, record.getChildPageNumber(), recordList, recordPredicate, projection);
+      } else {
+        while (nextRecPos != supremum.getPrimaryKeyPosition()) {
+          GenericRecord record = readRecord(tableDef, index.getPageNumber(), sliceInput,
+              index.isLeafPage(), projection, scope);
+          if (record.isLeafRecord()) {
+            recordConsumer.accept(record);
+          } else {
+            traverseBPlusTree(tableDef, record.getChildPageNumber(), recordConsumer, recordPredicate, projection,
+                lazy);
+          }
+          nextRecPos = record.nextRecordPosition();
+          recCounter++;
         }
-        nextRecPos = record.nextRecordPosition();
-        recCounter++;
       }
-    }
 
-    // double-check
-    if (recCounter != index.getIndexHeader().getNumOfRecs()) {
-      log.error("Records read and numOfRecs in index header not match!");
+      // double-check
+      if (recCounter != index.getIndexHeader().getNumOfRecs()) {
+        log.error("Records read and numOfRecs in index header not match!");
+      }
+    } finally {
+      if (scope != null) {
+        scope.close();
+      }
+      // children are traversed recursively before this page is done, so the number of
+      // buffers in use at the same time is bounded by tree height
+      index.release();
     }
   }
 
@@ -794,21 +1717,29 @@ public class IndexServiceImpl implements IndexService {
    * @param position   record starting position, usually it is the primary
    *                   key position
    * @param targetKey  search target key
+   * @param binaryKey  encoded search target key, null if records should be decoded to compare
    * @param projection projection of selected column ordinal in bitmap
-   * @return GenericRecord if found, or else DumbGenericRecord representing a closest record
+   * @return for leaf page, GenericRecord if found, or else DumbGenericRecord representing a
+   * closest record; for non-leaf page, node pointer record of the child page to search
    */
   private GenericRecord linearSearch(TableDef tableDef, long pageNumber,
                                      Index index, int position, List<Object> targetKey,
-                                     BitSet projection) {
+                                     BinaryKey binaryKey, BitSet projection) {
+    if (binaryKey != null) {
+      return linearSearch(tableDef, index, position, binaryKey, projection);
+    }
+    // only key is decoded to compare, the record returned is decoded again with projection
+    BitSet keyProjection = keyProjection(tableDef, index, projection);
     SliceInput sliceInput = index.getSliceInput();
     sliceInput.setPosition(position);
-    GenericRecord record = readRecord(tableDef, index.getPageNumber(), sliceInput, index.isLeafPage(), projection);
+    GenericRecord record = readRecord(tableDef, index.getPageNumber(), sliceInput, index.isLeafPage(), keyProjection);
     checkNotNull(record, "Record should not be null");
     log.debug("LinearSearch: page={}, level={}, key={}, header={}",
         pageNumber, index.getIndexHeader().getPageLevel(), record.getPrimaryKey(), record.getHeader());
+    int supremumPos = index.getSupremum().getPrimaryKeyPosition();
     GenericRecord preRecord = record;
     boolean isLeafPage = index.isLeafPage();
-    while (!record.equals(index.getSupremum())) {
+    while (record.getPrimaryKeyPosition() != supremumPos) {
       int compare = keyComparator.compare(record.getPrimaryKey(), targetKey, tableDef.getPrimaryKeyColumns());
       // if compare < 0 then continue to check next
       if (compare > 0) {
@@ -816,41 +1747,144 @@ public class IndexServiceImpl implements IndexService {
           return new DumbGenericRecord(record);
         } else {
           // corner case,对于比smallest还小的需要判断infimum
-          long childPageNumber = preRecord.getChildPageNumber();
           if (preRecord.getHeader().getRecordType() == RecordType.INFIMUM) {
-            childPageNumber = record.getChildPageNumber();
+            return record;
           }
-          return binarySearchByDirectory(tableDef, childPageNumber,
-              loadIndexPage(childPageNumber), targetKey, projection);
+          return preRecord;
         }
       } else if (compare == 0) {
-        if (isLeafPage) {
-          return record;
-        } else {
-          long childPageNumber = Utils.cast(record.getChildPageNumber());
-          return binarySearchByDirectory(tableDef, childPageNumber,
-              loadIndexPage(childPageNumber), targetKey, projection);
-        }
+        return keyProjection == projection
+            ? record : readRecordAt(tableDef, index, record.getPrimaryKeyPosition(), projection);
       }
 
       sliceInput.setPosition(record.nextRecordPosition());
       GenericRecord nextRecord = readRecord(tableDef, index.getPageNumber(),
-          sliceInput, index.isLeafPage(), projection);
+          sliceInput, index.isLeafPage(), keyProjection);
       preRecord = record;
       record = nextRecord;
     }
     if (isLeafPage) {
       return new DumbGenericRecord(record);
     } else {
-      long childPageNumber = Utils.cast(preRecord.getChildPageNumber());
-      return binarySearchByDirectory(tableDef, childPageNumber,
-          loadIndexPage(childPageNumber), targetKey, projection);
+      return preRecord;
+    }
+  }
+
+  /**
+   * Linear search a record in one page by comparing encoded key with records in bytes, only
+   * the record returned is decoded. Result is the same as
+   * {@link #linearSearch(TableDef, long, Index, int, List, BinaryKey, BitSet)} decoding every record.
+   */
+  private GenericRecord linearSearch(TableDef tableDef, Index index, int position, BinaryKey binaryKey,
+                                     BitSet projection) {
+    // closest record is not returned to user, only key is needed
+    BitSet keyProjection = keyProjection(tableDef, index, projection);
+    SliceInput sliceInput = index.getSliceInput();
+    int infimumPos = index.getInfimum().getPrimaryKeyPosition();
+    int supremumPos = index.getSupremum().getPrimaryKeyPosition();
+    boolean isLeafPage = index.isLeafPage();
+    int recordPos = position;
+    int preRecordPos = position;
+    while (recordPos != supremumPos) {
+      // infimum is the smallest
+      int compare = recordPos == infimumPos ? -1 : binaryKey.compare(sliceInput, recordPos);
+      if (compare > 0) {
+        if (isLeafPage) {
+          return new DumbGenericRecord(readRecordAt(tableDef, index, recordPos, keyProjection));
+        }
+        // corner case, return infimum if target key is smaller than the smallest record
+        return readRecordAt(tableDef, index, preRecordPos == infimumPos ? recordPos : preRecordPos, projection);
+      } else if (compare == 0) {
+        return readRecordAt(tableDef, index, recordPos, projection);
+      }
+      // next record offset is the last 2 bytes of record header
+      sliceInput.setPosition(recordPos - 2);
+      preRecordPos = recordPos;
+      recordPos += sliceInput.readShort();
+    }
+    if (isLeafPage) {
+      return new DumbGenericRecord(readRecordAt(tableDef, index, recordPos, keyProjection));
+    }
+    return readRecordAt(tableDef, index, preRecordPos, projection);
+  }
+
+  /**
+   * Projection to decode records with while searching, on leaf page only primary key is needed
+   * to compare, other columns, maybe stored in overflow pages, are skipped. Non-leaf page has
+   * only primary key and child page number, projection does not matter.
+   *
+   * @param tableDef   table definition
+   * @param index      page index
+   * @param projection projection of the record returned
+   * @return projection of primary key, or the given projection if they are the same
+   */
+  private BitSet keyProjection(TableDef tableDef, Index index, BitSet projection) {
+    if (!index.isLeafPage() || tableDef.getPrimaryKeyColumnNum() == tableDef.getColumnNum()) {
+      return projection;
+    }
+    BitSet keyProjection = tableDef.createBitmapWithPkIncluded();
+    return keyProjection.equals(projection) ? projection : keyProjection;
+  }
+
+  private GenericRecord readRecordAt(TableDef tableDef, Index index, int position, BitSet projection) {
+    SliceInput sliceInput = index.getSliceInput();
+    sliceInput.setPosition(position);
+    return readRecord(tableDef, index.getPageNumber(), sliceInput, index.isLeafPage(), projection);
+  }
+
+  /**
+   * Encode search key to compare with records in bytes.
+   *
+   * @param tableDef table definition
+   * @param key      search key
+   * @return binary key, null if not enabled or not supported for the key
+   */
+  private BinaryKey encodeKey(TableDef tableDef, List<Object> key) {
+    // custom key comparator may compare differently
+    if (!binaryKeySearch || keyComparator.getClass() != DefaultKeyComparator.class) {
+      return null;
+    }
+    return BinaryKey.encode(tableDef, key);
+  }
+
+  private GenericRecord searchChildPage(TableDef tableDef, long childPageNumber, List<Object> targetKey,
+                                        BinaryKey binaryKey, BitSet projection) {
+    Index child = loadIndexPage(childPageNumber);
+    try {
+      return binarySearchByDirectory(tableDef, childPageNumber, child, targetKey, binaryKey, projection);
+    } finally {
+      child.release();
+    }
+  }
+
+  /**
+   * Search from the page down to leaf page recursively.
+   *
+   * @param tableDef   table definition
+   * @param pageNumber page number
+   * @param index      index page
+   * @param targetKey  search target key
+   * @param projection projection of selected column ordinal in bitmap
+   * @return GenericRecord if found, or else DumbGenericRecord representing a closest record
+   */
+  private GenericRecord binarySearchByDirectory(TableDef tableDef, long pageNumber, Index index,
+                                                List<Object> targetKey, BitSet projection) {
+    return binarySearchByDirectory(tableDef, pageNumber, index, targetKey, encodeKey(tableDef, targetKey),
+        projection);
+  }
+
+  private GenericRecord binarySearchByDirectory(TableDef tableDef, long pageNumber, Index index,
+                                                List<Object> targetKey, BinaryKey binaryKey, BitSet projection) {
+    GenericRecord record = searchWithinPage(tableDef, pageNumber, index, targetKey, binaryKey, projection);
+    if (index.isLeafPage()) {
+      return record;
     }
+    return searchChildPage(tableDef, record.getChildPageNumber(), targetKey, binaryKey, projection);
   }
 
   /**
    * Search from directory slots in binary search way, and then call
-   * {@link #linearSearch(TableDef, long, Index, int, List, BitSet)}
+   * {@link #linearSearch(TableDef, long, Index, int, List, BinaryKey, BitSet)}
    *
    * to search the specific record.
    *
@@ -858,13 +1892,14 @@ public class IndexServiceImpl implements IndexService {
    * @param pageNumber page number
    * @param index      index page
    * @param targetKey  search target key
+   * @param binaryKey  encoded search target key, null if records should be decoded to compare
    * @param projection projection of selected column ordinal in bitmap
-   * @return GenericRecord
+   * @return same as {@link #linearSearch(TableDef, long, Index, int, List, BinaryKey, BitSet)}
    * @see <a href="https://leetcode-cn.com/problems/search-insert-position">search-insert-position
    * on leetcode</a>
    */
-  private GenericRecord binarySearchByDirectory(TableDef tableDef, long pageNumber, Index index,
-                                                List<Object> targetKey, BitSet projection) {
+  private GenericRecord searchWithinPage(TableDef tableDef, long pageNumber, Index index,
+                                         List<Object> targetKey, BinaryKey binaryKey, BitSet projection) {
     checkNotNull(index);
     checkNotNull(targetKey);
     int[] dirSlots = index.getDirSlots();
@@ -875,12 +1910,39 @@ public class IndexServiceImpl implements IndexService {
 
     int start = 0;
     int end = dirSlots.length - 1;
+    if (binaryKey != null) {
+      int infimumPos = index.getInfimum().getPrimaryKeyPosition();
+      int supremumPos = index.getSupremum().getPrimaryKeyPosition();
+      while (start <= end) {
+        int mid = (start + end) / 2;
+        int recPos = dirSlots[mid];
+        // infimum is the smallest and supremum is the biggest
+        int compare;
+        if (recPos == infimumPos) {
+          compare = -1;
+        } else if (recPos == supremumPos) {
+          compare = 1;
+        } else {
+          compare = binaryKey.compare(sliceInput, recPos);
+        }
+        if (compare > 0) {
+          end = mid - 1;
+        } else if (compare < 0) {
+          start = mid + 1;
+        } else {
+          return linearSearch(tableDef, pageNumber, index, recPos, targetKey, binaryKey, projection);
+        }
+      }
+      return linearSearch(tableDef, pageNumber, index, dirSlots[start - 1], targetKey, binaryKey, projection);
+    }
+
+    BitSet keyProjection = keyProjection(tableDef, index, projection);
     GenericRecord record;
     while (start <= end) {
       int mid = (start + end) / 2;
       int recPos = dirSlots[mid];
       sliceInput.setPosition(recPos);
-      record = readRecord(tableDef, index.getPageNumber(), sliceInput, index.isLeafPage(), projection);
+      record = readRecord(tableDef, index.getPageNumber(), sliceInput, index.isLeafPage(), keyProjection);
       checkNotNull(record, "record should not be null");
       if (log.isTraceEnabled()) {
         log.trace("SearchByDir: page={}, level={}, recordKey={}, targetKey={}, dirSlotSize={}, "
@@ -896,11 +1958,11 @@ public class IndexServiceImpl implements IndexService {
       } else if (compare < 0) {
         start = mid + 1;
       } else {
-        return linearSearch(tableDef, pageNumber, index, recPos, targetKey, projection);
+        return linearSearch(tableDef, pageNumber, index, recPos, targetKey, null, projection);
       }
     }
     log.debug("SearchByDir, start={}", start);
-    return linearSearch(tableDef, pageNumber, index, dirSlots[start - 1], targetKey, projection);
+    return linearSearch(tableDef, pageNumber, index, dirSlots[start - 1], targetKey, null, projection);
   }
 
   @Override
@@ -912,6 +1974,7 @@ public class IndexServiceImpl implements IndexService {
         && PageType.SDI.equals(page.pageType())) {
       log.debug("Skip SDI (Serialized Dictionary Information) page "
           + page.getPageNumber() + " since version is >= Mysql8");
+      page.release();
       page = storageService.loadPage(++pageNumber);
     }
     Index index = new Index(page, tableDef);
@@ -925,6 +1988,41 @@ public class IndexServiceImpl implements IndexService {
     return index;
   }
 
+  /**
+   * Load index page asynchronously if storage service is {@link AsyncStorageService},
+   * otherwise load synchronously and return a completed future.
+   *
+   * @param pageNumber page number
+   * @return future of index page
+   */
+  public CompletableFuture<Index> loadIndexPageAsync(long pageNumber) {
+    if (!(storageService instanceof AsyncStorageService)) {
+      CompletableFuture<Index> future = new CompletableFuture<>();
+      try {
+        future.complete(loadIndexPage(pageNumber));
+      } catch (Throwable e) {
+        future.completeExceptionally(e);
+      }
+      return future;
+    }
+    return loadIndexPageAsync((AsyncStorageService) storageService, pageNumber, 0);
+  }
+
+  private CompletableFuture<Index> loadIndexPageAsync(AsyncStorageService asyncStorageService, long pageNumber,
+                                                      int sdiPageNum) {
+    return asyncStorageService.loadPageAsync(pageNumber).thenCompose(page -> {
+      if (sdiPageNum < ROOT_PAGE_NUMBER + 1
+          && page.pageType() != null
+          && PageType.SDI.equals(page.pageType())) {
+        log.debug("Skip SDI (Serialized Dictionary Information) page "
+            + page.getPageNumber() + " since version is >= Mysql8");
+        page.release();
+        return loadIndexPageAsync(asyncStorageService, pageNumber + 1, sdiPageNum + 1);
+      }
+      return CompletableFuture.completedFuture(new Index(page, tableDef));
+    });
+  }
+
   private Blob loadBlobPage(final long pageNumber, long offset) {
     InnerPage page = storageService.loadPage(pageNumber);
     if (page.pageType() != null && PageType.LOB_FIRST.equals(page.pageType())) {
@@ -957,6 +2055,24 @@ public class IndexServiceImpl implements IndexService {
    */
   private GenericRecord readRecord(TableDef tableDef, long pageNumber, SliceInput bodyInput,
                                    boolean isLeafPage, BitSet projection) {
+    return readRecord(tableDef, pageNumber, bodyInput, isLeafPage, projection, null);
+  }
+
+  /**
+   * Read fields from one row, if page scope is present and it is leaf page, construct them into
+   * a {@link LazyGenericRecord}, only primary key is decoded, other columns are located and
+   * skipped.
+   *
+   * @param tableDef   table definition
+   * @param pageNumber page number
+   * @param bodyInput  bytes input
+   * @param isLeafPage is B+ tree leaf page
+   * @param projection projection of selected column ordinal in bitmap
+   * @param scope      scope of the page for lazy record, null to decode eagerly
+   * @return record
+   */
+  private GenericRecord readRecord(TableDef tableDef, long pageNumber, SliceInput bodyInput,
+                                   boolean isLeafPage, BitSet projection, PageScope scope) {
     int primaryKeyPos = bodyInput.position();
 
     bodyInput.decrPosition(SIZE_OF_REC_HEADER);
@@ -969,6 +2085,15 @@ public class IndexServiceImpl implements IndexService {
       return mum;
     }
 
+    if (compiledRecordDecoder) {
+      GenericRecord record = getRecordDecoder(tableDef, isLeafPage, projection)
+          .decode(header, pageNumber, bodyInput, primaryKeyPos, scope, columnDecoder);
+      // set to next record position
+      checkElementIndex(record.nextRecordPosition(), SIZE_OF_BODY, "Next record position is out of bound");
+      bodyInput.setPosition(record.nextRecordPosition());
+      return record;
+    }
+
     // nullByteSize is an array indicating which fields(nullable) are null.
     // only works on leaf pages because non-leaf page does not allow nulls.
     List<String> nullColumnNames = null;
@@ -1022,7 +2147,9 @@ public class IndexServiceImpl implements IndexService {
 
     // read primary key
     bodyInput.setPosition(primaryKeyPos);
-    GenericRecord record = new GenericRecord(header, tableDef, pageNumber);
+    LazyGenericRecord lazyRecord = scope != null && isLeafPage
+        ? new LazyGenericRecord(header, tableDef, pageNumber, scope) : null;
+    GenericRecord record = lazyRecord != null ? lazyRecord : new GenericRecord(header, tableDef, pageNumber);
     int varLenIdx = 0;
     if (tableDef.getPrimaryKeyColumnNum() > 0) {
       // set primary key, single key or composite key
@@ -1046,7 +2173,7 @@ public class IndexServiceImpl implements IndexService {
     }
     if (log.isTraceEnabled()) {
       log.trace("Read record, pkPos={}, key={}, recordHeader={}, nullColumnNames={}, varLenArray={}, overflow={}",
-          primaryKeyPos, Arrays.toString(record.getValues()), header, nullColumnNames,
+          primaryKeyPos, record.getPrimaryKey(), header, nullColumnNames,
           varLenArray, overflowPageArray);
     }
     record.setPrimaryKeyPosition(primaryKeyPos);
@@ -1080,8 +2207,16 @@ public class IndexServiceImpl implements IndexService {
         if (columnValueIsNull(nullColumnNames, column)) {
           record.put(column.getName(), null);
         } else {
-          putColumnValueToRecord(bodyInput, varLenArray, overflowPageArray,
-              record, varLenIdx, column);
+          if (lazyRecord != null) {
+            boolean varLen = column.isVariableLength();
+            int position = bodyInput.position();
+            skipColumn(bodyInput, varLenArray, overflowPageArray, record, varLenIdx, column);
+            lazyRecord.locate(column.getOrdinal(), position, bodyInput.position() - position,
+                varLen ? varLenArray.get(varLenIdx) : -1, varLen && overflowPageArray.get(varLenIdx));
+          } else {
+            putColumnValueToRecord(bodyInput, varLenArray, overflowPageArray,
+                record, varLenIdx, column);
+          }
           if (column.isVariableLength()) {
             varLenIdx++;
           }
@@ -1120,6 +2255,30 @@ public class IndexServiceImpl implements IndexService {
     return record;
   }
 
+  private RecordDecoder getRecordDecoder(TableDef tableDef, boolean isLeafPage, BitSet projection) {
+    RecordDecoder decoder = lastRecordDecoder;
+    if (decoder != null && decoder.matches(tableDef, isLeafPage, projection)) {
+      return decoder;
+    }
+    decoder = null;
+    for (RecordDecoder d : recordDecoders) {
+      if (d.matches(tableDef, isLeafPage, projection)) {
+        decoder = d;
+        break;
+      }
+    }
+    if (decoder == null) {
+      decoder = RecordDecoder.compile(tableDef, isLeafPage, projection, this.tableDef.getMaxBytesPerChar());
+      if (recordDecoders.size() >= MAX_RECORD_DECODERS) {
+        // projections vary from query to query, do not keep too many
+        recordDecoders.clear();
+      }
+      recordDecoders.add(decoder);
+    }
+    lastRecordDecoder = decoder;
+    return decoder;
+  }
+
   /**
    * @see {@link #putColumnValueToRecord(SliceInput, List, List, GenericRecord, int, Column)}
    */
@@ -1147,6 +2306,24 @@ public class IndexServiceImpl implements IndexService {
     if (column.isVariableLength()) {
       checkState(varLenArray != null && overflowPageArray != null);
       checkElementIndex(varLenIdx, varLenArray.size());
+      record.put(column.getOrdinal(), readColumnValue(bodyInput, column, varLenArray.get(varLenIdx),
+          overflowPageArray.get(varLenIdx)));
+    } else {
+      record.put(column.getOrdinal(), readColumnValue(bodyInput, column, -1, false));
+    }
+  }
+
+  /**
+   * Decode column value, also used by {@link LazyGenericRecord} on access.
+   *
+   * @param bodyInput input positioned at the column
+   * @param column    column
+   * @param varLen    length in variable-length array, only for variable-length column
+   * @param overflow  if the value is stored in overflow pages, only for variable-length column
+   * @return column value
+   */
+  private Object readColumnValue(SliceInput bodyInput, Column column, int varLen, boolean overflow) {
+    if (column.isVariableLength()) {
       // https://dev.mysql.com/doc/refman/5.7/en/innodb-row-format.html
       // Tables that use the COMPACT row format store the first 768 bytes of variable-length
       // column values (VARCHAR, VARBINARY, and BLOB and TEXT types) in the index record
@@ -1155,20 +2332,17 @@ public class IndexServiceImpl implements IndexService {
       // column values (for VARCHAR, VARBINARY, and BLOB and TEXT types) fully off-page, with
       // the clustered index record containing only a 20-byte pointer to the overflow page.
       // if (varLenArray[varLenIdx] <= 768) {
-      if (!overflowPageArray.get(varLenIdx)) {
-        Object val = ColumnFactory.getColumnParser(column.getType())
-            .readFrom(bodyInput, varLenArray.get(varLenIdx), column.getJavaCharset());
-        record.put(column.getName(), val);
+      if (!overflow) {
+        return ColumnFactory.getColumnParser(column.getType())
+            .readFrom(bodyInput, varLen, column.getJavaCharset());
       } else {
-        handleOverflowPage(bodyInput, record, column, varLenArray.get(varLenIdx));
+        return handleOverflowPage(bodyInput, column, varLen);
       }
     } else if (column.isFixedLength()) {
-      Object val = ColumnFactory.getColumnParser(column.getType())
+      return ColumnFactory.getColumnParser(column.getType())
           .readFrom(bodyInput, column.getLength(), column.getJavaCharset());
-      record.put(column.getName(), val);
     } else {
-      Object val = ColumnFactory.getColumnParser(column.getType()).readFrom(bodyInput, column);
-      record.put(column.getName(), val);
+      return ColumnFactory.getColumnParser(column.getType()).readFrom(bodyInput, column);
     }
   }
 
@@ -1207,35 +2381,34 @@ public class IndexServiceImpl implements IndexService {
         && (BLOB_TEXT_TYPES.contains(varColumn.getType()) || (varColumn.getLength() * factor) > 255);
   }
 
-  private void handleOverflowPage(SliceInput bodyInput, GenericRecord record, Column column, int varLen) {
+  private Object handleOverflowPage(SliceInput bodyInput, Column column, int varLen) {
     if (BLOB_TYPES.contains(column.getType())
         || VARBINARY.equals(column.getType())) {
-      handleBlobOverflowPage(bodyInput, record, column, varLen);
+      return handleBlobOverflowPage(bodyInput, column, varLen);
     } else if (TEXT_TYPES.contains(column.getType())
         || VARCHAR.equals(column.getType())
         || CHAR.equals(column.getType())) {
-      handleCharacterOverflowPage(bodyInput, record, column, varLen);
+      return handleCharacterOverflowPage(bodyInput, column, varLen);
     } else {
       throw new UnsupportedOperationException("Handle overflow page unsupported for type " + column.getType());
     }
   }
 
-  private void handleCharacterOverflowPage(SliceInput bodyInput, GenericRecord record,
-                                           Column column, int varLen) {
-    ByteBuffer buffer = readOverflowPageByteBuffer(bodyInput, record, column, varLen);
+  private String handleCharacterOverflowPage(SliceInput bodyInput, Column column, int varLen) {
+    ByteBuffer buffer = readOverflowPageByteBuffer(bodyInput, column, varLen);
     try {
-      record.put(column.getName(), new String(buffer.array(), column.getJavaCharset()));
+      return new String(buffer.array(), column.getJavaCharset());
     } catch (UnsupportedEncodingException e) {
       throw new ReaderException(e);
     }
   }
 
-  private void handleBlobOverflowPage(SliceInput bodyInput, GenericRecord record, Column column, int varLen) {
-    ByteBuffer buffer = readOverflowPageByteBuffer(bodyInput, record, column, varLen);
-    record.put(column.getName(), buffer.array());
+  private byte[] handleBlobOverflowPage(SliceInput bodyInput, Column column, int varLen) {
+    ByteBuffer buffer = readOverflowPageByteBuffer(bodyInput, column, varLen);
+    return buffer.array();
   }
 
-  private ByteBuffer readOverflowPageByteBuffer(SliceInput bodyInput, GenericRecord record, Column column, int varLen) {
+  private ByteBuffer readOverflowPageByteBuffer(SliceInput bodyInput, Column column, int varLen) {
     int varLenWithoutOffPagePointer = varLen - 20;
     Object val = null;
     if (varLenWithoutOffPagePointer > 0) {
@@ -1255,6 +2428,7 @@ public class IndexServiceImpl implements IndexService {
         break;
       }
       byte[] content = blob.read();
+      blob.release();
       buffer.put(content);
       if (blob.hasNext()) {
         nextPageNumber = blob.getNextPageNumber();
@@ -1315,43 +2489,49 @@ public class IndexServiceImpl implements IndexService {
     checkArgument(!anyElementEmpty(upper), "upper should not contain null elements");
   }
 
-  private boolean qualified(List<Column> keyColumnList, List<Object> primaryKey,
-                            List<Object> lower, ComparisonOperator lowerOperator,
-                            List<Object> upper, ComparisonOperator upperOperator) {
-    if (lowerOperator == GT && upperOperator == LT) {
-      return keyComparator.compare(primaryKey, lower, keyColumnList) > 0
-          && keyComparator.compare(primaryKey, upper, keyColumnList) < 0;
-    } else if (lowerOperator == GT && upperOperator == LTE) {
-      return keyComparator.compare(primaryKey, lower, keyColumnList) > 0
-          && keyComparator.compare(primaryKey, upper, keyColumnList) <= 0;
-    } else if (lowerOperator == GTE && upperOperator == LT) {
-      return keyComparator.compare(primaryKey, lower, keyColumnList) >= 0
-          && keyComparator.compare(primaryKey, upper, keyColumnList) < 0;
-    } else if (lowerOperator == GTE && upperOperator == LTE) {
-      return keyComparator.compare(primaryKey, lower, keyColumnList) >= 0
-          && keyComparator.compare(primaryKey, upper, keyColumnList) <= 0;
+  /**
+   * Compare key of record with bound.
+   *
+   * @param sliceInput input of the page
+   * @param position   primary key position of the record
+   * @param keyRecord  record decoded with key, may be null if bound is encoded
+   * @param bound      bound
+   * @param binaryKey  encoded bound, null if key of record should be compared
+   * @return negative, zero or positive if key of record is less than, equal to or greater than bound
+   */
+  private int compareKey(SliceInput sliceInput, int position, GenericRecord keyRecord, List<Object> bound,
+                         BinaryKey binaryKey) {
+    if (binaryKey != null) {
+      return binaryKey.compare(sliceInput, position);
     }
-    throw new ReaderException("Operator is invalid, lower should be >= or >, upper should be "
-        + "<= or <, actual lower " + lowerOperator + ", upper " + upperOperator);
+    return keyComparator.compare(keyRecord.getPrimaryKey(), bound, keyRecord.getTableDef().getPrimaryKeyColumns());
   }
 
   private boolean lowerQualified(List<Column> keyColumnList, List<Object> primaryKey,
                                  List<Object> lower, ComparisonOperator lowerOperator) {
+    return lowerQualified(keyComparator.compare(primaryKey, lower, keyColumnList), lowerOperator);
+  }
+
+  private boolean upperQualified(List<Column> keyColumnList, List<Object> primaryKey,
+                                 List<Object> upper, ComparisonOperator upperOperator) {
+    return upperQualified(keyComparator.compare(primaryKey, upper, keyColumnList), upperOperator);
+  }
+
+  private static boolean lowerQualified(int compare, ComparisonOperator lowerOperator) {
     if (lowerOperator == GT) {
-      return keyComparator.compare(primaryKey, lower, keyColumnList) > 0;
+      return compare > 0;
     } else if (lowerOperator == GTE) {
-      return keyComparator.compare(primaryKey, lower, keyColumnList) >= 0;
+      return compare >= 0;
     }
     throw new ReaderException("Operator is invalid, lower should be >= or >, upper should be "
         + "<= or <, actual lower " + lowerOperator);
   }
 
-  private boolean upperQualified(List<Column> keyColumnList, List<Object> primaryKey,
-                                 List<Object> upper, ComparisonOperator upperOperator) {
+  private static boolean upperQualified(int compare, ComparisonOperator upperOperator) {
     if (upperOperator == LT) {
-      return keyComparator.compare(primaryKey, upper, keyColumnList) < 0;
+      return compare < 0;
     } else if (upperOperator == LTE) {
-      return keyComparator.compare(primaryKey, upper, keyColumnList) <= 0;
+      return compare <= 0;
     }
     throw new ReaderException("Operator is invalid, lower should be >= or >, upper should be "
         + "<= or <, actual upper " + upperOperator);
@@ -3,46 +3,148 @@
  */
 package com.alibaba.innodb.java.reader.service.impl;
 
+import com.alibaba.innodb.java.reader.config.ReaderSystemProperty;
+import com.alibaba.innodb.java.reader.exception.PageLoadException;
 import com.alibaba.innodb.java.reader.exception.ReaderException;
 import com.alibaba.innodb.java.reader.page.FilHeader;
 import com.alibaba.innodb.java.reader.page.InnerPage;
 import com.alibaba.innodb.java.reader.service.StorageService;
+import com.alibaba.innodb.java.reader.util.ByteBufferCleaner;
+import com.alibaba.innodb.java.reader.util.ByteBufferSlice;
 
 import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 
 import lombok.extern.slf4j.Slf4j;
 
+import static com.alibaba.innodb.java.reader.SizeOf.SIZE_OF_FIL_HEADER;
+import static com.alibaba.innodb.java.reader.SizeOf.SIZE_OF_PAGE;
+import static com.alibaba.innodb.java.reader.util.Utils.humanReadableBytes;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+
 /**
  * Storage service leveraging mmap.
+ * <p>
+ * The whole ibd file is mapped read-only into several windows, since one
+ * {@link MappedByteBuffer} can address at most 2GB, files larger than that are split
+ * into windows of {@link #DEFAULT_WINDOW_SIZE} bytes. Window size is a multiple of page
+ * size so a page never spans two windows.
+ * <p>
+ * Loading page is zero-copy, the returned {@link InnerPage} is backed by a
+ * {@link ByteBufferSlice} over a duplicate of the mapped window, no bytes are copied
+ * to heap until they are decoded.
+ * <p>
+ * Windows are unmapped deterministically on {@link #close()} instead of waiting for GC.
+ * As a result, pages loaded from this service are only valid before the service is closed,
+ * accessing them afterwards leads to undefined behavior and may crash the JVM.
  *
  * @author xu.zx
  */
 @Slf4j
 public class MmapStorageServiceImpl implements StorageService {
 
+  /**
+   * 1GB, must be a multiple of page size and no larger than {@link Integer#MAX_VALUE}.
+   */
+  public static final long DEFAULT_WINDOW_SIZE = 1L << 30;
+
+  private final long windowSize;
+
+  private volatile MappedByteBuffer[] windows;
+
+  private long fileLength;
+
+  public MmapStorageServiceImpl() {
+    this(DEFAULT_WINDOW_SIZE);
+  }
+
+  public MmapStorageServiceImpl(long windowSize) {
+    checkArgument(windowSize > 0 && windowSize <= Integer.MAX_VALUE && windowSize % SIZE_OF_PAGE == 0,
+        "window size should be a positive multiple of page size, actual is " + windowSize);
+    this.windowSize = windowSize;
+  }
+
   @Override
   public void open(String ibdFilePath) throws IOException {
-
+    checkState(windows == null, "Storage service can only be opened once");
+    try (RandomAccessFile file = new RandomAccessFile(ibdFilePath, "r");
+         FileChannel fileChannel = file.getChannel()) {
+      fileLength = fileChannel.size();
+      if (ReaderSystemProperty.ENABLE_IBD_FILE_LENGTH_CHECK.value()) {
+        checkState(fileLength % SIZE_OF_PAGE == 0,
+            "Table file length is invalid, actual file size is " + fileLength);
+      }
+      int numOfWindows = (int) ((fileLength + windowSize - 1) / windowSize);
+      MappedByteBuffer[] mapped = new MappedByteBuffer[numOfWindows];
+      try {
+        for (int i = 0; i < numOfWindows; i++) {
+          long position = i * windowSize;
+          mapped[i] = fileChannel.map(FileChannel.MapMode.READ_ONLY, position,
+              Math.min(windowSize, fileLength - position));
+        }
+      } catch (IOException e) {
+        unmap(mapped);
+        throw e;
+      }
+      windows = mapped;
+      if (log.isDebugEnabled()) {
+        log.debug("Mmap {} done, file length is {}({}), numOfPages is {}, numOfWindows is {}",
+            ibdFilePath, fileLength, humanReadableBytes(fileLength), numOfPages(), numOfWindows);
+      }
+    }
   }
 
   @Override
   public InnerPage loadPage(long pageNumber) throws ReaderException {
-    throw new UnsupportedOperationException();
+    return new InnerPage(pageNumber, slice(pageNumber, SIZE_OF_PAGE));
   }
 
   @Override
   public FilHeader loadPageHeader(long pageNumber) throws ReaderException {
-    throw new UnsupportedOperationException();
+    return FilHeader.fromSlice(slice(pageNumber, SIZE_OF_FIL_HEADER).input());
   }
 
   @Override
   public long numOfPages() {
-    return 0;
+    return fileLength / SIZE_OF_PAGE;
   }
 
   @Override
   public void close() throws IOException {
+    MappedByteBuffer[] mapped = windows;
+    windows = null;
+    unmap(mapped);
+  }
+
+  /**
+   * Create a slice over the page. The window is duplicated because {@link ByteBufferSlice}
+   * changes buffer position and byte order while reading, which is not thread-safe.
+   */
+  private ByteBufferSlice slice(long pageNumber, int length) {
+    MappedByteBuffer[] mapped = windows;
+    if (mapped == null) {
+      throw new PageLoadException("Load page number " + pageNumber + " failed, storage service is closed");
+    }
+    if (pageNumber < 0 || pageNumber >= numOfPages()) {
+      throw new PageLoadException("Load page number " + pageNumber + " failed, out of range, numOfPages is "
+          + numOfPages());
+    }
+    long position = pageNumber * SIZE_OF_PAGE;
+    int windowIndex = (int) (position / windowSize);
+    int offset = (int) (position % windowSize);
+    return new ByteBufferSlice(mapped[windowIndex].duplicate(), offset, length);
+  }
 
+  private static void unmap(MappedByteBuffer[] mapped) {
+    if (mapped == null) {
+      return;
+    }
+    for (MappedByteBuffer buffer : mapped) {
+      ByteBufferCleaner.clean(buffer);
+    }
   }
 
 }
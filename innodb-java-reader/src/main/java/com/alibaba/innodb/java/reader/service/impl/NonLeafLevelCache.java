@@ -0,0 +1,248 @@
+/*
+ * Copyright (C) 1999-2019 Alibaba Group Holding Limited
+ */
+package com.alibaba.innodb.java.reader.service.impl;
+
+import com.alibaba.innodb.java.reader.comparator.KeyComparator;
+import com.alibaba.innodb.java.reader.schema.Column;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Pinned non-leaf levels of clustered index B+ tree.
+ * <p>
+ * Every non-leaf page is pre-decoded into an array of node pointer keys and an array of
+ * child page numbers, so that searching from root down to the leaf level is done in memory
+ * by binary search, only the leaf page is loaded from storage.
+ * <p>
+ * Memory usage is estimated when pages are added, building is given up once the estimated
+ * size exceeds the budget. Instance is immutable once built and is thread-safe.
+ *
+ * @author xu.zx
+ */
+public class NonLeafLevelCache {
+
+  private static final int OBJECT_HEADER_SIZE = 16;
+
+  private static final int REFERENCE_SIZE = 4;
+
+  /**
+   * Estimated size of node object, HashMap entry and boxed page number key.
+   */
+  private static final int NODE_OVERHEAD_SIZE = 32 + 48 + 24;
+
+  private final long rootPageNumber;
+
+  private final List<Column> keyColumns;
+
+  private final Map<Long, Node> nodes;
+
+  private final int numOfLevels;
+
+  private final long estimatedBytes;
+
+  private NonLeafLevelCache(long rootPageNumber, List<Column> keyColumns, Map<Long, Node> nodes, int numOfLevels,
+                            long estimatedBytes) {
+    this.rootPageNumber = rootPageNumber;
+    this.keyColumns = keyColumns;
+    this.nodes = nodes;
+    this.numOfLevels = numOfLevels;
+    this.estimatedBytes = estimatedBytes;
+  }
+
+  /**
+   * Search in pinned levels from root to find the leaf page which may contain the key.
+   * <p>
+   * For every level, the child of the last node pointer whose key is less than or equal to
+   * the target key is followed, if the target key is less than all keys, the first child is
+   * followed, this is the same as
+   * {@link IndexServiceImpl#queryByPrimaryKey(List, java.util.Optional)}.
+   *
+   * @param targetKey     target key
+   * @param keyComparator key comparator
+   * @return leaf page number
+   */
+  public long searchLeafPageNumber(List<Object> targetKey, KeyComparator keyComparator) {
+    long pageNumber = rootPageNumber;
+    Node node = nodes.get(pageNumber);
+    while (node != null) {
+      pageNumber = node.childPageNumbers[node.floor(targetKey, keyComparator, keyColumns)];
+      node = nodes.get(pageNumber);
+    }
+    return pageNumber;
+  }
+
+  public long getRootPageNumber() {
+    return rootPageNumber;
+  }
+
+  /**
+   * Number of non-leaf pages pinned.
+   *
+   * @return number of pages
+   */
+  public int getNumOfPages() {
+    return nodes.size();
+  }
+
+  /**
+   * Number of non-leaf levels pinned, that is, the page level of root.
+   *
+   * @return number of levels
+   */
+  public int getNumOfLevels() {
+    return numOfLevels;
+  }
+
+  public long getEstimatedBytes() {
+    return estimatedBytes;
+  }
+
+  @Override
+  public String toString() {
+    return "NonLeafLevelCache(root=" + rootPageNumber + ", levels=" + numOfLevels + ", pages=" + nodes.size()
+        + ", estimatedBytes=" + estimatedBytes + ")";
+  }
+
+  /**
+   * Rough estimation of the retained size of key value.
+   */
+  static long estimateSize(Object value) {
+    if (value == null) {
+      return 0L;
+    }
+    if (value instanceof String) {
+      // String with char[]
+      return 24L + OBJECT_HEADER_SIZE + 2L * ((String) value).length();
+    }
+    if (value instanceof byte[]) {
+      return OBJECT_HEADER_SIZE + ((byte[]) value).length;
+    }
+    if (value instanceof Long || value instanceof Double) {
+      return 24L;
+    }
+    if (value instanceof Number && !(value instanceof BigDecimal)) {
+      return 16L;
+    }
+    return 64L;
+  }
+
+  /**
+   * Pre-decoded non-leaf page.
+   */
+  private static final class Node {
+
+    private final List<Object>[] keys;
+
+    private final long[] childPageNumbers;
+
+    Node(List<Object>[] keys, long[] childPageNumbers) {
+      this.keys = keys;
+      this.childPageNumbers = childPageNumbers;
+    }
+
+    /**
+     * Index of the last key less than or equal to target key, or 0 if no such key.
+     */
+    int floor(List<Object> targetKey, KeyComparator keyComparator, List<Column> keyColumns) {
+      int start = 0;
+      int end = keys.length - 1;
+      while (start <= end) {
+        int mid = (start + end) >>> 1;
+        int compare = keyComparator.compare(keys[mid], targetKey, keyColumns);
+        if (compare > 0) {
+          end = mid - 1;
+        } else if (compare < 0) {
+          start = mid + 1;
+        } else {
+          return mid;
+        }
+      }
+      return Math.max(start - 1, 0);
+    }
+  }
+
+  /**
+   * Builder adding non-leaf pages level by level from root.
+   */
+  public static final class Builder {
+
+    private final long rootPageNumber;
+
+    private final List<Column> keyColumns;
+
+    private final int numOfLevels;
+
+    private final long maxBytes;
+
+    private final Map<Long, Node> nodes = new HashMap<>(64);
+
+    private long estimatedBytes;
+
+    /**
+     * Constructor.
+     *
+     * @param rootPageNumber root page number
+     * @param keyColumns     primary key columns
+     * @param numOfLevels    page level of root, which is the number of non-leaf levels
+     * @param maxBytes       budget of memory
+     */
+    public Builder(long rootPageNumber, List<Column> keyColumns, int numOfLevels, long maxBytes) {
+      checkArgument(numOfLevels > 0, "root should not be leaf page");
+      checkArgument(maxBytes > 0, "maxBytes should be positive");
+      this.rootPageNumber = rootPageNumber;
+      this.keyColumns = checkNotNull(keyColumns);
+      this.numOfLevels = numOfLevels;
+      this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Add one non-leaf page.
+     *
+     * @param pageNumber       page number
+     * @param keys             node pointer keys in ascending order
+     * @param childPageNumbers child page numbers of node pointers
+     * @return false if budget is exceeded, then the builder should be abandoned
+     */
+    @SuppressWarnings("unchecked")
+    public boolean add(long pageNumber, List<List<Object>> keys, long[] childPageNumbers) {
+      checkArgument(keys.size() == childPageNumbers.length, "keys and child page numbers not match");
+      checkArgument(!keys.isEmpty(), "non-leaf page %s should not be empty", pageNumber);
+      long bytes = NODE_OVERHEAD_SIZE + 2L * OBJECT_HEADER_SIZE + (REFERENCE_SIZE + 8L) * keys.size();
+      List<Object>[] keyArray = new List[keys.size()];
+      for (int i = 0; i < keyArray.length; i++) {
+        // copy to compact list
+        keyArray[i] = new ArrayList<>(keys.get(i));
+        bytes += OBJECT_HEADER_SIZE + 8L + OBJECT_HEADER_SIZE + (long) REFERENCE_SIZE * keyArray[i].size();
+        for (Object value : keyArray[i]) {
+          bytes += estimateSize(value);
+        }
+      }
+      estimatedBytes += bytes;
+      if (estimatedBytes > maxBytes) {
+        return false;
+      }
+      nodes.put(pageNumber, new Node(keyArray, childPageNumbers));
+      return true;
+    }
+
+    public long getEstimatedBytes() {
+      return estimatedBytes;
+    }
+
+    public NonLeafLevelCache build() {
+      checkState(estimatedBytes <= maxBytes, "budget exceeded");
+      checkNotNull(nodes.get(rootPageNumber), "root page is not added");
+      return new NonLeafLevelCache(rootPageNumber, keyColumns, nodes, numOfLevels, estimatedBytes);
+    }
+  }
+
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright (C) 1999-2019 Alibaba Group Holding Limited
+ */
+package com.alibaba.innodb.java.reader.service.impl;
+
+import com.alibaba.innodb.java.reader.config.ReaderSystemProperty;
+import com.alibaba.innodb.java.reader.exception.ReaderException;
+import com.alibaba.innodb.java.reader.page.PageHeaderColumns;
+import com.alibaba.innodb.java.reader.page.PageHeaderVisitor;
+import com.alibaba.innodb.java.reader.page.PageType;
+import com.alibaba.innodb.java.reader.service.StorageService;
+
+import java.util.BitSet;
+import java.util.concurrent.atomic.LongAdder;
+
+import lombok.extern.slf4j.Slf4j;
+
+import static com.alibaba.innodb.java.reader.SizeOf.SIZE_OF_FIL_HEADER;
+import static com.alibaba.innodb.java.reader.SizeOf.SIZE_OF_PAGE;
+import static com.alibaba.innodb.java.reader.page.PageHeaderColumns.FIL_NULL;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Scan page headers of the whole tablespace in parallel.
+ * <p>
+ * Extents are read in one I/O each by multiple threads, see {@link ParallelExtentScanner},
+ * header fields are decoded from the buffer directly and passed to {@link PageHeaderVisitor},
+ * so there is no per-page object or syscall.
+ * <p>
+ * Pages in free extents are visited as {@link PageType#ALLOCATED} without any I/O,
+ * the same as {@link com.alibaba.innodb.java.reader.TableReader#readAllPageHeaders()}.
+ *
+ * @author xu.zx
+ */
+@Slf4j
+public class PageHeaderScanner {
+
+  private static final int OFFSET_PREV_PAGE = 8;
+
+  private static final int OFFSET_NEXT_PAGE = 12;
+
+  private static final int OFFSET_LSN = 16;
+
+  private static final int OFFSET_PAGE_TYPE = 24;
+
+  /**
+   * Offsets of fields in index header which follows file header.
+   */
+  private static final int OFFSET_NUM_OF_RECS = SIZE_OF_FIL_HEADER + 16;
+
+  private static final int OFFSET_PAGE_LEVEL = SIZE_OF_FIL_HEADER + 26;
+
+  private static final int OFFSET_INDEX_ID = SIZE_OF_FIL_HEADER + 28;
+
+  private final StorageService storageService;
+
+  private final ParallelExtentScanner extentScanner;
+
+  public PageHeaderScanner(StorageService storageService) {
+    this(storageService, ReaderSystemProperty.TABLESPACE_SCAN_PARALLELISM.value());
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param storageService storage service, should be thread-safe
+   * @param parallelism    number of threads including the calling thread, 0 means the
+   *                       number of available processors
+   */
+  public PageHeaderScanner(StorageService storageService, int parallelism) {
+    this.storageService = storageService;
+    this.extentScanner = new ParallelExtentScanner(storageService, parallelism, "innodb-reader-header-scan-%d");
+  }
+
+  /**
+   * Scan all page headers into columnar arrays.
+   *
+   * @return page header columns indexed by page number
+   * @throws ReaderException throws ReaderException when internal errors occurs
+   */
+  public PageHeaderColumns readColumns() throws ReaderException {
+    ExtentReader extentReader = new ExtentReader(storageService);
+    PageHeaderColumns columns = new PageHeaderColumns(extentReader.getNumOfPages());
+    scan(extentReader, columns);
+    return columns;
+  }
+
+  /**
+   * Scan all page headers.
+   * <p>
+   * Visitor is called concurrently by multiple threads, pages in one extent are visited
+   * in order by one thread, but there is no order across extents.
+   *
+   * @param visitor visitor, should be thread-safe
+   * @return number of pages visited
+   * @throws ReaderException throws ReaderException when internal errors occurs
+   */
+  public long scan(PageHeaderVisitor visitor) throws ReaderException {
+    return scan(new ExtentReader(storageService), visitor);
+  }
+
+  /**
+   * Sum number of records in index header of all leaf pages of an index, records are not
+   * decoded. Pages marked free in XDES entries are excluded since they may have stale content.
+   *
+   * @param indexId index id in index header
+   * @return number of records
+   * @throws ReaderException throws ReaderException when internal errors occurs
+   */
+  public long countLeafRecords(long indexId) throws ReaderException {
+    long start = System.currentTimeMillis();
+    ExtentReader extentReader = new ExtentReader(storageService);
+    long numOfPages = extentReader.getNumOfPages();
+    checkArgument(numOfPages <= Integer.MAX_VALUE, "Too many pages %s", numOfPages);
+    // look up free pages in the calling thread since ExtentReader is not thread-safe
+    BitSet freePages = new BitSet((int) numOfPages);
+    for (long extentNumber = 0L; extentNumber < extentReader.getNumOfExtents(); extentNumber++) {
+      if (extentReader.isFreeExtent(extentNumber)) {
+        continue;
+      }
+      long startPageNumber = extentReader.getStartPageNumber(extentNumber);
+      for (int i = 0; i < extentReader.getNumOfPagesInExtent(extentNumber); i++) {
+        if (extentReader.isFreePage(startPageNumber + i)) {
+          freePages.set((int) (startPageNumber + i));
+        }
+      }
+    }
+
+    LongAdder count = new LongAdder();
+    int threads = extentScanner.scan(extentReader, true, (startPageNumber, numOfPagesInExtent, pages) -> {
+      if (pages == null) {
+        return;
+      }
+      long sum = 0L;
+      for (int i = 0; i < numOfPagesInExtent; i++) {
+        int offset = i * SIZE_OF_PAGE;
+        boolean leafPage = pages.getShort(offset + OFFSET_PAGE_TYPE) == (short) PageType.INDEX.type()
+            && pages.getShort(offset + OFFSET_PAGE_LEVEL) == 0
+            && pages.getLong(offset + OFFSET_INDEX_ID) == indexId
+            && !freePages.get((int) (startPageNumber + i));
+        if (leafPage) {
+          sum += pages.getShort(offset + OFFSET_NUM_OF_RECS) & 0xFFFF;
+        }
+      }
+      count.add(sum);
+    });
+    log.debug("Count records of index {} in {} pages by {} threads using {}ms", indexId, numOfPages, threads,
+        System.currentTimeMillis() - start);
+    return count.sum();
+  }
+
+  private long scan(ExtentReader extentReader, PageHeaderVisitor visitor) {
+    checkNotNull(visitor, "visitor should not be null");
+    long start = System.currentTimeMillis();
+    int threads = extentScanner.scan(extentReader, true, (startPageNumber, numOfPages, pages) -> {
+      for (int i = 0; i < numOfPages; i++) {
+        if (pages == null) {
+          visitor.visit(startPageNumber + i, PageType.ALLOCATED.type(), FIL_NULL, FIL_NULL, 0L);
+          continue;
+        }
+        int offset = i * SIZE_OF_PAGE;
+        visitor.visit(startPageNumber + i,
+            pages.getShort(offset + OFFSET_PAGE_TYPE),
+            pages.getInt(offset + OFFSET_PREV_PAGE) & 0xFFFFFFFFL,
+            pages.getInt(offset + OFFSET_NEXT_PAGE) & 0xFFFFFFFFL,
+            pages.getLong(offset + OFFSET_LSN));
+      }
+    });
+    log.debug("Scan {} page headers of {} extents by {} threads using {}ms", extentReader.getNumOfPages(),
+        extentReader.getNumOfExtents(), threads, System.currentTimeMillis() - start);
+    return extentReader.getNumOfPages();
+  }
+
+}
@@ -0,0 +1,209 @@
+/*
+ * Copyright (C) 1999-2019 Alibaba Group Holding Limited
+ */
+package com.alibaba.innodb.java.reader.service.impl;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import com.alibaba.innodb.java.reader.exception.PageLoadException;
+import com.alibaba.innodb.java.reader.exception.ReaderException;
+import com.alibaba.innodb.java.reader.page.FilHeader;
+import com.alibaba.innodb.java.reader.page.index.Index;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongFunction;
+
+import lombok.extern.slf4j.Slf4j;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Read-ahead of leaf pages along the double-linked list of one level.
+ * <p>
+ * A background task loads pages from the start page by following
+ * {@link FilHeader#getNextPage()} (ascending) or {@link FilHeader#getPrevPage()} (descending)
+ * until the end page, and keeps at most <code>depth</code> loaded pages ahead of the consumer,
+ * so that page loading overlaps with record decoding in the calling thread.
+ * <p>
+ * Since the page number of the next page is known only after the current one is loaded,
+ * pages are loaded one by one in the background, the depth bounds memory instead of
+ * concurrency.
+ * <p>
+ * Read-ahead stops when it is closed, or when the owner (the record iterator) is abandoned
+ * and collected by GC without being closed. Pages loaded but not consumed are released.
+ *
+ * @author xu.zx
+ */
+@Slf4j
+public class PageReadAhead implements AutoCloseable {
+
+  private static final long OFFER_TIMEOUT_MILLIS = 100L;
+
+  private static final Object END = new Object();
+
+  private static final ExecutorService DEFAULT_EXECUTOR = new ThreadPoolExecutor(0, Integer.MAX_VALUE,
+      60L, TimeUnit.SECONDS, new SynchronousQueue<>(),
+      new ThreadFactoryBuilder().setDaemon(true).setNameFormat("innodb-reader-read-ahead-%d").build());
+
+  private final BlockingQueue<Object> queue;
+
+  private final WeakReference<Object> owner;
+
+  private final Future<?> future;
+
+  private volatile boolean closed;
+
+  /**
+   * Constructor, read-ahead is started immediately.
+   *
+   * @param owner           owner of this read-ahead, read-ahead is cancelled if owner is GC-ed
+   * @param loader          load index page by page number, should be thread-safe
+   * @param startPageNumber page number of the first page to load
+   * @param endPageNumber   page number of the last page to load
+   * @param asc             follow next page if true, otherwise follow previous page
+   * @param depth           max number of pages loaded ahead
+   */
+  public PageReadAhead(Object owner, LongFunction<Index> loader, long startPageNumber, long endPageNumber,
+                       boolean asc, int depth) {
+    this(owner, loader, startPageNumber, endPageNumber, asc, depth, DEFAULT_EXECUTOR);
+  }
+
+  public PageReadAhead(Object owner, LongFunction<Index> loader, long startPageNumber, long endPageNumber,
+                       boolean asc, int depth, ExecutorService executorService) {
+    checkNotNull(owner, "owner should not be null");
+    checkArgument(depth > 0, "read ahead depth should be positive");
+    this.owner = new WeakReference<>(owner);
+    this.queue = new ArrayBlockingQueue<>(depth);
+    this.future = executorService.submit(() -> readAhead(loader, startPageNumber, endPageNumber, asc));
+  }
+
+  /**
+   * Take the next page, block until it is loaded.
+   *
+   * @return index page, or null if end page has been taken
+   * @throws ReaderException if loading page failed in background
+   */
+  public Index next() throws ReaderException {
+    Object item;
+    try {
+      item = queue.take();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      close();
+      throw new PageLoadException("Read ahead interrupted", e);
+    }
+    if (item == END) {
+      // keep end marker for subsequent calls, the slot has just been freed
+      queue.offer(END);
+      return null;
+    }
+    if (item instanceof Throwable) {
+      close();
+      if (item instanceof ReaderException) {
+        throw (ReaderException) item;
+      }
+      throw new PageLoadException("Read ahead failed", (Throwable) item);
+    }
+    return (Index) item;
+  }
+
+  /**
+   * Cancel read-ahead and release pages not consumed.
+   */
+  @Override
+  public void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    // do not interrupt, interrupting file channel I/O closes the channel, background task
+    // stops within the offer timeout
+    future.cancel(false);
+    drain();
+  }
+
+  public boolean isClosed() {
+    return closed;
+  }
+
+  private void readAhead(LongFunction<Index> loader, long pageNumber, long endPageNumber, boolean asc) {
+    try {
+      Long curr = pageNumber;
+      while (curr != null && isActive()) {
+        Index index = loader.apply(curr);
+        if (!putOrRelease(index)) {
+          break;
+        }
+        if (curr == endPageNumber) {
+          break;
+        }
+        FilHeader filHeader = index.getInnerPage().getFilHeader();
+        curr = asc ? filHeader.getNextPage() : filHeader.getPrevPage();
+      }
+      put(END);
+    } catch (InterruptedException e) {
+      log.debug("Read ahead is cancelled");
+    } catch (Throwable e) {
+      try {
+        put(e);
+      } catch (InterruptedException ignored) {
+        // cancelled
+      }
+    }
+    if (closed) {
+      // consumer may have drained before the last put
+      drain();
+    }
+  }
+
+  private boolean putOrRelease(Index index) throws InterruptedException {
+    boolean put = false;
+    try {
+      put = put(index);
+      return put;
+    } finally {
+      if (!put) {
+        index.release();
+      }
+    }
+  }
+
+  private boolean put(Object item) throws InterruptedException {
+    while (isActive()) {
+      if (queue.offer(item, OFFER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private boolean isActive() {
+    if (closed) {
+      return false;
+    }
+    if (owner.get() == null) {
+      log.debug("Read ahead owner is abandoned, cancel read ahead");
+      closed = true;
+      drain();
+      return false;
+    }
+    return true;
+  }
+
+  private void drain() {
+    for (Object item = queue.poll(); item != null; item = queue.poll()) {
+      if (item instanceof Index) {
+        ((Index) item).release();
+      }
+    }
+  }
+
+}
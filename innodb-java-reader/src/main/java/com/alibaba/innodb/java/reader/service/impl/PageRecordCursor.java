@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 1999-2019 Alibaba Group Holding Limited
+ */
+package com.alibaba.innodb.java.reader.service.impl;
+
+import com.alibaba.innodb.java.reader.page.index.Index;
+import com.alibaba.innodb.java.reader.util.SliceInput;
+
+import java.util.Arrays;
+
+/**
+ * Cursor over user records of one index page, returns position of record one at a time
+ * without decoding.
+ * <p>
+ * Records are singly linked in ascending order. In ascending order the list is followed
+ * from infimum. In descending order the page directory is walked from the last slot
+ * backwards, every slot owns a group of at most 8 records which ends at the record the slot
+ * points to, positions of the group are collected by following the list from the owner of
+ * the previous slot and then returned in reverse order.
+ *
+ * @author xu.zx
+ */
+final class PageRecordCursor {
+
+  /**
+   * Returned by {@link #next()} if there is no more record.
+   */
+  static final int END = -1;
+
+  private Index index;
+
+  private SliceInput sliceInput;
+
+  private boolean asc;
+
+  private int supremumPos;
+
+  /**
+   * Ascending order, position of the record last returned.
+   */
+  private int recordPos;
+
+  /**
+   * Descending order, slot of the group being returned.
+   */
+  private int slot;
+
+  /**
+   * Descending order, positions of records in the group being returned.
+   */
+  private int[] group = new int[8];
+
+  private int groupSize;
+
+  /**
+   * Start iterating a page, the cursor can be reused for pages.
+   *
+   * @param index index page
+   * @param asc   ascending order if true
+   */
+  void reset(Index index, boolean asc) {
+    this.index = index;
+    this.sliceInput = index.getSliceInput();
+    this.asc = asc;
+    this.supremumPos = index.getSupremum().getPrimaryKeyPosition();
+    this.recordPos = index.getInfimum().getPrimaryKeyPosition();
+    this.slot = index.getDirSlots().length - 1;
+    this.groupSize = 0;
+  }
+
+  /**
+   * Position of the next user record, that is the primary key position right after
+   * record header.
+   *
+   * @return position, or {@link #END} if there is no more record
+   */
+  int next() {
+    if (asc) {
+      if (recordPos == supremumPos) {
+        return END;
+      }
+      recordPos = nextRecordPosition(recordPos);
+      return recordPos == supremumPos ? END : recordPos;
+    }
+    while (groupSize == 0) {
+      // slot 0 owns only infimum
+      if (slot <= 0) {
+        return END;
+      }
+      int[] dirSlots = index.getDirSlots();
+      int pos = dirSlots[slot - 1];
+      int owner = dirSlots[slot];
+      while (pos != owner && pos != supremumPos) {
+        pos = nextRecordPosition(pos);
+        if (pos != supremumPos) {
+          if (groupSize == group.length) {
+            group = Arrays.copyOf(group, groupSize * 2);
+          }
+          group[groupSize++] = pos;
+        }
+      }
+      slot--;
+    }
+    return group[--groupSize];
+  }
+
+  private int nextRecordPosition(int pos) {
+    // next record offset is the last 2 bytes of record header
+    sliceInput.setPosition(pos - 2);
+    return pos + sliceInput.readShort();
+  }
+
+}
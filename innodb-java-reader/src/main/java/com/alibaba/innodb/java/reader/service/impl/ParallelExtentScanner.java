@@ -0,0 +1,195 @@
+/*
+ * Copyright (C) 1999-2019 Alibaba Group Holding Limited
+ */
+package com.alibaba.innodb.java.reader.service.impl;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import com.alibaba.innodb.java.reader.exception.ReaderException;
+import com.alibaba.innodb.java.reader.service.StorageService;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.alibaba.innodb.java.reader.Constants.PAGES_PER_EXTENT;
+import static com.alibaba.innodb.java.reader.SizeOf.SIZE_OF_PAGE;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Read the whole tablespace extent by extent in parallel.
+ * <p>
+ * Worker threads, including the calling thread, claim extents one by one, every extent
+ * (64 pages, 1MB) is read by {@link StorageService#readPages(long, int, ByteBuffer)} in one
+ * I/O into a heap buffer owned by the worker and reused across extents.
+ *
+ * @author xu.zx
+ */
+class ParallelExtentScanner {
+
+  private final StorageService storageService;
+
+  private final int parallelism;
+
+  private final String threadNameFormat;
+
+  /**
+   * Constructor.
+   *
+   * @param storageService   storage service, should be thread-safe
+   * @param parallelism      number of threads including the calling thread, 0 means the
+   *                         number of available processors
+   * @param threadNameFormat name format of worker threads
+   */
+  ParallelExtentScanner(StorageService storageService, int parallelism, String threadNameFormat) {
+    checkNotNull(storageService, "storageService should not be null");
+    checkArgument(parallelism >= 0, "parallelism should not be negative");
+    this.storageService = storageService;
+    this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+    this.threadNameFormat = threadNameFormat;
+  }
+
+  /**
+   * Callback of one extent, called concurrently by multiple threads.
+   */
+  @FunctionalInterface
+  interface ExtentVisitor {
+
+    /**
+     * Visit one extent.
+     *
+     * @param startPageNumber page number of the first page in extent
+     * @param numOfPages      number of pages in extent
+     * @param pages           pages from position 0, only valid during the call, null if
+     *                        the extent is free and not read
+     */
+    void visit(long startPageNumber, int numOfPages, ByteBuffer pages);
+  }
+
+  /**
+   * Scan all extents.
+   *
+   * @param extentReader    extent reader of the storage service
+   * @param skipFreeExtents if true, free extents are not read and visited with null pages
+   * @param visitor         visitor, should be thread-safe
+   * @return number of threads used
+   */
+  int scan(ExtentReader extentReader, boolean skipFreeExtents, ExtentVisitor visitor) {
+    checkNotNull(visitor, "visitor should not be null");
+    long numOfExtents = extentReader.getNumOfExtents();
+    checkArgument(numOfExtents <= Integer.MAX_VALUE, "Too many extents %s", numOfExtents);
+    // look up extent states in the calling thread since ExtentReader is not thread-safe
+    BitSet freeExtents = new BitSet((int) numOfExtents);
+    for (int i = 0; skipFreeExtents && i < numOfExtents; i++) {
+      if (extentReader.isFreeExtent(i)) {
+        freeExtents.set(i);
+      }
+    }
+    Worker worker = new Worker(extentReader, freeExtents, visitor);
+    int threads = (int) Math.max(1L, Math.min(parallelism, numOfExtents));
+    if (threads == 1) {
+      worker.run();
+    } else {
+      runInParallel(worker, threads);
+    }
+    return threads;
+  }
+
+  private void runInParallel(Worker worker, int threads) {
+    ExecutorService executorService = new ThreadPoolExecutor(threads - 1, threads - 1, 0L, TimeUnit.MILLISECONDS,
+        new LinkedBlockingQueue<>(),
+        new ThreadFactoryBuilder().setDaemon(true).setNameFormat(threadNameFormat).build());
+    try {
+      List<Future<?>> futures = new ArrayList<>(threads - 1);
+      for (int i = 0; i < threads - 1; i++) {
+        futures.add(executorService.submit(worker));
+      }
+      try {
+        worker.run();
+      } finally {
+        for (Future<?> future : futures) {
+          await(future);
+        }
+      }
+    } finally {
+      executorService.shutdownNow();
+    }
+  }
+
+  private static void await(Future<?> future) {
+    try {
+      future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ReaderException("Scan extents interrupted", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof ReaderException) {
+        throw (ReaderException) e.getCause();
+      }
+      throw new ReaderException(e.getCause());
+    }
+  }
+
+  /**
+   * Shared by all threads, each thread runs the same worker to claim extents.
+   */
+  private final class Worker implements Runnable {
+
+    private final ExtentReader extentReader;
+
+    private final BitSet freeExtents;
+
+    private final ExtentVisitor visitor;
+
+    private final AtomicLong nextExtentNumber = new AtomicLong();
+
+    private final AtomicBoolean failed = new AtomicBoolean();
+
+    Worker(ExtentReader extentReader, BitSet freeExtents, ExtentVisitor visitor) {
+      this.extentReader = extentReader;
+      this.freeExtents = freeExtents;
+      this.visitor = visitor;
+    }
+
+    @Override
+    public void run() {
+      ByteBuffer buffer = ByteBuffer.allocate(PAGES_PER_EXTENT * SIZE_OF_PAGE);
+      long numOfExtents = extentReader.getNumOfExtents();
+      try {
+        long extentNumber = nextExtentNumber.getAndIncrement();
+        while (extentNumber < numOfExtents && !failed.get()) {
+          scanExtent(extentNumber, buffer);
+          extentNumber = nextExtentNumber.getAndIncrement();
+        }
+      } catch (RuntimeException e) {
+        // stop other threads as soon as possible
+        failed.set(true);
+        throw e;
+      }
+    }
+
+    private void scanExtent(long extentNumber, ByteBuffer buffer) {
+      long startPageNumber = extentReader.getStartPageNumber(extentNumber);
+      int numOfPages = extentReader.getNumOfPagesInExtent(extentNumber);
+      if (freeExtents.get((int) extentNumber)) {
+        visitor.visit(startPageNumber, numOfPages, null);
+        return;
+      }
+      buffer.clear();
+      int read = storageService.readPages(startPageNumber, numOfPages, buffer);
+      buffer.flip();
+      visitor.visit(startPageNumber, read, buffer);
+    }
+  }
+
+}
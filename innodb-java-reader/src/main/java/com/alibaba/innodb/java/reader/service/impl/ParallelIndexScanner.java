@@ -0,0 +1,329 @@
+/*
+ * Copyright (C) 1999-2019 Alibaba Group Holding Limited
+ */
+package com.alibaba.innodb.java.reader.service.impl;
+
+import com.alibaba.innodb.java.reader.config.ReaderSystemProperty;
+import com.alibaba.innodb.java.reader.exception.ReaderException;
+import com.alibaba.innodb.java.reader.page.index.GenericRecord;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+import java.util.function.LongFunction;
+
+import lombok.extern.slf4j.Slf4j;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Scan clustered index in parallel by splitting B+ tree into independent subtrees.
+ * <p>
+ * Starting from root, the tree is split at child pointers level by level until there are
+ * enough subtrees to keep all threads of the pool busy or leaf level is reached, usually
+ * at the children of root or the children of level 1 pages. Every subtree is traversed by
+ * one task in a {@link ForkJoinPool}.
+ * <p>
+ * Records can be delivered in two ways:
+ * <ul>
+ * <li>unordered, records are passed to consumer by worker threads as soon as they are decoded,
+ * consumer should be thread-safe, this is the fastest way.</li>
+ * <li>ordered, records are passed to consumer in the calling thread subtree by subtree in
+ * primary key order, at most <code>2 * parallelism</code> subtrees are decoded ahead, each into
+ * a bounded buffer of {@link #ORDERED_SCAN_BUFFER_SIZE} records, so records held in memory do
+ * not grow with table size. Worker whose buffer is full blocks until the calling thread
+ * catches up.</li>
+ * </ul>
+ *
+ * @author xu.zx
+ */
+@Slf4j
+class ParallelIndexScanner {
+
+  /**
+   * Number of subtrees per thread, more subtrees balance the load better.
+   */
+  private static final int SUBTREES_PER_THREAD = 4;
+
+  /**
+   * Max number of records buffered for one subtree in ordered scan.
+   */
+  static final int ORDERED_SCAN_BUFFER_SIZE = 1024;
+
+  private static final Object END_OF_SUBTREE = new Object();
+
+  private final ForkJoinPool pool;
+
+  private final LongFunction<long[]> childrenLoader;
+
+  private final SubtreeTraverser traverser;
+
+  /**
+   * Traverse one subtree in primary key order.
+   */
+  @FunctionalInterface
+  interface SubtreeTraverser {
+
+    /**
+     * Traverse subtree.
+     *
+     * @param pageNumber page number of subtree root
+     * @param consumer   consumer of records
+     */
+    void traverse(long pageNumber, Consumer<GenericRecord> consumer);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param pool           pool to traverse subtrees
+   * @param childrenLoader load child page numbers of a page, return null if it is leaf page,
+   *                       should be thread-safe
+   * @param traverser      traverse one subtree, should be thread-safe
+   */
+  ParallelIndexScanner(ForkJoinPool pool, LongFunction<long[]> childrenLoader, SubtreeTraverser traverser) {
+    this.pool = checkNotNull(pool, "pool should not be null");
+    this.childrenLoader = checkNotNull(childrenLoader);
+    this.traverser = checkNotNull(traverser);
+  }
+
+  /**
+   * Constructor for {@link #forEachSubtree(long, LongConsumer)} only, records are not delivered.
+   *
+   * @param pool           pool to visit subtrees
+   * @param childrenLoader load child page numbers of a page, return null if it is leaf page,
+   *                       should be thread-safe
+   */
+  ParallelIndexScanner(ForkJoinPool pool, LongFunction<long[]> childrenLoader) {
+    this.pool = checkNotNull(pool, "pool should not be null");
+    this.childrenLoader = checkNotNull(childrenLoader);
+    this.traverser = null;
+  }
+
+  /**
+   * Scan the whole tree.
+   *
+   * @param rootPageNumber root page number
+   * @param ordered        if true, records are delivered in primary key order in the calling
+   *                       thread, otherwise delivered concurrently by worker threads
+   * @param consumer       consumer of records
+   * @return number of records delivered
+   */
+  long scan(long rootPageNumber, boolean ordered, Consumer<GenericRecord> consumer) {
+    checkNotNull(consumer, "consumer should not be null");
+    checkState(traverser != null, "traverser is not set");
+    long start = System.currentTimeMillis();
+    List<Long> subtrees = split(rootPageNumber, pool.getParallelism() * SUBTREES_PER_THREAD);
+    long count = ordered ? scanOrdered(subtrees, consumer) : scanUnordered(subtrees, consumer);
+    log.debug("Parallel scan {} records of {} subtrees by {} threads using {}ms, ordered={}", count,
+        subtrees.size(), pool.getParallelism(), System.currentTimeMillis() - start, ordered);
+    return count;
+  }
+
+  /**
+   * Visit subtrees concurrently, for work that does not deliver records one by one, like
+   * aggregation, the visitor decides how to traverse a subtree.
+   *
+   * @param rootPageNumber root page number
+   * @param visitor        visitor of page number of subtree root, should be thread-safe
+   */
+  void forEachSubtree(long rootPageNumber, LongConsumer visitor) {
+    checkNotNull(visitor, "visitor should not be null");
+    long start = System.currentTimeMillis();
+    List<Long> subtrees = split(rootPageNumber, pool.getParallelism() * SUBTREES_PER_THREAD);
+    runAll(subtrees, visitor);
+    log.debug("Visit {} subtrees by {} threads using {}ms", subtrees.size(), pool.getParallelism(),
+        System.currentTimeMillis() - start);
+  }
+
+  /**
+   * Split tree into subtrees in primary key order.
+   *
+   * @param rootPageNumber root page number
+   * @param minSubtrees    stop splitting when there are at least this number of subtrees
+   * @return page numbers of subtree roots
+   */
+  List<Long> split(long rootPageNumber, int minSubtrees) {
+    checkArgument(minSubtrees > 0, "minSubtrees should be positive");
+    List<Long> subtrees = Collections.singletonList(rootPageNumber);
+    while (subtrees.size() < minSubtrees) {
+      List<Long> children = new ArrayList<>(subtrees.size() * 16);
+      for (Long pageNumber : subtrees) {
+        long[] childPageNumbers = childrenLoader.apply(pageNumber);
+        if (childPageNumbers == null) {
+          // pages of the same level, all are leaf pages
+          return subtrees;
+        }
+        for (long childPageNumber : childPageNumbers) {
+          children.add(childPageNumber);
+        }
+      }
+      subtrees = children;
+    }
+    return subtrees;
+  }
+
+  private long scanUnordered(List<Long> subtrees, Consumer<GenericRecord> consumer) {
+    LongAdder count = new LongAdder();
+    Consumer<GenericRecord> countingConsumer = record -> {
+      consumer.accept(record);
+      count.increment();
+    };
+    runAll(subtrees, pageNumber -> traverser.traverse(pageNumber, countingConsumer));
+    return count.sum();
+  }
+
+  private void runAll(List<Long> subtrees, LongConsumer visitor) {
+    List<ForkJoinTask<?>> tasks = new ArrayList<>(subtrees.size());
+    try {
+      for (Long pageNumber : subtrees) {
+        tasks.add(pool.submit(() -> visitor.accept(pageNumber)));
+      }
+      for (ForkJoinTask<?> task : tasks) {
+        task.join();
+      }
+    } finally {
+      cancel(tasks);
+    }
+  }
+
+  private long scanOrdered(List<Long> subtrees, Consumer<GenericRecord> consumer) {
+    int window = pool.getParallelism() * 2;
+    Deque<SubtreeBuffer> buffers = new ArrayDeque<>(window);
+    long count = 0L;
+    int next = 0;
+    try {
+      while (next < subtrees.size() || !buffers.isEmpty()) {
+        while (next < subtrees.size() && buffers.size() < window) {
+          long pageNumber = subtrees.get(next++);
+          SubtreeBuffer buffer = new SubtreeBuffer();
+          buffer.task = pool.submit(() -> {
+            try {
+              traverser.traverse(pageNumber, buffer::put);
+            } finally {
+              buffer.put(END_OF_SUBTREE);
+            }
+          });
+          buffers.addLast(buffer);
+        }
+        SubtreeBuffer buffer = buffers.getFirst();
+        for (Object record = buffer.take(); record != END_OF_SUBTREE; record = buffer.take()) {
+          consumer.accept((GenericRecord) record);
+          count++;
+        }
+        // rethrow if traversal failed
+        buffer.task.join();
+        buffers.removeFirst();
+      }
+    } finally {
+      for (SubtreeBuffer buffer : buffers) {
+        buffer.cancel();
+      }
+    }
+    return count;
+  }
+
+  private static void cancel(Iterable<? extends ForkJoinTask<?>> tasks) {
+    for (ForkJoinTask<?> task : tasks) {
+      task.cancel(false);
+    }
+  }
+
+  /**
+   * Records of one subtree in ordered scan, filled by worker and drained by calling thread.
+   * Worker blocks by {@link ForkJoinPool#managedBlock(ForkJoinPool.ManagedBlocker)} when the
+   * buffer is full, so that the pool can compensate and the subtree being drained always
+   * makes progress.
+   */
+  private static final class SubtreeBuffer {
+
+    private final BlockingQueue<Object> queue = new ArrayBlockingQueue<>(ORDERED_SCAN_BUFFER_SIZE);
+
+    private volatile boolean cancelled;
+
+    private ForkJoinTask<?> task;
+
+    void put(Object item) {
+      if (cancelled) {
+        throw new CancellationException("Ordered scan is cancelled");
+      }
+      if (queue.offer(item)) {
+        return;
+      }
+      try {
+        ForkJoinPool.managedBlock(new ForkJoinPool.ManagedBlocker() {
+
+          private boolean done;
+
+          @Override
+          public boolean block() throws InterruptedException {
+            if (!done) {
+              queue.put(item);
+              done = true;
+            }
+            return true;
+          }
+
+          @Override
+          public boolean isReleasable() {
+            if (!done) {
+              done = queue.offer(item);
+            }
+            return done;
+          }
+        });
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new ReaderException(e);
+      }
+    }
+
+    Object take() {
+      try {
+        return queue.take();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new ReaderException(e);
+      }
+    }
+
+    /**
+     * Stop the worker, records buffered are dropped so that worker blocked is woken up.
+     */
+    void cancel() {
+      cancelled = true;
+      task.cancel(false);
+      queue.clear();
+    }
+  }
+
+  /**
+   * Default pool, {@link ForkJoinPool#commonPool()} if
+   * {@link ReaderSystemProperty#PARALLEL_SCAN_PARALLELISM} is 0, otherwise a shared pool with
+   * the specified parallelism.
+   *
+   * @return pool
+   */
+  static ForkJoinPool defaultPool() {
+    return ReaderSystemProperty.PARALLEL_SCAN_PARALLELISM.value() > 0
+        ? DefaultPoolHolder.POOL : ForkJoinPool.commonPool();
+  }
+
+  private static final class DefaultPoolHolder {
+
+    private static final ForkJoinPool POOL = new ForkJoinPool(ReaderSystemProperty.PARALLEL_SCAN_PARALLELISM.value());
+  }
+
+}
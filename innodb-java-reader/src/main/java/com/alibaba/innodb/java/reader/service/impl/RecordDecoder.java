@@ -0,0 +1,458 @@
+/*
+ * Copyright (C) 1999-2019 Alibaba Group Holding Limited
+ */
+package com.alibaba.innodb.java.reader.service.impl;
+
+import com.alibaba.innodb.java.reader.column.ColumnFactory;
+import com.alibaba.innodb.java.reader.column.ColumnParser;
+import com.alibaba.innodb.java.reader.page.index.GenericRecord;
+import com.alibaba.innodb.java.reader.page.index.LazyGenericRecord;
+import com.alibaba.innodb.java.reader.page.index.LazyGenericRecord.ColumnDecoder;
+import com.alibaba.innodb.java.reader.page.index.LazyGenericRecord.PageScope;
+import com.alibaba.innodb.java.reader.page.index.OverflowPagePointer;
+import com.alibaba.innodb.java.reader.page.index.RecordHeader;
+import com.alibaba.innodb.java.reader.page.index.Row;
+import com.alibaba.innodb.java.reader.schema.Column;
+import com.alibaba.innodb.java.reader.schema.TableDef;
+import com.alibaba.innodb.java.reader.util.SliceInput;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+import lombok.extern.slf4j.Slf4j;
+
+import static com.alibaba.innodb.java.reader.SizeOf.SIZE_OF_REC_HEADER;
+import static com.alibaba.innodb.java.reader.column.ColumnType.BLOB_TEXT_TYPES;
+import static com.alibaba.innodb.java.reader.column.ColumnType.BLOB_TYPES;
+import static com.alibaba.innodb.java.reader.column.ColumnType.CHAR;
+import static com.alibaba.innodb.java.reader.column.ColumnType.CHAR_TYPES;
+import static com.alibaba.innodb.java.reader.column.ColumnType.TEXT_TYPES;
+import static com.alibaba.innodb.java.reader.column.ColumnType.VARBINARY;
+import static com.alibaba.innodb.java.reader.column.ColumnType.VARCHAR;
+import static com.alibaba.innodb.java.reader.service.IndexService.NOP_PROJECTION;
+import static com.google.common.base.Preconditions.checkElementIndex;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Record decoder compiled from {@link TableDef} for leaf or non-leaf page with a projection.
+ * <p>
+ * Everything that does not change from record to record is resolved once when compiling,
+ * including the layout of null bitmap and variable-length array in record header, whether
+ * a length takes two bytes, column parser and ordinal of each column, and whether the
+ * column is in projection. Decoding a record only reads null bits and lengths into primitive
+ * arrays and walks over the pre-computed columns.
+ * <p>
+ * The result is the same as decoding record generically column by column. Instance is
+ * immutable and thread-safe.
+ *
+ * @author xu.zx
+ */
+@Slf4j
+final class RecordDecoder {
+
+  /**
+   * Length of transaction ID and roll pointer in clustered index leaf record.
+   */
+  private static final int SIZE_OF_TRX_ID_AND_ROLL_PTR = 13;
+
+  /**
+   * Length of default row ID if no primary key is defined.
+   */
+  private static final int SIZE_OF_ROW_ID = 6;
+
+  private final TableDef tableDef;
+
+  private final boolean leafPage;
+
+  private final BitSet projection;
+
+  private final int nullByteSize;
+
+  /**
+   * Whether to read null bitmap, only leaf page allows nulls.
+   */
+  private final boolean readNullBitmap;
+
+  /**
+   * Variable-length columns in the order of lengths stored in record header.
+   */
+  private final ColumnStep[] varLenColumns;
+
+  /**
+   * Primary key columns in the order stored in record.
+   */
+  private final ColumnStep[] keyColumns;
+
+  /**
+   * Other columns in the order stored in record, empty for non-leaf page of clustered index.
+   */
+  private final ColumnStep[] valueColumns;
+
+  private RecordDecoder(TableDef tableDef, boolean leafPage, BitSet projection, int nullByteSize,
+                        boolean readNullBitmap, ColumnStep[] varLenColumns, ColumnStep[] keyColumns,
+                        ColumnStep[] valueColumns) {
+    this.tableDef = tableDef;
+    this.leafPage = leafPage;
+    this.projection = projection;
+    this.nullByteSize = nullByteSize;
+    this.readNullBitmap = readNullBitmap;
+    this.varLenColumns = varLenColumns;
+    this.keyColumns = keyColumns;
+    this.valueColumns = valueColumns;
+  }
+
+  /**
+   * Compile decoder.
+   *
+   * @param tableDef        table definition
+   * @param leafPage        is B+ tree leaf page
+   * @param projection      projection of selected column ordinal in bitmap
+   * @param maxBytesPerChar max bytes per character of the table, used to determine if length
+   *                        of character column takes two bytes
+   * @return decoder
+   */
+  static RecordDecoder compile(TableDef tableDef, boolean leafPage, BitSet projection, int maxBytesPerChar) {
+    int nullableColumnNum = tableDef.getNullableColumnNum();
+    int nullByteSize = (nullableColumnNum + 7) / 8;
+    boolean readNullBitmap = leafPage && tableDef.containsNullColumn();
+
+    int[] nullBitIndexes = new int[tableDef.getColumnNum()];
+    Arrays.fill(nullBitIndexes, -1);
+    if (readNullBitmap) {
+      List<Column> nullableColumns = tableDef.getNullableColumnList();
+      for (int i = 0; i < nullableColumns.size(); i++) {
+        nullBitIndexes[nullableColumns.get(i).getOrdinal()] = i;
+      }
+    }
+
+    List<Column> varColumns;
+    if (!tableDef.containsVariableLengthColumn()) {
+      varColumns = new ArrayList<>(0);
+    } else if (leafPage || tableDef.isDerivedFromSk()) {
+      varColumns = tableDef.getVariableLengthColumnList();
+    } else {
+      // for non-leaf page, only pk columns are included
+      varColumns = tableDef.getPrimaryKeyVarLenColumns();
+    }
+    ColumnStep[] varLenColumns = new ColumnStep[varColumns.size()];
+    for (int i = 0; i < varLenColumns.length; i++) {
+      varLenColumns[i] = new ColumnStep(varColumns.get(i), nullByteSize, nullBitIndexes, true, maxBytesPerChar);
+    }
+
+    List<ColumnStep> keyColumns = new ArrayList<>(tableDef.getPrimaryKeyColumnNum());
+    for (Column pkColumn : tableDef.getPrimaryKeyColumns()) {
+      // columns that is not in projection bitmap will be included as well, see readRecord
+      keyColumns.add(new ColumnStep(pkColumn, nullByteSize, nullBitIndexes, true, maxBytesPerChar));
+    }
+    List<ColumnStep> valueColumns = new ArrayList<>(tableDef.getColumnNum());
+    if (leafPage || tableDef.isDerivedFromSk()) {
+      for (Column column : tableDef.getColumnList()) {
+        if (tableDef.isColumnPrimaryKey(column)) {
+          continue;
+        }
+        // projection is ignored for non-leaf page
+        boolean projected = !leafPage || projection == NOP_PROJECTION || projection.get(column.getOrdinal());
+        valueColumns.add(new ColumnStep(column, nullByteSize, nullBitIndexes, projected, maxBytesPerChar));
+      }
+    }
+    return new RecordDecoder(tableDef, leafPage, projection, nullByteSize, readNullBitmap, varLenColumns,
+        keyColumns.toArray(new ColumnStep[0]), valueColumns.toArray(new ColumnStep[0]));
+  }
+
+  /**
+   * If the decoder is compiled for the arguments.
+   *
+   * @param tableDef   table definition, compared by reference
+   * @param leafPage   is B+ tree leaf page
+   * @param projection projection of selected column ordinal in bitmap
+   * @return true if matches
+   */
+  boolean matches(TableDef tableDef, boolean leafPage, BitSet projection) {
+    if (this.tableDef != tableDef || this.leafPage != leafPage) {
+      return false;
+    }
+    // NOP_PROJECTION is empty, it equals to projection without any column but means all columns
+    boolean nop = this.projection == NOP_PROJECTION || projection == NOP_PROJECTION;
+    return nop ? this.projection == projection : this.projection.equals(projection);
+  }
+
+  /**
+   * Decode fields of a user record, infimum and supremum are not handled here.
+   *
+   * @param header        record header
+   * @param pageNumber    page number
+   * @param bodyInput     bytes input, position will be at the end of the record
+   * @param primaryKeyPos position of the record, right after record header
+   * @param scope         scope of the page for lazy record, null to decode eagerly
+   * @param decoder       column decoder for values stored in overflow pages
+   * @return record
+   */
+  GenericRecord decode(RecordHeader header, long pageNumber, SliceInput bodyInput, int primaryKeyPos,
+                       PageScope scope, ColumnDecoder decoder) {
+    byte[] nullBitmap = readNullBitmap ? new byte[nullByteSize] : null;
+    int[] varLens = varLenColumns.length > 0 ? new int[varLenColumns.length] : null;
+    boolean[] overflows = varLenColumns.length > 0 ? new boolean[varLenColumns.length] : null;
+    int numOfVarLens = readHeader(bodyInput, primaryKeyPos, nullBitmap, varLens, overflows);
+
+    bodyInput.setPosition(primaryKeyPos);
+    LazyGenericRecord lazyRecord = scope != null && leafPage
+        ? new LazyGenericRecord(header, tableDef, pageNumber, scope) : null;
+    GenericRecord record = lazyRecord != null ? lazyRecord : new GenericRecord(header, tableDef, pageNumber);
+    int varLenIdx = 0;
+    if (keyColumns.length > 0) {
+      for (ColumnStep step : keyColumns) {
+        if (step.isNull(nullBitmap)) {
+          record.put(step.ordinal, null);
+        } else {
+          varLenIdx = step.read(bodyInput, record, varLens, overflows, numOfVarLens, varLenIdx, decoder);
+        }
+      }
+    } else {
+      bodyInput.skipBytes(SIZE_OF_ROW_ID);
+    }
+    if (log.isTraceEnabled()) {
+      log.trace("Read record, pkPos={}, key={}, recordHeader={}, nullBitmap={}, varLenArray={}, overflow={}",
+          primaryKeyPos, record.getPrimaryKey(), header, Arrays.toString(nullBitmap),
+          Arrays.toString(varLens), Arrays.toString(overflows));
+    }
+    record.setPrimaryKeyPosition(primaryKeyPos);
+
+    if (leafPage && !tableDef.isDerivedFromSk()) {
+      bodyInput.skipBytes(SIZE_OF_TRX_ID_AND_ROLL_PTR);
+    }
+    for (ColumnStep step : valueColumns) {
+      if (step.isNull(nullBitmap)) {
+        if (step.projected) {
+          record.put(step.ordinal, null);
+        }
+      } else if (!step.projected) {
+        varLenIdx = step.skip(bodyInput, varLens, overflows, numOfVarLens, varLenIdx);
+      } else if (lazyRecord != null) {
+        int position = bodyInput.position();
+        int idx = varLenIdx;
+        varLenIdx = step.skip(bodyInput, varLens, overflows, numOfVarLens, varLenIdx);
+        lazyRecord.locate(step.ordinal, position, bodyInput.position() - position,
+            step.varLen ? varLens[idx] : -1, step.varLen && overflows[idx]);
+      } else {
+        varLenIdx = step.read(bodyInput, record, varLens, overflows, numOfVarLens, varLenIdx, decoder);
+      }
+    }
+
+    if (!leafPage) {
+      long childPageNumber = bodyInput.readUnsignedInt();
+      if (log.isTraceEnabled()) {
+        log.trace("Read record, pkPos={}, key={}, childPage={}", primaryKeyPos,
+            Arrays.toString(record.getValues()), childPageNumber);
+      }
+      record.setChildPageNumber(childPageNumber);
+    }
+    return record;
+  }
+
+  /**
+   * Locate columns of a user record in leaf page into row without decoding or allocating.
+   *
+   * @param bodyInput     bytes input, position will be at the end of the record
+   * @param pageNumber    page number
+   * @param primaryKeyPos position of the record, right after record header
+   * @param row           row to reset and fill
+   */
+  void locate(SliceInput bodyInput, long pageNumber, int primaryKeyPos, Row row) {
+    checkState(leafPage, "Only leaf page record can be located");
+    row.reset(bodyInput, pageNumber, primaryKeyPos);
+    byte[] nullBitmap = row.nullBitmapBuffer();
+    int[] varLens = row.varLenBuffer();
+    boolean[] overflows = row.overflowBuffer();
+    int numOfVarLens = readHeader(bodyInput, primaryKeyPos, nullBitmap, varLens, overflows);
+
+    bodyInput.setPosition(primaryKeyPos);
+    int varLenIdx = 0;
+    if (keyColumns.length > 0) {
+      for (ColumnStep step : keyColumns) {
+        varLenIdx = step.locate(bodyInput, row, nullBitmap, varLens, overflows, numOfVarLens, varLenIdx);
+      }
+    } else {
+      bodyInput.skipBytes(SIZE_OF_ROW_ID);
+    }
+    if (!tableDef.isDerivedFromSk()) {
+      bodyInput.skipBytes(SIZE_OF_TRX_ID_AND_ROLL_PTR);
+    }
+    for (ColumnStep step : valueColumns) {
+      if (step.projected) {
+        varLenIdx = step.locate(bodyInput, row, nullBitmap, varLens, overflows, numOfVarLens, varLenIdx);
+      } else if (!step.isNull(nullBitmap)) {
+        varLenIdx = step.skip(bodyInput, varLens, overflows, numOfVarLens, varLenIdx);
+      }
+    }
+  }
+
+  /**
+   * Read null bitmap and lengths of variable-length columns in record header.
+   *
+   * @return number of lengths read, one for each non-null variable-length column
+   */
+  private int readHeader(SliceInput bodyInput, int primaryKeyPos, byte[] nullBitmap, int[] varLens,
+                         boolean[] overflows) {
+    int cursor = primaryKeyPos - SIZE_OF_REC_HEADER - nullByteSize;
+    if (readNullBitmap) {
+      bodyInput.setPosition(cursor);
+      bodyInput.readBytes(nullBitmap, 0, nullByteSize);
+    }
+
+    // For each non-NULL variable-length field, the record header contains the length
+    // in one or two bytes, stored backwards.
+    int numOfVarLens = 0;
+    for (ColumnStep varColumn : varLenColumns) {
+      if (varColumn.isNull(nullBitmap)) {
+        continue;
+      }
+      bodyInput.setPosition(--cursor);
+      int len = bodyInput.readUnsignedByte();
+      boolean overflow = false;
+      if (len > 127 && varColumn.twoBytesLen) {
+        bodyInput.setPosition(--cursor);
+        // This means there is off-page
+        overflow = (0x40 & len) != 0;
+        len = ((len & 0x3f) << 8) + bodyInput.readUnsignedByte();
+      }
+      overflows[numOfVarLens] = overflow;
+      varLens[numOfVarLens++] = len;
+    }
+    return numOfVarLens;
+  }
+
+  /**
+   * Pre-computed column, how to tell null, how to read and skip it.
+   */
+  private static final class ColumnStep {
+
+    private final Column column;
+
+    private final int ordinal;
+
+    private final ColumnParser<?> parser;
+
+    private final String charset;
+
+    private final boolean varLen;
+
+    private final boolean fixedLen;
+
+    private final int length;
+
+    /**
+     * Index of byte in null bitmap, -1 if column is not nullable or null bitmap is not read.
+     */
+    private final int nullByteIndex;
+
+    private final int nullBitMask;
+
+    /**
+     * If the length in variable-length array takes two bytes when it is greater than 127.
+     */
+    private final boolean twoBytesLen;
+
+    private final boolean overflowSupported;
+
+    private final boolean projected;
+
+    ColumnStep(Column column, int nullByteSize, int[] nullBitIndexes, boolean projected, int maxBytesPerChar) {
+      this.column = column;
+      this.ordinal = column.getOrdinal();
+      this.parser = ColumnFactory.getColumnParser(column.getType());
+      this.charset = column.getJavaCharset();
+      this.varLen = column.isVariableLength();
+      this.fixedLen = column.isFixedLength();
+      this.length = column.getLength();
+      int nullBitIndex = column.isNullable() ? nullBitIndexes[ordinal] : -1;
+      // null bitmap is stored backwards, the first nullable column is the lowest bit of the last byte
+      this.nullByteIndex = nullBitIndex < 0 ? -1 : nullByteSize - 1 - nullBitIndex / 8;
+      this.nullBitMask = nullBitIndex < 0 ? 0 : 1 << (nullBitIndex % 8);
+      int factor = CHAR_TYPES.contains(column.getType()) ? maxBytesPerChar : 1;
+      this.twoBytesLen = BLOB_TEXT_TYPES.contains(column.getType()) || column.getLength() * factor > 255;
+      this.overflowSupported = BLOB_TYPES.contains(column.getType()) || TEXT_TYPES.contains(column.getType())
+          || VARBINARY.equals(column.getType()) || VARCHAR.equals(column.getType()) || CHAR.equals(column.getType());
+      this.projected = projected;
+    }
+
+    boolean isNull(byte[] nullBitmap) {
+      return nullByteIndex >= 0 && (nullBitmap[nullByteIndex] & nullBitMask) != 0;
+    }
+
+    /**
+     * Read value and put into record.
+     *
+     * @return index of the next variable-length column
+     */
+    int read(SliceInput bodyInput, GenericRecord record, int[] varLens, boolean[] overflows, int numOfVarLens,
+             int varLenIdx, ColumnDecoder decoder) {
+      if (varLen) {
+        checkElementIndex(varLenIdx, numOfVarLens);
+        if (!overflows[varLenIdx]) {
+          record.put(ordinal, parser.readFrom(bodyInput, varLens[varLenIdx], charset));
+        } else {
+          record.put(ordinal, decoder.decode(bodyInput, column, varLens[varLenIdx], true));
+        }
+        return varLenIdx + 1;
+      } else if (fixedLen) {
+        record.put(ordinal, parser.readFrom(bodyInput, length, charset));
+      } else {
+        record.put(ordinal, parser.readFrom(bodyInput, column));
+      }
+      return varLenIdx;
+    }
+
+    /**
+     * Locate value or set null in row.
+     *
+     * @return index of the next variable-length column
+     */
+    int locate(SliceInput bodyInput, Row row, byte[] nullBitmap, int[] varLens, boolean[] overflows,
+               int numOfVarLens, int varLenIdx) {
+      if (isNull(nullBitmap)) {
+        row.setNull(ordinal);
+        return varLenIdx;
+      }
+      int position = bodyInput.position();
+      int next = skip(bodyInput, varLens, overflows, numOfVarLens, varLenIdx);
+      row.locate(ordinal, position, bodyInput.position() - position,
+          varLen ? varLens[varLenIdx] : -1, varLen && overflows[varLenIdx]);
+      return next;
+    }
+
+    /**
+     * Skip value.
+     *
+     * @return index of the next variable-length column
+     */
+    int skip(SliceInput bodyInput, int[] varLens, boolean[] overflows, int numOfVarLens, int varLenIdx) {
+      if (varLen) {
+        checkElementIndex(varLenIdx, numOfVarLens);
+        if (!overflows[varLenIdx]) {
+          parser.skipFrom(bodyInput, varLens[varLenIdx], charset);
+        } else {
+          skipOverflowPage(bodyInput, varLens[varLenIdx]);
+        }
+        return varLenIdx + 1;
+      } else if (fixedLen) {
+        parser.skipFrom(bodyInput, length, charset);
+      } else {
+        parser.skipFrom(bodyInput, column);
+      }
+      return varLenIdx;
+    }
+
+    private void skipOverflowPage(SliceInput bodyInput, int len) {
+      if (!overflowSupported) {
+        throw new UnsupportedOperationException("Handle overflow page unsupported for type " + column.getType());
+      }
+      if (len - 20 > 0) {
+        bodyInput.skipBytes(768);
+      }
+      OverflowPagePointer.fromSlice(bodyInput);
+    }
+  }
+
+}
@@ -21,11 +21,14 @@ import lombok.extern.slf4j.Slf4j;
  * <i>MonetDB/X100: Hyper-Pipelining Query Execution</i>, this is common in OLTP scenario.
  * Emit one row when calling {@link #next()}, check if the iteration has more rows when
  * calling {@link #hasNext()}.
+ * <p>
+ * When scanning leaf pages, next pages can be loaded ahead in background by
+ * {@link PageReadAhead}, call {@link #close()} if iteration is stopped early.
  *
  * @author xu.zx
  */
 @Slf4j
-public class RecordIterator implements Iterator<GenericRecord> {
+public class RecordIterator implements Iterator<GenericRecord>, AutoCloseable {
 
   protected boolean initialized;
 
@@ -41,6 +44,8 @@ public class RecordIterator implements Iterator<GenericRecord> {
 
   protected boolean asc;
 
+  protected PageReadAhead readAhead;
+
   public RecordIterator() {
   }
 
@@ -56,7 +61,8 @@ public class RecordIterator implements Iterator<GenericRecord> {
    * Initialization includes:
    * <ul>
    *   <li>1. Looking up starting and ending page number.</li>
-   *   <li>2. Load starting page and store records in {@link #curr}</li>
+   *   <li>2. Load starting page, records are either stored in {@link #curr}, or decoded
+   *   one at a time by subclass overriding {@link #doHasNext()} and {@link #next()}</li>
    * </ul>
    */
   public void init() {
@@ -79,4 +85,15 @@ public class RecordIterator implements Iterator<GenericRecord> {
     return curr.get(currIndex++);
   }
 
+  /**
+   * Stop read-ahead if there is any. Iterator exhausted is closed automatically,
+   * iterator abandoned without being closed will stop read-ahead once it is GC-ed.
+   */
+  @Override
+  public void close() {
+    if (readAhead != null) {
+      readAhead.close();
+    }
+  }
+
 }
@@ -0,0 +1,250 @@
+/*
+ * Copyright (C) 1999-2019 Alibaba Group Holding Limited
+ */
+package com.alibaba.innodb.java.reader.service.impl;
+
+import com.alibaba.innodb.java.reader.comparator.ComparisonOperator;
+import com.alibaba.innodb.java.reader.comparator.KeyComparator;
+import com.alibaba.innodb.java.reader.page.index.GenericRecord;
+import com.alibaba.innodb.java.reader.page.index.Index;
+import com.alibaba.innodb.java.reader.schema.Column;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.LongFunction;
+
+import static com.alibaba.innodb.java.reader.comparator.ComparisonOperator.GTE;
+import static com.alibaba.innodb.java.reader.comparator.ComparisonOperator.LT;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Spliterator of records within a primary key range in ascending order.
+ * <p>
+ * Splitting is driven by separator keys of non-leaf pages. The spliterator keeps node pointers
+ * of one non-leaf page whose subtrees cover the remaining range, {@link #trySplit()} divides
+ * them at the middle separator key <code>k</code>, the prefix covers <code>[lower, k)</code>
+ * and this spliterator continues with <code>[k, upper]</code>. If only one subtree is left,
+ * it descends into the subtree and splits by the node pointers there, so that parallel streams
+ * fan out across subtrees down to leaf pages.
+ * <p>
+ * Records are read by range query iterator, which is created on the first traversal, splitting
+ * is not allowed afterwards.
+ * <p>
+ * Size is estimated from the number of records of the non-leaf page, assuming every page in
+ * the subtree has the same number of records, so {@link #SIZED} is not reported since the
+ * number of records in a key range is unknown without scanning.
+ *
+ * @author xu.zx
+ */
+public class RecordSpliterator implements Spliterator<GenericRecord> {
+
+  private static final int CHARACTERISTICS = ORDERED | SORTED | DISTINCT | NONNULL | IMMUTABLE;
+
+  private final KeyComparator keyComparator;
+
+  private final List<Column> keyColumns;
+
+  private final LongFunction<Index> pageLoader;
+
+  private final Function<Index, List<GenericRecord>> nodePointerDecoder;
+
+  private final RangeIteratorFactory iteratorFactory;
+
+  private List<Object> lower;
+
+  private ComparisonOperator lowerOperator;
+
+  private final List<Object> upper;
+
+  private final ComparisonOperator upperOperator;
+
+  /**
+   * Node pointers covering the range, the first one is the subtree containing lower bound.
+   * Null if not loaded yet, empty if range is within one leaf page.
+   */
+  private List<GenericRecord> nodePointers;
+
+  private long subtreePageNumber;
+
+  private long estimatedSize;
+
+  private Iterator<GenericRecord> iterator;
+
+  /**
+   * Create range query iterator.
+   */
+  @FunctionalInterface
+  public interface RangeIteratorFactory {
+
+    /**
+     * Create iterator in ascending order.
+     *
+     * @param lower         lower bound
+     * @param lowerOperator comparison operator for lower
+     * @param upper         upper bound
+     * @param upperOperator comparison operator for upper
+     * @return record iterator
+     */
+    Iterator<GenericRecord> create(List<Object> lower, ComparisonOperator lowerOperator,
+                                   List<Object> upper, ComparisonOperator upperOperator);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param keyComparator      key comparator
+   * @param keyColumns         primary key columns
+   * @param rootPageNumber     root page number
+   * @param pageLoader         load index page
+   * @param nodePointerDecoder decode node pointer records of non-leaf page
+   * @param iteratorFactory    create range query iterator
+   * @param lower              lower bound with all key columns
+   * @param lowerOperator      comparison operator for lower
+   * @param upper              upper bound with all key columns
+   * @param upperOperator      comparison operator for upper
+   */
+  public RecordSpliterator(KeyComparator keyComparator, List<Column> keyColumns, long rootPageNumber,
+                           LongFunction<Index> pageLoader, Function<Index, List<GenericRecord>> nodePointerDecoder,
+                           RangeIteratorFactory iteratorFactory,
+                           List<Object> lower, ComparisonOperator lowerOperator,
+                           List<Object> upper, ComparisonOperator upperOperator) {
+    this.keyComparator = checkNotNull(keyComparator);
+    this.keyColumns = checkNotNull(keyColumns);
+    this.pageLoader = checkNotNull(pageLoader);
+    this.nodePointerDecoder = checkNotNull(nodePointerDecoder);
+    this.iteratorFactory = checkNotNull(iteratorFactory);
+    this.subtreePageNumber = rootPageNumber;
+    this.lower = checkNotNull(lower);
+    this.lowerOperator = lowerOperator;
+    this.upper = checkNotNull(upper);
+    this.upperOperator = upperOperator;
+  }
+
+  private RecordSpliterator(RecordSpliterator parent, List<GenericRecord> nodePointers, long estimatedSize,
+                            List<Object> upper, ComparisonOperator upperOperator) {
+    this.keyComparator = parent.keyComparator;
+    this.keyColumns = parent.keyColumns;
+    this.pageLoader = parent.pageLoader;
+    this.nodePointerDecoder = parent.nodePointerDecoder;
+    this.iteratorFactory = parent.iteratorFactory;
+    this.lower = parent.lower;
+    this.lowerOperator = parent.lowerOperator;
+    this.upper = upper;
+    this.upperOperator = upperOperator;
+    this.nodePointers = nodePointers;
+    this.estimatedSize = estimatedSize;
+  }
+
+  @Override
+  public boolean tryAdvance(Consumer<? super GenericRecord> action) {
+    checkNotNull(action);
+    Iterator<GenericRecord> it = iterator();
+    if (it.hasNext()) {
+      action.accept(it.next());
+      return true;
+    }
+    return false;
+  }
+
+  @Override
+  public void forEachRemaining(Consumer<? super GenericRecord> action) {
+    checkNotNull(action);
+    iterator().forEachRemaining(action);
+  }
+
+  @Override
+  public Spliterator<GenericRecord> trySplit() {
+    if (iterator != null) {
+      return null;
+    }
+    if (nodePointers == null) {
+      descend();
+    }
+    while (nodePointers.size() == 1) {
+      subtreePageNumber = nodePointers.get(0).getChildPageNumber();
+      descend();
+    }
+    if (nodePointers.isEmpty()) {
+      return null;
+    }
+    int mid = nodePointers.size() / 2;
+    List<Object> separator = nodePointers.get(mid).getPrimaryKey();
+    long prefixEstimatedSize = estimatedSize / nodePointers.size() * mid;
+    RecordSpliterator prefix = new RecordSpliterator(this, new ArrayList<>(nodePointers.subList(0, mid)),
+        prefixEstimatedSize, separator, LT);
+    nodePointers = new ArrayList<>(nodePointers.subList(mid, nodePointers.size()));
+    estimatedSize -= prefixEstimatedSize;
+    lower = separator;
+    lowerOperator = GTE;
+    return prefix;
+  }
+
+  @Override
+  public long estimateSize() {
+    if (nodePointers == null) {
+      descend();
+    }
+    return estimatedSize;
+  }
+
+  @Override
+  public int characteristics() {
+    return CHARACTERISTICS;
+  }
+
+  @Override
+  public Comparator<? super GenericRecord> getComparator() {
+    return (r1, r2) -> keyComparator.compare(r1.getPrimaryKey(), r2.getPrimaryKey(), keyColumns);
+  }
+
+  private Iterator<GenericRecord> iterator() {
+    if (iterator == null) {
+      iterator = iteratorFactory.create(lower, lowerOperator, upper, upperOperator);
+    }
+    return iterator;
+  }
+
+  /**
+   * Load node pointers of subtree root page covering the range.
+   */
+  private void descend() {
+    Index index = pageLoader.apply(subtreePageNumber);
+    try {
+      int numOfRecs = index.getIndexHeader().getNumOfRecs();
+      if (index.isLeafPage()) {
+        nodePointers = new ArrayList<>(0);
+        estimatedSize = numOfRecs;
+        return;
+      }
+      List<GenericRecord> records = nodePointerDecoder.apply(index);
+      int floor = 0;
+      while (floor + 1 < records.size()
+          && keyComparator.compare(records.get(floor + 1).getPrimaryKey(), lower, keyColumns) <= 0) {
+        floor++;
+      }
+      int end = floor + 1;
+      while (end < records.size() && keyComparator.compare(records.get(end).getPrimaryKey(), upper, keyColumns) < 0) {
+        end++;
+      }
+      nodePointers = new ArrayList<>(records.subList(floor, end));
+      // estimation of deeper level is more accurate
+      estimatedSize = estimateSubtreeSize(numOfRecs, index.getIndexHeader().getPageLevel()) * nodePointers.size();
+    } finally {
+      index.release();
+    }
+  }
+
+  private static long estimateSubtreeSize(int numOfRecs, int level) {
+    long size = 1L;
+    for (int i = 0; i < level && size < Long.MAX_VALUE / Math.max(numOfRecs, 1) / 1024; i++) {
+      size *= Math.max(numOfRecs, 1);
+    }
+    return size;
+  }
+
+}
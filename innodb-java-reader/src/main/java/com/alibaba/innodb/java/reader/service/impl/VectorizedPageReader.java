@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) 1999-2019 Alibaba Group Holding Limited
+ */
+package com.alibaba.innodb.java.reader.service.impl;
+
+import com.alibaba.innodb.java.reader.page.index.ColumnBatch;
+import com.alibaba.innodb.java.reader.page.index.Index;
+import com.alibaba.innodb.java.reader.page.index.Row;
+import com.alibaba.innodb.java.reader.util.SliceInput;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Decode records of leaf page into {@link ColumnBatch}. Columns are located by
+ * {@link RecordDecoder} with one {@link Row}, then appended to column vectors, the row
+ * and the batch are reused for all pages.
+ *
+ * @author xu.zx
+ */
+final class VectorizedPageReader {
+
+  private final RecordDecoder recordDecoder;
+
+  private final Row row;
+
+  private final ColumnBatch batch;
+
+  /**
+   * Constructor.
+   *
+   * @param recordDecoder decoder compiled for leaf page
+   * @param row           row of the table definition the decoder is compiled for
+   * @param batch         batch to decode into
+   */
+  VectorizedPageReader(RecordDecoder recordDecoder, Row row, ColumnBatch batch) {
+    this.recordDecoder = recordDecoder;
+    this.row = row;
+    this.batch = batch;
+  }
+
+  /**
+   * Decode all user records of a leaf page in order.
+   *
+   * @param index leaf page
+   * @return batch, valid until next page is read
+   */
+  ColumnBatch read(Index index) {
+    checkArgument(index.isLeafPage(), "Page %s is not leaf page", index.getPageNumber());
+    long pageNumber = index.getPageNumber();
+    batch.reset(pageNumber);
+    SliceInput sliceInput = index.getSliceInput();
+    int supremumPos = index.getSupremum().getPrimaryKeyPosition();
+    int recordPos = index.getInfimum().nextRecordPosition();
+    while (recordPos != supremumPos) {
+      // next record offset is the last 2 bytes of record header
+      sliceInput.setPosition(recordPos - 2);
+      int nextRecordPos = recordPos + sliceInput.readShort();
+      recordDecoder.locate(sliceInput, pageNumber, recordPos, row);
+      batch.append(row);
+      recordPos = nextRecordPos;
+    }
+    return batch;
+  }
+
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 1999-2019 Alibaba Group Holding Limited
+ */
+package com.alibaba.innodb.java.reader.util;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Release direct or memory-mapped {@link ByteBuffer} deterministically instead of
+ * waiting for GC to reclaim the native memory or unmap the file region.
+ * <p>
+ * For JDK9+, <code>sun.misc.Unsafe#invokeCleaner</code> is used, for JDK8
+ * <code>sun.nio.ch.DirectBuffer#cleaner</code> is used. If neither is available,
+ * releasing is a no-op and the buffer is left to GC.
+ * <p>
+ * Note that once a buffer is cleaned, any access to it or its duplicates will crash the
+ * JVM, so callers must make sure the buffer is no longer referenced.
+ *
+ * @author xu.zx
+ */
+@Slf4j
+public final class ByteBufferCleaner {
+
+  private static final Cleaner CLEANER = createCleaner();
+
+  private ByteBufferCleaner() {
+  }
+
+  /**
+   * Whether releasing is supported by current JVM.
+   *
+   * @return true if supported
+   */
+  public static boolean isSupported() {
+    return CLEANER != null;
+  }
+
+  /**
+   * Release the buffer, the buffer must be the original one, not a duplicate or slice.
+   *
+   * @param buffer direct or mapped byte buffer
+   * @return true if buffer is released
+   */
+  public static boolean clean(ByteBuffer buffer) {
+    if (buffer == null || !buffer.isDirect() || CLEANER == null) {
+      return false;
+    }
+    try {
+      CLEANER.clean(buffer);
+      return true;
+    } catch (Exception e) {
+      log.warn("Failed to clean buffer {}, {}", buffer, e.getMessage());
+      return false;
+    }
+  }
+
+  private static Cleaner createCleaner() {
+    try {
+      Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+      final Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+      Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+      theUnsafe.setAccessible(true);
+      final Object unsafe = theUnsafe.get(null);
+      return buffer -> invokeCleaner.invoke(unsafe, buffer);
+    } catch (Exception e) {
+      log.debug("sun.misc.Unsafe#invokeCleaner not found, fallback to DirectBuffer#cleaner");
+    }
+    try {
+      final Method cleanerMethod = Class.forName("sun.nio.ch.DirectBuffer").getMethod("cleaner");
+      final Method cleanMethod = Class.forName("sun.misc.Cleaner").getMethod("clean");
+      return buffer -> {
+        Object cleaner = cleanerMethod.invoke(buffer);
+        if (cleaner != null) {
+          cleanMethod.invoke(cleaner);
+        }
+      };
+    } catch (Exception e) {
+      log.warn("JVM does not support releasing direct byte buffer explicitly");
+      return null;
+    }
+  }
+
+  private interface Cleaner {
+
+    /**
+     * Release the buffer.
+     *
+     * @param buffer byte buffer
+     * @throws Exception if reflective invocation fails
+     */
+    void clean(ByteBuffer buffer) throws Exception;
+  }
+
+}
@@ -11,7 +11,6 @@ import static com.alibaba.innodb.java.reader.SizeOf.SIZE_OF_INT;
 import static com.alibaba.innodb.java.reader.SizeOf.SIZE_OF_LONG;
 import static com.alibaba.innodb.java.reader.SizeOf.SIZE_OF_MEDIUMINT;
 import static com.alibaba.innodb.java.reader.SizeOf.SIZE_OF_SHORT;
-import static com.google.common.base.Preconditions.checkPositionIndex;
 import static com.google.common.base.Preconditions.checkPositionIndexes;
 import static java.util.Objects.requireNonNull;
 
@@ -156,10 +155,12 @@ public final class ByteBufferSlice implements Slice {
 
   @Override
   public void getBytes(int index, ByteBuffer destination) {
-    checkPositionIndex(index, this.length);
-    index += offset;
-    byte[] bytes = getBytes(index, Math.min(length, destination.remaining()));
-    destination.put(bytes);
+    int length = destination.remaining();
+    checkPositionIndexes(index, index + length, this.length);
+    ByteBuffer source = data.duplicate();
+    source.limit(offset + index + length);
+    source.position(offset + index);
+    destination.put(source);
   }
 
   @Override
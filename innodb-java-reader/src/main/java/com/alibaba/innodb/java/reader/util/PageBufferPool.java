@@ -0,0 +1,179 @@
+/*
+ * Copyright (C) 1999-2019 Alibaba Group Holding Limited
+ */
+package com.alibaba.innodb.java.reader.util;
+
+import com.alibaba.innodb.java.reader.page.InnerPage;
+
+import java.lang.ref.PhantomReference;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.nio.ByteBuffer;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import lombok.extern.slf4j.Slf4j;
+
+import static com.alibaba.innodb.java.reader.SizeOf.SIZE_OF_PAGE;
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Pool of reusable 16k page buffers, so that scanning pages will not allocate one
+ * buffer for each page.
+ * <p>
+ * Buffer is acquired by storage service when loading page and attached to
+ * {@link InnerPage}, the one who finishes decoding the page should call
+ * {@link InnerPage#release()} to give the buffer back to pool. Buffers not released are
+ * simply reclaimed by GC.
+ * <p>
+ * If leak detection is enabled, every attached page is tracked by a phantom reference,
+ * pages collected by GC without being released are reported with the stack trace where
+ * they were loaded. Leak detection is expensive and should only be used for debugging.
+ *
+ * @author xu.zx
+ */
+@Slf4j
+public class PageBufferPool {
+
+  private final BlockingQueue<ByteBuffer> freeBuffers;
+
+  private final boolean leakDetection;
+
+  private final ReferenceQueue<InnerPage> referenceQueue = new ReferenceQueue<>();
+
+  private final Set<LeakTracker> trackers = ConcurrentHashMap.newKeySet();
+
+  private final LongAdder allocatedCount = new LongAdder();
+
+  private final LongAdder acquiredCount = new LongAdder();
+
+  private final LongAdder releasedCount = new LongAdder();
+
+  private final LongAdder leakCount = new LongAdder();
+
+  /**
+   * Constructor.
+   *
+   * @param maxFreeBuffers max number of free buffers kept in pool
+   * @param leakDetection  whether to enable leak detection
+   */
+  public PageBufferPool(int maxFreeBuffers, boolean leakDetection) {
+    checkArgument(maxFreeBuffers > 0, "maxFreeBuffers should be positive");
+    this.freeBuffers = new ArrayBlockingQueue<>(maxFreeBuffers);
+    this.leakDetection = leakDetection;
+  }
+
+  /**
+   * Acquire one page buffer, cleared and ready to be read into.
+   *
+   * @return heap byte buffer of page size
+   */
+  public ByteBuffer acquire() {
+    if (leakDetection) {
+      reportLeaks();
+    }
+    acquiredCount.increment();
+    ByteBuffer buffer = freeBuffers.poll();
+    if (buffer == null) {
+      allocatedCount.increment();
+      return ByteBuffer.allocate(SIZE_OF_PAGE);
+    }
+    buffer.clear();
+    return buffer;
+  }
+
+  /**
+   * Give back the buffer directly, for example, when the page cannot be constructed.
+   *
+   * @param buffer buffer acquired from this pool
+   */
+  public void release(ByteBuffer buffer) {
+    releasedCount.increment();
+    freeBuffers.offer(buffer);
+  }
+
+  /**
+   * Attach buffer to page, the buffer will be given back when the page is released.
+   *
+   * @param page   page
+   * @param buffer buffer acquired from this pool which backs the page
+   */
+  public void attach(InnerPage page, ByteBuffer buffer) {
+    if (leakDetection) {
+      LeakTracker tracker = new LeakTracker(page, referenceQueue);
+      trackers.add(tracker);
+      page.setReleaseHook(() -> {
+        trackers.remove(tracker);
+        tracker.clear();
+        release(buffer);
+      });
+    } else {
+      page.setReleaseHook(() -> release(buffer));
+    }
+  }
+
+  /**
+   * Number of buffers allocated since the pool is created, in steady state
+   * this should not increase.
+   *
+   * @return count
+   */
+  public long getAllocatedCount() {
+    return allocatedCount.sum();
+  }
+
+  public long getAcquiredCount() {
+    return acquiredCount.sum();
+  }
+
+  public long getReleasedCount() {
+    return releasedCount.sum();
+  }
+
+  /**
+   * Number of leaked pages detected, always 0 if leak detection is disabled.
+   *
+   * @return count
+   */
+  public long getLeakCount() {
+    if (leakDetection) {
+      reportLeaks();
+    }
+    return leakCount.sum();
+  }
+
+  public int getFreeBufferCount() {
+    return freeBuffers.size();
+  }
+
+  @Override
+  public String toString() {
+    return "PageBufferPool(allocated=" + getAllocatedCount() + ", acquired=" + getAcquiredCount()
+        + ", released=" + getReleasedCount() + ", free=" + getFreeBufferCount() + ")";
+  }
+
+  private void reportLeaks() {
+    for (Reference<? extends InnerPage> ref = referenceQueue.poll(); ref != null; ref = referenceQueue.poll()) {
+      LeakTracker tracker = (LeakTracker) ref;
+      if (trackers.remove(tracker)) {
+        leakCount.increment();
+        // buffer is not recycled since it may still be referenced by slice input
+        log.warn("Page buffer leak detected, page is not released before GC", tracker.loadedAt);
+      }
+    }
+  }
+
+  private static final class LeakTracker extends PhantomReference<InnerPage> {
+
+    private final Throwable loadedAt;
+
+    LeakTracker(InnerPage page, ReferenceQueue<InnerPage> queue) {
+      super(page, queue);
+      this.loadedAt = new Throwable("Page " + page.getPageNumber() + " loaded at");
+    }
+  }
+
+}
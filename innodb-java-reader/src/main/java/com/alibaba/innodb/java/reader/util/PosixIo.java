@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) 1999-2019 Alibaba Group Holding Limited
+ */
+package com.alibaba.innodb.java.reader.util;
+
+import com.sun.jna.Function;
+import com.sun.jna.Native;
+import com.sun.jna.NativeLibrary;
+import com.sun.jna.NativeLong;
+import com.sun.jna.Platform;
+import com.sun.jna.Pointer;
+
+import java.io.IOException;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Thin JNA binding to a few libc file io functions which are not exposed by JDK,
+ * only Linux is supported, check {@link #isAvailable()} before calling.
+ *
+ * @author xu.zx
+ */
+@Slf4j
+public final class PosixIo {
+
+  private static final int O_RDONLY = 0;
+
+  private static final int POSIX_FADV_DONTNEED = 4;
+
+  private static final Function OPEN;
+
+  private static final Function CLOSE;
+
+  private static final Function PREAD;
+
+  private static final Function POSIX_FADVISE;
+
+  static {
+    Function open = null;
+    Function close = null;
+    Function pread = null;
+    Function fadvise = null;
+    if (Platform.isLinux()) {
+      try {
+        NativeLibrary libc = NativeLibrary.getInstance(Platform.C_LIBRARY_NAME);
+        open = libc.getFunction("open");
+        close = libc.getFunction("close");
+        pread = libc.getFunction("pread");
+        fadvise = libc.getFunction("posix_fadvise");
+      } catch (Throwable e) {
+        log.warn("Load libc failed, {}", e.getMessage());
+        open = null;
+      }
+    }
+    OPEN = open;
+    CLOSE = close;
+    PREAD = pread;
+    POSIX_FADVISE = fadvise;
+  }
+
+  private PosixIo() {
+  }
+
+  public static boolean isAvailable() {
+    return OPEN != null;
+  }
+
+  /**
+   * Open file in read-only mode.
+   *
+   * @param path file path
+   * @return file descriptor
+   * @throws IOException if open failed
+   */
+  public static int openReadOnly(String path) throws IOException {
+    int fd = OPEN.invokeInt(new Object[] {path, O_RDONLY});
+    if (fd < 0) {
+      throw new IOException("Open " + path + " failed, errno " + Native.getLastError());
+    }
+    return fd;
+  }
+
+  public static void close(int fd) {
+    if (fd >= 0) {
+      CLOSE.invokeInt(new Object[] {fd});
+    }
+  }
+
+  /**
+   * Read <code>length</code> bytes at file <code>offset</code> into native memory. For file
+   * opened with O_DIRECT, pointer, length and offset must be aligned to logical block size.
+   *
+   * @param fd      file descriptor
+   * @param pointer destination native memory
+   * @param length  number of bytes to read
+   * @param offset  file offset
+   * @return number of bytes read, which may be less than length at end of file
+   * @throws IOException if read failed
+   */
+  public static int pread(int fd, Pointer pointer, int length, long offset) throws IOException {
+    int total = 0;
+    while (total < length) {
+      NativeLong n = (NativeLong) PREAD.invoke(NativeLong.class,
+          new Object[] {fd, pointer.share(total), new NativeLong(length - total), new NativeLong(offset + total)});
+      long read = n.longValue();
+      if (read < 0) {
+        throw new IOException("Read at offset " + (offset + total) + " failed, errno " + Native.getLastError());
+      }
+      if (read == 0) {
+        break;
+      }
+      total += read;
+    }
+    return total;
+  }
+
+  /**
+   * Tell kernel the file range will not be accessed in the near future so that
+   * the page cache can be released. Failure is ignored since it is only an advice.
+   *
+   * @param fd     file descriptor
+   * @param offset file offset
+   * @param length length of range
+   */
+  public static void fadviseDontNeed(int fd, long offset, long length) {
+    int ret = POSIX_FADVISE.invokeInt(new Object[] {fd, new NativeLong(offset), new NativeLong(length),
+        POSIX_FADV_DONTNEED});
+    if (ret != 0 && log.isDebugEnabled()) {
+      log.debug("posix_fadvise at offset {} length {} failed, errno {}", offset, length, ret);
+    }
+  }
+
+}
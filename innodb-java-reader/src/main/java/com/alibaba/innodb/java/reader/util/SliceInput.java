@@ -33,6 +33,17 @@ public final class SliceInput extends InputStream implements DataInput {
     this.slice = slice;
   }
 
+  /**
+   * Create a new input over the same slice with independent position.
+   *
+   * @return input starting at the current position
+   */
+  public SliceInput duplicate() {
+    SliceInput input = new SliceInput(slice);
+    input.position = position;
+    return input;
+  }
+
   public int position() {
     return position;
   }
@@ -25,6 +25,8 @@
  */
 package com.alibaba.innodb.java.reader.util;
 
+import java.lang.reflect.Constructor;
+
 import static com.google.common.base.Preconditions.checkArgument;
 
 /**
@@ -50,8 +52,15 @@ public class Ut0Crc32 {
 
   private static final long[][] UT_CRC_32_SLICE_8_TABLE = new long[8][256];
 
-  private static ThreadLocal<long[][]> UT_CRC_32_SLICE_8_TABLE_THREAD_LOCAL
-      = ThreadLocal.withInitial(() -> new long[8][256]);
+  /**
+   * <code>java.util.zip.CRC32C</code> since Java 9 is intrinsified to SSE4.2 <code>crc32</code>
+   * or ARMv8 <code>crc32c</code> instructions, the same polynomial as this table-driven
+   * implementation. Load it by reflection to keep compatible with Java 8, null if unavailable.
+   */
+  private static final Constructor<? extends java.util.zip.Checksum> CRC32C_CONSTRUCTOR = loadCrc32cConstructor();
+
+  private static final ThreadLocal<java.util.zip.Checksum> CRC32C_THREAD_LOCAL =
+      ThreadLocal.withInitial(Ut0Crc32::newCrc32c);
 
   // private static boolean utCrc32Slice8TableInitialized = false;
 
@@ -84,10 +93,46 @@ public class Ut0Crc32 {
     //ut_crc32_slice8_table_initialized = true;
   }
 
+  /**
+   * Calculate CRC32C checksum, use hardware-accelerated <code>java.util.zip.CRC32C</code>
+   * if running on Java 9 or later, otherwise fall back to {@link #crc32(byte[], int, int)}.
+   *
+   * @param data   data
+   * @param offset offset
+   * @param len    length
+   * @return checksum
+   */
+  public static long crc32c(byte[] data, int offset, int len) {
+    if (CRC32C_CONSTRUCTOR == null) {
+      return crc32(data, offset, len);
+    }
+    java.util.zip.Checksum checksum = CRC32C_THREAD_LOCAL.get();
+    checksum.reset();
+    checksum.update(data, offset, len);
+    return checksum.getValue();
+  }
+
+  /**
+   * Whether {@link #crc32c(byte[], int, int)} uses <code>java.util.zip.CRC32C</code>.
+   *
+   * @return true if available
+   */
+  public static boolean isCrc32cIntrinsicAvailable() {
+    return CRC32C_CONSTRUCTOR != null;
+  }
+
+  /**
+   * Calculate CRC32C checksum using table-driven software implementation.
+   *
+   * @param data   data
+   * @param offset offset
+   * @param len    length
+   * @return checksum
+   */
   public static long crc32(byte[] data, int offset, int len) {
     long crc = 0xFFFFFFFFL;
 
-    long[][] table = init(UT_CRC_32_SLICE_8_TABLE_THREAD_LOCAL.get());
+    long[][] table = UT_CRC_32_SLICE_8_TABLE;
 
     /* Calculate byte-by-byte up to an 8-byte aligned address. After
     this consume the input 8-bytes at a time. */
@@ -123,19 +168,27 @@ public class Ut0Crc32 {
     return (~crc) & 0xFFFFFFFFL;
   }
 
-  private static long[][] init(long[][] table) {
-    for (int i = 0; i < 8; i++) {
-      for (int j = 0; j < 256; j++) {
-        table[i][j] = UT_CRC_32_SLICE_8_TABLE[i][j];
-      }
+  @SuppressWarnings("unchecked")
+  private static Constructor<? extends java.util.zip.Checksum> loadCrc32cConstructor() {
+    try {
+      return (Constructor<? extends java.util.zip.Checksum>) Class.forName("java.util.zip.CRC32C").getConstructor();
+    } catch (ClassNotFoundException | NoSuchMethodException | RuntimeException e) {
+      return null;
+    }
+  }
+
+  private static java.util.zip.Checksum newCrc32c() {
+    try {
+      return CRC32C_CONSTRUCTOR.newInstance();
+    } catch (ReflectiveOperationException e) {
+      throw new IllegalStateException("Failed to create CRC32C", e);
     }
-    return table;
   }
 
   public static long crc32ByteByByte(byte[] data, int offset, int len) {
     long crc = 0xFFFFFFFFL;
 
-    long[][] table = init(UT_CRC_32_SLICE_8_TABLE_THREAD_LOCAL.get());
+    long[][] table = UT_CRC_32_SLICE_8_TABLE;
 
     while (len > 0) {
       crc = utCrc328Sw(crc, data[offset] & 0xFFL, table);
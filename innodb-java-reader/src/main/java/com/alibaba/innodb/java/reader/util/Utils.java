@@ -18,6 +18,7 @@ import java.io.Closeable;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.math.BigInteger;
 import java.sql.Time;
 import java.sql.Timestamp;
 import java.time.Instant;
@@ -440,6 +441,39 @@ public class Utils {
     return LocalTime.parse(s, TIME_FORMAT_TIME[precision]);
   }
 
+  /**
+   * Encode integer literal as it is stored in page, that is big-endian with sign bit
+   * flipped for signed integer, so encoded values can be compared byte by byte as unsigned.
+   *
+   * @param literal integer literal
+   * @param size    number of bytes of integer type
+   * @param signed  if integer type is signed
+   * @return encoded bytes, null if literal is not integer or out of range
+   */
+  public static byte[] encodeInteger(Object literal, int size, boolean signed) {
+    BigInteger value;
+    if (literal instanceof BigInteger) {
+      value = (BigInteger) literal;
+    } else if (literal instanceof Long || literal instanceof Integer
+        || literal instanceof Short || literal instanceof Byte) {
+      value = BigInteger.valueOf(((Number) literal).longValue());
+    } else {
+      return null;
+    }
+    if (signed) {
+      // flip sign bit
+      value = value.add(BigInteger.ONE.shiftLeft(size * 8 - 1));
+    }
+    if (value.signum() < 0 || value.bitLength() > size * 8) {
+      return null;
+    }
+    byte[] result = new byte[size];
+    for (int i = 0; i < size; i++) {
+      result[i] = value.shiftRight((size - 1 - i) * 8).byteValue();
+    }
+    return result;
+  }
+
   public static TimeZone getTimeZone() {
     if (StringUtils.isEmpty(ReaderSystemProperty.SERVER_TIME_ZONE.value())) {
       if (ReaderSystemProperty.DISABLE_DAYLIGHT_SAVINGS_TIME.value()) {
@@ -0,0 +1,164 @@
+package com.alibaba.innodb.java.reader.filter;
+
+import com.alibaba.innodb.java.reader.AbstractTest;
+import com.alibaba.innodb.java.reader.TableReader;
+import com.alibaba.innodb.java.reader.TableReaderImpl;
+import com.alibaba.innodb.java.reader.column.ColumnIntegerTableReaderTest;
+import com.alibaba.innodb.java.reader.exception.ReaderException;
+import com.alibaba.innodb.java.reader.nullcolumn.NullColumnTableReaderTest;
+import com.alibaba.innodb.java.reader.page.index.GenericRecord;
+import com.alibaba.innodb.java.reader.page.index.LazyGenericRecord;
+import com.alibaba.innodb.java.reader.pk.CompositePrimaryKeyMultiLevelTableReaderTest;
+import com.alibaba.innodb.java.reader.schema.TableDef;
+import com.alibaba.innodb.java.reader.util.Utils;
+
+import org.apache.commons.lang3.StringUtils;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author xu.zx
+ */
+public class FilterTest extends AbstractTest {
+
+  private static final String SQL = new CompositePrimaryKeyMultiLevelTableReaderTest().sql();
+
+  @Test
+  public void testIntegerColumnsMysql56() throws IOException {
+    testIntegerColumns(IBD_FILE_BASE_PATH_MYSQL56 + "column/int/tb02.ibd");
+  }
+
+  @Test
+  public void testIntegerColumnsMysql80() throws IOException {
+    testIntegerColumns(IBD_FILE_BASE_PATH_MYSQL80 + "column/int/tb02.ibd");
+  }
+
+  private void testIntegerColumns(String ibdFile) throws IOException {
+    TableDef tableDef = new ColumnIntegerTableReaderTest().getTableDef();
+    try (TableReader reader = new TableReaderImpl(ibdFile, tableDef)) {
+      reader.open();
+      List<GenericRecord> all = reader.queryAll();
+      List<Object> literals = Arrays.asList(-1000000, -100, -1, 0, 1, 100, 10000, 1000000, 100000000000L,
+          new BigInteger("18446744073709551615"), 1.5d);
+      int nonEmpty = 0;
+      for (String column : tableDef.getColumnNames()) {
+        for (Object literal : literals) {
+          for (Filter filter : Arrays.asList(Filter.eq(column, literal), Filter.ne(column, literal),
+              Filter.gt(column, literal), Filter.gte(column, literal), Filter.lt(column, literal),
+              Filter.lte(column, literal), Filter.in(column, literal, 1))) {
+            List<GenericRecord> result = reader.queryAll(filter);
+            // evaluated on decoded records
+            List<GenericRecord> expected = all.stream().filter(filter.compile(reader.getTableDef()))
+                .collect(Collectors.toList());
+            assertThat(filter.toString(), keys(result), is(keys(expected)));
+            if (!result.isEmpty()) {
+              nonEmpty++;
+            }
+          }
+        }
+      }
+      assertThat(nonEmpty > 0, is(true));
+
+      List<GenericRecord> result = reader.queryAll(Filter.and(Filter.lt("c_tinyint", 0),
+          Filter.gte("c_bigint", -100000000000L)));
+      assertThat(result.stream().allMatch(r -> ((Byte) r.get("c_tinyint")) < 0), is(true));
+      assertThat(result.isEmpty(), is(false));
+    }
+  }
+
+  @Test
+  public void testRawComparison() throws IOException {
+    try (TableReader reader = new TableReaderImpl(IBD_FILE_BASE_PATH_MYSQL56 + "pk/tb24.ibd", SQL)) {
+      reader.open();
+      List<GenericRecord> all = reader.queryAll();
+      int c2 = reader.getTableDef().getField("c2").getOrdinal();
+      int c3 = reader.getTableDef().getField("c3").getOrdinal();
+      Object c3Value = all.get(100).get("c3");
+
+      // c2 is part of primary key, use c3 which is not decoded eagerly
+      AtomicInteger matched = new AtomicInteger();
+      reader.lazyScan(Filter.eq("c3", c3Value).compile(reader.getTableDef()), r -> {
+        // compared without decoding
+        assertThat(((LazyGenericRecord) r).hasRawValue(c3), is(true));
+        matched.incrementAndGet();
+      });
+      assertThat(matched.get(), is((int) all.stream().filter(r -> c3Value.equals(r.get("c3"))).count()));
+
+      Filter filter = Filter.or(Filter.in("c3", c3Value, "not exist"),
+          Filter.and(Filter.gte("c2", 10), Filter.lt("c2", 20)));
+      List<GenericRecord> expected = all.stream()
+          .filter(r -> c3Value.equals(r.get("c3")) || ((Integer) r.get(c2) >= 10 && (Integer) r.get(c2) < 20))
+          .collect(Collectors.toList());
+      assertThat(keys(reader.queryAll(filter)), is(keys(expected)));
+
+      // projection with filter columns included
+      List<GenericRecord> projected = reader.queryAll(Filter.eq("c3", c3Value), Collections.singletonList("c1"));
+      assertThat(projected.isEmpty(), is(false));
+      assertThat(projected.get(0).get("c3"), is(c3Value));
+      assertThat(projected.get(0).get("c4"), nullValue());
+    }
+  }
+
+  @Test
+  public void testNullColumns() throws IOException {
+    TableDef tableDef = new NullColumnTableReaderTest().getTableDef();
+    try (TableReader reader = new TableReaderImpl(IBD_FILE_BASE_PATH_MYSQL57 + "nullcolumn/tb12.ibd", tableDef)) {
+      reader.open();
+      List<GenericRecord> all = reader.queryAll();
+      assertThat(keys(reader.queryAll(Filter.isNull("c"))),
+          is(keys(all.stream().filter(r -> r.get("c") == null).collect(Collectors.toList()))));
+      assertThat(keys(reader.queryAll(Filter.isNotNull("f"))),
+          is(keys(all.stream().filter(r -> r.get("f") != null).collect(Collectors.toList()))));
+      // comparing with null is false
+      assertThat(reader.queryAll(Filter.ne("c", "x")).stream().allMatch(r -> r.get("c") != null), is(true));
+      // case-insensitive
+      assertThat(keys(reader.queryAll(Filter.eq("b", StringUtils.repeat("A2", 16)))),
+          is(keys(all.stream().filter(r -> StringUtils.repeat("a2", 16).equals(r.get("b")))
+              .collect(Collectors.toList()))));
+    }
+  }
+
+  @Test
+  public void testEncodeInteger() {
+    assertThat(Utils.encodeInteger(-1, 4, true), is(new byte[] {0x7f, -1, -1, -1}));
+    assertThat(Utils.encodeInteger(0, 1, true), is(new byte[] {-128}));
+    assertThat(Utils.encodeInteger(1L, 3, false), is(new byte[] {0, 0, 1}));
+    assertThat(Utils.encodeInteger(new BigInteger("18446744073709551615"), 8, false),
+        is(new byte[] {-1, -1, -1, -1, -1, -1, -1, -1}));
+    assertThat(Utils.encodeInteger(128, 1, true), nullValue());
+    assertThat(Utils.encodeInteger(-1, 1, false), nullValue());
+    assertThat(Utils.encodeInteger(1.0d, 4, true), nullValue());
+  }
+
+  @Test(expected = ReaderException.class)
+  public void testColumnNotFound() {
+    Filter.eq("none", 1).compile(new ColumnIntegerTableReaderTest().getTableDef());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testLiteralTypeMismatch() {
+    Filter.eq("c_int", "1").compile(new ColumnIntegerTableReaderTest().getTableDef());
+  }
+
+  @Test
+  public void testToString() {
+    assertThat(Filter.and(Filter.eq("a", 1), Filter.or(Filter.in("b", "x", "y"), Filter.isNull("c"))).toString(),
+        is("(a = 1 AND (b in (x, y) OR c is null))"));
+  }
+
+  private static List<List<Object>> keys(List<GenericRecord> records) {
+    return records.stream().map(GenericRecord::getPrimaryKey).collect(Collectors.toList());
+  }
+
+}
@@ -0,0 +1,264 @@
+package com.alibaba.innodb.java.reader.service.impl;
+
+import com.alibaba.innodb.java.reader.AbstractTest;
+import com.alibaba.innodb.java.reader.aggregate.AggregateFunction;
+import com.alibaba.innodb.java.reader.aggregate.AggregateRow;
+import com.alibaba.innodb.java.reader.aggregate.Aggregation;
+import com.alibaba.innodb.java.reader.column.ColumnFloatTableReaderTest;
+import com.alibaba.innodb.java.reader.column.ColumnIntegerTableReaderTest;
+import com.alibaba.innodb.java.reader.column.ColumnType;
+import com.alibaba.innodb.java.reader.exception.ReaderException;
+import com.alibaba.innodb.java.reader.nullcolumn.NullColumnTableReaderTest;
+import com.alibaba.innodb.java.reader.page.index.GenericRecord;
+import com.alibaba.innodb.java.reader.page.index.Row;
+import com.alibaba.innodb.java.reader.pk.CompositePrimaryKeyMultiLevelTableReaderTest;
+import com.alibaba.innodb.java.reader.schema.TableDef;
+import com.alibaba.innodb.java.reader.schema.TableDefUtil;
+import com.alibaba.innodb.java.reader.service.StorageService;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Predicate;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Results of aggregation should be the same as aggregating records queried, no matter
+ * whether groups are spilled.
+ *
+ * @author xu.zx
+ */
+public class AggregateTest extends AbstractTest {
+
+  @Test
+  public void testGroupByCompositePrimaryKeyMysql56() throws IOException {
+    TableDef tableDef = TableDefUtil.covertToTableDef(new CompositePrimaryKeyMultiLevelTableReaderTest().sql());
+    List<Aggregation> aggregations = Arrays.asList(Aggregation.count(), Aggregation.count("c3"),
+        Aggregation.sum("c2"), Aggregation.min("c2"), Aggregation.max("c2"));
+    try (StorageService storageService = IndexServiceFixture.open(IBD_FILE_BASE_PATH_MYSQL56 + "pk/tb24.ibd")) {
+      IndexServiceImpl indexService = IndexServiceFixture.indexService(storageService, tableDef);
+      List<GenericRecord> all = indexService.queryAll(Optional.empty(), Optional.empty());
+      for (List<String> groupBy : Arrays.asList(Collections.singletonList("c5"), Arrays.asList("c5", "c7"),
+          Collections.singletonList("c8"), Collections.<String>emptyList())) {
+        Map<List<Object>, List<Object>> expected = aggregate(tableDef, all, groupBy, aggregations);
+        assertThat(aggregate(indexService, groupBy, aggregations, Optional.empty()), is(expected));
+
+        // spill with a small pool
+        indexService.setScanPool(new ForkJoinPool(3));
+        indexService.setAggregateMemoryBudget(3 * 2048);
+        assertThat(aggregate(indexService, groupBy, aggregations, Optional.empty()), is(expected));
+        indexService.setScanPool(ParallelIndexScanner.defaultPool());
+        indexService.setAggregateMemoryBudget(1024 * 1024);
+      }
+    }
+  }
+
+  @Test
+  public void testNullColumnsMysql57() throws IOException {
+    TableDef tableDef = new NullColumnTableReaderTest().getTableDef();
+    List<Aggregation> aggregations = Arrays.asList(Aggregation.count(), Aggregation.count("a"),
+        Aggregation.sum("a"), Aggregation.min("a"), Aggregation.max("a"), Aggregation.max("id"));
+    try (StorageService storageService = IndexServiceFixture.open(IBD_FILE_BASE_PATH_MYSQL57 + "nullcolumn/tb12.ibd")) {
+      IndexServiceImpl indexService = IndexServiceFixture.indexService(storageService, tableDef);
+      List<GenericRecord> all = indexService.queryAll(Optional.empty(), Optional.empty());
+      for (List<String> groupBy : Arrays.asList(Collections.singletonList("c"), Arrays.asList("d", "f"),
+          Collections.<String>emptyList())) {
+        assertThat(aggregate(indexService, groupBy, aggregations, Optional.empty()),
+            is(aggregate(tableDef, all, groupBy, aggregations)));
+      }
+    }
+  }
+
+  @Test
+  public void testIntegerColumnsMysql56() throws IOException {
+    TableDef tableDef = new ColumnIntegerTableReaderTest().getTableDef();
+    List<Aggregation> aggregations = new ArrayList<>();
+    for (String column : Arrays.asList("c_utinyint", "c_tinyint", "c_usmallint", "c_smallint", "c_umediumint",
+        "c_mediumint", "c_uint", "c_int")) {
+      aggregations.add(Aggregation.sum(column));
+      aggregations.add(Aggregation.min(column));
+      aggregations.add(Aggregation.max(column));
+    }
+    aggregations.add(Aggregation.min("c_bigint"));
+    aggregations.add(Aggregation.max("c_bigint"));
+    try (StorageService storageService = IndexServiceFixture.open(IBD_FILE_BASE_PATH_MYSQL56 + "column/int/tb02.ibd")) {
+      IndexServiceImpl indexService = IndexServiceFixture.indexService(storageService, tableDef);
+      List<GenericRecord> all = indexService.queryAll(Optional.empty(), Optional.empty());
+      List<String> groupBy = Collections.emptyList();
+      assertThat(aggregate(indexService, groupBy, aggregations, Optional.empty()),
+          is(aggregate(tableDef, all, groupBy, aggregations)));
+
+      // sum of BIGINT may not fit in long
+      BigInteger min = null;
+      BigInteger max = null;
+      BigInteger sum = BigInteger.ZERO;
+      BigInteger signedSum = BigInteger.ZERO;
+      for (GenericRecord record : all) {
+        BigInteger value = (BigInteger) record.get("c_ubigint");
+        min = min == null || value.compareTo(min) < 0 ? value : min;
+        max = max == null || value.compareTo(max) > 0 ? value : max;
+        sum = sum.add(value);
+        signedSum = signedSum.add(BigInteger.valueOf((Long) record.get("c_bigint")));
+      }
+      AggregateRow row = aggregateRows(indexService, groupBy, Arrays.asList(Aggregation.min("c_ubigint"),
+          Aggregation.max("c_ubigint"), Aggregation.sum("c_ubigint"), Aggregation.sum("c_bigint")),
+          Optional.empty()).get(0);
+      assertThat(row.get(0), is(min));
+      assertThat(row.get(1), is(max));
+      assertThat(row.get(2), is(sum));
+      assertThat(row.get(3), is(signedSum));
+    }
+  }
+
+  @Test
+  public void testFloatColumnsMysql57() throws IOException {
+    TableDef tableDef = new ColumnFloatTableReaderTest().getTableDef();
+    try (StorageService storageService = IndexServiceFixture.open(
+        IBD_FILE_BASE_PATH_MYSQL57 + "column/float/tb15.ibd")) {
+      IndexServiceImpl indexService = IndexServiceFixture.indexService(storageService, tableDef);
+      List<GenericRecord> all = indexService.queryAll(Optional.empty(), Optional.empty());
+      for (String column : Arrays.asList("c_float", "c_real", "c_double", "c_double3")) {
+        double min = Double.MAX_VALUE;
+        double max = -Double.MAX_VALUE;
+        double sum = 0;
+        for (GenericRecord record : all) {
+          double value = ((Number) record.get(column)).doubleValue();
+          min = Math.min(min, value);
+          max = Math.max(max, value);
+          sum += value;
+        }
+        AggregateRow row = aggregateRows(indexService, Collections.emptyList(), Arrays.asList(
+            Aggregation.min(column), Aggregation.max(column), Aggregation.sum(column)), Optional.empty()).get(0);
+        assertThat(row.get(0), is(min));
+        assertThat(row.get(1), is(max));
+        assertEquals(sum, (Double) row.get(2), Math.abs(sum) * 1e-9);
+      }
+    }
+  }
+
+  @Test
+  public void testFilterMysql56() throws IOException {
+    TableDef tableDef = TableDefUtil.covertToTableDef(new CompositePrimaryKeyMultiLevelTableReaderTest().sql());
+    List<Aggregation> aggregations = Arrays.asList(Aggregation.count(), Aggregation.max("c2"));
+    try (StorageService storageService = IndexServiceFixture.open(IBD_FILE_BASE_PATH_MYSQL56 + "pk/tb24.ibd")) {
+      IndexServiceImpl indexService = IndexServiceFixture.indexService(storageService, tableDef);
+      List<GenericRecord> all = indexService.queryAll(Optional.empty(), Optional.empty());
+      int c2 = tableDef.getField("c2").getOrdinal();
+      List<String> groupBy = Collections.singletonList("c5");
+      Predicate<Row> predicate = row -> row.getInt(c2) == 2;
+      List<GenericRecord> filtered = new ArrayList<>();
+      for (GenericRecord record : all) {
+        if ((Integer) record.get("c2") == 2) {
+          filtered.add(record);
+        }
+      }
+      assertThat(filtered.isEmpty(), is(false));
+      assertThat(aggregate(indexService, groupBy, aggregations, Optional.of(predicate)),
+          is(aggregate(tableDef, filtered, groupBy, aggregations)));
+
+      // no record qualified, one row without group-by, no row with group-by
+      List<AggregateRow> rows = aggregateRows(indexService, Collections.emptyList(), aggregations,
+          Optional.of(row -> false));
+      assertThat(rows.size(), is(1));
+      assertThat(rows.get(0).get(0), is(0L));
+      assertThat(rows.get(0).get(1), nullValue());
+      assertThat(aggregateRows(indexService, groupBy, aggregations, Optional.of(row -> false)).size(), is(0));
+    }
+  }
+
+  @Test(expected = ReaderException.class)
+  public void testSumStringColumnMysql56() throws IOException {
+    TableDef tableDef = TableDefUtil.covertToTableDef(new CompositePrimaryKeyMultiLevelTableReaderTest().sql());
+    try (StorageService storageService = IndexServiceFixture.open(IBD_FILE_BASE_PATH_MYSQL56 + "pk/tb24.ibd")) {
+      IndexServiceImpl indexService = IndexServiceFixture.indexService(storageService, tableDef);
+      aggregateRows(indexService, Collections.emptyList(), Collections.singletonList(Aggregation.sum("c1")),
+          Optional.empty());
+    }
+  }
+
+  private static List<AggregateRow> aggregateRows(IndexServiceImpl indexService, List<String> groupBy,
+                                                  List<Aggregation> aggregations,
+                                                  Optional<Predicate<Row>> predicate) {
+    List<AggregateRow> rows = new ArrayList<>();
+    long count = indexService.aggregate(groupBy, aggregations, predicate, Optional.empty(), rows::add);
+    assertThat(count, is((long) rows.size()));
+    return rows;
+  }
+
+  private static Map<List<Object>, List<Object>> aggregate(IndexServiceImpl indexService, List<String> groupBy,
+                                                           List<Aggregation> aggregations,
+                                                           Optional<Predicate<Row>> predicate) {
+    Map<List<Object>, List<Object>> result = new HashMap<>(16);
+    for (AggregateRow row : aggregateRows(indexService, groupBy, aggregations, predicate)) {
+      assertThat(result.put(row.getGroupValues(), row.getValues()), nullValue());
+    }
+    return result;
+  }
+
+  /**
+   * Aggregate records in the same way as SQL.
+   */
+  @SuppressWarnings("unchecked")
+  private static Map<List<Object>, List<Object>> aggregate(TableDef tableDef, List<GenericRecord> records,
+                                                           List<String> groupBy, List<Aggregation> aggregations) {
+    Map<List<Object>, List<GenericRecord>> groups = new HashMap<>(16);
+    for (GenericRecord record : records) {
+      List<Object> key = new ArrayList<>();
+      for (String column : groupBy) {
+        key.add(record.get(column));
+      }
+      groups.computeIfAbsent(key, k -> new ArrayList<>()).add(record);
+    }
+    if (groupBy.isEmpty() && groups.isEmpty()) {
+      groups.put(Collections.emptyList(), Collections.emptyList());
+    }
+    Map<List<Object>, List<Object>> result = new HashMap<>(16);
+    for (Map.Entry<List<Object>, List<GenericRecord>> entry : groups.entrySet()) {
+      List<Object> values = new ArrayList<>();
+      for (Aggregation aggregation : aggregations) {
+        long count = 0L;
+        Object value = null;
+        for (GenericRecord record : entry.getValue()) {
+          Object v = aggregation.getColumnName() == null ? 1 : record.get(aggregation.getColumnName());
+          if (v == null) {
+            continue;
+          }
+          count++;
+          v = v instanceof Float || v instanceof Double ? (Object) ((Number) v).doubleValue()
+              : (Object) ((Number) (v instanceof Number ? v : 0)).longValue();
+          if (value == null) {
+            value = v;
+          } else if (aggregation.getFunction() == AggregateFunction.SUM) {
+            value = v instanceof Double ? (Object) ((Double) value + (Double) v) : (Object) ((Long) value + (Long) v);
+          } else if (aggregation.getFunction() == AggregateFunction.MIN) {
+            value = ((Comparable<Object>) v).compareTo(value) < 0 ? v : value;
+          } else if (aggregation.getFunction() == AggregateFunction.MAX) {
+            value = ((Comparable<Object>) v).compareTo(value) > 0 ? v : value;
+          }
+        }
+        boolean bigint = aggregation.getColumnName() != null
+            && tableDef.getField(aggregation.getColumnName()).getColumn().getType().equals(ColumnType.BIGINT);
+        if (aggregation.getFunction() == AggregateFunction.SUM && bigint && value != null) {
+          value = BigInteger.valueOf((Long) value);
+        }
+        values.add(aggregation.getFunction() == AggregateFunction.COUNT ? (Object) count : value);
+      }
+      result.put(entry.getKey(), values);
+    }
+    return result;
+  }
+
+}
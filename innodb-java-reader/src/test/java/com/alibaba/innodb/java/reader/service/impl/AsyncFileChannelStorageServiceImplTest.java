@@ -0,0 +1,113 @@
+package com.alibaba.innodb.java.reader.service.impl;
+
+import com.google.common.collect.ImmutableList;
+
+import com.alibaba.innodb.java.reader.AbstractTest;
+import com.alibaba.innodb.java.reader.exception.ReaderException;
+import com.alibaba.innodb.java.reader.page.InnerPage;
+import com.alibaba.innodb.java.reader.page.index.GenericRecord;
+import com.alibaba.innodb.java.reader.pk.CompositePrimaryKeyMultiLevelTableReaderTest;
+import com.alibaba.innodb.java.reader.schema.TableDef;
+import com.alibaba.innodb.java.reader.schema.TableDefUtil;
+import com.alibaba.innodb.java.reader.service.StorageService;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import static com.alibaba.innodb.java.reader.SizeOf.SIZE_OF_PAGE;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author xu.zx
+ */
+public class AsyncFileChannelStorageServiceImplTest extends AbstractTest {
+
+  private static final String IBD_FILE = IBD_FILE_BASE_PATH_MYSQL56 + "pk/tb24.ibd";
+
+  @Test
+  public void testLoadPageAsync() throws IOException {
+    try (AsyncFileChannelStorageServiceImpl asyncStorageService = new AsyncFileChannelStorageServiceImpl(4);
+         StorageService storageService = new FileChannelStorageServiceImpl()) {
+      asyncStorageService.open(IBD_FILE);
+      storageService.open(IBD_FILE);
+      assertThat(asyncStorageService.numOfPages(), is(storageService.numOfPages()));
+
+      List<CompletableFuture<InnerPage>> futures = new ArrayList<>();
+      for (long i = 0; i < storageService.numOfPages(); i++) {
+        futures.add(asyncStorageService.loadPageAsync(i));
+      }
+      for (int i = 0; i < futures.size(); i++) {
+        InnerPage page = futures.get(i).join();
+        assertThat(page.getPageNumber(), is((long) i));
+        assertThat(bytesOf(page), is(bytesOf(storageService.loadPage(i))));
+        assertThat(asyncStorageService.loadPageHeader(i), is(storageService.loadPageHeader(i)));
+      }
+      assertThat(asyncStorageService.getPeakOutstandingReads(), lessThanOrEqualTo(4));
+      assertThat(asyncStorageService.getOutstandingReads(), is(0));
+    }
+  }
+
+  @Test(expected = ReaderException.class)
+  public void testLoadPageBeyondEndOfFile() throws IOException {
+    try (StorageService storageService = new AsyncFileChannelStorageServiceImpl(4)) {
+      storageService.open(IBD_FILE);
+      storageService.loadPage(storageService.numOfPages());
+    }
+  }
+
+  @Test
+  public void testQueryByPrimaryKeyAsync() throws IOException {
+    TableDef tableDef = TableDefUtil.covertToTableDef(new CompositePrimaryKeyMultiLevelTableReaderTest().sql());
+    tableDef.prepare();
+    try (AsyncFileChannelStorageServiceImpl asyncStorageService = new AsyncFileChannelStorageServiceImpl(8);
+         StorageService storageService = new FileChannelStorageServiceImpl()) {
+      asyncStorageService.open(IBD_FILE);
+      storageService.open(IBD_FILE);
+      IndexServiceImpl syncIndexService = IndexServiceFixture.indexService(storageService, tableDef);
+      IndexServiceImpl asyncIndexService = IndexServiceFixture.indexService(asyncStorageService, tableDef);
+
+      List<GenericRecord> expected = syncIndexService.queryAll(Optional.empty(), Optional.empty());
+      assertThat(expected.size(), is(4000));
+
+      // issue all lookups from one thread before waiting for any of them
+      List<CompletableFuture<GenericRecord>> futures = new ArrayList<>(expected.size());
+      for (GenericRecord record : expected) {
+        futures.add(asyncIndexService.queryByPrimaryKeyAsync(record.getPrimaryKey(), Optional.empty()));
+      }
+      for (int i = 0; i < expected.size(); i++) {
+        assertThat(futures.get(i).join().getValues(), is(expected.get(i).getValues()));
+      }
+      assertThat(asyncStorageService.getPeakOutstandingReads(), lessThanOrEqualTo(8));
+
+      GenericRecord record = asyncIndexService.queryByPrimaryKeyAsync(expected.get(10).getPrimaryKey(),
+          Optional.of(ImmutableList.of("c3"))).join();
+      assertThat(record.get("c3"), is(expected.get(10).get("c3")));
+
+      List<Object> notExistKey = new ArrayList<>(expected.get(3999).getPrimaryKey());
+      notExistKey.set(0, notExistKey.get(0) + "zzz");
+      assertThat(asyncIndexService.queryByPrimaryKeyAsync(notExistKey, Optional.empty()).join(), nullValue());
+
+      // storage service without async support completes synchronously
+      for (int i = 0; i < expected.size(); i += 100) {
+        CompletableFuture<GenericRecord> future = syncIndexService.queryByPrimaryKeyAsync(
+            expected.get(i).getPrimaryKey(), Optional.empty());
+        assertThat(future.isDone(), is(true));
+        assertThat(future.join().getValues(), is(expected.get(i).getValues()));
+      }
+    }
+  }
+
+  private byte[] bytesOf(InnerPage page) {
+    page.getSliceInput().setPosition(0);
+    return page.getSliceInput().readByteArray(SIZE_OF_PAGE);
+  }
+
+}
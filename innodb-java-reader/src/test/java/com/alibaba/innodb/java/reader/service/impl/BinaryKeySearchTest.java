@@ -0,0 +1,118 @@
+package com.alibaba.innodb.java.reader.service.impl;
+
+import com.alibaba.innodb.java.reader.AbstractTest;
+import com.alibaba.innodb.java.reader.comparator.ComparisonOperator;
+import com.alibaba.innodb.java.reader.deletion.DeletionTableReaderTest;
+import com.alibaba.innodb.java.reader.page.index.GenericRecord;
+import com.alibaba.innodb.java.reader.pk.CompositePrimaryKeyMultiLevelTableReaderTest;
+import com.alibaba.innodb.java.reader.schema.TableDef;
+import com.alibaba.innodb.java.reader.schema.TableDefUtil;
+import com.alibaba.innodb.java.reader.service.StorageService;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import static com.alibaba.innodb.java.reader.comparator.ComparisonOperator.GT;
+import static com.alibaba.innodb.java.reader.comparator.ComparisonOperator.GTE;
+import static com.alibaba.innodb.java.reader.comparator.ComparisonOperator.LT;
+import static com.alibaba.innodb.java.reader.comparator.ComparisonOperator.LTE;
+import static com.alibaba.innodb.java.reader.comparator.ComparisonOperator.NOP;
+import static com.alibaba.innodb.java.reader.service.impl.IndexServiceFixture.assertSameRecords;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.notNullValue;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Searching B+ tree by comparing encoded key in bytes should be the same as comparing decoded key.
+ *
+ * @author xu.zx
+ */
+public class BinaryKeySearchTest extends AbstractTest {
+
+  @Test
+  public void testEncode() {
+    TableDef tableDef = new DeletionTableReaderTest().getTableDef();
+    assertThat(BinaryKey.encode(tableDef, Collections.singletonList(1)), notNullValue());
+    assertThat(BinaryKey.encode(tableDef, Collections.singletonList(1L)), notNullValue());
+    // out of range of int, or not integer
+    assertThat(BinaryKey.encode(tableDef, Collections.singletonList(1L << 40)), nullValue());
+    assertThat(BinaryKey.encode(tableDef, Collections.singletonList("1")), nullValue());
+    assertThat(BinaryKey.encode(tableDef, Arrays.asList(1, 2)), nullValue());
+
+    String sql = new CompositePrimaryKeyMultiLevelTableReaderTest().sql();
+    assertThat(BinaryKey.encode(TableDefUtil.covertToTableDef(sql), Arrays.asList("a", 1, "b")), nullValue());
+  }
+
+  @Test
+  public void testSearchWithDeletedRecordsMysql56() throws IOException {
+    testSearch(IBD_FILE_BASE_PATH_MYSQL56 + "deletion/tb13.ibd");
+  }
+
+  @Test
+  public void testSearchWithDeletedRecordsMysql80() throws IOException {
+    testSearch(IBD_FILE_BASE_PATH_MYSQL80 + "deletion/tb13.ibd");
+  }
+
+  private void testSearch(String ibdFilePath) throws IOException {
+    TableDef tableDef = new DeletionTableReaderTest().getTableDef();
+    try (StorageService storageService = IndexServiceFixture.open(ibdFilePath)) {
+      IndexServiceImpl generic = IndexServiceFixture.indexService(storageService, tableDef);
+      generic.setBinaryKeySearch(false);
+      IndexServiceImpl binary = IndexServiceFixture.indexService(storageService, tableDef);
+      binary.setBinaryKeySearch(true);
+
+      List<GenericRecord> all = generic.queryAll(Optional.empty(), Optional.empty());
+      assertThat(all.size(), is(2000));
+
+      // keys of deleted records and out of both ends are not found
+      int found = 0;
+      for (int id = -2; id <= 3002; id++) {
+        GenericRecord expected = generic.queryByPrimaryKey(Collections.singletonList(id), Optional.empty());
+        GenericRecord actual = binary.queryByPrimaryKey(Collections.singletonList(id), Optional.empty());
+        assertThat(actual == null, is(expected == null));
+        if (expected != null) {
+          assertThat(Arrays.asList(actual.getValues()), is(Arrays.asList(expected.getValues())));
+          found++;
+        }
+      }
+      assertThat(found, is(all.size()));
+
+      int[] bounds = {-1, 1, 4, 100, 1001, 1002, 2000, 2001, 2999, 3000, 5000};
+      ComparisonOperator[][] operators = {{GT, LT}, {GT, LTE}, {GTE, LT}, {GTE, LTE}};
+      for (int lower : bounds) {
+        for (int upper : bounds) {
+          for (ComparisonOperator[] operator : operators) {
+            assertRange(generic, binary, Collections.singletonList(lower), operator[0],
+                Collections.singletonList(upper), operator[1]);
+          }
+        }
+        assertRange(generic, binary, Collections.singletonList(lower), GTE, Collections.emptyList(), NOP);
+        assertRange(generic, binary, Collections.emptyList(), NOP, Collections.singletonList(lower), LT);
+      }
+    }
+  }
+
+  private static void assertRange(IndexServiceImpl generic, IndexServiceImpl binary,
+                                   List<Object> lower, ComparisonOperator lowerOperator,
+                                   List<Object> upper, ComparisonOperator upperOperator) {
+    List<GenericRecord> expected = new ArrayList<>();
+    generic.getRangeQueryIterator(lower, lowerOperator, upper, upperOperator, Optional.empty(), true)
+        .forEachRemaining(expected::add);
+    List<GenericRecord> actual = new ArrayList<>();
+    binary.getRangeQueryIterator(lower, lowerOperator, upper, upperOperator, Optional.empty(), true)
+        .forEachRemaining(actual::add);
+    assertSameRecords(actual, expected);
+
+    List<GenericRecord> rows = new ArrayList<>();
+    binary.scan(lower, lowerOperator, upper, upperOperator, Optional.empty(), row -> rows.add(row.toRecord()));
+    assertSameRecords(rows, expected);
+  }
+
+}
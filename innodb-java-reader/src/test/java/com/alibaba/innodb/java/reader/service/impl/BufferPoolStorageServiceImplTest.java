@@ -0,0 +1,231 @@
+package com.alibaba.innodb.java.reader.service.impl;
+
+import com.alibaba.innodb.java.reader.AbstractTest;
+import com.alibaba.innodb.java.reader.exception.ReaderException;
+import com.alibaba.innodb.java.reader.page.FilHeader;
+import com.alibaba.innodb.java.reader.page.InnerPage;
+import com.alibaba.innodb.java.reader.page.index.GenericRecord;
+import com.alibaba.innodb.java.reader.pk.CompositePrimaryKeyMultiLevelTableReaderTest;
+import com.alibaba.innodb.java.reader.schema.TableDef;
+import com.alibaba.innodb.java.reader.schema.TableDefUtil;
+import com.alibaba.innodb.java.reader.service.IndexService;
+import com.alibaba.innodb.java.reader.service.StorageService;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import lombok.extern.slf4j.Slf4j;
+
+import static com.alibaba.innodb.java.reader.SizeOf.SIZE_OF_PAGE;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author xu.zx
+ */
+@Slf4j
+public class BufferPoolStorageServiceImplTest extends AbstractTest {
+
+  private static final String IBD_FILE = IBD_FILE_BASE_PATH_MYSQL56 + "pk/tb24.ibd";
+
+  @Test
+  public void testLoadPageSameAsFileChannel() throws IOException {
+    try (StorageService expected = new FileChannelStorageServiceImpl();
+         BufferPoolStorageServiceImpl actual = new BufferPoolStorageServiceImpl(
+             new FileChannelStorageServiceImpl(), 8 * SIZE_OF_PAGE)) {
+      expected.open(IBD_FILE);
+      actual.open(IBD_FILE);
+      long numOfPages = expected.numOfPages();
+      Random random = new Random(1L);
+      for (int i = 0; i < 1000; i++) {
+        long pageNumber = random.nextInt((int) numOfPages);
+        assertThat(bytesOf(actual.loadPage(pageNumber)), is(bytesOf(expected.loadPage(pageNumber))));
+        assertThat(actual.loadPageHeader(pageNumber), is(expected.loadPageHeader(pageNumber)));
+      }
+      assertThat(actual.size(), is(8));
+      assertThat(actual.getHitCount() + actual.getMissCount(), is(1000L));
+      assertThat(actual.getEvictionCount(), is(actual.getMissCount() - 8));
+      log.info("{}", actual);
+    }
+  }
+
+  @Test
+  public void testQueryAllAndByPkSameAsFileChannel() throws IOException {
+    TableDef tableDef = TableDefUtil.covertToTableDef(new CompositePrimaryKeyMultiLevelTableReaderTest().sql());
+    tableDef.prepare();
+    try (StorageService expected = new FileChannelStorageServiceImpl();
+         BufferPoolStorageServiceImpl actual = new BufferPoolStorageServiceImpl(
+             new FileChannelStorageServiceImpl(), 16 * SIZE_OF_PAGE)) {
+      expected.open(IBD_FILE);
+      actual.open(IBD_FILE);
+      List<GenericRecord> expectedRecords = IndexServiceFixture.indexService(expected, tableDef)
+          .queryAll(Optional.empty(), Optional.empty());
+      IndexService indexService = IndexServiceFixture.indexService(actual, tableDef);
+      List<GenericRecord> actualRecords = indexService.queryAll(Optional.empty(), Optional.empty());
+      assertThat(actualRecords.size(), is(4000));
+      for (int i = 0; i < expectedRecords.size(); i++) {
+        assertThat(actualRecords.get(i).getValues(), is(expectedRecords.get(i).getValues()));
+      }
+      for (int i = 0; i < expectedRecords.size(); i += 7) {
+        GenericRecord record = indexService.queryByPrimaryKey(expectedRecords.get(i).getPrimaryKey(),
+            Optional.empty());
+        assertThat(record.getValues(), is(expectedRecords.get(i).getValues()));
+      }
+      // root and internal pages are always hit
+      assertThat(actual.getHitRate(), greaterThan(0.5D));
+      log.info("{}", actual);
+    }
+  }
+
+  @Test
+  public void testScanResistant() throws IOException {
+    try (BufferPoolStorageServiceImpl storageService = new BufferPoolStorageServiceImpl(
+        new FileChannelStorageServiceImpl(), 10 * SIZE_OF_PAGE, 37, 0L)) {
+      storageService.open(IBD_FILE);
+      // hot pages accessed twice are moved to young sublist
+      for (int i = 0; i < 2; i++) {
+        storageService.loadPage(3).release();
+        storageService.loadPage(4).release();
+      }
+      // full scan touches each page once
+      for (long i = 5; i < storageService.numOfPages(); i++) {
+        storageService.loadPage(i).release();
+      }
+      assertThat(storageService.contains(3), is(true));
+      assertThat(storageService.contains(4), is(true));
+      assertThat(storageService.contains(5), is(false));
+      assertThat(storageService.size(), is(10));
+    }
+
+    try (BufferPoolStorageServiceImpl storageService = new BufferPoolStorageServiceImpl(
+        new FileChannelStorageServiceImpl(), 10 * SIZE_OF_PAGE, 37, 3600 * 1000L)) {
+      storageService.open(IBD_FILE);
+      // accessed again too soon, stay in old sublist
+      for (int i = 0; i < 2; i++) {
+        storageService.loadPage(3).release();
+        storageService.loadPage(4).release();
+      }
+      for (long i = 5; i < storageService.numOfPages(); i++) {
+        storageService.loadPage(i).release();
+      }
+      assertThat(storageService.contains(3), is(false));
+      assertThat(storageService.contains(4), is(false));
+    }
+  }
+
+  @Test
+  public void testCoalesceConcurrentMiss() throws Exception {
+    AtomicInteger loadCount = new AtomicInteger();
+    StorageService slowStorageService = new FileChannelStorageServiceImpl() {
+      @Override
+      public InnerPage loadPage(long pageNumber) throws ReaderException {
+        loadCount.incrementAndGet();
+        try {
+          Thread.sleep(200L);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        return super.loadPage(pageNumber);
+      }
+    };
+    int threads = 8;
+    ExecutorService executorService = Executors.newFixedThreadPool(threads);
+    try (BufferPoolStorageServiceImpl storageService = new BufferPoolStorageServiceImpl(
+        slowStorageService, 10 * SIZE_OF_PAGE)) {
+      storageService.open(IBD_FILE);
+      CountDownLatch latch = new CountDownLatch(1);
+      List<Future<FilHeader>> futures = new ArrayList<>();
+      for (int i = 0; i < threads; i++) {
+        futures.add(executorService.submit(() -> {
+          latch.await();
+          return storageService.loadPage(3).getFilHeader();
+        }));
+      }
+      latch.countDown();
+      for (Future<FilHeader> future : futures) {
+        assertThat(future.get().getPageNumber(), is(3L));
+      }
+      assertThat(loadCount.get(), is(1));
+      assertThat(storageService.getMissCount(), is(1L));
+      assertThat(storageService.getHitCount(), is((long) threads - 1));
+    } finally {
+      executorService.shutdown();
+    }
+  }
+
+  @Test
+  public void testLoadPagesBatch() throws IOException {
+    try (StorageService expected = new FileChannelStorageServiceImpl();
+         BufferPoolStorageServiceImpl actual = new BufferPoolStorageServiceImpl(
+             new FileChannelStorageServiceImpl(), 16 * SIZE_OF_PAGE)) {
+      expected.open(IBD_FILE);
+      actual.open(IBD_FILE);
+      actual.loadPage(3);
+      long[] pageNumbers = {5, 3, 4, 6, 5};
+      List<InnerPage> pages = actual.loadPages(pageNumbers);
+      for (int i = 0; i < pageNumbers.length; i++) {
+        assertThat(bytesOf(pages.get(i)), is(bytesOf(expected.loadPage(pageNumbers[i]))));
+      }
+      // page 3 is hit, 4, 5 and 6 are loaded in one batch
+      assertThat(actual.getMissCount(), is(4L));
+      assertThat(actual.getHitCount(), is(2L));
+      assertThat(actual.size(), is(4));
+      List<FilHeader> headers = actual.loadPageHeaders(new long[] {7, 6, 3});
+      assertThat(headers.get(0), is(expected.loadPageHeader(7)));
+      assertThat(headers.get(1), is(expected.loadPageHeader(6)));
+      assertThat(headers.get(2), is(expected.loadPageHeader(3)));
+      assertThat(actual.contains(7), is(false));
+    }
+  }
+
+  @Test
+  public void testPinnedPageNotEvicted() throws IOException {
+    try (StorageService expected = new FileChannelStorageServiceImpl();
+         BufferPoolStorageServiceImpl actual = new BufferPoolStorageServiceImpl(
+             new FileChannelStorageServiceImpl(), 2 * SIZE_OF_PAGE)) {
+      expected.open(IBD_FILE);
+      actual.open(IBD_FILE);
+      InnerPage pinned = actual.loadPage(3);
+      for (long i = 4; i < actual.numOfPages(); i++) {
+        assertThat(bytesOf(actual.loadPage(i)), is(bytesOf(expected.loadPage(i))));
+      }
+      assertThat(actual.contains(3), is(true));
+
+      // every frame is pinned, pages are served without caching
+      InnerPage another = actual.loadPage(4);
+      List<InnerPage> pages = actual.loadPages(new long[] {5, 6, 5});
+      assertThat(actual.size(), is(2));
+      assertThat(actual.contains(5), is(false));
+      assertThat(bytesOf(pages.get(0)), is(bytesOf(expected.loadPage(5))));
+      assertThat(bytesOf(pages.get(1)), is(bytesOf(expected.loadPage(6))));
+      assertThat(bytesOf(pages.get(2)), is(bytesOf(expected.loadPage(5))));
+      another.release();
+
+      // released frame is reused
+      actual.loadPage(7).release();
+      assertThat(actual.contains(4), is(false));
+      assertThat(actual.contains(7), is(true));
+      assertThat(actual.contains(3), is(true));
+      assertThat(bytesOf(pinned), is(bytesOf(expected.loadPage(3))));
+    }
+  }
+
+  private byte[] bytesOf(InnerPage page) {
+    page.getSliceInput().setPosition(0);
+    byte[] bytes = page.getSliceInput().readByteArray(SIZE_OF_PAGE);
+    page.release();
+    return bytes;
+  }
+
+}
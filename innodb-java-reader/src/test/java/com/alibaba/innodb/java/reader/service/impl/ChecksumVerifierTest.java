@@ -0,0 +1,90 @@
+package com.alibaba.innodb.java.reader.service.impl;
+
+import com.alibaba.innodb.java.reader.AbstractTest;
+import com.alibaba.innodb.java.reader.TableReader;
+import com.alibaba.innodb.java.reader.TableReaderImpl;
+import com.alibaba.innodb.java.reader.pk.CompositePrimaryKeyMultiLevelTableReaderTest;
+import com.alibaba.innodb.java.reader.service.ChecksumVerifyResult;
+import com.alibaba.innodb.java.reader.service.StorageService;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static com.alibaba.innodb.java.reader.SizeOf.SIZE_OF_PAGE;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author xu.zx
+ */
+public class ChecksumVerifierTest extends AbstractTest {
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void testVerifyMysql56() throws IOException {
+    // innodb checksum algorithm
+    assertNotCorrupted(IBD_FILE_BASE_PATH_MYSQL56 + "pk/tb24.ibd");
+  }
+
+  @Test
+  public void testVerifyMysql57() throws IOException {
+    // crc32 checksum algorithm
+    assertNotCorrupted(IBD_FILE_BASE_PATH_MYSQL57 + "pk/tb24.ibd");
+  }
+
+  @Test
+  public void testVerifyCorruptedPages() throws IOException {
+    File file = temporaryFolder.newFile("tb24.ibd");
+    Files.copy(new File(IBD_FILE_BASE_PATH_MYSQL57 + "pk/tb24.ibd").toPath(), file.toPath(),
+        StandardCopyOption.REPLACE_EXISTING);
+    try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+      // flip one byte in body
+      raf.seek(3L * SIZE_OF_PAGE + 1000);
+      int b = raf.read();
+      raf.seek(3L * SIZE_OF_PAGE + 1000);
+      raf.write(b ^ 0xFF);
+      // break lsn in trailer
+      raf.seek(70L * SIZE_OF_PAGE - 1);
+      b = raf.read();
+      raf.seek(70L * SIZE_OF_PAGE - 1);
+      raf.write(b ^ 0x01);
+      // zero page is not corrupted
+      raf.seek(5L * SIZE_OF_PAGE);
+      raf.write(new byte[SIZE_OF_PAGE]);
+    }
+    try (TableReader reader = new TableReaderImpl(file.getAbsolutePath(),
+        new CompositePrimaryKeyMultiLevelTableReaderTest().sql())) {
+      reader.open();
+      ChecksumVerifyResult result = reader.verifyChecksums();
+      assertThat(result.isCorrupted(), is(true));
+      assertThat(result.getCorruptedPageNumbers(), is(Arrays.asList(3L, 69L)));
+      assertThat(result.getNumOfEmptyPages() >= 1L, is(true));
+    }
+  }
+
+  private void assertNotCorrupted(String path) throws IOException {
+    try (StorageService storageService = IndexServiceFixture.open(path)) {
+      for (int parallelism : new int[] {1, 4}) {
+        ChecksumVerifyResult result = new ChecksumVerifier(storageService, parallelism).verify();
+        assertThat(result.getCorruptedPageNumbers(), is(Collections.emptyList()));
+        assertThat(result.getNumOfPages(), is(storageService.numOfPages()));
+        assertThat(result.getNumOfVerifiedPages() + result.getNumOfEmptyPages() + result.getNumOfSkippedPages(),
+            is(storageService.numOfPages()));
+        assertThat(result.getBytesRead(), is(storageService.numOfPages() * SIZE_OF_PAGE));
+        assertThat(result.getThroughputMbPerSec() > 0D, is(true));
+      }
+    }
+  }
+
+}
@@ -0,0 +1,173 @@
+package com.alibaba.innodb.java.reader.service.impl;
+
+import com.alibaba.innodb.java.reader.AbstractTest;
+import com.alibaba.innodb.java.reader.comparator.ComparisonOperator;
+import com.alibaba.innodb.java.reader.deletion.DeletionTableReaderTest;
+import com.alibaba.innodb.java.reader.page.index.GenericRecord;
+import com.alibaba.innodb.java.reader.pk.CompositePrimaryKeyMultiLevelTableReaderTest;
+import com.alibaba.innodb.java.reader.pk.NoPrimaryKeyTableReaderTest;
+import com.alibaba.innodb.java.reader.schema.TableDef;
+import com.alibaba.innodb.java.reader.schema.TableDefUtil;
+import com.alibaba.innodb.java.reader.service.StorageService;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import static com.alibaba.innodb.java.reader.comparator.ComparisonOperator.GT;
+import static com.alibaba.innodb.java.reader.comparator.ComparisonOperator.GTE;
+import static com.alibaba.innodb.java.reader.comparator.ComparisonOperator.LT;
+import static com.alibaba.innodb.java.reader.comparator.ComparisonOperator.LTE;
+import static com.alibaba.innodb.java.reader.comparator.ComparisonOperator.NOP;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Records counted by index header should be the same as records queried.
+ *
+ * @author xu.zx
+ */
+public class CountTest extends AbstractTest {
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void testCompositePrimaryKeyMysql56() throws IOException {
+    TableDef tableDef = TableDefUtil.covertToTableDef(new CompositePrimaryKeyMultiLevelTableReaderTest().sql());
+    try (StorageService storageService = IndexServiceFixture.open(IBD_FILE_BASE_PATH_MYSQL56 + "pk/tb24.ibd")) {
+      IndexServiceImpl indexService = IndexServiceFixture.indexService(storageService, tableDef);
+      List<GenericRecord> all = indexService.queryAll(Optional.empty(), Optional.empty());
+      assertThat(indexService.count(), is(4000L));
+      assertThat(indexService.count(), is((long) all.size()));
+      int[] bounds = {0, 1, 700, 1999, 3998, 3999};
+      for (int lower : bounds) {
+        for (int upper : bounds) {
+          assertRangeCount(indexService, all, lower, GTE, upper, LTE);
+          assertRangeCount(indexService, all, lower, GT, upper, LT);
+        }
+      }
+      // partial composite key
+      List<Object> prefix = Collections.singletonList(all.get(1000).getPrimaryKey().get(0));
+      assertThat(indexService.count(prefix, GTE, prefix, LTE),
+          is(rangeSize(indexService, prefix, GTE, prefix, LTE)));
+    }
+  }
+
+  @Test
+  public void testDeletedRecordsMysql56() throws IOException {
+    testDeletedRecords(IBD_FILE_BASE_PATH_MYSQL56 + "deletion/tb13.ibd");
+  }
+
+  @Test
+  public void testDeletedRecordsMysql57() throws IOException {
+    testDeletedRecords(IBD_FILE_BASE_PATH_MYSQL57 + "deletion/tb13.ibd");
+  }
+
+  @Test
+  public void testDeletedRecordsMysql80() throws IOException {
+    testDeletedRecords(IBD_FILE_BASE_PATH_MYSQL80 + "deletion/tb13.ibd");
+  }
+
+  @Test
+  public void testNoPrimaryKeyMysql57() throws IOException {
+    TableDef tableDef = new NoPrimaryKeyTableReaderTest().getTableDef().setName("tb21");
+    try (StorageService storageService = IndexServiceFixture.open(IBD_FILE_BASE_PATH_MYSQL57 + "pk/tb21.ibd")) {
+      IndexServiceImpl indexService = IndexServiceFixture.indexService(storageService, tableDef);
+      long expected = indexService.queryAll(Optional.empty(), Optional.empty()).size();
+      assertThat(indexService.count(), is(expected));
+      assertThat(indexService.count(Collections.emptyList(), NOP, Collections.emptyList(), NOP), is(expected));
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testRangeNoPrimaryKeyMysql57() throws IOException {
+    TableDef tableDef = new NoPrimaryKeyTableReaderTest().getTableDef().setName("tb21");
+    try (StorageService storageService = IndexServiceFixture.open(IBD_FILE_BASE_PATH_MYSQL57 + "pk/tb21.ibd")) {
+      IndexServiceImpl indexService = IndexServiceFixture.indexService(storageService, tableDef);
+      indexService.count(Collections.singletonList(1L), GTE, Collections.emptyList(), NOP);
+    }
+  }
+
+  @Test
+  public void testSkipFreePage() throws IOException {
+    TableDef tableDef = new DeletionTableReaderTest().getTableDef();
+    File file = XdesFixture.copyOf(temporaryFolder, IBD_FILE_BASE_PATH_MYSQL57 + "deletion/tb13.ibd");
+
+    long freePageNumber;
+    int recordsInFreePage;
+    try (StorageService storageService = IndexServiceFixture.open(file.getAbsolutePath())) {
+      IndexServiceImpl indexService = IndexServiceFixture.indexService(storageService, tableDef);
+      freePageNumber = indexService.getQueryAllIterator(Optional.empty(), false).next().getPageNumber();
+      recordsInFreePage = indexService.queryByPageNumber(freePageNumber).size();
+    }
+
+    // mark the last leaf page as free, its content is untouched
+    XdesFixture.markPageFree(file, freePageNumber);
+
+    try (StorageService storageService = IndexServiceFixture.open(file.getAbsolutePath())) {
+      IndexServiceImpl indexService = IndexServiceFixture.indexService(storageService, tableDef);
+      assertThat(indexService.count(), is(2000L - recordsInFreePage));
+    }
+  }
+
+  private void testDeletedRecords(String ibdFilePath) throws IOException {
+    TableDef tableDef = new DeletionTableReaderTest().getTableDef();
+    try (StorageService storageService = IndexServiceFixture.open(ibdFilePath)) {
+      for (boolean binaryKeySearch : new boolean[] {true, false}) {
+        IndexServiceImpl indexService = IndexServiceFixture.indexService(storageService, tableDef);
+        indexService.setBinaryKeySearch(binaryKeySearch);
+        List<GenericRecord> all = indexService.queryAll(Optional.empty(), Optional.empty());
+        assertThat(indexService.count(), is(2000L));
+        int[] bounds = {0, 1, 500, 1500, 1999};
+        for (int lower : bounds) {
+          for (int upper : bounds) {
+            assertRangeCount(indexService, all, lower, GTE, upper, LT);
+            assertRangeCount(indexService, all, lower, GT, upper, LTE);
+          }
+        }
+        // deleted keys as bounds
+        assertThat(indexService.count(Collections.singletonList(2), GTE, Collections.singletonList(1000), LTE),
+            is(499L));
+        assertThat(indexService.count(Collections.singletonList(5000), GTE, Collections.emptyList(), NOP),
+            is(0L));
+        assertThat(indexService.count(Collections.singletonList(1000), GT, Collections.singletonList(10), LT),
+            is(0L));
+      }
+    }
+  }
+
+  private static void assertRangeCount(IndexServiceImpl indexService, List<GenericRecord> all,
+                                       int lowerIndex, ComparisonOperator lowerOperator,
+                                       int upperIndex, ComparisonOperator upperOperator) {
+    List<Object> lower = all.get(lowerIndex).getPrimaryKey();
+    List<Object> upper = all.get(upperIndex).getPrimaryKey();
+    int from = lowerOperator == GTE ? lowerIndex : lowerIndex + 1;
+    int to = upperOperator == LTE ? upperIndex + 1 : upperIndex;
+    long expected = Math.max(0, to - from);
+    assertThat(indexService.count(lower, lowerOperator, upper, upperOperator), is(expected));
+    assertThat(rangeSize(indexService, lower, lowerOperator, upper, upperOperator), is(expected));
+
+    // one bound only
+    assertThat(indexService.count(lower, lowerOperator, Collections.emptyList(), NOP),
+        is((long) all.size() - from));
+    assertThat(indexService.count(Collections.emptyList(), NOP, upper, upperOperator), is((long) to));
+  }
+
+  private static long rangeSize(IndexServiceImpl indexService, List<Object> lower, ComparisonOperator lowerOperator,
+                                List<Object> upper, ComparisonOperator upperOperator) {
+    long size = 0L;
+    for (GenericRecord ignored : indexService.rangeQueryByPrimaryKey(lower, lowerOperator, upper, upperOperator,
+        Optional.empty(), Optional.empty())) {
+      size++;
+    }
+    return size;
+  }
+
+}
@@ -0,0 +1,84 @@
+package com.alibaba.innodb.java.reader.service.impl;
+
+import com.alibaba.innodb.java.reader.AbstractTest;
+import com.alibaba.innodb.java.reader.exception.PageLoadException;
+import com.alibaba.innodb.java.reader.page.InnerPage;
+import com.alibaba.innodb.java.reader.service.StorageService;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import lombok.extern.slf4j.Slf4j;
+
+import static com.alibaba.innodb.java.reader.SizeOf.SIZE_OF_PAGE;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author xu.zx
+ */
+@Slf4j
+public class DirectIoStorageServiceImplTest extends AbstractTest {
+
+  private static final String IBD_FILE = IBD_FILE_BASE_PATH_MYSQL56 + "pk/tb24.ibd";
+
+  @Test
+  public void testLoadPageDirectIo() throws IOException {
+    testLoadPage(new DirectIoStorageServiceImpl(8, true));
+  }
+
+  @Test
+  public void testLoadPageBufferedIo() throws IOException {
+    DirectIoStorageServiceImpl storageService = new DirectIoStorageServiceImpl(8, false);
+    testLoadPage(storageService);
+    assertThat(storageService.isDirectIo(), is(false));
+  }
+
+  @Test(expected = PageLoadException.class)
+  public void testLoadPageAfterClose() throws IOException {
+    StorageService storageService = new DirectIoStorageServiceImpl();
+    storageService.open(IBD_FILE);
+    storageService.loadPage(0);
+    storageService.close();
+    storageService.loadPage(0);
+  }
+
+  private void testLoadPage(DirectIoStorageServiceImpl actual) throws IOException {
+    try (StorageService expected = IndexServiceFixture.open(IBD_FILE)) {
+      actual.open(IBD_FILE);
+      log.info("direct io {}", actual.isDirectIo());
+      long numOfPages = expected.numOfPages();
+      assertThat(actual.numOfPages(), is(numOfPages));
+
+      List<Long> pageNumbers = new ArrayList<>();
+      // ascending, descending and random access
+      for (long i = 0; i < numOfPages; i++) {
+        pageNumbers.add(i);
+      }
+      for (long i = numOfPages - 1; i >= 0; i--) {
+        pageNumbers.add(i);
+      }
+      List<Long> shuffled = new ArrayList<>(pageNumbers.subList(0, (int) numOfPages));
+      Collections.shuffle(shuffled, new Random(1L));
+      pageNumbers.addAll(shuffled);
+
+      for (long pageNumber : pageNumbers) {
+        assertThat(bytesOf(actual.loadPage(pageNumber)), is(bytesOf(expected.loadPage(pageNumber))));
+        assertThat(actual.loadPageHeader(pageNumber), is(expected.loadPageHeader(pageNumber)));
+      }
+    } finally {
+      actual.close();
+    }
+  }
+
+  private byte[] bytesOf(InnerPage page) {
+    page.getSliceInput().setPosition(0);
+    return page.getSliceInput().readByteArray(SIZE_OF_PAGE);
+  }
+
+}
@@ -0,0 +1,156 @@
+package com.alibaba.innodb.java.reader.service.impl;
+
+import com.alibaba.innodb.java.reader.AbstractTest;
+import com.alibaba.innodb.java.reader.TableReader;
+import com.alibaba.innodb.java.reader.TableReaderImpl;
+import com.alibaba.innodb.java.reader.page.FilHeader;
+import com.alibaba.innodb.java.reader.page.InnerPage;
+import com.alibaba.innodb.java.reader.page.PageType;
+import com.alibaba.innodb.java.reader.page.fsphdr.XdesState;
+import com.alibaba.innodb.java.reader.pk.CompositePrimaryKeyMultiLevelTableReaderTest;
+import com.alibaba.innodb.java.reader.service.StorageService;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Iterator;
+import java.util.List;
+
+import static com.alibaba.innodb.java.reader.SizeOf.SIZE_OF_PAGE;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author xu.zx
+ */
+public class ExtentReaderTest extends AbstractTest {
+
+  private static final String IBD_FILE = IBD_FILE_BASE_PATH_MYSQL56 + "column/char/tb04.ibd";
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void testLoadPagesSameAsLoadPage() throws IOException {
+    try (StorageService storageService = IndexServiceFixture.open(IBD_FILE)) {
+      assertThat(storageService.numOfPages(), is(128L));
+      assertLoadPages(storageService, 0L, 64, 64);
+      assertLoadPages(storageService, 3L, 7, 7);
+      // partial at end of file
+      assertLoadPages(storageService, 120L, 64, 8);
+      assertLoadPages(storageService, 128L, 64, 0);
+    }
+  }
+
+  @Test
+  public void testPageIterator() throws IOException {
+    try (StorageService storageService = IndexServiceFixture.open(IBD_FILE)) {
+      ExtentReader extentReader = new ExtentReader(storageService);
+      assertThat(extentReader.getNumOfExtents(), is(2L));
+      assertThat(extentReader.getExtentState(0L), is(XdesState.FREE_FRAG));
+      assertThat(extentReader.getExtentState(1L), is(XdesState.FSEG));
+      Iterator<InnerPage> iterator = extentReader.pageIterator(true);
+      long pageNumber = 0L;
+      while (iterator.hasNext()) {
+        InnerPage page = iterator.next();
+        assertThat(page.getPageNumber(), is(pageNumber));
+        assertThat(page.getFilHeader(), is(storageService.loadPageHeader(pageNumber)));
+        pageNumber++;
+      }
+      assertThat(pageNumber, is(128L));
+      assertThat(extentReader.getSkippedExtentCount(), is(0L));
+    }
+  }
+
+  @Test
+  public void testSkipFreeExtent() throws IOException {
+    File file = XdesFixture.copyOf(temporaryFolder, IBD_FILE);
+    // mark the second extent as free
+    XdesFixture.markExtentFree(file, 1L);
+
+    try (StorageService storageService = IndexServiceFixture.open(file.getAbsolutePath())) {
+      ExtentReader extentReader = new ExtentReader(storageService);
+      assertThat(extentReader.isFreeExtent(0L), is(false));
+      assertThat(extentReader.isFreeExtent(1L), is(true));
+      Iterator<InnerPage> iterator = extentReader.pageIterator(true);
+      int count = 0;
+      while (iterator.hasNext()) {
+        assertThat(iterator.next().getPageNumber() < 64L, is(true));
+        count++;
+      }
+      assertThat(count, is(64));
+      assertThat(extentReader.getSkippedExtentCount(), is(1L));
+    }
+
+    try (TableReader reader = new TableReaderImpl(file.getAbsolutePath(),
+        new CompositePrimaryKeyMultiLevelTableReaderTest().sql())) {
+      reader.open();
+      List<FilHeader> headers = reader.readAllPageHeaders();
+      assertThat(headers.size(), is(128));
+      assertThat(headers.get(3).getPageType(), is(PageType.INDEX));
+      for (int i = 64; i < headers.size(); i++) {
+        assertThat(headers.get(i).getPageNumber(), is((long) i));
+        assertThat(headers.get(i).getPageType(), is(PageType.ALLOCATED));
+      }
+    }
+  }
+
+  @Test
+  public void testReadAllPageHeaders() throws IOException {
+    String path = IBD_FILE_BASE_PATH_MYSQL56 + "pk/tb24.ibd";
+    try (TableReader reader = new TableReaderImpl(path, new CompositePrimaryKeyMultiLevelTableReaderTest().sql());
+         StorageService storageService = new FileChannelStorageServiceImpl()) {
+      reader.open();
+      storageService.open(path);
+      List<FilHeader> headers = reader.readAllPageHeaders();
+      assertThat((long) headers.size(), is(storageService.numOfPages()));
+      for (int i = 0; i < headers.size(); i++) {
+        assertThat(headers.get(i), is(storageService.loadPageHeader(i)));
+      }
+      assertThat(reader.readAllPages().size(), is(headers.size()));
+    }
+  }
+
+  @Test
+  public void testReadAllPageHeadersWithTornPage() throws IOException {
+    File file = XdesFixture.copyOf(temporaryFolder, IBD_FILE);
+    // low 32 bits of LSN in trailer do not match header
+    try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+      raf.seek(4L * SIZE_OF_PAGE - 4);
+      raf.writeInt(0);
+    }
+
+    try (TableReader reader = new TableReaderImpl(file.getAbsolutePath(),
+        new CompositePrimaryKeyMultiLevelTableReaderTest().sql());
+         StorageService storageService = new FileChannelStorageServiceImpl()) {
+      reader.open();
+      storageService.open(IBD_FILE);
+      List<FilHeader> headers = reader.readAllPageHeaders();
+      assertThat(headers.size(), is(128));
+      for (int i = 0; i < headers.size(); i++) {
+        assertThat(headers.get(i), is(storageService.loadPageHeader(i)));
+      }
+    }
+  }
+
+  private void assertLoadPages(StorageService storageService, long startPageNumber, int numOfPages,
+                               int expectedSize) {
+    List<InnerPage> pages = storageService.loadPages(startPageNumber, numOfPages);
+    assertThat(pages.size(), is(expectedSize));
+    for (int i = 0; i < pages.size(); i++) {
+      InnerPage expected = storageService.loadPage(startPageNumber + i);
+      assertThat(pages.get(i).getPageNumber(), is(startPageNumber + i));
+      assertThat(bytesOf(pages.get(i)), is(bytesOf(expected)));
+    }
+  }
+
+  private byte[] bytesOf(InnerPage page) {
+    page.getSliceInput().setPosition(0);
+    return page.getSliceInput().readByteArray(SIZE_OF_PAGE);
+  }
+
+}
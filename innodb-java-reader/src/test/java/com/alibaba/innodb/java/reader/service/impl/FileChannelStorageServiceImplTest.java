@@ -1,18 +1,26 @@
 package com.alibaba.innodb.java.reader.service.impl;
 
 import com.alibaba.innodb.java.reader.AbstractTest;
+import com.alibaba.innodb.java.reader.page.FilHeader;
+import com.alibaba.innodb.java.reader.page.InnerPage;
 import com.alibaba.innodb.java.reader.service.StorageService;
+import com.alibaba.innodb.java.reader.util.PageBufferPool;
 import com.alibaba.innodb.java.reader.util.Utils;
 
 import org.junit.Test;
 
 import java.io.IOException;
+import java.util.List;
+import java.util.stream.LongStream;
 
 import lombok.extern.slf4j.Slf4j;
 
 import static com.alibaba.innodb.java.reader.SizeOf.SIZE_OF_PAGE;
 import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsSame.sameInstance;
 import static org.junit.Assert.assertThat;
 
 /**
@@ -21,6 +29,8 @@ import static org.junit.Assert.assertThat;
 @Slf4j
 public class FileChannelStorageServiceImplTest extends AbstractTest {
 
+  private static final String IBD_FILE = IBD_FILE_BASE_PATH_MYSQL56 + "column/char/tb04.ibd";
+
   @Test
   public void testLoadPage() throws IOException {
     try (StorageService storageService = new FileChannelStorageServiceImpl()) {
@@ -42,4 +52,58 @@ public class FileChannelStorageServiceImplTest extends AbstractTest {
     }
   }
 
+  @Test
+  public void testLoadPages() throws IOException {
+    long[] pageNumbers = {9, 3, 4, 5, 20, 4, 0, 1, 2, 19, 21, 7};
+    PageBufferPool pool = new PageBufferPool(16, false);
+    try (StorageService expected = new FileChannelStorageServiceImpl(null);
+         StorageService actual = new FileChannelStorageServiceImpl(pool)) {
+      expected.open(IBD_FILE);
+      actual.open(IBD_FILE);
+      List<InnerPage> pages = actual.loadPages(pageNumbers);
+      assertThat(pages.size(), is(pageNumbers.length));
+      for (int i = 0; i < pageNumbers.length; i++) {
+        assertThat(pages.get(i).getPageNumber(), is(pageNumbers[i]));
+        assertThat(bytesOf(pages.get(i)), is(bytesOf(expected.loadPage(pageNumbers[i]))));
+      }
+      // duplicated page number gets its own page
+      assertThat(pages.get(2), not(sameInstance(pages.get(5))));
+      assertThat(pool.getAcquiredCount(), is(12L));
+      pages.get(2).release();
+      pool.acquire().put(new byte[SIZE_OF_PAGE]);
+      assertThat(bytesOf(pages.get(5)), is(bytesOf(expected.loadPage(4))));
+      for (InnerPage page : pages) {
+        page.release();
+      }
+      assertThat(pool.getReleasedCount(), is(12L));
+
+      // more adjacent pages than one scatter read
+      long[] range = LongStream.range(0, expected.numOfPages()).toArray();
+      pages = actual.loadPages(range);
+      for (int i = 0; i < range.length; i++) {
+        assertThat(bytesOf(pages.get(i)), is(bytesOf(expected.loadPage(range[i]))));
+      }
+      assertThat(actual.loadPages(new long[0]).isEmpty(), is(true));
+    }
+  }
+
+  @Test
+  public void testLoadPageHeaders() throws IOException {
+    try (StorageService storageService = new FileChannelStorageServiceImpl()) {
+      storageService.open(IBD_FILE);
+      long[] pageNumbers = LongStream.concat(LongStream.of(30, 4, 4, 31),
+          LongStream.range(0, storageService.numOfPages()).map(i -> storageService.numOfPages() - 1 - i)).toArray();
+      List<FilHeader> headers = storageService.loadPageHeaders(pageNumbers);
+      assertThat(headers.size(), is(pageNumbers.length));
+      for (int i = 0; i < pageNumbers.length; i++) {
+        assertThat(headers.get(i), is(storageService.loadPageHeader(pageNumbers[i])));
+      }
+    }
+  }
+
+  private byte[] bytesOf(InnerPage page) {
+    page.getSliceInput().setPosition(0);
+    return page.getSliceInput().readByteArray(SIZE_OF_PAGE);
+  }
+
 }
@@ -0,0 +1,62 @@
+package com.alibaba.innodb.java.reader.service.impl;
+
+import com.alibaba.innodb.java.reader.comparator.DefaultKeyComparator;
+import com.alibaba.innodb.java.reader.page.index.GenericRecord;
+import com.alibaba.innodb.java.reader.schema.TableDef;
+import com.alibaba.innodb.java.reader.service.StorageService;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Open tablespace and build index service on it, and compare records read in different ways.
+ *
+ * @author xu.zx
+ */
+final class IndexServiceFixture {
+
+  private IndexServiceFixture() {
+  }
+
+  /**
+   * Open tablespace with {@link FileChannelStorageServiceImpl}.
+   *
+   * @param ibdFilePath tablespace
+   * @return storage service opened, should be closed by caller
+   */
+  static StorageService open(String ibdFilePath) throws IOException {
+    StorageService storageService = new FileChannelStorageServiceImpl();
+    storageService.open(ibdFilePath);
+    return storageService;
+  }
+
+  /**
+   * Index service with {@link DefaultKeyComparator}.
+   *
+   * @param storageService storage service opened
+   * @param tableDef       table definition
+   * @return index service
+   */
+  static IndexServiceImpl indexService(StorageService storageService, TableDef tableDef) {
+    return new IndexServiceImpl(storageService, tableDef, new DefaultKeyComparator());
+  }
+
+  /**
+   * Assert records are of the same values and primary key positions in the same order.
+   *
+   * @param actual   actual records
+   * @param expected expected records
+   */
+  static void assertSameRecords(List<GenericRecord> actual, List<GenericRecord> expected) {
+    assertThat(actual.size(), is(expected.size()));
+    for (int i = 0; i < expected.size(); i++) {
+      assertThat(Arrays.asList(actual.get(i).getValues()), is(Arrays.asList(expected.get(i).getValues())));
+      assertThat(actual.get(i).getPrimaryKeyPosition(), is(expected.get(i).getPrimaryKeyPosition()));
+    }
+  }
+
+}
@@ -0,0 +1,80 @@
+package com.alibaba.innodb.java.reader.service.impl;
+
+import com.alibaba.innodb.java.reader.AbstractTest;
+import com.alibaba.innodb.java.reader.deletion.DeletionTableReaderTest;
+import com.alibaba.innodb.java.reader.page.index.GenericRecord;
+import com.alibaba.innodb.java.reader.pk.CompositePrimaryKeyMultiLevelTableReaderTest;
+import com.alibaba.innodb.java.reader.schema.TableDef;
+import com.alibaba.innodb.java.reader.schema.TableDefUtil;
+import com.alibaba.innodb.java.reader.service.StorageService;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Records are decoded with key only while searching B+ tree, the record found should still
+ * be decoded with projection.
+ *
+ * @author xu.zx
+ */
+public class KeyOnlySearchTest extends AbstractTest {
+
+  @Test
+  public void testCompositePrimaryKeyMysql56() throws IOException {
+    TableDef tableDef = TableDefUtil.covertToTableDef(new CompositePrimaryKeyMultiLevelTableReaderTest().sql());
+    testSearch(IBD_FILE_BASE_PATH_MYSQL56 + "pk/tb24.ibd", tableDef, true, Arrays.asList("c3", "c8"));
+    testSearch(IBD_FILE_BASE_PATH_MYSQL56 + "pk/tb24.ibd", tableDef, true, Arrays.asList("c5", "c2", "c6"));
+  }
+
+  @Test
+  public void testDeletedRecordsMysql57() throws IOException {
+    TableDef tableDef = new DeletionTableReaderTest().getTableDef();
+    testSearch(IBD_FILE_BASE_PATH_MYSQL57 + "deletion/tb13.ibd", tableDef, false, Collections.singletonList("c"));
+    testSearch(IBD_FILE_BASE_PATH_MYSQL57 + "deletion/tb13.ibd", tableDef, true, Collections.singletonList("c"));
+    testSearch(IBD_FILE_BASE_PATH_MYSQL57 + "deletion/tb13.ibd", tableDef, false, Collections.singletonList("id"));
+  }
+
+  private void testSearch(String ibdFilePath, TableDef tableDef, boolean binaryKeySearch,
+                          List<String> projection) throws IOException {
+    try (StorageService storageService = IndexServiceFixture.open(ibdFilePath)) {
+      IndexServiceImpl indexService = IndexServiceFixture.indexService(storageService, tableDef);
+      indexService.setBinaryKeySearch(binaryKeySearch);
+
+      for (Optional<List<String>> recordProjection : Arrays.asList(Optional.<List<String>>empty(),
+          Optional.of(projection))) {
+        List<GenericRecord> expected = indexService.queryAll(Optional.empty(), recordProjection);
+        assertThat(expected.isEmpty(), is(false));
+        List<List<Object>> keys = new ArrayList<>(expected.size());
+        for (GenericRecord record : expected) {
+          List<Object> key = record.getPrimaryKey();
+          keys.add(key);
+          GenericRecord actual = indexService.queryByPrimaryKey(key, recordProjection);
+          assertThat(Arrays.asList(actual.getValues()), is(Arrays.asList(record.getValues())));
+          assertThat(actual.getPageNumber(), is(record.getPageNumber()));
+        }
+
+        List<GenericRecord> batch = indexService.queryByPrimaryKeys(keys, recordProjection);
+        for (int i = 0; i < expected.size(); i++) {
+          assertThat(Arrays.asList(batch.get(i).getValues()), is(Arrays.asList(expected.get(i).getValues())));
+        }
+      }
+
+      if (tableDef.getPrimaryKeyColumnNum() == 1) {
+        // deleted record is not found
+        assertThat(indexService.queryByPrimaryKey(Collections.singletonList(2), Optional.of(projection)),
+            nullValue());
+      }
+    }
+  }
+
+}
@@ -0,0 +1,141 @@
+package com.alibaba.innodb.java.reader.service.impl;
+
+import com.alibaba.innodb.java.reader.AbstractTest;
+import com.alibaba.innodb.java.reader.TableReader;
+import com.alibaba.innodb.java.reader.TableReaderImpl;
+import com.alibaba.innodb.java.reader.nullcolumn.NullColumnTableReaderTest;
+import com.alibaba.innodb.java.reader.page.index.GenericRecord;
+import com.alibaba.innodb.java.reader.page.index.LazyGenericRecord;
+import com.alibaba.innodb.java.reader.page.index.LazyGenericRecord.PageScope;
+import com.alibaba.innodb.java.reader.page.index.RecordHeader;
+import com.alibaba.innodb.java.reader.page.index.RecordType;
+import com.alibaba.innodb.java.reader.pk.CompositePrimaryKeyMultiLevelTableReaderTest;
+import com.alibaba.innodb.java.reader.schema.TableDef;
+import com.alibaba.innodb.java.reader.util.SliceInput;
+import com.alibaba.innodb.java.reader.util.Slices;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * @author xu.zx
+ */
+public class LazyScanTest extends AbstractTest {
+
+  private static final String SQL = new CompositePrimaryKeyMultiLevelTableReaderTest().sql();
+
+  @Test
+  public void testLazyScanMysql56() throws IOException {
+    testLazyScan(new TableReaderImpl(IBD_FILE_BASE_PATH_MYSQL56 + "pk/tb24.ibd", SQL));
+  }
+
+  @Test
+  public void testLazyScanMysql80() throws IOException {
+    testLazyScan(new TableReaderImpl(IBD_FILE_BASE_PATH_MYSQL80 + "pk/tb24.ibd", SQL));
+  }
+
+  @Test
+  public void testLazyScanNullColumnMysql57() throws IOException {
+    testLazyScan(new TableReaderImpl(IBD_FILE_BASE_PATH_MYSQL57 + "nullcolumn/tb12.ibd",
+        new NullColumnTableReaderTest().getTableDef()));
+  }
+
+  private void testLazyScan(TableReader tableReader) throws IOException {
+    try (TableReader reader = tableReader) {
+      reader.open();
+      TableDef tableDef = reader.getTableDef();
+      List<GenericRecord> expected = reader.queryAll();
+      List<GenericRecord> records = new ArrayList<>(expected.size());
+      assertThat(reader.lazyScan(r -> {
+        assertThat(r instanceof LazyGenericRecord, is(true));
+        records.add(((LazyGenericRecord) r).materialize());
+      }), is((long) expected.size()));
+      for (int i = 0; i < expected.size(); i++) {
+        assertThat(Arrays.asList(records.get(i).getValues()), is(Arrays.asList(expected.get(i).getValues())));
+      }
+
+      // access one column, others are not decoded
+      List<GenericRecord> notMaterialized = new ArrayList<>(expected.size());
+      List<Object> lastColumn = new ArrayList<>(expected.size());
+      String lastColumnName = tableDef.getColumnNames().get(tableDef.getColumnNum() - 1);
+      reader.lazyScan(r -> {
+        lastColumn.add(r.get(lastColumnName));
+        notMaterialized.add(r);
+      });
+      for (int i = 0; i < expected.size(); i++) {
+        assertThat(lastColumn.get(i), is(expected.get(i).get(lastColumnName)));
+        // decoded value and primary key are still available
+        assertThat(notMaterialized.get(i).get(lastColumnName), is(expected.get(i).get(lastColumnName)));
+        assertThat(notMaterialized.get(i).getPrimaryKey(), is(expected.get(i).getPrimaryKey()));
+      }
+    }
+  }
+
+  @Test
+  public void testLazyScanWithPredicate() throws IOException {
+    TableDef tableDef = new NullColumnTableReaderTest().getTableDef();
+    try (TableReader reader = new TableReaderImpl(IBD_FILE_BASE_PATH_MYSQL56 + "nullcolumn/tb12.ibd", tableDef)) {
+      reader.open();
+      List<GenericRecord> expected = reader.queryAll(r -> ((Integer) r.get("id")) % 3 == 0);
+      List<GenericRecord> records = new ArrayList<>(expected.size());
+      long count = reader.lazyScan(r -> ((Integer) r.get("id")) % 3 == 0,
+          r -> records.add(((LazyGenericRecord) r).materialize()));
+      assertThat(count, is((long) expected.size()));
+      for (int i = 0; i < expected.size(); i++) {
+        assertThat(Arrays.asList(records.get(i).getValues()), is(Arrays.asList(expected.get(i).getValues())));
+      }
+    }
+  }
+
+  @Test
+  public void testAccessAfterPageReleased() throws IOException {
+    try (TableReader reader = new TableReaderImpl(IBD_FILE_BASE_PATH_MYSQL56 + "pk/tb24.ibd", SQL)) {
+      reader.open();
+      List<GenericRecord> records = new ArrayList<>();
+      reader.lazyScan(records::add);
+      assertThat(records.size(), is(4000));
+      assertThat(((LazyGenericRecord) records.get(0)).isMaterialized(), is(false));
+      try {
+        records.get(0).get("c3");
+        fail();
+      } catch (IllegalStateException e) {
+        assertThat(e.getMessage().contains("materialize()"), is(true));
+      }
+    }
+  }
+
+  @Test
+  public void testGetValuesNotDetachPage() {
+    RecordHeader header = new RecordHeader();
+    header.setRecordType(RecordType.CONVENTIONAL);
+    SliceInput pageInput = Slices.fromByteBuffer(ByteBuffer.wrap(new byte[] {0, 0, 0, 7, 0, 0, 0, 8})).input();
+    LazyGenericRecord record = new LazyGenericRecord(header, new NullColumnTableReaderTest().getTableDef(), 3L,
+        new PageScope(pageInput, (input, column, varLen, overflow) -> input.readInt()));
+    record.put("id", 1);
+
+    // values of a half-built record, columns can still be located after that
+    assertThat(record.getValues()[0], is(1));
+    record.locate(1, 0, 4, -1, false);
+    assertThat(record.get(1), is(7));
+
+    record.materialize();
+    assertThat(record.isMaterialized(), is(true));
+    record.locate(2, 4, 4, -1, false);
+    try {
+      record.get(2);
+      fail();
+    } catch (IllegalStateException e) {
+      assertThat(e.getMessage().contains("materialize()"), is(true));
+    }
+  }
+
+}
@@ -0,0 +1,102 @@
+package com.alibaba.innodb.java.reader.service.impl;
+
+import com.alibaba.innodb.java.reader.AbstractTest;
+import com.alibaba.innodb.java.reader.exception.PageLoadException;
+import com.alibaba.innodb.java.reader.page.FilHeader;
+import com.alibaba.innodb.java.reader.page.InnerPage;
+import com.alibaba.innodb.java.reader.page.index.GenericRecord;
+import com.alibaba.innodb.java.reader.pk.CompositePrimaryKeyMultiLevelTableReaderTest;
+import com.alibaba.innodb.java.reader.schema.TableDef;
+import com.alibaba.innodb.java.reader.schema.TableDefUtil;
+import com.alibaba.innodb.java.reader.service.StorageService;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+
+import static com.alibaba.innodb.java.reader.SizeOf.SIZE_OF_PAGE;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author xu.zx
+ */
+public class MmapStorageServiceImplTest extends AbstractTest {
+
+  private static final String IBD_FILE = IBD_FILE_BASE_PATH_MYSQL56 + "pk/tb24.ibd";
+
+  @Test
+  public void testLoadPageSameAsFileChannel() throws IOException {
+    // use a tiny window to make sure pages spanning multiple windows are loaded correctly
+    try (StorageService expected = new FileChannelStorageServiceImpl();
+         StorageService actual = new MmapStorageServiceImpl(4 * SIZE_OF_PAGE)) {
+      expected.open(IBD_FILE);
+      actual.open(IBD_FILE);
+      assertThat(actual.numOfPages(), is(expected.numOfPages()));
+      for (long i = 0; i < expected.numOfPages(); i++) {
+        InnerPage expectedPage = expected.loadPage(i);
+        InnerPage actualPage = actual.loadPage(i);
+        assertThat(bytesOf(actualPage), is(bytesOf(expectedPage)));
+        assertThat(actualPage.getFilHeader().toString(), is(expectedPage.getFilHeader().toString()));
+
+        FilHeader expectedHeader = expected.loadPageHeader(i);
+        FilHeader actualHeader = actual.loadPageHeader(i);
+        assertThat(actualHeader.toString(), is(expectedHeader.toString()));
+      }
+    }
+  }
+
+  @Test
+  public void testQueryAllSameAsFileChannel() throws IOException {
+    TableDef tableDef = TableDefUtil.covertToTableDef(new CompositePrimaryKeyMultiLevelTableReaderTest().sql());
+    tableDef.prepare();
+    try (StorageService expected = new FileChannelStorageServiceImpl();
+         StorageService actual = new MmapStorageServiceImpl()) {
+      expected.open(IBD_FILE);
+      actual.open(IBD_FILE);
+      List<GenericRecord> expectedRecords = IndexServiceFixture.indexService(expected, tableDef)
+          .queryAll(Optional.empty(), Optional.empty());
+      Iterator<GenericRecord> iterator = IndexServiceFixture.indexService(actual, tableDef)
+          .getQueryAllIterator(Optional.empty(), true);
+      int count = 0;
+      while (iterator.hasNext()) {
+        GenericRecord record = iterator.next();
+        assertThat(record.getPrimaryKey(), is(expectedRecords.get(count).getPrimaryKey()));
+        assertThat(record.getValues(), is(expectedRecords.get(count).getValues()));
+        count++;
+      }
+      assertThat(count, is(4000));
+      assertThat(count, is(expectedRecords.size()));
+    }
+  }
+
+  @Test(expected = PageLoadException.class)
+  public void testLoadPageAfterClose() throws IOException {
+    StorageService storageService = new MmapStorageServiceImpl();
+    storageService.open(IBD_FILE);
+    storageService.close();
+    storageService.loadPage(0);
+  }
+
+  @Test(expected = PageLoadException.class)
+  public void testLoadPageOutOfRange() throws IOException {
+    try (StorageService storageService = new MmapStorageServiceImpl()) {
+      storageService.open(IBD_FILE);
+      storageService.loadPage(storageService.numOfPages());
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidWindowSize() {
+    new MmapStorageServiceImpl(SIZE_OF_PAGE + 1);
+  }
+
+  private byte[] bytesOf(InnerPage page) {
+    page.getSliceInput().setPosition(0);
+    return page.getSliceInput().readByteArray(SIZE_OF_PAGE);
+  }
+
+}
@@ -0,0 +1,134 @@
+package com.alibaba.innodb.java.reader.service.impl;
+
+import com.alibaba.innodb.java.reader.AbstractTest;
+import com.alibaba.innodb.java.reader.TableReader;
+import com.alibaba.innodb.java.reader.TableReaderImpl;
+import com.alibaba.innodb.java.reader.comparator.DefaultKeyComparator;
+import com.alibaba.innodb.java.reader.page.index.GenericRecord;
+import com.alibaba.innodb.java.reader.pk.CompositePrimaryKeyMultiLevelTableReaderTest;
+import com.alibaba.innodb.java.reader.schema.Column;
+import com.alibaba.innodb.java.reader.schema.TableDef;
+import com.alibaba.innodb.java.reader.schema.TableDefUtil;
+import com.alibaba.innodb.java.reader.service.StorageService;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.notNullValue;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author xu.zx
+ */
+public class NonLeafLevelCacheTest extends AbstractTest {
+
+  private static final String IBD_FILE = IBD_FILE_BASE_PATH_MYSQL56 + "pk/tb24.ibd";
+
+  private static final long MAX_BYTES = 64L * 1024 * 1024;
+
+  @Test
+  public void testQueryByPrimaryKeyWithPinnedLevels() throws IOException {
+    String sql = new CompositePrimaryKeyMultiLevelTableReaderTest().sql();
+    TableDef tableDef = TableDefUtil.covertToTableDef(sql);
+    tableDef.prepare();
+    try (TableReader reader = new TableReaderImpl(IBD_FILE, sql);
+         StorageService storageService = new FileChannelStorageServiceImpl()) {
+      reader.open();
+      storageService.open(IBD_FILE);
+      IndexServiceImpl indexService = IndexServiceFixture.indexService(storageService, tableDef);
+      assertThat(indexService.pinNonLeafLevels(MAX_BYTES), is(true));
+
+      NonLeafLevelCache cache = indexService.getNonLeafLevelCache();
+      assertThat(cache, notNullValue());
+      assertThat(cache.getNumOfLevels() > 0, is(true));
+      assertThat(cache.getNumOfPages() > 0, is(true));
+      assertThat(cache.getEstimatedBytes() > 0L, is(true));
+
+      int count = 0;
+      Iterator<GenericRecord> iterator = reader.getQueryAllIterator();
+      while (iterator.hasNext()) {
+        GenericRecord expected = iterator.next();
+        GenericRecord actual = indexService.queryByPrimaryKey(expected.getPrimaryKey(), Optional.empty());
+        assertThat(actual, notNullValue());
+        assertThat(actual.getPrimaryKey(), is(expected.getPrimaryKey()));
+        assertThat(Arrays.asList(actual.getValues()), is(Arrays.asList(expected.getValues())));
+        assertThat(indexService.queryByPrimaryKeyAsync(expected.getPrimaryKey(), Optional.empty())
+            .join().getPrimaryKey(), is(expected.getPrimaryKey()));
+        count++;
+      }
+      assertThat(count, is(4000));
+
+      // smaller than the first key, larger than the last key and in the middle
+      for (List<Object> key : Arrays.<List<Object>>asList(
+          Arrays.asList("0", 1, "0"), Arrays.asList("zzzzzz", 1, "0"), Arrays.asList("AAA", 99999, "zzz"))) {
+        assertThat(indexService.queryByPrimaryKey(key, Optional.empty()), nullValue());
+        assertThat(reader.queryByPrimaryKey(key), nullValue());
+      }
+    }
+  }
+
+  @Test
+  public void testProjectionWithPinnedLevels() throws IOException {
+    try (TableReader reader = new TableReaderImpl(IBD_FILE, new CompositePrimaryKeyMultiLevelTableReaderTest().sql())) {
+      reader.open();
+      Iterator<GenericRecord> iterator = reader.getQueryAllIterator();
+      assertThat(iterator.hasNext(), is(true));
+      GenericRecord first = iterator.next();
+      assertThat(reader.pinNonLeafLevels(MAX_BYTES), is(true));
+      GenericRecord record = reader.queryByPrimaryKey(first.getPrimaryKey(), Collections.singletonList("c1"));
+      assertThat(record.get("c1"), is(first.get("c1")));
+      assertThat(record.get("c3"), nullValue());
+    }
+  }
+
+  @Test
+  public void testSearchMultiLevels() {
+    List<Column> keyColumns = Collections.singletonList(new Column().setName("id").setType("int"));
+    // root 10 -> [11, 12], 11 -> leaf [100, 101], 12 -> leaf [102, 103]
+    NonLeafLevelCache.Builder builder = new NonLeafLevelCache.Builder(10L, keyColumns, 2, MAX_BYTES);
+    assertThat(builder.add(10L, Arrays.asList(keys(1), keys(100)), new long[] {11L, 12L}), is(true));
+    assertThat(builder.add(11L, Arrays.asList(keys(1), keys(50)), new long[] {100L, 101L}), is(true));
+    assertThat(builder.add(12L, Arrays.asList(keys(100), keys(150)), new long[] {102L, 103L}), is(true));
+    NonLeafLevelCache cache = builder.build();
+    assertThat(cache.getNumOfPages(), is(3));
+    assertThat(cache.getEstimatedBytes(), is(builder.getEstimatedBytes()));
+
+    DefaultKeyComparator comparator = new DefaultKeyComparator();
+    int[] keys = {-1, 1, 49, 50, 99, 100, 149, 150, 1000};
+    long[] expected = {100L, 100L, 100L, 101L, 101L, 102L, 102L, 103L, 103L};
+    for (int i = 0; i < keys.length; i++) {
+      assertThat(cache.searchLeafPageNumber(keys(keys[i]), comparator), is(expected[i]));
+    }
+  }
+
+  @Test
+  public void testRefuseToPinOverBudget() throws IOException {
+    String sql = new CompositePrimaryKeyMultiLevelTableReaderTest().sql();
+    TableDef tableDef = TableDefUtil.covertToTableDef(sql);
+    tableDef.prepare();
+    try (StorageService storageService = IndexServiceFixture.open(IBD_FILE)) {
+      IndexServiceImpl indexService = IndexServiceFixture.indexService(storageService, tableDef);
+      assertThat(indexService.pinNonLeafLevels(1024L), is(false));
+      assertThat(indexService.getNonLeafLevelCache(), nullValue());
+
+      assertThat(indexService.pinNonLeafLevels(MAX_BYTES), is(true));
+      long estimatedBytes = indexService.getNonLeafLevelCache().getEstimatedBytes();
+      IndexServiceImpl another = IndexServiceFixture.indexService(storageService, tableDef);
+      assertThat(another.pinNonLeafLevels(estimatedBytes - 1), is(false));
+      assertThat(another.pinNonLeafLevels(estimatedBytes), is(true));
+    }
+  }
+
+  private static List<Object> keys(int key) {
+    return Collections.singletonList(key);
+  }
+
+}
@@ -0,0 +1,91 @@
+package com.alibaba.innodb.java.reader.service.impl;
+
+import com.alibaba.innodb.java.reader.AbstractTest;
+import com.alibaba.innodb.java.reader.pk.CompositePrimaryKeyMultiLevelTableReaderTest;
+import com.alibaba.innodb.java.reader.schema.TableDef;
+import com.alibaba.innodb.java.reader.schema.TableDefUtil;
+import com.alibaba.innodb.java.reader.service.IndexService;
+import com.alibaba.innodb.java.reader.service.StorageService;
+import com.alibaba.innodb.java.reader.util.PageBufferPool;
+import com.alibaba.innodb.java.reader.util.Utils;
+
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Iterator;
+import java.util.Optional;
+
+/**
+ * Compare GC pressure of full table scan with and without page buffer recycling.
+ * <p>
+ * Usage: <code>PageBufferGcPressureMainTest [ibdFilePath createTableSql [rounds]]</code>,
+ * by default <code>pk/tb24.ibd</code> in test suite is used. Run with small young generation,
+ * for example <code>-Xmn32m -XX:+UseParallelGC</code> to amplify the difference.
+ *
+ * @author xu.zx
+ */
+public class PageBufferGcPressureMainTest {
+
+  public static void main(String[] args) throws IOException {
+    String ibdFilePath = args.length > 0 ? args[0]
+        : AbstractTest.IBD_FILE_BASE_PATH_MYSQL56 + "pk/tb24.ibd";
+    String sql = args.length > 1 ? args[1] : new CompositePrimaryKeyMultiLevelTableReaderTest().sql();
+    int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 50;
+    TableDef tableDef = TableDefUtil.covertToTableDef(sql);
+    tableDef.prepare();
+
+    // warm up
+    run("warm up", new FileChannelStorageServiceImpl(null), ibdFilePath, tableDef, rounds);
+    run("warm up", new FileChannelStorageServiceImpl(new PageBufferPool(64, false)), ibdFilePath, tableDef, rounds);
+
+    run("no pool", new FileChannelStorageServiceImpl(null), ibdFilePath, tableDef, rounds);
+    PageBufferPool pool = new PageBufferPool(64, false);
+    run("pooled", new FileChannelStorageServiceImpl(pool), ibdFilePath, tableDef, rounds);
+    System.out.println(pool);
+  }
+
+  private static void run(String name, StorageService storageService, String ibdFilePath,
+                          TableDef tableDef, int rounds) throws IOException {
+    com.sun.management.ThreadMXBean threadMxBean =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    long threadId = Thread.currentThread().getId();
+    try (StorageService s = storageService) {
+      s.open(ibdFilePath);
+      IndexService indexService = IndexServiceFixture.indexService(s, tableDef);
+      long gcCount = gcCount();
+      long gcTime = gcTime();
+      long allocated = threadMxBean.getThreadAllocatedBytes(threadId);
+      long start = System.nanoTime();
+      long rows = 0;
+      for (int i = 0; i < rounds; i++) {
+        Iterator<?> iterator = indexService.getQueryAllIterator(Optional.of(tableDef.getPrimaryKeyColumnNames()),
+            true);
+        while (iterator.hasNext()) {
+          iterator.next();
+          rows++;
+        }
+      }
+      long elapsed = System.nanoTime() - start;
+      System.out.printf("%-8s rows=%d, time=%dms, allocated=%s, gc count=%d, gc time=%dms%n", name, rows,
+          elapsed / 1000000, Utils.humanReadableBytes(threadMxBean.getThreadAllocatedBytes(threadId) - allocated),
+          gcCount() - gcCount, gcTime() - gcTime);
+    }
+  }
+
+  private static long gcCount() {
+    long count = 0;
+    for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+      count += Math.max(0, bean.getCollectionCount());
+    }
+    return count;
+  }
+
+  private static long gcTime() {
+    long time = 0;
+    for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+      time += Math.max(0, bean.getCollectionTime());
+    }
+    return time;
+  }
+
+}
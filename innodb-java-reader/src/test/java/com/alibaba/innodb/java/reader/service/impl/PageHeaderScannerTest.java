@@ -0,0 +1,123 @@
+package com.alibaba.innodb.java.reader.service.impl;
+
+import com.alibaba.innodb.java.reader.AbstractTest;
+import com.alibaba.innodb.java.reader.TableReader;
+import com.alibaba.innodb.java.reader.TableReaderImpl;
+import com.alibaba.innodb.java.reader.page.FilHeader;
+import com.alibaba.innodb.java.reader.page.PageHeaderColumns;
+import com.alibaba.innodb.java.reader.page.PageType;
+import com.alibaba.innodb.java.reader.pk.CompositePrimaryKeyMultiLevelTableReaderTest;
+import com.alibaba.innodb.java.reader.service.StorageService;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.alibaba.innodb.java.reader.SizeOf.SIZE_OF_PAGE;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author xu.zx
+ */
+public class PageHeaderScannerTest extends AbstractTest {
+
+  private static final String IBD_FILE = IBD_FILE_BASE_PATH_MYSQL56 + "pk/tb24.ibd";
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void testReadColumns() throws IOException {
+    try (TableReader reader = new TableReaderImpl(IBD_FILE, new CompositePrimaryKeyMultiLevelTableReaderTest().sql());
+         StorageService storageService = new FileChannelStorageServiceImpl()) {
+      reader.open();
+      storageService.open(IBD_FILE);
+      List<FilHeader> expected = reader.readAllPageHeaders();
+      for (int parallelism : new int[] {1, 2, 4, 64}) {
+        assertColumns(new PageHeaderScanner(storageService, parallelism).readColumns(), expected);
+      }
+      assertColumns(reader.readPageHeaderColumns(), expected);
+    }
+  }
+
+  @Test
+  public void testScanVisitsEveryPageOnce() throws IOException {
+    try (StorageService storageService = IndexServiceFixture.open(IBD_FILE)) {
+      ConcurrentHashMap<Long, Integer> visited = new ConcurrentHashMap<>(256);
+      AtomicLong indexPages = new AtomicLong();
+      long count = new PageHeaderScanner(storageService, 4).scan((pageNumber, pageType, prevPage, nextPage, lsn) -> {
+        visited.merge(pageNumber, 1, Integer::sum);
+        if (pageType == PageType.INDEX.type()) {
+          indexPages.incrementAndGet();
+        }
+      });
+      assertThat(count, is(storageService.numOfPages()));
+      assertThat((long) visited.size(), is(storageService.numOfPages()));
+      assertThat(visited.values().stream().allMatch(v -> v == 1), is(true));
+      assertThat(indexPages.get() > 0L, is(true));
+    }
+  }
+
+  @Test
+  public void testSkipFreeExtent() throws IOException {
+    File file = XdesFixture.copyOf(temporaryFolder, IBD_FILE_BASE_PATH_MYSQL56 + "column/char/tb04.ibd");
+    // mark the second extent as free
+    XdesFixture.markExtentFree(file, 1L);
+    try (TableReader reader = new TableReaderImpl(file.getAbsolutePath(),
+        new CompositePrimaryKeyMultiLevelTableReaderTest().sql())) {
+      reader.open();
+      PageHeaderColumns columns = reader.readPageHeaderColumns();
+      assertColumns(columns, reader.readAllPageHeaders());
+      for (int i = 64; i < columns.size(); i++) {
+        assertThat(columns.getPageType(i), is(PageType.ALLOCATED));
+      }
+    }
+  }
+
+  @Test
+  public void testReadPages() throws IOException {
+    try (StorageService storageService = new FileChannelStorageServiceImpl();
+         StorageService mmapStorageService = new MmapStorageServiceImpl()) {
+      storageService.open(IBD_FILE);
+      mmapStorageService.open(IBD_FILE);
+      long numOfPages = storageService.numOfPages();
+      ByteBuffer buffer = ByteBuffer.allocate(8 * SIZE_OF_PAGE);
+      ByteBuffer expected = ByteBuffer.allocate(8 * SIZE_OF_PAGE);
+      assertThat(storageService.readPages(3L, 8, buffer), is(8));
+      assertThat(buffer.position(), is(8 * SIZE_OF_PAGE));
+      // default implementation
+      assertThat(mmapStorageService.readPages(3L, 8, expected), is(8));
+      assertThat(buffer.array(), is(expected.array()));
+
+      // limited by buffer remaining and end of file
+      buffer.clear();
+      buffer.position(6 * SIZE_OF_PAGE);
+      assertThat(storageService.readPages(3L, 8, buffer), is(2));
+      buffer.clear();
+      assertThat(storageService.readPages(numOfPages - 1, 8, buffer), is(1));
+      assertThat(storageService.readPages(numOfPages, 8, buffer), is(0));
+    }
+  }
+
+  private void assertColumns(PageHeaderColumns columns, List<FilHeader> expected) {
+    assertThat(columns.size(), is(expected.size()));
+    for (int i = 0; i < expected.size(); i++) {
+      FilHeader filHeader = expected.get(i);
+      assertThat(columns.getPageType(i), is(filHeader.getPageType()));
+      assertThat(columns.getLastModifiedLsn(i), is(filHeader.getLastModifiedLsn()));
+      assertThat(columns.getPrevPage(i), is(filHeader.getPrevPage() == null
+          ? PageHeaderColumns.FIL_NULL : filHeader.getPrevPage()));
+      assertThat(columns.getNextPage(i), is(filHeader.getNextPage() == null
+          ? PageHeaderColumns.FIL_NULL : filHeader.getNextPage()));
+    }
+  }
+
+}
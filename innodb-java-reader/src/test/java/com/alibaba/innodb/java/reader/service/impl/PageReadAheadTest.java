@@ -0,0 +1,205 @@
+package com.alibaba.innodb.java.reader.service.impl;
+
+import com.alibaba.innodb.java.reader.AbstractTest;
+import com.alibaba.innodb.java.reader.comparator.ComparisonOperator;
+import com.alibaba.innodb.java.reader.exception.ReaderException;
+import com.alibaba.innodb.java.reader.page.PageType;
+import com.alibaba.innodb.java.reader.page.index.GenericRecord;
+import com.alibaba.innodb.java.reader.page.index.Index;
+import com.alibaba.innodb.java.reader.pk.CompositePrimaryKeyMultiLevelTableReaderTest;
+import com.alibaba.innodb.java.reader.schema.TableDef;
+import com.alibaba.innodb.java.reader.schema.TableDefUtil;
+import com.alibaba.innodb.java.reader.service.StorageService;
+import com.alibaba.innodb.java.reader.util.PageBufferPool;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongFunction;
+
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author xu.zx
+ */
+public class PageReadAheadTest extends AbstractTest {
+
+  private static final String IBD_FILE = IBD_FILE_BASE_PATH_MYSQL56 + "pk/tb24.ibd";
+
+  @Test
+  public void testScanWithReadAhead() throws IOException {
+    TableDef tableDef = TableDefUtil.covertToTableDef(new CompositePrimaryKeyMultiLevelTableReaderTest().sql());
+    tableDef.prepare();
+    PageBufferPool pool = new PageBufferPool(16, false);
+    try (StorageService storageService = new FileChannelStorageServiceImpl(pool)) {
+      storageService.open(IBD_FILE);
+      IndexServiceImpl indexService = IndexServiceFixture.indexService(storageService, tableDef);
+      List<GenericRecord> expected = scan(indexService.getQueryAllIterator(Optional.empty(), true));
+      assertThat(expected.size(), is(4000));
+
+      for (int readAheadPages : new int[] {1, 4, 64}) {
+        indexService.setReadAheadPages(readAheadPages);
+        assertRecordsEqual(scan(indexService.getQueryAllIterator(Optional.empty(), true)), expected);
+
+        List<GenericRecord> desc = scan(indexService.getQueryAllIterator(Optional.empty(), false));
+        Collections.reverse(desc);
+        assertRecordsEqual(desc, expected);
+
+        List<Object> lower = expected.get(500).getPrimaryKey();
+        List<Object> upper = expected.get(3000).getPrimaryKey();
+        assertRecordsEqual(scan(indexService.getRangeQueryIterator(lower, ComparisonOperator.GTE,
+            upper, ComparisonOperator.LT, Optional.empty(), true)), expected.subList(500, 3000));
+        List<GenericRecord> descRange = scan(indexService.getRangeQueryIterator(lower, ComparisonOperator.GT,
+            upper, ComparisonOperator.LTE, Optional.empty(), false));
+        Collections.reverse(descRange);
+        assertRecordsEqual(descRange, expected.subList(501, 3001));
+      }
+      // pages loaded ahead are all released
+      assertThat(pool.getReleasedCount(), is(pool.getAcquiredCount()));
+    }
+  }
+
+  @Test
+  public void testCloseIteratorEarly() throws IOException {
+    TableDef tableDef = TableDefUtil.covertToTableDef(new CompositePrimaryKeyMultiLevelTableReaderTest().sql());
+    tableDef.prepare();
+    PageBufferPool pool = new PageBufferPool(16, false);
+    try (StorageService storageService = new FileChannelStorageServiceImpl(pool)) {
+      storageService.open(IBD_FILE);
+      IndexServiceImpl indexService = IndexServiceFixture.indexService(storageService, tableDef);
+      indexService.setReadAheadPages(4);
+      RecordIterator iterator = (RecordIterator) indexService.getQueryAllIterator(Optional.empty(), true);
+      assertThat(iterator.hasNext(), is(true));
+      iterator.next();
+      iterator.close();
+      assertThat(iterator.readAhead.isClosed(), is(true));
+      waitUntil(() -> pool.getReleasedCount() == pool.getAcquiredCount());
+      assertThat(pool.getReleasedCount(), is(pool.getAcquiredCount()));
+    }
+  }
+
+  @Test
+  public void testStopAtEndPageAndBoundedDepth() throws IOException {
+    TableDef tableDef = TableDefUtil.covertToTableDef(new CompositePrimaryKeyMultiLevelTableReaderTest().sql());
+    tableDef.prepare();
+    try (StorageService storageService = IndexServiceFixture.open(IBD_FILE)) {
+      IndexServiceImpl indexService = IndexServiceFixture.indexService(storageService, tableDef);
+      List<Long> leafPages = new ArrayList<>();
+      Long leafPage = firstLeafPage(storageService, indexService);
+      while (leafPage != null) {
+        leafPages.add(leafPage);
+        leafPage = indexService.loadIndexPage(leafPage).getInnerPage().getFilHeader().getNextPage();
+      }
+      assertThat(leafPages.size() > 6, is(true));
+
+      AtomicInteger loadCount = new AtomicInteger();
+      LongFunction<Index> loader = pageNumber -> {
+        loadCount.incrementAndGet();
+        return indexService.loadIndexPage(pageNumber);
+      };
+      Object owner = new Object();
+      // ascending, stop at end page
+      try (PageReadAhead readAhead = new PageReadAhead(owner, loader, leafPages.get(1), leafPages.get(4),
+          true, 8)) {
+        for (int i = 1; i <= 4; i++) {
+          assertThat(readAhead.next().getInnerPage().getPageNumber(), is(leafPages.get(i)));
+        }
+        assertThat(readAhead.next() == null, is(true));
+        assertThat(readAhead.next() == null, is(true));
+        assertThat(loadCount.get(), is(4));
+      }
+
+      // descending, never more than depth pages ahead of consumer
+      loadCount.set(0);
+      try (PageReadAhead readAhead = new PageReadAhead(owner, loader, leafPages.get(leafPages.size() - 1),
+          leafPages.get(0), false, 2)) {
+        assertThat(readAhead.next().getInnerPage().getPageNumber(), is(leafPages.get(leafPages.size() - 1)));
+        sleep(300L);
+        // one consumed, two queued and at most one loaded waiting for free slot
+        assertThat(loadCount.get(), lessThanOrEqualTo(4));
+        assertThat(readAhead.next().getInnerPage().getPageNumber(), is(leafPages.get(leafPages.size() - 2)));
+      }
+    }
+  }
+
+  @Test
+  public void testCancelWhenOwnerAbandoned() throws Exception {
+    AtomicInteger loadCount = new AtomicInteger();
+    TableDef tableDef = TableDefUtil.covertToTableDef(new CompositePrimaryKeyMultiLevelTableReaderTest().sql());
+    tableDef.prepare();
+    try (StorageService storageService = IndexServiceFixture.open(IBD_FILE)) {
+      IndexServiceImpl indexService = IndexServiceFixture.indexService(storageService, tableDef);
+      long startPage = firstLeafPage(storageService, indexService);
+      PageReadAhead readAhead = new PageReadAhead(new Object(), pageNumber -> {
+        loadCount.incrementAndGet();
+        return indexService.loadIndexPage(pageNumber);
+      }, startPage, -1L, true, 1);
+      waitUntil(() -> {
+        System.gc();
+        return readAhead.isClosed();
+      });
+      assertThat(readAhead.isClosed(), is(true));
+      assertThat(loadCount.get(), lessThanOrEqualTo(3));
+    }
+  }
+
+  @Test(expected = ReaderException.class)
+  public void testPropagateLoadFailure() {
+    try (PageReadAhead readAhead = new PageReadAhead(new Object(), pageNumber -> {
+      throw new ReaderException("mock failure");
+    }, 3L, 3L, true, 2)) {
+      readAhead.next();
+    }
+  }
+
+  private long firstLeafPage(StorageService storageService, IndexServiceImpl indexService) {
+    for (long pageNumber = 3; pageNumber < storageService.numOfPages(); pageNumber++) {
+      if (storageService.loadPageHeader(pageNumber).getPageType() == PageType.INDEX) {
+        Index index = indexService.loadIndexPage(pageNumber);
+        if (index.isLeafPage() && index.getInnerPage().getFilHeader().getPrevPage() == null) {
+          return pageNumber;
+        }
+      }
+    }
+    throw new IllegalStateException("leaf page not found");
+  }
+
+  private List<GenericRecord> scan(Iterator<GenericRecord> iterator) {
+    List<GenericRecord> result = new ArrayList<>();
+    while (iterator.hasNext()) {
+      result.add(iterator.next());
+    }
+    return result;
+  }
+
+  private void assertRecordsEqual(List<GenericRecord> actual, List<GenericRecord> expected) {
+    assertThat(actual.size(), is(expected.size()));
+    for (int i = 0; i < expected.size(); i++) {
+      assertThat(actual.get(i).getValues(), is(expected.get(i).getValues()));
+    }
+  }
+
+  private void waitUntil(BooleanSupplier condition) {
+    for (int i = 0; i < 50 && !condition.getAsBoolean(); i++) {
+      sleep(100L);
+    }
+  }
+
+  private void sleep(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+}
@@ -0,0 +1,163 @@
+package com.alibaba.innodb.java.reader.service.impl;
+
+import com.alibaba.innodb.java.reader.AbstractTest;
+import com.alibaba.innodb.java.reader.comparator.ComparisonOperator;
+import com.alibaba.innodb.java.reader.deletion.DeletionTableReaderTest;
+import com.alibaba.innodb.java.reader.page.index.GenericRecord;
+import com.alibaba.innodb.java.reader.page.index.Index;
+import com.alibaba.innodb.java.reader.pk.CompositePrimaryKeyMultiLevelTableReaderTest;
+import com.alibaba.innodb.java.reader.schema.TableDef;
+import com.alibaba.innodb.java.reader.schema.TableDefUtil;
+import com.alibaba.innodb.java.reader.service.StorageService;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static com.alibaba.innodb.java.reader.comparator.ComparisonOperator.GT;
+import static com.alibaba.innodb.java.reader.comparator.ComparisonOperator.GTE;
+import static com.alibaba.innodb.java.reader.comparator.ComparisonOperator.LT;
+import static com.alibaba.innodb.java.reader.comparator.ComparisonOperator.LTE;
+import static com.alibaba.innodb.java.reader.comparator.ComparisonOperator.NOP;
+import static com.alibaba.innodb.java.reader.service.impl.IndexServiceFixture.assertSameRecords;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Records returned by {@link PageRecordCursor} and the range query iterator built upon it
+ * should be the same as records decoded page by page.
+ *
+ * @author xu.zx
+ */
+public class PageRecordCursorTest extends AbstractTest {
+
+  @Test
+  public void testCursorMysql56() throws IOException {
+    TableDef tableDef = TableDefUtil.covertToTableDef(new CompositePrimaryKeyMultiLevelTableReaderTest().sql());
+    try (StorageService storageService = IndexServiceFixture.open(IBD_FILE_BASE_PATH_MYSQL56 + "pk/tb24.ibd")) {
+      IndexServiceImpl indexService = IndexServiceFixture.indexService(storageService, tableDef);
+      List<GenericRecord> all = indexService.queryAll(Optional.empty(), Optional.empty());
+      Set<Long> pageNumbers = new LinkedHashSet<>();
+      all.forEach(r -> pageNumbers.add(r.getPageNumber()));
+      assertThat(pageNumbers.size() > 1, is(true));
+
+      PageRecordCursor cursor = new PageRecordCursor();
+      for (long pageNumber : pageNumbers) {
+        List<Integer> expected = new ArrayList<>();
+        for (GenericRecord record : indexService.queryByPageNumber(pageNumber)) {
+          expected.add(record.getPrimaryKeyPosition());
+        }
+        Index index = indexService.loadIndexPage(pageNumber);
+        try {
+          cursor.reset(index, true);
+          assertThat(positions(cursor), is(expected));
+          Collections.reverse(expected);
+          cursor.reset(index, false);
+          assertThat(positions(cursor), is(expected));
+          assertThat(cursor.next(), is(PageRecordCursor.END));
+        } finally {
+          index.release();
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testRangeQueryIteratorMysql56() throws IOException {
+    TableDef tableDef = TableDefUtil.covertToTableDef(new CompositePrimaryKeyMultiLevelTableReaderTest().sql());
+    try (StorageService storageService = IndexServiceFixture.open(IBD_FILE_BASE_PATH_MYSQL56 + "pk/tb24.ibd")) {
+      IndexServiceImpl indexService = IndexServiceFixture.indexService(storageService, tableDef);
+      List<GenericRecord> all = indexService.queryAll(Optional.empty(), Optional.empty());
+      int[] bounds = {0, 1, 700, 1999, 3998, 3999};
+      for (int lower : bounds) {
+        for (int upper : bounds) {
+          assertRange(indexService, all, lower, GTE, upper, LTE);
+          assertRange(indexService, all, lower, GT, upper, LT);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testRangeQueryIteratorWithDeletedRecordsMysql80() throws IOException {
+    TableDef tableDef = new DeletionTableReaderTest().getTableDef();
+    try (StorageService storageService = IndexServiceFixture.open(IBD_FILE_BASE_PATH_MYSQL80 + "deletion/tb13.ibd")) {
+      for (boolean binaryKeySearch : new boolean[] {true, false}) {
+        IndexServiceImpl indexService = IndexServiceFixture.indexService(storageService, tableDef);
+        indexService.setBinaryKeySearch(binaryKeySearch);
+        List<GenericRecord> all = indexService.queryAll(Optional.empty(), Optional.empty());
+        int[] bounds = {0, 1, 500, 1500, 1999};
+        for (int lower : bounds) {
+          for (int upper : bounds) {
+            assertRange(indexService, all, lower, GTE, upper, LT);
+            assertRange(indexService, all, lower, GT, upper, LTE);
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testStopEarlyMysql57() throws IOException {
+    TableDef tableDef = new DeletionTableReaderTest().getTableDef();
+    try (StorageService storageService = IndexServiceFixture.open(IBD_FILE_BASE_PATH_MYSQL57 + "deletion/tb13.ibd")) {
+      IndexServiceImpl indexService = IndexServiceFixture.indexService(storageService, tableDef);
+      for (boolean asc : new boolean[] {true, false}) {
+        Iterator<GenericRecord> iterator = indexService.getQueryAllIterator(Optional.empty(), asc);
+        GenericRecord first = iterator.next();
+        assertThat(first.getPrimaryKey(), is(Collections.singletonList(asc ? 1 : 3000)));
+        // hasNext is idempotent
+        assertThat(iterator.hasNext(), is(true));
+        assertThat(iterator.hasNext(), is(true));
+        assertThat(iterator.next().getPrimaryKey(), is(Collections.singletonList(asc ? 3 : 2999)));
+        ((RecordIterator) iterator).close();
+        assertThat(iterator.hasNext(), is(false));
+      }
+    }
+  }
+
+  private static List<Integer> positions(PageRecordCursor cursor) {
+    List<Integer> result = new ArrayList<>();
+    for (int position = cursor.next(); position != PageRecordCursor.END; position = cursor.next()) {
+      result.add(position);
+    }
+    return result;
+  }
+
+  private static void assertRange(IndexServiceImpl indexService, List<GenericRecord> all,
+                                  int lowerIndex, ComparisonOperator lowerOperator,
+                                  int upperIndex, ComparisonOperator upperOperator) {
+    List<Object> lower = all.get(lowerIndex).getPrimaryKey();
+    List<Object> upper = all.get(upperIndex).getPrimaryKey();
+    int from = lowerOperator == GTE ? lowerIndex : lowerIndex + 1;
+    int to = upperOperator == LTE ? upperIndex + 1 : upperIndex;
+    List<GenericRecord> expected = from < to ? all.subList(from, to) : Collections.emptyList();
+    assertSameRecords(collect(indexService.getRangeQueryIterator(lower, lowerOperator, upper, upperOperator,
+        Optional.empty(), true)), expected);
+
+    List<GenericRecord> reversed = new ArrayList<>(expected);
+    Collections.reverse(reversed);
+    assertSameRecords(collect(indexService.getRangeQueryIterator(lower, lowerOperator, upper, upperOperator,
+        Optional.empty(), false)), reversed);
+
+    // one bound only
+    assertThat(collect(indexService.getRangeQueryIterator(lower, lowerOperator, Collections.emptyList(), NOP,
+        Optional.empty(), false)).size(), is(all.size() - from));
+    assertThat(collect(indexService.getRangeQueryIterator(Collections.emptyList(), NOP, upper, upperOperator,
+        Optional.empty(), true)).size(), is(to));
+  }
+
+  private static List<GenericRecord> collect(Iterator<GenericRecord> iterator) {
+    List<GenericRecord> result = new ArrayList<>();
+    iterator.forEachRemaining(result::add);
+    return result;
+  }
+
+}
@@ -0,0 +1,174 @@
+package com.alibaba.innodb.java.reader.service.impl;
+
+import com.alibaba.innodb.java.reader.AbstractTest;
+import com.alibaba.innodb.java.reader.TableReader;
+import com.alibaba.innodb.java.reader.TableReaderImpl;
+import com.alibaba.innodb.java.reader.page.index.GenericRecord;
+import com.alibaba.innodb.java.reader.pk.CompositePrimaryKeyMultiLevelTableReaderTest;
+import com.alibaba.innodb.java.reader.schema.TableDef;
+import com.alibaba.innodb.java.reader.schema.TableDefUtil;
+import com.alibaba.innodb.java.reader.service.StorageService;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.hamcrest.core.IsSame.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * @author xu.zx
+ */
+public class ParallelIndexScannerTest extends AbstractTest {
+
+  private static final String SQL = new CompositePrimaryKeyMultiLevelTableReaderTest().sql();
+
+  @Test
+  public void testParallelScanMysql56() throws IOException {
+    testParallelScan(IBD_FILE_BASE_PATH_MYSQL56 + "pk/tb24.ibd");
+  }
+
+  @Test
+  public void testParallelScanMysql80() throws IOException {
+    testParallelScan(IBD_FILE_BASE_PATH_MYSQL80 + "pk/tb24.ibd");
+  }
+
+  private void testParallelScan(String ibdFile) throws IOException {
+    TableDef tableDef = TableDefUtil.covertToTableDef(SQL);
+    tableDef.prepare();
+    try (TableReader reader = new TableReaderImpl(ibdFile, SQL);
+         StorageService storageService = new FileChannelStorageServiceImpl()) {
+      reader.open();
+      storageService.open(ibdFile);
+      List<GenericRecord> expected = reader.queryAll();
+      assertThat(expected.size(), is(4000));
+      List<List<Object>> expectedKeys = expected.stream().map(GenericRecord::getPrimaryKey)
+          .collect(Collectors.toList());
+
+      IndexServiceImpl indexService = IndexServiceFixture.indexService(storageService, tableDef);
+      for (int parallelism : new int[] {1, 3, 8}) {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+          indexService.setScanPool(pool);
+          List<GenericRecord> ordered = new ArrayList<>(4000);
+          assertThat(indexService.parallelScan(Optional.empty(), Optional.empty(), true, ordered::add), is(4000L));
+          for (int i = 0; i < expected.size(); i++) {
+            assertThat(Arrays.asList(ordered.get(i).getValues()), is(Arrays.asList(expected.get(i).getValues())));
+          }
+
+          Set<List<Object>> unordered = ConcurrentHashMap.newKeySet();
+          assertThat(indexService.parallelScan(Optional.empty(), Optional.empty(), false,
+              r -> unordered.add(r.getPrimaryKey())), is(4000L));
+          assertThat(unordered.size(), is(4000));
+          assertThat(unordered.containsAll(expectedKeys), is(true));
+        } finally {
+          pool.shutdown();
+        }
+      }
+
+      // predicate and projection
+      indexService.setScanPool(ForkJoinPool.commonPool());
+      List<GenericRecord> filtered = new ArrayList<>();
+      long count = indexService.parallelScan(Optional.of(r -> ((Integer) r.get("c2")) % 2 == 0),
+          Optional.of(Collections.singletonList("c2")), true, filtered::add);
+      assertThat(count, is((long) filtered.size()));
+      assertThat(filtered.size(), is((int) expected.stream().filter(r -> ((Integer) r.get("c2")) % 2 == 0).count()));
+      assertThat(filtered.get(0).get("c3"), nullValue());
+
+      List<GenericRecord> projected = new ArrayList<>();
+      assertThat(reader.parallelScan(Collections.singletonList("c1"), true, projected::add), is(4000L));
+      assertThat(projected.get(0).get("c1"), is(expected.get(0).get("c1")));
+    }
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testConsumerFailure() throws IOException {
+    try (TableReader reader = new TableReaderImpl(IBD_FILE_BASE_PATH_MYSQL56 + "pk/tb24.ibd", SQL)) {
+      reader.open();
+      reader.parallelScan(false, r -> {
+        throw new IllegalStateException("stop");
+      });
+    }
+  }
+
+  @Test
+  public void testOrderedScanBufferBounded() throws IOException {
+    List<GenericRecord> records;
+    try (TableReader reader = new TableReaderImpl(IBD_FILE_BASE_PATH_MYSQL56 + "pk/tb24.ibd", SQL)) {
+      reader.open();
+      records = reader.queryAll().subList(0, 8);
+    }
+    int recordsPerSubtree = ParallelIndexScanner.ORDERED_SCAN_BUFFER_SIZE * 10;
+    ForkJoinPool pool = new ForkJoinPool(2);
+    try {
+      // root 0 -> [1, 2, ..., 8], others are leaf pages
+      AtomicLong produced = new AtomicLong();
+      ParallelIndexScanner scanner = new ParallelIndexScanner(pool,
+          pageNumber -> pageNumber == 0L ? LongStream.rangeClosed(1, 8).toArray() : null,
+          (pageNumber, consumer) -> {
+            for (int i = 0; i < recordsPerSubtree; i++) {
+              produced.incrementAndGet();
+              consumer.accept(records.get((int) pageNumber - 1));
+            }
+          });
+      long bound = 2L * pool.getParallelism() * (ParallelIndexScanner.ORDERED_SCAN_BUFFER_SIZE + 1);
+      List<GenericRecord> delivered = new ArrayList<>();
+      assertThat(scanner.scan(0L, true, record -> {
+        delivered.add(record);
+        assertThat(produced.get() - delivered.size(), lessThanOrEqualTo(bound));
+      }), is(8L * recordsPerSubtree));
+      for (int i = 0; i < delivered.size(); i++) {
+        assertThat(delivered.get(i), sameInstance(records.get(i / recordsPerSubtree)));
+      }
+
+      // workers blocked on full buffers are released when consumer fails
+      try {
+        scanner.scan(0L, true, record -> {
+          throw new IllegalStateException("stop");
+        });
+        fail();
+      } catch (IllegalStateException expected) {
+        assertThat(pool.awaitQuiescence(10, TimeUnit.SECONDS), is(true));
+      }
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  public void testSplit() {
+    // root 1 -> [2, 3], 2 -> [4, 5, 6], 3 -> [7], others are leaf pages
+    ParallelIndexScanner scanner = new ParallelIndexScanner(ForkJoinPool.commonPool(), pageNumber -> {
+      if (pageNumber == 1L) {
+        return new long[] {2L, 3L};
+      } else if (pageNumber == 2L) {
+        return new long[] {4L, 5L, 6L};
+      } else if (pageNumber == 3L) {
+        return new long[] {7L};
+      }
+      return null;
+    }, (pageNumber, consumer) -> {
+    });
+    assertThat(scanner.split(1L, 1), is(Collections.singletonList(1L)));
+    assertThat(scanner.split(1L, 2), is(Arrays.asList(2L, 3L)));
+    assertThat(scanner.split(1L, 3), is(Arrays.asList(4L, 5L, 6L, 7L)));
+    assertThat(scanner.split(1L, 100), is(Arrays.asList(4L, 5L, 6L, 7L)));
+  }
+
+}
@@ -0,0 +1,132 @@
+package com.alibaba.innodb.java.reader.service.impl;
+
+import com.alibaba.innodb.java.reader.AbstractTest;
+import com.alibaba.innodb.java.reader.TableReader;
+import com.alibaba.innodb.java.reader.TableReaderImpl;
+import com.alibaba.innodb.java.reader.exception.ReaderException;
+import com.alibaba.innodb.java.reader.page.InnerPage;
+import com.alibaba.innodb.java.reader.page.index.GenericRecord;
+import com.alibaba.innodb.java.reader.pk.CompositePrimaryKeyMultiLevelTableReaderTest;
+import com.alibaba.innodb.java.reader.schema.TableDef;
+import com.alibaba.innodb.java.reader.schema.TableDefUtil;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author xu.zx
+ */
+public class QueryByPrimaryKeysTest extends AbstractTest {
+
+  private static final String SQL = new CompositePrimaryKeyMultiLevelTableReaderTest().sql();
+
+  @Test
+  public void testQueryByPrimaryKeysMysql56() throws IOException {
+    testQueryByPrimaryKeys(IBD_FILE_BASE_PATH_MYSQL56 + "pk/tb24.ibd");
+  }
+
+  @Test
+  public void testQueryByPrimaryKeysMysql57() throws IOException {
+    testQueryByPrimaryKeys(IBD_FILE_BASE_PATH_MYSQL57 + "pk/tb24.ibd");
+  }
+
+  @Test
+  public void testQueryByPrimaryKeysMysql80() throws IOException {
+    testQueryByPrimaryKeys(IBD_FILE_BASE_PATH_MYSQL80 + "pk/tb24.ibd");
+  }
+
+  private void testQueryByPrimaryKeys(String ibdFile) throws IOException {
+    try (TableReader reader = new TableReaderImpl(ibdFile, SQL)) {
+      reader.open();
+      List<GenericRecord> all = new ArrayList<>(4000);
+      Iterator<GenericRecord> iterator = reader.getQueryAllIterator();
+      while (iterator.hasNext()) {
+        all.add(iterator.next());
+      }
+      assertThat(all.size(), is(4000));
+      Collections.shuffle(all, new Random(7L));
+
+      List<List<Object>> keys = new ArrayList<>(all.size() + 4);
+      keys.add(Arrays.asList("0", 1, "0"));
+      for (GenericRecord record : all) {
+        keys.add(record.getPrimaryKey());
+      }
+      keys.add(Arrays.asList("zzzzzz", 1, "0"));
+      // duplicated key
+      keys.add(all.get(0).getPrimaryKey());
+
+      List<GenericRecord> result = reader.queryByPrimaryKeys(keys);
+      assertThat(result.size(), is(keys.size()));
+      assertThat(result.get(0), nullValue());
+      assertThat(result.get(all.size() + 1), nullValue());
+      for (int i = 0; i < all.size(); i++) {
+        assertThat(Arrays.asList(result.get(i + 1).getValues()), is(Arrays.asList(all.get(i).getValues())));
+      }
+      assertThat(result.get(all.size() + 2).getPrimaryKey(), is(all.get(0).getPrimaryKey()));
+
+      List<GenericRecord> projected = reader.queryByPrimaryKeys(keys.subList(1, 11), Collections.singletonList("c1"));
+      for (int i = 0; i < projected.size(); i++) {
+        assertThat(projected.get(i).get("c1"), is(all.get(i).get("c1")));
+        assertThat(projected.get(i).get("c3"), nullValue());
+      }
+
+      assertThat(reader.pinNonLeafLevels(64L * 1024 * 1024), is(true));
+      List<GenericRecord> pinned = reader.queryByPrimaryKeys(keys);
+      for (int i = 0; i < keys.size(); i++) {
+        assertThat(pinned.get(i) == null, is(result.get(i) == null));
+        if (pinned.get(i) != null) {
+          assertThat(pinned.get(i).getPrimaryKey(), is(result.get(i).getPrimaryKey()));
+        }
+      }
+
+      assertThat(reader.queryByPrimaryKeys(Collections.emptyList()).isEmpty(), is(true));
+    }
+  }
+
+  @Test
+  public void testEveryPageLoadedOnce() throws IOException {
+    String ibdFile = IBD_FILE_BASE_PATH_MYSQL56 + "pk/tb24.ibd";
+    TableDef tableDef = TableDefUtil.covertToTableDef(SQL);
+    tableDef.prepare();
+    Map<Long, Integer> loaded = new HashMap<>(64);
+    try (TableReader reader = new TableReaderImpl(ibdFile, SQL);
+         MmapStorageServiceImpl storageService = new MmapStorageServiceImpl() {
+           @Override
+           public InnerPage loadPage(long pageNumber) throws ReaderException {
+             loaded.merge(pageNumber, 1, Integer::sum);
+             return super.loadPage(pageNumber);
+           }
+         }) {
+      reader.open();
+      storageService.open(ibdFile);
+      List<List<Object>> keys = new ArrayList<>(4000);
+      Iterator<GenericRecord> iterator = reader.getQueryAllIterator();
+      while (iterator.hasNext()) {
+        keys.add(iterator.next().getPrimaryKey());
+      }
+      Collections.reverse(keys);
+
+      IndexServiceImpl indexService = IndexServiceFixture.indexService(storageService, tableDef);
+      List<GenericRecord> result = indexService.queryByPrimaryKeys(keys, Optional.empty());
+      assertThat(result.stream().allMatch(r -> r != null), is(true));
+      assertThat(loaded.values().stream().allMatch(v -> v == 1), is(true));
+      // root and all leaf pages
+      assertThat(loaded.size(), is(indexService.queryByPageNumber(3).size() + 1));
+    }
+  }
+
+}
@@ -0,0 +1,78 @@
+package com.alibaba.innodb.java.reader.service.impl;
+
+import com.alibaba.innodb.java.reader.AbstractTest;
+import com.alibaba.innodb.java.reader.pk.CompositePrimaryKeyMultiLevelTableReaderTest;
+import com.alibaba.innodb.java.reader.schema.TableDef;
+import com.alibaba.innodb.java.reader.schema.TableDefUtil;
+import com.alibaba.innodb.java.reader.service.StorageService;
+import com.alibaba.innodb.java.reader.util.Utils;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Compare full table scan with records decoded generically column by column and decoded by
+ * compiled decoder, with all columns and with a projection of one column.
+ * <p>
+ * Usage: <code>RecordDecoderBenchmarkMainTest [ibdFilePath createTableSql [rounds]]</code>,
+ * by default <code>pk/tb24.ibd</code> in test suite is used. Pages are loaded from page cache
+ * in every round, for meaningful result, run against a large table with many columns.
+ *
+ * @author xu.zx
+ */
+public class RecordDecoderBenchmarkMainTest {
+
+  public static void main(String[] args) throws IOException {
+    String ibdFilePath = args.length > 0 ? args[0]
+        : AbstractTest.IBD_FILE_BASE_PATH_MYSQL56 + "pk/tb24.ibd";
+    String sql = args.length > 1 ? args[1] : new CompositePrimaryKeyMultiLevelTableReaderTest().sql();
+    int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+    TableDef tableDef = TableDefUtil.covertToTableDef(sql);
+    tableDef.prepare();
+    List<String> projection = Collections.singletonList(tableDef.getColumnNames().get(tableDef.getColumnNum() - 1));
+
+    try (StorageService storageService = IndexServiceFixture.open(ibdFilePath)) {
+      IndexServiceImpl indexService = IndexServiceFixture.indexService(storageService, tableDef);
+      System.out.println("file=" + ibdFilePath + ", rounds=" + rounds + ", projection=" + projection);
+
+      // warm up
+      for (boolean compiled : new boolean[] {false, true}) {
+        indexService.setCompiledRecordDecoder(compiled);
+        run("warm up", indexService, Optional.empty(), rounds);
+      }
+      indexService.setCompiledRecordDecoder(false);
+      run("generic", indexService, Optional.empty(), rounds);
+      indexService.setCompiledRecordDecoder(true);
+      run("compiled", indexService, Optional.empty(), rounds);
+      indexService.setCompiledRecordDecoder(false);
+      run("generic projected", indexService, Optional.of(projection), rounds);
+      indexService.setCompiledRecordDecoder(true);
+      run("compiled projected", indexService, Optional.of(projection), rounds);
+    }
+  }
+
+  private static void run(String name, IndexServiceImpl indexService, Optional<List<String>> projection,
+                          int rounds) {
+    com.sun.management.ThreadMXBean threadMxBean =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    long threadId = Thread.currentThread().getId();
+    long allocated = threadMxBean.getThreadAllocatedBytes(threadId);
+    long start = System.nanoTime();
+    long rows = 0;
+    for (int i = 0; i < rounds; i++) {
+      Iterator<?> iterator = indexService.getQueryAllIterator(projection, true);
+      while (iterator.hasNext()) {
+        iterator.next();
+        rows++;
+      }
+    }
+    long elapsed = System.nanoTime() - start;
+    System.out.printf("%-20s rows=%d, time=%dms, %.1fns/row, allocated=%s%n", name, rows, elapsed / 1000000,
+        (double) elapsed / rows, Utils.humanReadableBytes(threadMxBean.getThreadAllocatedBytes(threadId) - allocated));
+  }
+
+}
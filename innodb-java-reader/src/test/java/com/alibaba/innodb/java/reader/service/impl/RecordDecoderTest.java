@@ -0,0 +1,126 @@
+package com.alibaba.innodb.java.reader.service.impl;
+
+import com.alibaba.innodb.java.reader.AbstractTest;
+import com.alibaba.innodb.java.reader.column.ColumnCharUtf8mb4TableReaderTest;
+import com.alibaba.innodb.java.reader.column.ColumnDecimalTableReaderTest;
+import com.alibaba.innodb.java.reader.column.ColumnIntegerTableReaderTest;
+import com.alibaba.innodb.java.reader.comparator.ComparisonOperator;
+import com.alibaba.innodb.java.reader.nullcolumn.NullColumnTableReaderTest;
+import com.alibaba.innodb.java.reader.page.index.GenericRecord;
+import com.alibaba.innodb.java.reader.page.index.LazyGenericRecord;
+import com.alibaba.innodb.java.reader.pk.CompositePrimaryKeyMultiLevelTableReaderTest;
+import com.alibaba.innodb.java.reader.pk.NoPrimaryKeyTableReaderTest;
+import com.alibaba.innodb.java.reader.schema.TableDef;
+import com.alibaba.innodb.java.reader.schema.TableDefUtil;
+import com.alibaba.innodb.java.reader.service.StorageService;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import static com.alibaba.innodb.java.reader.service.impl.IndexServiceFixture.assertSameRecords;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Records decoded by compiled decoder should be the same as decoded generically.
+ *
+ * @author xu.zx
+ */
+public class RecordDecoderTest extends AbstractTest {
+
+  @Test
+  public void testCompositePrimaryKeyMysql56() throws IOException {
+    TableDef tableDef = TableDefUtil.covertToTableDef(new CompositePrimaryKeyMultiLevelTableReaderTest().sql());
+    tableDef.prepare();
+    testDecode(IBD_FILE_BASE_PATH_MYSQL56 + "pk/tb24.ibd", tableDef, Arrays.asList("c3", "c7"));
+  }
+
+  @Test
+  public void testCompositePrimaryKeyMysql80() throws IOException {
+    TableDef tableDef = TableDefUtil.covertToTableDef(new CompositePrimaryKeyMultiLevelTableReaderTest().sql());
+    tableDef.prepare();
+    testDecode(IBD_FILE_BASE_PATH_MYSQL80 + "pk/tb24.ibd", tableDef, Collections.singletonList("c8"));
+  }
+
+  @Test
+  public void testNullColumnsMysql57() throws IOException {
+    testDecode(IBD_FILE_BASE_PATH_MYSQL57 + "nullcolumn/tb12.ibd", new NullColumnTableReaderTest().getTableDef(),
+        Arrays.asList("c", "f"));
+  }
+
+  @Test
+  public void testIntegerColumnsMysql56() throws IOException {
+    testDecode(IBD_FILE_BASE_PATH_MYSQL56 + "column/int/tb02.ibd", new ColumnIntegerTableReaderTest().getTableDef(),
+        Collections.singletonList("c_bigint"));
+  }
+
+  @Test
+  public void testVarLenCharMysql57() throws IOException {
+    testDecode(IBD_FILE_BASE_PATH_MYSQL57 + "column/char/tb04utf8mb4.ibd",
+        new ColumnCharUtf8mb4TableReaderTest().getTableDef(), Arrays.asList("h", "k"));
+  }
+
+  @Test
+  public void testDecimalMysql80() throws IOException {
+    TableDef tableDef = new ColumnDecimalTableReaderTest().getTableDef();
+    testDecode(IBD_FILE_BASE_PATH_MYSQL80 + "column/decimal/tb19.ibd", tableDef,
+        Collections.singletonList(tableDef.getColumnNames().get(1)));
+  }
+
+  @Test
+  public void testNoPrimaryKeyMysql57() throws IOException {
+    try (StorageService storageService = IndexServiceFixture.open(IBD_FILE_BASE_PATH_MYSQL57 + "pk/tb21.ibd")) {
+      IndexServiceImpl indexService = IndexServiceFixture.indexService(storageService,
+          new NoPrimaryKeyTableReaderTest().getTableDef());
+      indexService.setCompiledRecordDecoder(false);
+      List<GenericRecord> expected = indexService.queryAll(Optional.empty(), Optional.empty());
+      indexService.setCompiledRecordDecoder(true);
+      // projection with primary key only is empty, it should not be mixed up with no projection
+      List<GenericRecord> records = new ArrayList<>();
+      indexService.getQueryAllIterator(Optional.empty(), true).forEachRemaining(records::add);
+      assertSameRecords(records, expected);
+      assertThat(expected.get(0).get("b"), is("Jason"));
+    }
+  }
+
+  private void testDecode(String ibdFilePath, TableDef tableDef, List<String> projection) throws IOException {
+    try (StorageService storageService = IndexServiceFixture.open(ibdFilePath)) {
+      IndexServiceImpl generic = IndexServiceFixture.indexService(storageService, tableDef);
+      generic.setCompiledRecordDecoder(false);
+      IndexServiceImpl compiled = IndexServiceFixture.indexService(storageService, tableDef);
+      compiled.setCompiledRecordDecoder(true);
+
+      List<GenericRecord> expected = generic.queryAll(Optional.empty(), Optional.empty());
+      assertThat(expected.isEmpty(), is(false));
+      assertSameRecords(compiled.queryAll(Optional.empty(), Optional.empty()), expected);
+      assertSameRecords(compiled.queryAll(Optional.empty(), Optional.of(projection)),
+          generic.queryAll(Optional.empty(), Optional.of(projection)));
+
+      List<GenericRecord> lazy = new ArrayList<>(expected.size());
+      compiled.lazyScan(Optional.empty(), Optional.empty(), r -> lazy.add(((LazyGenericRecord) r).materialize()));
+      assertSameRecords(lazy, expected);
+
+      // non-leaf pages are decoded when searching
+      List<Object> lower = expected.get(expected.size() / 3).getPrimaryKey();
+      List<Object> upper = expected.get(expected.size() * 2 / 3).getPrimaryKey();
+      List<GenericRecord> range = new ArrayList<>();
+      compiled.getRangeQueryIterator(lower, ComparisonOperator.GTE, upper, ComparisonOperator.LT,
+          Optional.of(projection), true).forEachRemaining(range::add);
+      List<GenericRecord> expectedRange = new ArrayList<>();
+      generic.getRangeQueryIterator(lower, ComparisonOperator.GTE, upper, ComparisonOperator.LT,
+          Optional.of(projection), true).forEachRemaining(expectedRange::add);
+      assertSameRecords(range, expectedRange);
+      for (GenericRecord record : expected) {
+        assertThat(Arrays.asList(compiled.queryByPrimaryKey(record.getPrimaryKey(), Optional.empty()).getValues()),
+            is(Arrays.asList(record.getValues())));
+      }
+    }
+  }
+
+}
@@ -0,0 +1,120 @@
+package com.alibaba.innodb.java.reader.service.impl;
+
+import com.alibaba.innodb.java.reader.AbstractTest;
+import com.alibaba.innodb.java.reader.TableReader;
+import com.alibaba.innodb.java.reader.TableReaderImpl;
+import com.alibaba.innodb.java.reader.comparator.ComparisonOperator;
+import com.alibaba.innodb.java.reader.page.index.GenericRecord;
+import com.alibaba.innodb.java.reader.pk.CompositePrimaryKeyMultiLevelTableReaderTest;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author xu.zx
+ */
+public class RecordSpliteratorTest extends AbstractTest {
+
+  private static final String SQL = new CompositePrimaryKeyMultiLevelTableReaderTest().sql();
+
+  @Test
+  public void testStreamMysql56() throws IOException {
+    testStream(IBD_FILE_BASE_PATH_MYSQL56 + "pk/tb24.ibd");
+  }
+
+  @Test
+  public void testStreamMysql80() throws IOException {
+    testStream(IBD_FILE_BASE_PATH_MYSQL80 + "pk/tb24.ibd");
+  }
+
+  private void testStream(String ibdFile) throws IOException {
+    try (TableReader reader = new TableReaderImpl(ibdFile, SQL)) {
+      reader.open();
+      List<List<Object>> expected = keys(reader.queryAll());
+      assertThat(expected.size(), is(4000));
+
+      assertThat(keys(reader.stream().collect(Collectors.toList())), is(expected));
+      assertThat(keys(reader.stream().parallel().collect(Collectors.toList())), is(expected));
+      assertThat(reader.stream().parallel().count(), is(4000L));
+
+      List<GenericRecord> projected = reader.stream(Collections.singletonList("c1")).parallel()
+          .collect(Collectors.toList());
+      assertThat(projected.size(), is(4000));
+      assertThat(projected.get(0).get("c3"), nullValue());
+
+      List<Object> lower = expected.get(1000);
+      List<Object> upper = expected.get(3000);
+      assertThat(keys(reader.stream(lower, ComparisonOperator.GTE, upper, ComparisonOperator.LT, null)
+          .parallel().collect(Collectors.toList())), is(expected.subList(1000, 3000)));
+      assertThat(keys(reader.stream(lower, ComparisonOperator.GT, upper, ComparisonOperator.LTE, null)
+          .parallel().collect(Collectors.toList())), is(expected.subList(1001, 3001)));
+      // partial key
+      assertThat(reader.stream(lower.subList(0, 1), ComparisonOperator.GTE, null, ComparisonOperator.NOP, null)
+              .parallel().count(),
+          is(reader.rangeQueryByPrimaryKey(lower.subList(0, 1), ComparisonOperator.GTE, null,
+              ComparisonOperator.NOP).stream().count()));
+    }
+  }
+
+  @Test
+  public void testTrySplit() throws IOException {
+    try (TableReader reader = new TableReaderImpl(IBD_FILE_BASE_PATH_MYSQL56 + "pk/tb24.ibd", SQL)) {
+      reader.open();
+      List<List<Object>> expected = keys(reader.queryAll());
+      Spliterator<GenericRecord> spliterator = reader.stream().spliterator();
+      assertThat(spliterator.hasCharacteristics(Spliterator.ORDERED), is(true));
+      assertThat(spliterator.hasCharacteristics(Spliterator.SORTED), is(true));
+      assertThat(spliterator.hasCharacteristics(Spliterator.SIZED), is(false));
+      assertThat(spliterator.estimateSize() > 0L, is(true));
+
+      // split until no more split, every spliterator covers one leaf page at last
+      List<Spliterator<GenericRecord>> leaves = new ArrayList<>();
+      Deque<Spliterator<GenericRecord>> stack = new ArrayDeque<>();
+      stack.push(spliterator);
+      while (!stack.isEmpty()) {
+        Spliterator<GenericRecord> curr = stack.pop();
+        Spliterator<GenericRecord> prefix = curr.trySplit();
+        if (prefix == null) {
+          leaves.add(curr);
+        } else {
+          assertThat(prefix.estimateSize() <= spliterator.estimateSize(), is(true));
+          stack.push(curr);
+          stack.push(prefix);
+        }
+      }
+      assertThat(leaves.size() > 1, is(true));
+
+      List<GenericRecord> records = new ArrayList<>(4000);
+      for (Spliterator<GenericRecord> leaf : leaves) {
+        List<GenericRecord> part = StreamSupport.stream(leaf, false).collect(Collectors.toList());
+        assertThat(part.size() <= leaf.estimateSize() * 2 + 1, is(true));
+        records.addAll(part);
+      }
+      assertThat(keys(records), is(expected));
+
+      // no split after traversal started
+      Spliterator<GenericRecord> started = reader.stream().spliterator();
+      assertThat(started.tryAdvance(r -> {
+      }), is(true));
+      assertThat(started.trySplit(), nullValue());
+    }
+  }
+
+  private static List<List<Object>> keys(List<GenericRecord> records) {
+    return records.stream().map(GenericRecord::getPrimaryKey).collect(Collectors.toList());
+  }
+
+}
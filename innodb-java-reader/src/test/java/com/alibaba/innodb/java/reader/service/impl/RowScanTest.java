@@ -0,0 +1,163 @@
+package com.alibaba.innodb.java.reader.service.impl;
+
+import com.alibaba.innodb.java.reader.AbstractTest;
+import com.alibaba.innodb.java.reader.column.ColumnIntegerTableReaderTest;
+import com.alibaba.innodb.java.reader.comparator.ComparisonOperator;
+import com.alibaba.innodb.java.reader.nullcolumn.NullColumnTableReaderTest;
+import com.alibaba.innodb.java.reader.page.index.GenericRecord;
+import com.alibaba.innodb.java.reader.page.index.Row;
+import com.alibaba.innodb.java.reader.pk.CompositePrimaryKeyMultiLevelTableReaderTest;
+import com.alibaba.innodb.java.reader.pk.NoPrimaryKeyTableReaderTest;
+import com.alibaba.innodb.java.reader.schema.Column;
+import com.alibaba.innodb.java.reader.schema.TableDef;
+import com.alibaba.innodb.java.reader.schema.TableDefUtil;
+import com.alibaba.innodb.java.reader.service.StorageService;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import static com.alibaba.innodb.java.reader.service.impl.IndexServiceFixture.assertSameRecords;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Rows visited by cursor scan should be the same as records queried.
+ *
+ * @author xu.zx
+ */
+public class RowScanTest extends AbstractTest {
+
+  @Test
+  public void testScanCompositePrimaryKeyMysql56() throws IOException {
+    TableDef tableDef = TableDefUtil.covertToTableDef(new CompositePrimaryKeyMultiLevelTableReaderTest().sql());
+    tableDef.prepare();
+    try (StorageService storageService = IndexServiceFixture.open(IBD_FILE_BASE_PATH_MYSQL56 + "pk/tb24.ibd")) {
+      IndexServiceImpl indexService = IndexServiceFixture.indexService(storageService, tableDef);
+      List<GenericRecord> expected = indexService.queryAll(Optional.empty(), Optional.empty());
+      assertThat(expected.size(), is(4000));
+      assertSameRecords(scan(indexService, Collections.emptyList(), ComparisonOperator.NOP,
+          Collections.emptyList(), ComparisonOperator.NOP, Optional.empty()), expected);
+
+      // range across many pages, bounds are only compared on start and end page
+      List<Object> lower = expected.get(1000).getPrimaryKey();
+      List<Object> upper = expected.get(3000).getPrimaryKey();
+      assertSameRecords(scan(indexService, lower, ComparisonOperator.GT, upper, ComparisonOperator.LTE,
+          Optional.empty()), expected.subList(1001, 3001));
+      assertSameRecords(scan(indexService, lower, ComparisonOperator.GTE, upper, ComparisonOperator.LT,
+          Optional.empty()), expected.subList(1000, 3000));
+      assertSameRecords(scan(indexService, Collections.emptyList(), ComparisonOperator.NOP,
+          upper, ComparisonOperator.LT, Optional.empty()), expected.subList(0, 3000));
+      assertThat(scan(indexService, upper, ComparisonOperator.GT, lower, ComparisonOperator.LT,
+          Optional.empty()).isEmpty(), is(true));
+
+      // columns not in projection are not present
+      int c3 = tableDef.getField("c3").getOrdinal();
+      int c7 = tableDef.getField("c7").getOrdinal();
+      List<Object> values = new ArrayList<>(expected.size());
+      long count = indexService.scan(Collections.emptyList(), ComparisonOperator.NOP, Collections.emptyList(),
+          ComparisonOperator.NOP, Optional.of(Collections.singletonList("c3")), row -> {
+            assertThat(row.isPresent(c3), is(true));
+            assertThat(row.isPresent(c7), is(false));
+            values.add(row.get(c3));
+          });
+      assertThat(count, is(4000L));
+      for (int i = 0; i < expected.size(); i++) {
+        assertThat(values.get(i), is(expected.get(i).get("c3")));
+      }
+    }
+  }
+
+  @Test
+  public void testPrimitiveAccessorsMysql56() throws IOException {
+    TableDef tableDef = new ColumnIntegerTableReaderTest().getTableDef();
+    try (StorageService storageService = IndexServiceFixture.open(IBD_FILE_BASE_PATH_MYSQL56 + "column/int/tb02.ibd")) {
+      IndexServiceImpl indexService = IndexServiceFixture.indexService(storageService, tableDef);
+      List<GenericRecord> expected = indexService.queryAll(Optional.empty(), Optional.empty());
+      int[] index = new int[1];
+      long count = indexService.scan(Collections.emptyList(), ComparisonOperator.NOP, Collections.emptyList(),
+          ComparisonOperator.NOP, Optional.empty(), row -> {
+            GenericRecord record = expected.get(index[0]++);
+            for (Column column : tableDef.getColumnList()) {
+              int ordinal = column.getOrdinal();
+              Object value = record.get(ordinal);
+              assertThat(row.isNull(ordinal), is(false));
+              assertThat(row.get(ordinal), is(value));
+              if (value instanceof BigInteger) {
+                assertThat(row.getLong(ordinal), is(((BigInteger) value).longValue()));
+              } else {
+                assertThat(row.getLong(ordinal), is(((Number) value).longValue()));
+                assertThat(row.getDouble(ordinal), is(((Number) value).doubleValue()));
+              }
+              if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+                assertThat(row.getInt(ordinal), is(((Number) value).intValue()));
+              }
+            }
+          });
+      assertThat(count, is((long) expected.size()));
+    }
+  }
+
+  @Test
+  public void testNullAndBytesMysql57() throws IOException {
+    TableDef tableDef = new NullColumnTableReaderTest().getTableDef();
+    try (StorageService storageService = IndexServiceFixture.open(IBD_FILE_BASE_PATH_MYSQL57 + "nullcolumn/tb12.ibd")) {
+      IndexServiceImpl indexService = IndexServiceFixture.indexService(storageService, tableDef);
+      List<GenericRecord> expected = indexService.queryAll(Optional.empty(), Optional.empty());
+      byte[] buffer = new byte[1024];
+      int[] index = new int[1];
+      indexService.scan(Collections.emptyList(), ComparisonOperator.NOP, Collections.emptyList(),
+          ComparisonOperator.NOP, Optional.empty(), row -> {
+            GenericRecord record = expected.get(index[0]++);
+            for (Column column : tableDef.getColumnList()) {
+              int ordinal = column.getOrdinal();
+              Object value = record.get(ordinal);
+              assertThat(row.isNull(ordinal), is(value == null));
+              assertThat(row.get(ordinal), is(value));
+              if (value instanceof String) {
+                int length = row.getBytes(ordinal, buffer, 0);
+                assertThat(length, is(row.getLength(ordinal)));
+                assertThat(new String(buffer, 0, length).trim(), is(((String) value).trim()));
+              }
+            }
+            assertThat(Arrays.asList(row.toRecord().getValues()), is(Arrays.asList(record.getValues())));
+          });
+      assertThat(index[0], is(expected.size()));
+    }
+  }
+
+  @Test
+  public void testNoPrimaryKeyMysql57() throws IOException {
+    try (StorageService storageService = IndexServiceFixture.open(IBD_FILE_BASE_PATH_MYSQL57 + "pk/tb21.ibd")) {
+      TableDef tableDef = new NoPrimaryKeyTableReaderTest().getTableDef().setName("tb21");
+      IndexServiceImpl indexService = IndexServiceFixture.indexService(storageService, tableDef);
+      List<GenericRecord> expected = indexService.queryAll(Optional.empty(), Optional.empty());
+      List<GenericRecord> rows = scan(indexService, Collections.emptyList(), ComparisonOperator.NOP,
+          Collections.emptyList(), ComparisonOperator.NOP, Optional.empty());
+      assertThat(rows.size(), is(10));
+      for (int i = 0; i < expected.size(); i++) {
+        assertThat(rows.get(i).get("a"), is(expected.get(i).get("a")));
+        assertThat(rows.get(i).get("b"), is(expected.get(i).get("b")));
+        assertThat(rows.get(i).get("c"), is(expected.get(i).get("c")));
+      }
+      assertThat(rows.get(0).get("b"), is("Jason"));
+    }
+  }
+
+  private static List<GenericRecord> scan(IndexServiceImpl indexService, List<Object> lower,
+                                          ComparisonOperator lowerOperator, List<Object> upper,
+                                          ComparisonOperator upperOperator, Optional<List<String>> projection) {
+    List<GenericRecord> records = new ArrayList<>();
+    long count = indexService.scan(lower, lowerOperator, upper, upperOperator, projection,
+        (Row row) -> records.add(row.toRecord()));
+    assertThat(count, is((long) records.size()));
+    return records;
+  }
+
+}
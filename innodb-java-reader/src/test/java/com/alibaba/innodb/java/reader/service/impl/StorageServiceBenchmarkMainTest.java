@@ -0,0 +1,106 @@
+package com.alibaba.innodb.java.reader.service.impl;
+
+import com.alibaba.innodb.java.reader.AbstractTest;
+import com.alibaba.innodb.java.reader.page.index.GenericRecord;
+import com.alibaba.innodb.java.reader.pk.CompositePrimaryKeyMultiLevelTableReaderTest;
+import com.alibaba.innodb.java.reader.schema.TableDef;
+import com.alibaba.innodb.java.reader.schema.TableDefUtil;
+import com.alibaba.innodb.java.reader.service.IndexService;
+import com.alibaba.innodb.java.reader.service.StorageService;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.function.Supplier;
+
+/**
+ * Benchmark of storage service implementations, covers random primary key lookup and
+ * full table scan.
+ * <p>
+ * Usage: <code>StorageServiceBenchmarkMainTest [ibdFilePath createTableSql [rounds]]</code>,
+ * by default <code>pk/tb24.ibd</code> in test suite is used. For meaningful result, run against
+ * a large table and compare warm page cache numbers.
+ *
+ * @author xu.zx
+ */
+public class StorageServiceBenchmarkMainTest {
+
+  public static void main(String[] args) throws IOException {
+    String ibdFilePath = args.length > 0 ? args[0]
+        : AbstractTest.IBD_FILE_BASE_PATH_MYSQL56 + "pk/tb24.ibd";
+    String sql = args.length > 1 ? args[1] : new CompositePrimaryKeyMultiLevelTableReaderTest().sql();
+    int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+    TableDef tableDef = TableDefUtil.covertToTableDef(sql);
+    tableDef.prepare();
+
+    List<List<Object>> keys = new ArrayList<>();
+    try (StorageService storageService = IndexServiceFixture.open(ibdFilePath)) {
+      IndexService indexService = IndexServiceFixture.indexService(storageService, tableDef);
+      indexService.getQueryAllIterator(Optional.empty(), true)
+          .forEachRemaining(r -> keys.add(r.getPrimaryKey()));
+    }
+    Collections.shuffle(keys, new Random(1L));
+    System.out.println("file=" + ibdFilePath + ", records=" + keys.size() + ", rounds=" + rounds);
+
+    benchmark("FileChannel", FileChannelStorageServiceImpl::new, ibdFilePath, tableDef, keys, rounds);
+    benchmark("Mmap", MmapStorageServiceImpl::new, ibdFilePath, tableDef, keys, rounds);
+    benchmark("DirectIo", DirectIoStorageServiceImpl::new, ibdFilePath, tableDef, keys, rounds);
+    benchmark("BufferPool", () -> new BufferPoolStorageServiceImpl(new FileChannelStorageServiceImpl(), 64L << 20),
+        ibdFilePath, tableDef, keys, rounds);
+  }
+
+  private static void benchmark(String name, Supplier<StorageService> supplier, String ibdFilePath,
+                                TableDef tableDef, List<List<Object>> keys, int rounds) throws IOException {
+    try (StorageService storageService = supplier.get()) {
+      storageService.open(ibdFilePath);
+      IndexService indexService = IndexServiceFixture.indexService(storageService, tableDef);
+
+      // warm up
+      scan(indexService);
+      lookup(indexService, keys);
+
+      long start = System.nanoTime();
+      long count = 0;
+      for (int i = 0; i < rounds; i++) {
+        count += scan(indexService);
+      }
+      long scanNanos = System.nanoTime() - start;
+
+      start = System.nanoTime();
+      long found = 0;
+      for (int i = 0; i < rounds; i++) {
+        found += lookup(indexService, keys);
+      }
+      long lookupNanos = System.nanoTime() - start;
+
+      System.out.printf("%-12s full scan: %8.2f ms/round, %10.0f rows/s | random pk lookup: %8.2f us/op (%d found)%n",
+          name, scanNanos / 1e6 / rounds, count * 1e9 / scanNanos,
+          lookupNanos / 1e3 / Math.max(1, (long) keys.size() * rounds), found);
+    }
+  }
+
+  private static long scan(IndexService indexService) {
+    Iterator<GenericRecord> iterator = indexService.getQueryAllIterator(Optional.empty(), true);
+    long count = 0;
+    while (iterator.hasNext()) {
+      iterator.next();
+      count++;
+    }
+    return count;
+  }
+
+  private static long lookup(IndexService indexService, List<List<Object>> keys) {
+    long found = 0;
+    for (List<Object> key : keys) {
+      if (indexService.queryByPrimaryKey(key, Optional.empty()) != null) {
+        found++;
+      }
+    }
+    return found;
+  }
+
+}
@@ -0,0 +1,127 @@
+package com.alibaba.innodb.java.reader.service.impl;
+
+import com.alibaba.innodb.java.reader.AbstractTest;
+import com.alibaba.innodb.java.reader.deletion.DeletionTableReaderTest;
+import com.alibaba.innodb.java.reader.page.index.GenericRecord;
+import com.alibaba.innodb.java.reader.pk.CompositePrimaryKeyMultiLevelTableReaderTest;
+import com.alibaba.innodb.java.reader.pk.NoPrimaryKeyTableReaderTest;
+import com.alibaba.innodb.java.reader.schema.TableDef;
+import com.alibaba.innodb.java.reader.schema.TableDefUtil;
+import com.alibaba.innodb.java.reader.service.StorageService;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Records scanned in physical order should be the same as records scanned along B+ tree.
+ *
+ * @author xu.zx
+ */
+public class UnorderedScanTest extends AbstractTest {
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void testCompositePrimaryKeyMysql56() throws IOException {
+    TableDef tableDef = TableDefUtil.covertToTableDef(new CompositePrimaryKeyMultiLevelTableReaderTest().sql());
+    String path = IBD_FILE_BASE_PATH_MYSQL56 + "pk/tb24.ibd";
+    testUnorderedScan(path, tableDef, Optional.empty());
+    testUnorderedScan(path, tableDef, Optional.of(Arrays.asList("c3", "c7")));
+  }
+
+  @Test
+  public void testDeletedRecordsMysql56() throws IOException {
+    testUnorderedScan(IBD_FILE_BASE_PATH_MYSQL56 + "deletion/tb13.ibd", new DeletionTableReaderTest().getTableDef(),
+        Optional.empty());
+  }
+
+  @Test
+  public void testDeletedRecordsMysql57() throws IOException {
+    testUnorderedScan(IBD_FILE_BASE_PATH_MYSQL57 + "deletion/tb13.ibd", new DeletionTableReaderTest().getTableDef(),
+        Optional.empty());
+  }
+
+  @Test
+  public void testDeletedRecordsMysql80() throws IOException {
+    testUnorderedScan(IBD_FILE_BASE_PATH_MYSQL80 + "deletion/tb13.ibd", new DeletionTableReaderTest().getTableDef(),
+        Optional.of(Collections.singletonList("b")));
+  }
+
+  @Test
+  public void testNoPrimaryKeyMysql57() throws IOException {
+    TableDef tableDef = new NoPrimaryKeyTableReaderTest().getTableDef().setName("tb21");
+    testUnorderedScan(IBD_FILE_BASE_PATH_MYSQL57 + "pk/tb21.ibd", tableDef, Optional.empty());
+  }
+
+  @Test
+  public void testSkipFreePage() throws IOException {
+    TableDef tableDef = new DeletionTableReaderTest().getTableDef();
+    File file = XdesFixture.copyOf(temporaryFolder, IBD_FILE_BASE_PATH_MYSQL56 + "deletion/tb13.ibd");
+
+    long freePageNumber;
+    int recordsInFreePage;
+    try (StorageService storageService = IndexServiceFixture.open(file.getAbsolutePath())) {
+      IndexServiceImpl indexService = IndexServiceFixture.indexService(storageService, tableDef);
+      GenericRecord last = indexService.getQueryAllIterator(Optional.empty(), false).next();
+      freePageNumber = last.getPageNumber();
+      recordsInFreePage = indexService.queryByPageNumber(freePageNumber).size();
+      assertThat(new ExtentReader(storageService).isFreePage(freePageNumber), is(false));
+    }
+
+    // mark the last leaf page as free, its content is untouched
+    XdesFixture.markPageFree(file, freePageNumber);
+
+    try (StorageService storageService = IndexServiceFixture.open(file.getAbsolutePath())) {
+      assertThat(new ExtentReader(storageService).isFreePage(freePageNumber), is(true));
+      IndexServiceImpl indexService = IndexServiceFixture.indexService(storageService, tableDef);
+      long count = indexService.unorderedScan(Optional.empty(), Optional.empty(),
+          record -> assertThat(record.getPageNumber() == freePageNumber, is(false)));
+      assertThat(count, is(2000L - recordsInFreePage));
+    }
+  }
+
+  private void testUnorderedScan(String ibdFilePath, TableDef tableDef,
+                                 Optional<List<String>> projection) throws IOException {
+    try (StorageService storageService = IndexServiceFixture.open(ibdFilePath)) {
+      IndexServiceImpl indexService = IndexServiceFixture.indexService(storageService, tableDef);
+      List<GenericRecord> expected = indexService.queryAll(Optional.empty(), projection);
+      assertThat(expected.isEmpty(), is(false));
+
+      List<GenericRecord> actual = new ArrayList<>();
+      long count = indexService.unorderedScan(Optional.empty(), projection, actual::add);
+      assertThat(count, is((long) expected.size()));
+      assertThat(actual.size(), is(expected.size()));
+      Map<Long, List<List<Object>>> expectedByPage = groupByPage(expected);
+      assertThat(groupByPage(actual), is(expectedByPage));
+
+      // predicate
+      long filtered = indexService.unorderedScan(Optional.of(r -> r.getPageNumber() % 2 == 0), projection, r -> {
+      });
+      assertThat(filtered, is(expected.stream().filter(r -> r.getPageNumber() % 2 == 0).count()));
+    }
+  }
+
+  private static Map<Long, List<List<Object>>> groupByPage(List<GenericRecord> records) {
+    Map<Long, List<List<Object>>> result = new HashMap<>(16);
+    for (GenericRecord record : records) {
+      result.computeIfAbsent(record.getPageNumber(), k -> new ArrayList<>()).add(Arrays.asList(record.getValues()));
+    }
+    return result;
+  }
+
+}
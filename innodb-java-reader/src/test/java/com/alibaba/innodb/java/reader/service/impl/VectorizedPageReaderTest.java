@@ -0,0 +1,142 @@
+package com.alibaba.innodb.java.reader.service.impl;
+
+import com.alibaba.innodb.java.reader.AbstractTest;
+import com.alibaba.innodb.java.reader.column.ColumnDecimalTableReaderTest;
+import com.alibaba.innodb.java.reader.column.ColumnFloatTableReaderTest;
+import com.alibaba.innodb.java.reader.column.ColumnIntegerTableReaderTest;
+import com.alibaba.innodb.java.reader.nullcolumn.NullColumnTableReaderTest;
+import com.alibaba.innodb.java.reader.page.index.ColumnVector;
+import com.alibaba.innodb.java.reader.page.index.GenericRecord;
+import com.alibaba.innodb.java.reader.pk.CompositePrimaryKeyMultiLevelTableReaderTest;
+import com.alibaba.innodb.java.reader.pk.NoPrimaryKeyTableReaderTest;
+import com.alibaba.innodb.java.reader.schema.Column;
+import com.alibaba.innodb.java.reader.schema.TableDef;
+import com.alibaba.innodb.java.reader.schema.TableDefUtil;
+import com.alibaba.innodb.java.reader.service.StorageService;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Column vectors decoded page by page should be the same as records queried.
+ *
+ * @author xu.zx
+ */
+public class VectorizedPageReaderTest extends AbstractTest {
+
+  @Test
+  public void testCompositePrimaryKeyMysql56() throws IOException {
+    TableDef tableDef = TableDefUtil.covertToTableDef(new CompositePrimaryKeyMultiLevelTableReaderTest().sql());
+    tableDef.prepare();
+    int batches = testScanBatch(IBD_FILE_BASE_PATH_MYSQL56 + "pk/tb24.ibd", tableDef, Optional.empty());
+    assertThat(batches > 1, is(true));
+    testScanBatch(IBD_FILE_BASE_PATH_MYSQL56 + "pk/tb24.ibd", tableDef, Optional.of(Arrays.asList("c3", "c7")));
+  }
+
+  @Test
+  public void testIntegerColumnsMysql57() throws IOException {
+    testScanBatch(IBD_FILE_BASE_PATH_MYSQL57 + "column/int/tb02.ibd", new ColumnIntegerTableReaderTest().getTableDef(),
+        Optional.empty());
+  }
+
+  @Test
+  public void testFloatColumnsMysql56() throws IOException {
+    testScanBatch(IBD_FILE_BASE_PATH_MYSQL56 + "column/float/tb15.ibd", new ColumnFloatTableReaderTest().getTableDef(),
+        Optional.empty());
+  }
+
+  @Test
+  public void testNullColumnsMysql80() throws IOException {
+    testScanBatch(IBD_FILE_BASE_PATH_MYSQL80 + "nullcolumn/tb12.ibd", new NullColumnTableReaderTest().getTableDef(),
+        Optional.empty());
+  }
+
+  @Test
+  public void testDecimalMysql57() throws IOException {
+    testScanBatch(IBD_FILE_BASE_PATH_MYSQL57 + "column/decimal/tb19.ibd",
+        new ColumnDecimalTableReaderTest().getTableDef(), Optional.empty());
+  }
+
+  @Test
+  public void testNoPrimaryKeyMysql57() throws IOException {
+    TableDef tableDef = new NoPrimaryKeyTableReaderTest().getTableDef().setName("tb21");
+    testScanBatch(IBD_FILE_BASE_PATH_MYSQL57 + "pk/tb21.ibd", tableDef, Optional.empty());
+  }
+
+  /**
+   * Scan and compare, return number of batches.
+   */
+  private int testScanBatch(String ibdFilePath, TableDef tableDef,
+                            Optional<List<String>> projection) throws IOException {
+    try (StorageService storageService = IndexServiceFixture.open(ibdFilePath)) {
+      IndexServiceImpl indexService = IndexServiceFixture.indexService(storageService, tableDef);
+      List<GenericRecord> expected = indexService.queryAll(Optional.empty(), Optional.empty());
+      assertThat(expected.isEmpty(), is(false));
+      Set<String> projected = projection.isPresent() ? new HashSet<>(projection.get()) : null;
+
+      int[] index = new int[1];
+      int[] batches = new int[1];
+      long count = indexService.scanBatch(projection, batch -> {
+        for (Column column : tableDef.getColumnList()) {
+          boolean present = projected == null || projected.contains(column.getName())
+              || tableDef.getPrimaryKeyColumns().contains(column);
+          assertThat(batch.isPresent(column.getOrdinal()), is(present));
+          if (present) {
+            assertVector(batch.getVector(column.getName()), expected.subList(index[0], index[0] + batch.size()));
+          }
+        }
+        for (int i = 0; i < batch.size(); i++) {
+          assertThat(expected.get(index[0] + i).getPageNumber(), is(batch.getPageNumber()));
+        }
+        index[0] += batch.size();
+        batches[0]++;
+      });
+      assertThat(count, is((long) expected.size()));
+      assertThat(index[0], is(expected.size()));
+      return batches[0];
+    }
+  }
+
+  private static void assertVector(ColumnVector vector, List<GenericRecord> records) {
+    assertThat(vector.size(), is(records.size()));
+    int ordinal = vector.getColumn().getOrdinal();
+    for (int i = 0; i < records.size(); i++) {
+      Object value = records.get(i).get(ordinal);
+      assertThat(vector.isNull(i), is(value == null));
+      if (value == null) {
+        continue;
+      }
+      switch (vector.getKind()) {
+        case INT:
+          assertThat(vector.getInt(i), is(((Number) value).intValue()));
+          break;
+        case LONG:
+          long expected = value instanceof BigInteger
+              ? ((BigInteger) value).longValue() : ((Number) value).longValue();
+          assertThat(vector.getLong(i), is(expected));
+          break;
+        case DOUBLE:
+          assertThat(vector.getDouble(i), is(((Number) value).doubleValue()));
+          break;
+        case BYTES:
+          String actual = new String(vector.getData(), vector.getOffset(i), vector.getLength(i));
+          assertThat(actual.trim(), is(String.valueOf(value).trim()));
+          break;
+        default:
+          assertThat(vector.getObject(i), is(value));
+          break;
+      }
+    }
+  }
+
+}
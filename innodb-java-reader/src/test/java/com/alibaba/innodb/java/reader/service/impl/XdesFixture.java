@@ -0,0 +1,95 @@
+package com.alibaba.innodb.java.reader.service.impl;
+
+import com.alibaba.innodb.java.reader.page.fsphdr.XdesState;
+
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+import static com.alibaba.innodb.java.reader.Constants.PAGES_PER_EXTENT;
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Patch XDES entries in FSP_HDR page of a copy of tablespace, so that extents or pages
+ * can be marked free while their content is untouched.
+ * <p>
+ * Only extents described by FSP_HDR page, that is the first 256 extents, are supported.
+ *
+ * @author xu.zx
+ */
+final class XdesFixture {
+
+  /**
+   * 38 bytes file header + 112 bytes FSP header.
+   */
+  private static final int XDES_ENTRY_OFFSET = 150;
+
+  private static final int XDES_ENTRY_SIZE = 40;
+
+  /**
+   * 8 bytes segment id + 12 bytes list node.
+   */
+  private static final int XDES_STATE_OFFSET = 20;
+
+  /**
+   * 8 bytes segment id + 12 bytes list node + 4 bytes state.
+   */
+  private static final int XDES_BITMAP_OFFSET = 24;
+
+  private static final int MAX_EXTENTS = 256;
+
+  private XdesFixture() {
+  }
+
+  /**
+   * Copy tablespace into temporary folder.
+   *
+   * @param temporaryFolder temporary folder
+   * @param ibdFilePath     tablespace to copy
+   * @return the copy
+   */
+  static File copyOf(TemporaryFolder temporaryFolder, String ibdFilePath) throws IOException {
+    File file = temporaryFolder.newFile(new File(ibdFilePath).getName());
+    Files.copy(new File(ibdFilePath).toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    return file;
+  }
+
+  /**
+   * Set state of extent to {@link XdesState#FREE}.
+   *
+   * @param file         tablespace
+   * @param extentNumber extent number
+   */
+  static void markExtentFree(File file, long extentNumber) throws IOException {
+    checkArgument(extentNumber < MAX_EXTENTS, "extent is not described by FSP_HDR page");
+    try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+      raf.seek(XDES_ENTRY_OFFSET + extentNumber * XDES_ENTRY_SIZE + XDES_STATE_OFFSET);
+      raf.writeInt(XdesState.FREE.type());
+    }
+  }
+
+  /**
+   * Set free bit of page in page state bitmap of XDES entry.
+   *
+   * @param file       tablespace
+   * @param pageNumber page number
+   */
+  static void markPageFree(File file, long pageNumber) throws IOException {
+    long extentNumber = pageNumber / PAGES_PER_EXTENT;
+    checkArgument(extentNumber < MAX_EXTENTS, "extent is not described by FSP_HDR page");
+    // 2 bits per page, the first one is free bit
+    int bit = (int) (pageNumber % PAGES_PER_EXTENT) * 2;
+    long offset = XDES_ENTRY_OFFSET + extentNumber * XDES_ENTRY_SIZE + XDES_BITMAP_OFFSET + bit / 8;
+    try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+      raf.seek(offset);
+      int b = raf.read();
+      raf.seek(offset);
+      raf.write(b | (1 << (bit % 8)));
+    }
+  }
+
+}
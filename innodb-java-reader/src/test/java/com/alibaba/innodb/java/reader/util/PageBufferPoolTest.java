@@ -0,0 +1,136 @@
+package com.alibaba.innodb.java.reader.util;
+
+import com.alibaba.innodb.java.reader.AbstractTest;
+import com.alibaba.innodb.java.reader.comparator.DefaultKeyComparator;
+import com.alibaba.innodb.java.reader.page.InnerPage;
+import com.alibaba.innodb.java.reader.page.index.GenericRecord;
+import com.alibaba.innodb.java.reader.pk.CompositePrimaryKeyMultiLevelTableReaderTest;
+import com.alibaba.innodb.java.reader.schema.TableDef;
+import com.alibaba.innodb.java.reader.schema.TableDefUtil;
+import com.alibaba.innodb.java.reader.service.IndexService;
+import com.alibaba.innodb.java.reader.service.StorageService;
+import com.alibaba.innodb.java.reader.service.impl.FileChannelStorageServiceImpl;
+import com.alibaba.innodb.java.reader.service.impl.IndexServiceImpl;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsSame.sameInstance;
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author xu.zx
+ */
+public class PageBufferPoolTest extends AbstractTest {
+
+  private static final String IBD_FILE = IBD_FILE_BASE_PATH_MYSQL56 + "pk/tb24.ibd";
+
+  @Test
+  public void testAcquireAndRelease() {
+    PageBufferPool pool = new PageBufferPool(1, false);
+    ByteBuffer buffer1 = pool.acquire();
+    pool.release(buffer1);
+    assertThat(pool.acquire(), sameInstance(buffer1));
+    ByteBuffer buffer2 = pool.acquire();
+    pool.release(buffer1);
+    // pool is full, buffer2 is dropped
+    pool.release(buffer2);
+    assertThat(pool.getFreeBufferCount(), is(1));
+    assertThat(pool.getAllocatedCount(), is(2L));
+    assertThat(pool.getAcquiredCount(), is(3L));
+  }
+
+  @Test
+  public void testReleasePage() throws IOException {
+    PageBufferPool pool = new PageBufferPool(4, true);
+    try (StorageService storageService = new FileChannelStorageServiceImpl(pool)) {
+      storageService.open(IBD_FILE);
+      InnerPage page = storageService.loadPage(3);
+      page.release();
+      // release twice is no-op
+      page.release();
+      assertThat(pool.getReleasedCount(), is(1L));
+      assertThat(pool.getFreeBufferCount(), is(1));
+      assertThat(pool.getLeakCount(), is(0L));
+    }
+  }
+
+  @Test
+  public void testScanWithoutAllocationInSteadyState() throws IOException {
+    TableDef tableDef = TableDefUtil.covertToTableDef(new CompositePrimaryKeyMultiLevelTableReaderTest().sql());
+    tableDef.prepare();
+    List<GenericRecord> expected;
+    try (StorageService storageService = new FileChannelStorageServiceImpl(null)) {
+      storageService.open(IBD_FILE);
+      expected = new IndexServiceImpl(storageService, tableDef, new DefaultKeyComparator())
+          .queryAll(Optional.empty(), Optional.empty());
+    }
+
+    PageBufferPool pool = new PageBufferPool(16, true);
+    try (StorageService storageService = new FileChannelStorageServiceImpl(pool)) {
+      storageService.open(IBD_FILE);
+      IndexService indexService = new IndexServiceImpl(storageService, tableDef, new DefaultKeyComparator());
+
+      assertRecordsEqual(scan(indexService, true), expected);
+      long allocated = pool.getAllocatedCount();
+      // bounded by tree height
+      assertThat(allocated, lessThanOrEqualTo(4L));
+
+      for (int i = 0; i < 3; i++) {
+        assertRecordsEqual(scan(indexService, true), expected);
+        List<GenericRecord> desc = scan(indexService, false);
+        assertThat(desc.get(0).getValues(), is(expected.get(expected.size() - 1).getValues()));
+        assertRecordsEqual(indexService.queryAll(Optional.empty(), Optional.empty()), expected);
+        for (int j = 0; j < expected.size(); j += 97) {
+          GenericRecord record = indexService.queryByPrimaryKey(expected.get(j).getPrimaryKey(), Optional.empty());
+          assertThat(record.getValues(), is(expected.get(j).getValues()));
+        }
+      }
+      assertThat(pool.getAllocatedCount(), is(allocated));
+      assertThat(pool.getReleasedCount(), is(pool.getAcquiredCount()));
+      assertThat(pool.getLeakCount(), is(0L));
+    }
+  }
+
+  @Test
+  public void testLeakDetection() throws Exception {
+    PageBufferPool pool = new PageBufferPool(4, true);
+    try (StorageService storageService = new FileChannelStorageServiceImpl(pool)) {
+      storageService.open(IBD_FILE);
+      for (int i = 0; i < 4; i++) {
+        storageService.loadPage(3);
+      }
+      for (int i = 0; i < 20 && pool.getLeakCount() == 0; i++) {
+        System.gc();
+        Thread.sleep(50L);
+      }
+      assertThat(pool.getLeakCount() > 0, is(true));
+      assertThat(pool.getReleasedCount(), is(0L));
+    }
+  }
+
+  private List<GenericRecord> scan(IndexService indexService, boolean asc) {
+    List<GenericRecord> result = new ArrayList<>();
+    Iterator<GenericRecord> iterator = indexService.getQueryAllIterator(Optional.empty(), asc);
+    while (iterator.hasNext()) {
+      result.add(iterator.next());
+    }
+    return result;
+  }
+
+  private void assertRecordsEqual(List<GenericRecord> actual, List<GenericRecord> expected) {
+    assertThat(actual.size(), is(expected.size()));
+    for (int i = 0; i < expected.size(); i++) {
+      assertThat(actual.get(i).getValues(), is(expected.get(i).getValues()));
+    }
+  }
+
+}
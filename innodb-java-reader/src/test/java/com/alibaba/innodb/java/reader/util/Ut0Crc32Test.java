@@ -1,7 +1,11 @@
 package com.alibaba.innodb.java.reader.util;
 
+import com.google.common.hash.Hashing;
+
 import org.junit.Test;
 
+import java.util.Random;
+
 import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertThat;
 
@@ -16,6 +20,22 @@ public class Ut0Crc32Test {
     byte[] bytes = str.getBytes();
     assertThat(Ut0Crc32.crc32(bytes, 0, bytes.length), is(1090276284L));
     assertThat(Ut0Crc32.crc32ByteByByte(bytes, 0, bytes.length), is(1090276284L));
+    assertThat(Ut0Crc32.crc32c(bytes, 0, bytes.length), is(1090276284L));
+  }
+
+  @Test
+  public void testCrc32cSameAsTable() {
+    Random random = new Random(1L);
+    byte[] bytes = new byte[16384];
+    random.nextBytes(bytes);
+    for (int i = 0; i < 100; i++) {
+      int offset = random.nextInt(bytes.length);
+      int len = random.nextInt(bytes.length - offset);
+      long expected = Ut0Crc32.crc32(bytes, offset, len);
+      assertThat(Ut0Crc32.crc32c(bytes, offset, len), is(expected));
+      assertThat(Ut0Crc32.crc32ByteByByte(bytes, offset, len), is(expected));
+      assertThat((long) Hashing.crc32c().hashBytes(bytes, offset, len).asInt() & 0xFFFFFFFFL, is(expected));
+    }
   }
 
 }